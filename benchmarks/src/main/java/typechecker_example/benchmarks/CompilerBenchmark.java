@@ -0,0 +1,53 @@
+package typechecker_example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.compiler.*;
+import typechecker_example.interpreter.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+// Runs the same programs compiled to bytecode and in the interpreter.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompilerBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Interpreter interpretedList;
+    private CompiledProgram compiledList;
+    private Interpreter interpretedChurn;
+    private CompiledProgram compiledChurn;
+
+    @Setup
+    public void setup() throws TypeErrorException, CompileException {
+        interpretedList = new Interpreter(ProgramGenerator.linkedList());
+        compiledList = new CompiledProgram(ProgramGenerator.linkedList());
+        interpretedChurn = new Interpreter(ProgramGenerator.mallocChurn());
+        compiledChurn = new CompiledProgram(ProgramGenerator.mallocChurn());
+    }
+
+    @Benchmark
+    public long interpretedLinkedList() throws InterpreterException {
+        return interpretedList.call(new FunctionName("sumList"), size);
+    }
+
+    @Benchmark
+    public long compiledLinkedList() throws InterpreterException {
+        return compiledList.call(new FunctionName("sumList"), size);
+    }
+
+    @Benchmark
+    public long interpretedMallocChurn() throws InterpreterException {
+        return interpretedChurn.call(new FunctionName("churn"), size);
+    }
+
+    @Benchmark
+    public long compiledMallocChurn() throws InterpreterException {
+        return compiledChurn.call(new FunctionName("churn"), size);
+    }
+}
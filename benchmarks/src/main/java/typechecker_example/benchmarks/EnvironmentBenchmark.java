@@ -0,0 +1,58 @@
+package typechecker_example.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+// Declares locals one after another, looking up the previous one at each,
+// as checking a declaration spine does: once with TypeEnvironment, and
+// once with a map copied per declaration, as the typechecker used to do.
+// The copying map is quadratic, which bounds the sizes worth running.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnvironmentBenchmark {
+    @Param({"100", "1000", "10000", "20000"})
+    public int locals;
+
+    private Variable[] variables;
+
+    @Setup
+    public void setup() {
+        variables = new Variable[locals];
+        for (int index = 0; index < locals; index++) {
+            variables[index] = new Variable("v" + index);
+        }
+    }
+
+    @Benchmark
+    public TypeEnvironment persistent() {
+        TypeEnvironment env = TypeEnvironment.empty();
+        for (int index = 0; index < variables.length; index++) {
+            if (index > 0 && env.lookup(variables[index - 1]) == null) {
+                throw new IllegalStateException("Lost " + variables[index - 1]);
+            }
+            env = env.extend(variables[index], TypeTable.INT_TYPE);
+        }
+        return env;
+    }
+
+    @Benchmark
+    public Map<Variable, Type> copied() {
+        Map<Variable, Type> env = new HashMap<Variable, Type>();
+        for (int index = 0; index < variables.length; index++) {
+            if (index > 0 && env.get(variables[index - 1]) == null) {
+                throw new IllegalStateException("Lost " + variables[index - 1]);
+            }
+            env = new HashMap<Variable, Type>(env);
+            env.put(variables[index], TypeTable.INT_TYPE);
+        }
+        return env;
+    }
+}
@@ -0,0 +1,63 @@
+package typechecker_example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+// Compares checking the object form of a program with checking its
+// FlatProgram.  JMH doesn't measure retained heap, so setup prints the
+// footprint of each form, as the growth in used heap after a full GC.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class FlatProgramBenchmark {
+    @Param({"42"})
+    public long seed;
+
+    @Param({"100", "10000"})
+    public int functions;
+
+    private Program program;
+    private FlatProgram flat;
+
+    @Setup
+    public void setup() {
+        final long beforeProgram = usedHeap();
+        program = ProgramGenerator.generate(seed,
+                                            new ProgramGenerator.Shape(20, 5, functions, 3, 20, 4, 8));
+        final long beforeFlat = usedHeap();
+        flat = FlatBuilder.build(program);
+        final long afterFlat = usedHeap();
+        System.out.println();
+        System.out.println("nodes: " + flat.nodeCount);
+        System.out.println("object form: " + (beforeFlat - beforeProgram) + " bytes");
+        System.out.println("flat form: " + (afterFlat - beforeFlat) + " bytes");
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int index = 0; index < 3; index++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public void objectForm() throws TypeErrorException {
+        Typechecker.forProgram(program).typecheck(program);
+    }
+
+    @Benchmark
+    public void flatForm() throws TypeErrorException {
+        new FlatTypechecker(flat).typecheck();
+    }
+
+    @Benchmark
+    public FlatProgram build() {
+        return FlatBuilder.build(program);
+    }
+}
@@ -0,0 +1,39 @@
+package typechecker_example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.interpreter.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+// Runs programs which allocate heavily: one mallocs and frees a block per
+// iteration, and the other builds, sums, and frees a linked list.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterpreterBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Interpreter churn;
+    private Interpreter list;
+
+    @Setup
+    public void setup() throws TypeErrorException {
+        churn = new Interpreter(ProgramGenerator.mallocChurn());
+        list = new Interpreter(ProgramGenerator.linkedList());
+    }
+
+    @Benchmark
+    public long mallocChurn() throws InterpreterException {
+        return churn.call(new FunctionName("churn"), size);
+    }
+
+    @Benchmark
+    public long linkedList() throws InterpreterException {
+        return list.call(new FunctionName("sumList"), size);
+    }
+}
@@ -0,0 +1,459 @@
+package typechecker_example.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import typechecker_example.syntax.*;
+
+// Generates random well-typed programs.  The same seed and shape always
+// produce the same program, so benchmark numbers are reproducible.
+public class ProgramGenerator {
+    public static class Shape {
+        public final int structs;
+        public final int fieldsPerStruct;
+        public final int functions;
+        public final int parametersPerFunction;
+        public final int statementsPerFunction;
+        public final int expressionDepth;
+        public final int callsPerFunction;
+
+        public Shape(final int structs,
+                     final int fieldsPerStruct,
+                     final int functions,
+                     final int parametersPerFunction,
+                     final int statementsPerFunction,
+                     final int expressionDepth,
+                     final int callsPerFunction) {
+            this.structs = structs;
+            this.fieldsPerStruct = fieldsPerStruct;
+            this.functions = functions;
+            this.parametersPerFunction = parametersPerFunction;
+            this.statementsPerFunction = statementsPerFunction;
+            this.expressionDepth = expressionDepth;
+            this.callsPerFunction = callsPerFunction;
+        }
+    } // Shape
+
+    private static class Signature {
+        public final Type returnType;
+        public final FunctionName name;
+        public final VariableDeclaration[] parameters;
+
+        public Signature(final Type returnType,
+                         final FunctionName name,
+                         final VariableDeclaration[] parameters) {
+            this.returnType = returnType;
+            this.name = name;
+            this.parameters = parameters;
+        }
+    } // Signature
+
+    private static final Type[] PRIMITIVE_TYPES =
+        new Type[]{ new IntType(), new BoolType(), new CharType() };
+
+    // begin instance variables
+    private final Random random;
+    private final Shape shape;
+    private final StructureDeclaration[] structs;
+    private final Signature[] signatures;
+    private StructureDeclaration charStruct;
+    private FieldName charField;
+
+    // per-function state
+    private final Map<Type, List<Variable>> scope;
+    private int nextLocal;
+
+    public ProgramGenerator(final long seed, final Shape shape) {
+        this.random = new Random(seed);
+        this.shape = shape;
+        this.structs = new StructureDeclaration[shape.structs];
+        this.signatures = new Signature[shape.functions];
+        this.scope = new HashMap<Type, List<Variable>>();
+    }
+
+    public static Program generate(final long seed, final Shape shape) {
+        return new ProgramGenerator(seed, shape).generate();
+    }
+
+    // left-deep chain of additions: ((0 + 1) + 2) + ... + depth
+    public static Exp binopChain(final int depth) {
+        Exp retval = new IntExp(0);
+        for (int index = 1; index <= depth; index++) {
+            retval = new BinopExp(retval, new PlusOp(), new IntExp(index));
+        }
+        return retval;
+    }
+
+    // e0 = 0, and e(n + 1) = en + en, where both operands are the same
+    // instance; a tree of 2^depth leaves, as a DAG of depth + 1 nodes
+    public static Exp binopDag(final int depth) {
+        Exp retval = new IntExp(0);
+        for (int index = 0; index < depth; index++) {
+            retval = new BinopExp(retval, new PlusOp(), retval);
+        }
+        return retval;
+    }
+
+    // int v0 = 0; int v1 = v0 + 1; ... ; return v(length - 1)
+    public static Stmt declarationSpine(final int length) {
+        Stmt retval = new ReturnExpStmt(new VariableExp(local(length - 1)));
+        for (int index = length - 1; index >= 0; index--) {
+            final Exp init = (index == 0) ?
+                new IntExp(0) :
+                new BinopExp(new VariableExp(local(index - 1)), new PlusOp(), new IntExp(1));
+            retval = new SequenceStmt(new VariableDeclarationInitializationStmt(
+                                          new VariableDeclaration(new IntType(), local(index)),
+                                          init),
+                                      retval);
+        }
+        return retval;
+    }
+
+    private static Variable local(final int index) {
+        return new Variable("v" + index);
+    }
+
+    // struct Node { int value; Node* next; }
+    // int sumList(int n) {
+    //   Node* head = (Node*)0; int i = 0;
+    //   while (i < n) {
+    //     Node* node = (Node*)malloc(sizeof(Node));
+    //     *node = Node(i, head); head = node; i = i + 1;
+    //   }
+    //   int sum = 0;
+    //   while (0 < i) {
+    //     Node* next = (*head).next; sum = sum + (*head).value;
+    //     void done = free((void*)head); head = next; i = i - 1;
+    //   }
+    //   return sum;
+    // }
+    public static Program linkedList() {
+        final StructureName node = new StructureName("Node");
+        final Type nodeType = new StructureType(node);
+        final Type nodePointer = new PointerType(nodeType);
+        final Variable n = new Variable("n");
+        final Variable head = new Variable("head");
+        final Variable i = new Variable("i");
+        final Variable newNode = new Variable("node");
+        final Variable sum = new Variable("sum");
+        final Variable next = new Variable("next");
+        final StructureDeclaration nodeDec =
+            new StructureDeclaration(node, new VariableDeclaration[]{
+                    new VariableDeclaration(new IntType(), new Variable("value")),
+                    new VariableDeclaration(nodePointer, new Variable("next"))
+                });
+
+        final Stmt build =
+            new WhileStmt(new BinopExp(new VariableExp(i), new LessThanOp(), new VariableExp(n)),
+                          sequence(declare(nodePointer, newNode,
+                                           new CastExp(nodePointer,
+                                                       new MallocExp(new SizeofExp(nodeType)))),
+                                   new AssignmentStmt(new DereferenceLhs(new VariableLhs(newNode)),
+                                                      new MakeStructureExp(node, new Exp[]{
+                                                              new VariableExp(i),
+                                                              new VariableExp(head)
+                                                          })),
+                                   new AssignmentStmt(new VariableLhs(head), new VariableExp(newNode)),
+                                   increment(i, new PlusOp())));
+        final Exp current = new DereferenceExp(new VariableExp(head));
+        final Stmt consume =
+            new WhileStmt(new BinopExp(new IntExp(0), new LessThanOp(), new VariableExp(i)),
+                          sequence(declare(nodePointer, next,
+                                           new FieldAccessExp(current, new FieldName("next"))),
+                                   new AssignmentStmt(new VariableLhs(sum),
+                                                      new BinopExp(new VariableExp(sum),
+                                                                   new PlusOp(),
+                                                                   new FieldAccessExp(current,
+                                                                                      new FieldName("value")))),
+                                   discard(new FreeExp(new CastExp(new PointerType(new VoidType()),
+                                                                   new VariableExp(head)))),
+                                   new AssignmentStmt(new VariableLhs(head), new VariableExp(next)),
+                                   increment(i, new MinusOp())));
+        final Stmt body =
+            sequence(declare(nodePointer, head, new CastExp(nodePointer, new IntExp(0))),
+                     declare(new IntType(), i, new IntExp(0)),
+                     build,
+                     declare(new IntType(), sum, new IntExp(0)),
+                     consume,
+                     new ReturnExpStmt(new VariableExp(sum)));
+        return new Program(new StructureDeclaration[]{ nodeDec },
+                           new FunctionDefinition[]{
+                               new FunctionDefinition(new IntType(),
+                                                      new FunctionName("sumList"),
+                                                      new VariableDeclaration[]{
+                                                          new VariableDeclaration(new IntType(), n)
+                                                      },
+                                                      body)
+                           });
+    } // linkedList
+
+    // int churn(int n) {
+    //   int i = 0;
+    //   while (i < n) {
+    //     void* p = malloc(8 + i - i / 64 * 64); void done = free(p); i = i + 1;
+    //   }
+    //   return i;
+    // }
+    public static Program mallocChurn() {
+        final Variable n = new Variable("n");
+        final Variable i = new Variable("i");
+        final Variable p = new Variable("p");
+        final Type voidPointer = new PointerType(new VoidType());
+        final Exp size =
+            new BinopExp(new BinopExp(new IntExp(8), new PlusOp(), new VariableExp(i)),
+                         new MinusOp(),
+                         new BinopExp(new BinopExp(new VariableExp(i), new DivOp(), new IntExp(64)),
+                                      new MultOp(),
+                                      new IntExp(64)));
+        final Stmt body =
+            sequence(declare(new IntType(), i, new IntExp(0)),
+                     new WhileStmt(new BinopExp(new VariableExp(i), new LessThanOp(), new VariableExp(n)),
+                                   sequence(declare(voidPointer, p, new MallocExp(size)),
+                                            discard(new FreeExp(new VariableExp(p))),
+                                            increment(i, new PlusOp()))),
+                     new ReturnExpStmt(new VariableExp(i)));
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[]{
+                               new FunctionDefinition(new IntType(),
+                                                      new FunctionName("churn"),
+                                                      new VariableDeclaration[]{
+                                                          new VariableDeclaration(new IntType(), n)
+                                                      },
+                                                      body)
+                           });
+    } // mallocChurn
+
+    private static Stmt declare(final Type type, final Variable variable, final Exp init) {
+        return new VariableDeclarationInitializationStmt(new VariableDeclaration(type, variable), init);
+    }
+
+    // void done = exp, as there are no expression statements
+    private static Stmt discard(final Exp exp) {
+        return declare(new VoidType(), new Variable("done"), exp);
+    }
+
+    // variable = variable op 1
+    private static Stmt increment(final Variable variable, final Op op) {
+        return new AssignmentStmt(new VariableLhs(variable),
+                                  new BinopExp(new VariableExp(variable), op, new IntExp(1)));
+    }
+
+    private static Stmt sequence(final Stmt... stmts) {
+        Stmt retval = stmts[stmts.length - 1];
+        for (int index = stmts.length - 2; index >= 0; index--) {
+            retval = new SequenceStmt(stmts[index], retval);
+        }
+        return retval;
+    }
+
+    public Program generate() {
+        for (int index = 0; index < structs.length; index++) {
+            structs[index] = makeStruct(index);
+            for (final VariableDeclaration field : structs[index].fields) {
+                if (charStruct == null && field.type instanceof CharType) {
+                    charStruct = structs[index];
+                    charField = new FieldName(field.variable.name);
+                }
+            }
+        }
+        for (int index = 0; index < signatures.length; index++) {
+            signatures[index] = makeSignature(index);
+        }
+        final FunctionDefinition[] defs = new FunctionDefinition[signatures.length];
+        for (int index = 0; index < defs.length; index++) {
+            defs[index] = makeFunction(signatures[index]);
+        }
+        return new Program(structs, defs);
+    }
+
+    // structures only contain earlier structures, so none contain themselves
+    private Type randomType(final int structsAvailable) {
+        final int choice = random.nextInt(PRIMITIVE_TYPES.length + ((structsAvailable > 0) ? 1 : 0));
+        if (choice < PRIMITIVE_TYPES.length) {
+            return PRIMITIVE_TYPES[choice];
+        } else {
+            return new StructureType(structs[random.nextInt(structsAvailable)].name);
+        }
+    }
+
+    private StructureDeclaration makeStruct(final int index) {
+        final VariableDeclaration[] fields = new VariableDeclaration[shape.fieldsPerStruct];
+        for (int field = 0; field < fields.length; field++) {
+            fields[field] = new VariableDeclaration(randomType(index),
+                                                    new Variable("f" + field));
+        }
+        return new StructureDeclaration(new StructureName("S" + index), fields);
+    }
+
+    private Signature makeSignature(final int index) {
+        final VariableDeclaration[] params = new VariableDeclaration[shape.parametersPerFunction];
+        for (int param = 0; param < params.length; param++) {
+            params[param] = new VariableDeclaration(randomType(structs.length),
+                                                    new Variable("p" + param));
+        }
+        return new Signature(randomType(structs.length),
+                             new FunctionName("fn" + index),
+                             params);
+    }
+
+    private FunctionDefinition makeFunction(final Signature signature) {
+        scope.clear();
+        nextLocal = 0;
+        for (final VariableDeclaration param : signature.parameters) {
+            addToScope(param.type, param.variable);
+        }
+
+        final List<Stmt> stmts = new ArrayList<Stmt>();
+        for (int call = 0; call < shape.callsPerFunction && signatures.length > 0; call++) {
+            final Signature callee = signatures[random.nextInt(signatures.length)];
+            stmts.add(declare(callee.returnType, makeCall(callee)));
+        }
+        for (int stmt = 0; stmt < shape.statementsPerFunction; stmt++) {
+            stmts.add(makeStmt());
+        }
+
+        Stmt body = new ReturnExpStmt(makeExp(signature.returnType, shape.expressionDepth));
+        for (int index = stmts.size() - 1; index >= 0; index--) {
+            body = new SequenceStmt(stmts.get(index), body);
+        }
+        return new FunctionDefinition(signature.returnType,
+                                      signature.name,
+                                      signature.parameters,
+                                      body);
+    } // makeFunction
+
+    private void addToScope(final Type type, final Variable variable) {
+        List<Variable> variables = scope.get(type);
+        if (variables == null) {
+            variables = new ArrayList<Variable>();
+            scope.put(type, variables);
+        }
+        variables.add(variable);
+    }
+
+    // returns null if no variable of the type is in scope
+    private Variable randomVariable(final Type type) {
+        final List<Variable> variables = scope.get(type);
+        if (variables == null) {
+            return null;
+        } else {
+            return variables.get(random.nextInt(variables.size()));
+        }
+    }
+
+    private Stmt declare(final Type type, final Exp init) {
+        final Variable variable = local(nextLocal++);
+        final Stmt retval =
+            new VariableDeclarationInitializationStmt(new VariableDeclaration(type, variable),
+                                                      init);
+        addToScope(type, variable);
+        return retval;
+    }
+
+    // assigns to a random variable already in scope, or declares one
+    private Stmt assignOrDeclare() {
+        final Type type = randomType(structs.length);
+        final Variable variable = randomVariable(type);
+        if (variable == null) {
+            return declare(type, makeExp(type, shape.expressionDepth));
+        } else {
+            return new AssignmentStmt(new VariableLhs(variable),
+                                      makeExp(type, shape.expressionDepth));
+        }
+    }
+
+    private Stmt makeStmt() {
+        switch (random.nextInt(5)) {
+        case 0:
+            return new IfStmt(makeExp(PRIMITIVE_TYPES[1], shape.expressionDepth),
+                              assignOrDeclareInBranch(),
+                              assignOrDeclareInBranch());
+        case 1:
+            return new WhileStmt(makeExp(PRIMITIVE_TYPES[1], shape.expressionDepth),
+                                 new SequenceStmt(assignOrDeclareInBranch(),
+                                                  new BreakStmt()));
+        default:
+            return assignOrDeclare();
+        }
+    }
+
+    // declarations in a nested block must not escape it
+    private Stmt assignOrDeclareInBranch() {
+        final Map<Type, List<Variable>> saved = new HashMap<Type, List<Variable>>();
+        for (final Map.Entry<Type, List<Variable>> entry : scope.entrySet()) {
+            saved.put(entry.getKey(), new ArrayList<Variable>(entry.getValue()));
+        }
+        final Stmt retval = assignOrDeclare();
+        scope.clear();
+        scope.putAll(saved);
+        return retval;
+    }
+
+    private Exp makeCall(final Signature callee) {
+        final Exp[] params = new Exp[callee.parameters.length];
+        for (int index = 0; index < params.length; index++) {
+            params[index] = makeExp(callee.parameters[index].type, shape.expressionDepth);
+        }
+        return new FunctionCallExp(callee.name, params);
+    }
+
+    private StructureDeclaration structNamed(final StructureName name) {
+        return structs[Integer.parseInt(name.name.substring(1))];
+    }
+
+    public Exp makeExp(final Type type, final int depth) {
+        if (type instanceof StructureType) {
+            final Variable variable = randomVariable(type);
+            if (variable != null && (depth <= 0 || random.nextBoolean())) {
+                return new VariableExp(variable);
+            }
+            final StructureDeclaration dec = structNamed(((StructureType)type).name);
+            final Exp[] params = new Exp[dec.fields.length];
+            for (int index = 0; index < params.length; index++) {
+                params[index] = makeExp(dec.fields[index].type, depth - 1);
+            }
+            return new MakeStructureExp(dec.name, params);
+        }
+
+        final Variable variable = randomVariable(type);
+        if (depth <= 0 || random.nextInt(4) == 0) {
+            if (variable != null && random.nextBoolean()) {
+                return new VariableExp(variable);
+            } else if (type instanceof IntType) {
+                return new IntExp(random.nextInt(100));
+            } else if (type instanceof BoolType) {
+                return new BoolExp(random.nextBoolean());
+            } else {
+                return new CharExp((char)('a' + random.nextInt(26)));
+            }
+        }
+
+        if (type instanceof IntType) {
+            switch (random.nextInt(4)) {
+            case 0:
+                return new SizeofExp(randomType(structs.length));
+            case 1:
+                return new BinopExp(makeExp(type, depth - 1), new MinusOp(), makeExp(type, depth - 1));
+            case 2:
+                return new BinopExp(makeExp(type, depth - 1), new MultOp(), makeExp(type, depth - 1));
+            default:
+                return new BinopExp(makeExp(type, depth - 1), new PlusOp(), makeExp(type, depth - 1));
+            }
+        } else if (type instanceof BoolType) {
+            final Exp left = makeExp(PRIMITIVE_TYPES[0], depth - 1);
+            final Exp right = makeExp(PRIMITIVE_TYPES[0], depth - 1);
+            final Op op = (random.nextBoolean()) ? new LessThanOp() : new EqualsOp();
+            return new BinopExp(left, op, right);
+        } else {
+            // char: pull one out of a structure, if any have one
+            if (charStruct != null) {
+                return new FieldAccessExp(makeExp(new StructureType(charStruct.name), depth - 1),
+                                          charField);
+            } else {
+                return new CharExp('c');
+            }
+        }
+    } // makeExp
+} // ProgramGenerator
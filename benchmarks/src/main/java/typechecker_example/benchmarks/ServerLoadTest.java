@@ -0,0 +1,90 @@
+package typechecker_example.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import typechecker_example.server.*;
+import typechecker_example.syntax.*;
+
+// Sends random programs to a TypecheckServer from many connections at once,
+// then reports throughput and latency percentiles.  Not a JMH benchmark,
+// since the cost being measured is mostly in another process.
+//
+// java ServerLoadTest [clients] [requestsPerClient] [port]
+//
+// Without a port, a server is started in this process.  Each client uses
+// its own session, and resubmits its own program, as an editor would on
+// every save.
+public class ServerLoadTest {
+    public static final ProgramGenerator.Shape SHAPE =
+        new ProgramGenerator.Shape(10, 5, 50, 3, 20, 4, 3);
+
+    public static void main(final String[] args) throws Exception {
+        final int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 16;
+        final int requestsPerClient = (args.length > 1) ? Integer.parseInt(args[1]) : 500;
+        TypecheckServer server = null;
+        final int port;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            server = new TypecheckServer(0, TypecheckServer.DEFAULT_MAX_ERRORS);
+            server.start();
+            port = server.port();
+        }
+
+        final long[][] latencies = new long[clients][requestsPerClient];
+        final AtomicLong failures = new AtomicLong();
+        final Thread[] threads = new Thread[clients];
+        for (int client = 0; client < clients; client++) {
+            final int id = client;
+            final Program prog = ProgramGenerator.generate(id, SHAPE);
+            threads[client] = new Thread(new Runnable() {
+                    public void run() {
+                        try (final TypecheckClient connection = new TypecheckClient("localhost", port)) {
+                            for (int request = 0; request < requestsPerClient; request++) {
+                                final long start = System.nanoTime();
+                                final TypecheckClient.Response response =
+                                    connection.check(id + 1, prog);
+                                latencies[id][request] = System.nanoTime() - start;
+                                if (!response.isOk()) {
+                                    failures.incrementAndGet();
+                                }
+                            }
+                        } catch (final IOException e) {
+                            e.printStackTrace();
+                            failures.incrementAndGet();
+                        }
+                    }
+                });
+        }
+
+        final long start = System.nanoTime();
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final long elapsed = System.nanoTime() - start;
+        if (server != null) {
+            server.close();
+        }
+
+        final long[] all = new long[clients * requestsPerClient];
+        for (int client = 0; client < clients; client++) {
+            System.arraycopy(latencies[client], 0, all, client * requestsPerClient, requestsPerClient);
+        }
+        Arrays.sort(all);
+        System.out.printf("%d requests from %d clients in %.1f ms: %.0f requests/s%n",
+                          all.length, clients, elapsed / 1e6, all.length / (elapsed / 1e9));
+        System.out.printf("p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                          percentile(all, 0.50) / 1e6,
+                          percentile(all, 0.99) / 1e6,
+                          all[all.length - 1] / 1e6);
+        System.out.println("failures: " + failures.get());
+    } // main
+
+    private static long percentile(final long[] sorted, final double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int)(fraction * sorted.length))];
+    }
+} // ServerLoadTest
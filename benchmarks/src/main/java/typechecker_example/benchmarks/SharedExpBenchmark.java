@@ -0,0 +1,47 @@
+package typechecker_example.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+// Typechecks a BinopExp whose operands are the same instance at every
+// level, with and without memoization.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SharedExpBenchmark {
+    @Param({"10", "20", "40"})
+    public int depth;
+
+    private Typechecker checker;
+    private Typechecker memoizingChecker;
+    private Exp dag;
+    private Exp boundedDag;
+
+    @Setup
+    public void setup() {
+        checker = new Typechecker(new HashMap<FunctionName, FunctionDefinition>(),
+                                  new HashMap<StructureName, StructureDeclaration>());
+        memoizingChecker = new Typechecker(new HashMap<FunctionName, FunctionDefinition>(),
+                                           new HashMap<StructureName, StructureDeclaration>(),
+                                           true);
+        dag = ProgramGenerator.binopDag(depth);
+        // bounded, as without memoization checking is exponential in depth
+        boundedDag = ProgramGenerator.binopDag(Math.min(depth, 20));
+    }
+
+    @Benchmark
+    public Type unmemoized() throws TypeErrorException {
+        return checker.typeofExp(TypeEnvironment.empty(), boundedDag);
+    }
+
+    @Benchmark
+    public Type memoized() throws TypeErrorException {
+        return memoizingChecker.typeofExp(TypeEnvironment.empty(), dag);
+    }
+}
@@ -0,0 +1,74 @@
+package typechecker_example.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypecheckProgramBenchmark {
+    @Param({"42"})
+    public long seed;
+
+    @Param({"100", "10000"})
+    public int functions;
+
+    @Param({"20", "200"})
+    public int structs;
+
+    @Param({"50"})
+    public int fieldsPerStruct;
+
+    @Param({"20"})
+    public int statementsPerFunction;
+
+    @Param({"4"})
+    public int expressionDepth;
+
+    @Param({"8"})
+    public int callsPerFunction;
+
+    private Program program;
+    private ParallelTypechecker parallel;
+    private TypecheckRecorder recorder;
+
+    @Setup
+    public void setup() {
+        program = ProgramGenerator.generate(seed,
+                                            new ProgramGenerator.Shape(structs,
+                                                                       fieldsPerStruct,
+                                                                       functions,
+                                                                       3,
+                                                                       statementsPerFunction,
+                                                                       expressionDepth,
+                                                                       callsPerFunction));
+        parallel = new ParallelTypechecker();
+        recorder = new TypecheckRecorder();
+    }
+
+    @Benchmark
+    public void sequential() throws TypeErrorException {
+        Typechecker.forProgram(program).typecheck(program);
+    }
+
+    // sequential, counting into a recorder
+    @Benchmark
+    public void recorded() throws TypeErrorException {
+        new Typechecker(Typechecker.makeFunctionMap(program),
+                        Typechecker.makeStructureMap(program),
+                        new TypeTable(),
+                        false,
+                        recorder).typecheck(program);
+        recorder.reset();
+    }
+
+    @Benchmark
+    public void parallel() throws TypeErrorException {
+        parallel.typecheck(program);
+    }
+}
@@ -0,0 +1,34 @@
+package typechecker_example.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypecheckStatementBenchmark {
+    // one local is declared per statement
+    @Param({"100", "10000", "100000", "1000000"})
+    public int length;
+
+    private Typechecker checker;
+    private Stmt spine;
+
+    @Setup
+    public void setup() {
+        checker = new Typechecker(new HashMap<FunctionName, FunctionDefinition>(),
+                                  new HashMap<StructureName, StructureDeclaration>());
+        spine = ProgramGenerator.declarationSpine(length);
+    }
+
+    @Benchmark
+    public TypeEnvironment longSequenceSpine() throws TypeErrorException {
+        return checker.typecheckStatement(TypeEnvironment.empty(), spine, false, TypeTable.INT_TYPE);
+    }
+}
@@ -0,0 +1,46 @@
+package typechecker_example.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeofExpBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int depth;
+
+    @Param({"42"})
+    public long seed;
+
+    private Typechecker checker;
+    private Exp binopChain;
+    private Exp randomExp;
+
+    @Setup
+    public void setup() {
+        checker = new Typechecker(new HashMap<FunctionName, FunctionDefinition>(),
+                                  new HashMap<StructureName, StructureDeclaration>());
+        binopChain = ProgramGenerator.binopChain(depth);
+        // bounded, as random expressions grow exponentially with depth
+        final ProgramGenerator generator =
+            new ProgramGenerator(seed, new ProgramGenerator.Shape(0, 0, 0, 0, 0, 0, 0));
+        randomExp = generator.makeExp(new IntType(), Math.min(depth, 16));
+    }
+
+    @Benchmark
+    public Type deepBinopChain() throws TypeErrorException {
+        return checker.typeofExp(TypeEnvironment.empty(), binopChain);
+    }
+
+    @Benchmark
+    public Type randomExpression() throws TypeErrorException {
+        return checker.typeofExp(TypeEnvironment.empty(), randomExp);
+    }
+}
@@ -0,0 +1,269 @@
+package typechecker_example.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// The code of one method, as it's emitted.  Tracks the operand stack depth
+// to find the maximum; where control merges at a label the emitter must
+// set the depth itself with adjustStack.  The JVM's limits on code size,
+// locals, stack depth, and branch distance are checked as the code is
+// written out, rather than as it's emitted.
+class Bytecode {
+    public static final int ICONST_0 = 3;
+    public static final int LCONST_0 = 9;
+    public static final int BIPUSH = 16;
+    public static final int SIPUSH = 17;
+    public static final int LDC_W = 19;
+    public static final int LDC2_W = 20;
+    public static final int ILOAD = 21;
+    public static final int LLOAD = 22;
+    public static final int ALOAD = 25;
+    public static final int ISTORE = 54;
+    public static final int LSTORE = 55;
+    public static final int POP = 87;
+    public static final int POP2 = 88;
+    public static final int IADD = 96;
+    public static final int LADD = 97;
+    public static final int ISUB = 100;
+    public static final int IMUL = 104;
+    public static final int IDIV = 108;
+    public static final int IAND = 126;
+    public static final int I2L = 133;
+    public static final int L2I = 136;
+    public static final int I2B = 145;
+    public static final int LCMP = 148;
+    public static final int IFEQ = 153;
+    public static final int IFNE = 154;
+    public static final int IF_ICMPEQ = 159;
+    public static final int IF_ICMPLT = 161;
+    public static final int GOTO = 167;
+    public static final int IRETURN = 172;
+    public static final int LRETURN = 173;
+    public static final int RETURN = 177;
+    public static final int INVOKEVIRTUAL = 182;
+    public static final int INVOKESTATIC = 184;
+    public static final int ATHROW = 191;
+    public static final int WIDE = 196;
+
+    private static final int MAX_CODE_LENGTH = 0xFFFF;
+    private static final int MAX_SLOTS = 0xFFFF;
+
+    public static class Label {
+        private int position = -1;
+        // positions of branch instructions to this label
+        private final List<Integer> branches = new ArrayList<Integer>();
+    }
+
+    // begin instance variables
+    private final ClassFile classFile;
+    private final ByteArrayOutputStream code;
+    private final List<Label> labels;
+    private int stackDepth;
+    private int maxStack;
+    private int maxLocals;
+
+    public Bytecode(final ClassFile classFile) {
+        this.classFile = classFile;
+        this.code = new ByteArrayOutputStream();
+        this.labels = new ArrayList<Label>();
+    }
+
+    public int maxStack() {
+        return maxStack;
+    }
+
+    public int maxLocals() {
+        return maxLocals;
+    }
+
+    // reserves a local variable of the given number of slots
+    public int newLocal(final int slots) {
+        final int retval = maxLocals;
+        maxLocals += slots;
+        return retval;
+    }
+
+    public void adjustStack(final int delta) {
+        stackDepth += delta;
+        maxStack = Math.max(maxStack, stackDepth);
+    }
+
+    // statements always start on an empty stack
+    public void resetStack() {
+        stackDepth = 0;
+    }
+
+    private void u1(final int value) {
+        code.write(value);
+    }
+
+    private void u2(final int value) {
+        code.write(value >> 8);
+        code.write(value);
+    }
+
+    public void op(final int opcode, final int stackDelta) {
+        u1(opcode);
+        adjustStack(stackDelta);
+    }
+
+    public void iconst(final int value) {
+        if (value >= -1 && value <= 5) {
+            u1(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            u1(BIPUSH);
+            u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            u1(SIPUSH);
+            u2(value);
+        } else {
+            u1(LDC_W);
+            u2(classFile.integer(value));
+        }
+        adjustStack(1);
+    }
+
+    public void lconst(final long value) {
+        if (value == 0 || value == 1) {
+            u1(LCONST_0 + (int)value);
+        } else {
+            u1(LDC2_W);
+            u2(classFile.longConstant(value));
+        }
+        adjustStack(2);
+    }
+
+    public void sconst(final String value) {
+        u1(LDC_W);
+        u2(classFile.string(value));
+        adjustStack(1);
+    }
+
+    // loads and stores of locals; opcode is the int form, ILOAD or ISTORE
+    public void local(final int opcode, final int slot, final int stackDelta) {
+        if (slot <= 0xFF) {
+            u1(opcode);
+            u1(slot);
+        } else {
+            u1(WIDE);
+            u1(opcode);
+            u2(slot);
+        }
+        adjustStack(stackDelta);
+    }
+
+    public void iload(final int slot) {
+        local(ILOAD, slot, 1);
+    }
+
+    public void lload(final int slot) {
+        local(LLOAD, slot, 2);
+    }
+
+    public void aload(final int slot) {
+        local(ALOAD, slot, 1);
+    }
+
+    public void istore(final int slot) {
+        local(ISTORE, slot, -1);
+    }
+
+    public void lstore(final int slot) {
+        local(LSTORE, slot, -2);
+    }
+
+    public void invoke(final int opcode, final String owner, final String name, final String descriptor) {
+        u1(opcode);
+        u2(classFile.methodRef(owner, name, descriptor));
+        final int receiver = (opcode == INVOKESTATIC) ? 0 : 1;
+        adjustStack(returnSlots(descriptor) - argumentSlots(descriptor) - receiver);
+    }
+
+    public Label newLabel() {
+        final Label retval = new Label();
+        labels.add(retval);
+        return retval;
+    }
+
+    public void mark(final Label label) {
+        label.position = code.size();
+    }
+
+    // conditional branches pop their operands; GOTO pops nothing
+    public void branch(final int opcode, final Label target) {
+        target.branches.add(code.size());
+        u1(opcode);
+        u2(0);
+        switch (opcode) {
+        case IFEQ:
+        case IFNE:
+            adjustStack(-1);
+            break;
+        case IF_ICMPEQ:
+        case IF_ICMPLT:
+            adjustStack(-2);
+            break;
+        default:
+            break;
+        }
+    }
+
+    public byte[] toBytes() throws CompileException {
+        final byte[] retval = code.toByteArray();
+        if (retval.length > MAX_CODE_LENGTH) {
+            throw new CompileException("Method too large: " + retval.length + " bytes");
+        } else if (maxLocals > MAX_SLOTS) {
+            throw new CompileException("Too many locals: " + maxLocals + " slots");
+        } else if (maxStack > MAX_SLOTS) {
+            throw new CompileException("Operand stack too deep: " + maxStack + " slots");
+        }
+        for (final Label label : labels) {
+            for (final int branch : label.branches) {
+                if (label.position < 0) {
+                    throw new IllegalStateException("Branch to unmarked label");
+                }
+                final int offset = label.position - branch;
+                if (offset != (short)offset) {
+                    throw new CompileException("Branch too far: " + offset + " bytes");
+                }
+                retval[branch + 1] = (byte)(offset >> 8);
+                retval[branch + 2] = (byte)offset;
+            }
+        }
+        return retval;
+    } // toBytes
+
+    // the slots taken by the arguments and return value of a descriptor
+    private static int argumentSlots(final String descriptor) {
+        int retval = 0;
+        int index = 1;
+        while (descriptor.charAt(index) != ')') {
+            final char c = descriptor.charAt(index);
+            if (c == 'J' || c == 'D') {
+                retval += 2;
+            } else {
+                retval++;
+            }
+            while (descriptor.charAt(index) == '[') {
+                index++;
+            }
+            if (descriptor.charAt(index) == 'L') {
+                index = descriptor.indexOf(';', index);
+            }
+            index++;
+        }
+        return retval;
+    }
+
+    private static int returnSlots(final String descriptor) {
+        final char c = descriptor.charAt(descriptor.indexOf(')') + 1);
+        if (c == 'V') {
+            return 0;
+        } else if (c == 'J' || c == 'D') {
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+} // Bytecode
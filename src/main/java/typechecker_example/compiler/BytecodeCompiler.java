@@ -0,0 +1,816 @@
+package typechecker_example.compiler;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.ExpTypes;
+import typechecker_example.typechecker.TypeLayout;
+
+// Compiles a typechecked program to one class, with a static method per
+// function.  Each method takes the Memory the program runs in, followed by
+// its parameters.  Values are represented as in the interpreter: ints,
+// chars, and bools as JVM ints, pointers and structures (by the address of
+// their bytes) as longs, and void values not at all.
+//
+// Variables whose address is never taken, and which aren't structures, are
+// JVM locals.  The rest live on the Memory stack, with their address in a
+// local.  As in the interpreter, each function pops the Memory stack back
+// on return, and each loop at the start of every iteration.
+class BytecodeCompiler {
+    public static final String MEMORY = "typechecker_example/interpreter/Memory";
+    public static final String RUNTIME = "typechecker_example/compiler/CompiledProgram";
+    private static final String EXCEPTION = "typechecker_example/interpreter/InterpreterException";
+
+    // kinds of type
+    private static final char INT = 'I';
+    private static final char CHAR = 'C';
+    private static final char BOOL = 'Z';
+    private static final char POINTER = 'P';
+    private static final char STRUCTURE = 'S';
+    private static final char VOID = 'V';
+
+    // begin instance variables
+    private final Map<StructureName, StructureDeclaration> structures;
+    private final ExpTypes expTypes;
+    private final TypeLayout layout;
+    private final ClassFile classFile;
+    private final Map<FunctionName, Integer> functionIndices;
+    private final FunctionDefinition[] functions;
+    private final KindVisitor kindVisitor;
+
+    public BytecodeCompiler(final String className,
+                            final FunctionDefinition[] functions,
+                            final Map<StructureName, StructureDeclaration> structures,
+                            final ExpTypes expTypes) {
+        this.structures = structures;
+        this.expTypes = expTypes;
+        this.layout = new TypeLayout(structures);
+        this.classFile = new ClassFile(className);
+        this.functions = functions;
+        this.functionIndices = new HashMap<FunctionName, Integer>();
+        for (int index = 0; index < functions.length; index++) {
+            functionIndices.put(functions[index].name, index);
+        }
+        this.kindVisitor = new KindVisitor();
+    }
+
+    // the name of the method for each function, as function names needn't
+    // be valid method names
+    public static String methodName(final int index) {
+        return "f" + index;
+    }
+
+    public String methodDescriptor(final FunctionDefinition def) {
+        final StringBuilder retval = new StringBuilder("(L" + MEMORY + ";");
+        for (final VariableDeclaration param : def.parameters) {
+            retval.append(descriptor(param.type, ""));
+        }
+        retval.append(')');
+        retval.append(descriptor(def.returnType, "V"));
+        return retval.toString();
+    }
+
+    private String descriptor(final Type type, final String ifVoid) {
+        switch (kind(type)) {
+        case POINTER:
+        case STRUCTURE:
+            return "J";
+        case VOID:
+            return ifVoid;
+        default:
+            return "I";
+        }
+    }
+
+    private char kind(final Type type) {
+        return type.accept(kindVisitor, null);
+    }
+
+    private static boolean isWide(final char kind) {
+        return kind == POINTER || kind == STRUCTURE;
+    }
+
+    // throws if the program is over the JVM's limits
+    public byte[] compile() throws CompileException {
+        for (int index = 0; index < functions.length; index++) {
+            final FunctionDefinition def = functions[index];
+            try {
+                classFile.addMethod(methodName(index),
+                                    methodDescriptor(def),
+                                    new FunctionCompiler(def).compile());
+            } catch (final CompileException e) {
+                throw new CompileException(e.getMessage() + " in function: " + def.name);
+            }
+        }
+        return classFile.toBytes();
+    }
+
+    // where a variable's value lives
+    private static class Binding {
+        public final Type type;
+        public final char kind;
+        public final boolean inMemory;
+        // the local holding the value, or its address if it's in memory
+        public final int slot;
+
+        public Binding(final Type type, final char kind, final boolean inMemory, final int slot) {
+            this.type = type;
+            this.kind = kind;
+            this.inMemory = inMemory;
+            this.slot = slot;
+        }
+    } // Binding
+
+    private class FunctionCompiler implements ExpVisitor<Void, Void, RuntimeException>,
+                                              StmtVisitor<Void, Void, RuntimeException> {
+        // begin instance variables
+        private final FunctionDefinition def;
+        private final Bytecode code;
+        private final Set<Integer> addressTaken;
+        // the stack top on entry, popped back to on return
+        private final int frameMark;
+        // bindings by variable id, and (id, previous binding) pairs to undo
+        private Binding[] bindings;
+        private int[] trailIds;
+        private Binding[] trailBindings;
+        private int trailSize;
+        // the start and end of each enclosing loop, innermost first
+        private final ArrayDeque<Bytecode.Label> continueLabels;
+        private final ArrayDeque<Bytecode.Label> breakLabels;
+
+        public FunctionCompiler(final FunctionDefinition def) {
+            this.def = def;
+            this.code = new Bytecode(classFile);
+            this.addressTaken = AddressTaken.variableIds(def.body);
+            this.bindings = new Binding[16];
+            this.trailIds = new int[16];
+            this.trailBindings = new Binding[16];
+            this.continueLabels = new ArrayDeque<Bytecode.Label>();
+            this.breakLabels = new ArrayDeque<Bytecode.Label>();
+
+            code.newLocal(1); // the Memory
+            final int[] parameterSlots = new int[def.parameters.length];
+            for (int index = 0; index < parameterSlots.length; index++) {
+                final char kind = kind(def.parameters[index].type);
+                parameterSlots[index] = (kind == VOID) ? -1 : code.newLocal((isWide(kind)) ? 2 : 1);
+            }
+            frameMark = code.newLocal(1);
+            code.aload(0);
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "stackTop", "()I");
+            code.istore(frameMark);
+            for (int index = 0; index < parameterSlots.length; index++) {
+                bindParameter(def.parameters[index], parameterSlots[index]);
+            }
+        } // FunctionCompiler
+
+        public Bytecode compile() {
+            statement(def.body);
+            code.resetStack();
+            if (kind(def.returnType) == VOID) {
+                popFrame();
+                code.op(Bytecode.RETURN, 0);
+            } else {
+                code.sconst(def.name.toString());
+                code.invoke(Bytecode.INVOKESTATIC, RUNTIME, "missingReturn",
+                            "(Ljava/lang/String;)L" + EXCEPTION + ";");
+                code.op(Bytecode.ATHROW, -1);
+            }
+            return code;
+        }
+
+        // variables
+
+        private void bind(final Variable variable, final Binding binding) {
+            if (variable.id >= bindings.length) {
+                bindings = Arrays.copyOf(bindings, Math.max(variable.id + 1, bindings.length * 2));
+            }
+            if (trailSize == trailIds.length) {
+                trailIds = Arrays.copyOf(trailIds, trailSize * 2);
+                trailBindings = Arrays.copyOf(trailBindings, trailSize * 2);
+            }
+            trailIds[trailSize] = variable.id;
+            trailBindings[trailSize] = bindings[variable.id];
+            trailSize++;
+            bindings[variable.id] = binding;
+        }
+
+        // undoes bindings back to the given trail size
+        private void unwind(final int mark) {
+            while (trailSize > mark) {
+                trailSize--;
+                bindings[trailIds[trailSize]] = trailBindings[trailSize];
+                trailBindings[trailSize] = null;
+            }
+        }
+
+        private boolean needsMemory(final Variable variable, final char kind) {
+            return kind == STRUCTURE || addressTaken.contains(variable.id);
+        }
+
+        // pushes a zeroed slot for the type on the Memory stack, leaving its
+        // address in a new local
+        private int allocate(final Type type) {
+            final int retval = code.newLocal(2);
+            final int size = layout.sizeof(type);
+            code.aload(0);
+            if (size == TypeLayout.UNSIZED) {
+                unsized(type);
+                code.iconst(1);
+            } else {
+                code.iconst(size);
+                code.iconst(layout.alignof(type));
+            }
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "push", "(II)I");
+            code.op(Bytecode.I2L, 1);
+            code.lstore(retval);
+            return retval;
+        }
+
+        private void bindParameter(final VariableDeclaration param, final int slot) {
+            final char kind = kind(param.type);
+            if (!needsMemory(param.variable, kind)) {
+                bind(param.variable, new Binding(param.type, kind, false, slot));
+                return;
+            } else if (kind == VOID) {
+                bind(param.variable, new Binding(param.type, kind, true, voidAddress()));
+                return;
+            }
+            final int address = allocate(param.type);
+            if (kind == STRUCTURE) {
+                code.aload(0);
+                code.lload(slot);
+                code.lload(address);
+                code.iconst(layout.sizeof(param.type));
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "copy", "(JJI)V");
+            } else {
+                code.aload(0);
+                code.lload(address);
+                loadLocal(kind, slot);
+                storeInto(kind);
+            }
+            bind(param.variable, new Binding(param.type, kind, true, address));
+        } // bindParameter
+
+        // As in the interpreter, a void variable takes no memory, and its
+        // address is the stack top when it's bound.  Leaves that address in
+        // a new local.
+        private int voidAddress() {
+            final int retval = code.newLocal(2);
+            code.aload(0);
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "stackTop", "()I");
+            code.op(Bytecode.I2L, 1);
+            code.lstore(retval);
+            return retval;
+        }
+
+        private void loadLocal(final char kind, final int slot) {
+            if (kind == VOID) {
+                return;
+            } else if (isWide(kind)) {
+                code.lload(slot);
+            } else {
+                code.iload(slot);
+            }
+        }
+
+        private void storeLocal(final char kind, final int slot) {
+            if (kind == VOID) {
+                return;
+            } else if (isWide(kind)) {
+                code.lstore(slot);
+            } else {
+                code.istore(slot);
+            }
+        }
+
+        // memory
+
+        // With the Memory and an address on the stack, replaces them with
+        // the value there.  Structures are their address, so no Memory is
+        // pushed for them.
+        private void loadFrom(final char kind) {
+            switch (kind) {
+            case INT:
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "getInt", "(J)I");
+                break;
+            case CHAR:
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "getByte", "(J)B");
+                code.iconst(0xFF);
+                code.op(Bytecode.IAND, -1);
+                break;
+            case BOOL:
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "getByte", "(J)B");
+                break;
+            case POINTER:
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "getLong", "(J)J");
+                break;
+            default:
+                break;
+            }
+        }
+
+        private boolean loadsNeedMemory(final char kind) {
+            return kind != STRUCTURE && kind != VOID;
+        }
+
+        // with the Memory, an address, and a scalar value on the stack,
+        // stores the value there
+        private void storeInto(final char kind) {
+            switch (kind) {
+            case INT:
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "putInt", "(JI)V");
+                break;
+            case CHAR:
+            case BOOL:
+                code.op(Bytecode.I2B, 0);
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "putByte", "(JB)V");
+                break;
+            case POINTER:
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "putLong", "(JJ)V");
+                break;
+            default:
+                break;
+            }
+        }
+
+        // stores the value of exp at the address in the local plus offset
+        private void store(final Type type, final int address, final int offset, final Exp exp) {
+            final char kind = kind(type);
+            if (kind == STRUCTURE) {
+                code.aload(0);
+                expression(exp);
+                pushAddress(address, offset);
+                code.iconst(layout.sizeof(type));
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "copy", "(JJI)V");
+            } else if (kind == VOID) {
+                expression(exp);
+            } else {
+                code.aload(0);
+                pushAddress(address, offset);
+                expression(exp);
+                storeInto(kind);
+            }
+        }
+
+        private void pushAddress(final int address, final int offset) {
+            code.lload(address);
+            if (offset != 0) {
+                code.lconst(offset);
+                code.op(Bytecode.LADD, -2);
+            }
+        }
+
+        private void popFrame() {
+            code.aload(0);
+            code.iload(frameMark);
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "popTo", "(I)V");
+        }
+
+        // pushes a call which fails, for a type whose size is needed but
+        // which has none
+        private void unsized(final Type type) {
+            code.sconst(type.toString());
+            code.invoke(Bytecode.INVOKESTATIC, RUNTIME, "unsized", "(Ljava/lang/String;)I");
+        }
+
+        // pushes 1 if the given branch is taken, and 0 otherwise
+        private void condition(final int opcode) {
+            final Bytecode.Label ifTrue = code.newLabel();
+            final Bytecode.Label end = code.newLabel();
+            code.branch(opcode, ifTrue);
+            code.iconst(0);
+            code.branch(Bytecode.GOTO, end);
+            code.mark(ifTrue);
+            code.adjustStack(-1);
+            code.iconst(1);
+            code.mark(end);
+        }
+
+        // left-hand sides
+
+        // pushes the address of the left-hand side, returning its type
+        private Type address(final Lhs lhs) {
+            if (lhs instanceof VariableLhs) {
+                final Binding binding = bindings[((VariableLhs)lhs).variable.id];
+                code.lload(binding.slot);
+                return binding.type;
+            } else if (lhs instanceof FieldAccessLhs) {
+                final FieldAccessLhs access = (FieldAccessLhs)lhs;
+                final StructureName structure = ((StructureType)address(access.lhs)).name;
+                final int offset = layout.fieldOffset(structure, access.field);
+                if (offset != 0) {
+                    code.lconst(offset);
+                    code.op(Bytecode.LADD, -2);
+                }
+                return structures.get(structure).fieldType(access.field);
+            } else {
+                final Lhs pointer = ((DereferenceLhs)lhs).lhs;
+                final Type pointerType;
+                if (pointer instanceof VariableLhs &&
+                    !bindings[((VariableLhs)pointer).variable.id].inMemory) {
+                    final Binding binding = bindings[((VariableLhs)pointer).variable.id];
+                    code.lload(binding.slot);
+                    pointerType = binding.type;
+                } else {
+                    code.aload(0);
+                    pointerType = address(pointer);
+                    loadFrom(POINTER);
+                }
+                return ((PointerType)pointerType).pointsTo;
+            }
+        } // address
+
+        // statements
+
+        private void statement(final Stmt s) {
+            code.resetStack();
+            s.accept(this, null);
+        }
+
+        // a nested block, whose bindings are dropped after
+        private void block(final Stmt s) {
+            final int mark = trailSize;
+            statement(s);
+            unwind(mark);
+        }
+
+        public Void visit(final IfStmt s, final Void arg) {
+            final Bytecode.Label ifFalse = code.newLabel();
+            final Bytecode.Label end = code.newLabel();
+            expression(s.guard);
+            code.branch(Bytecode.IFEQ, ifFalse);
+            block(s.ifTrue);
+            code.branch(Bytecode.GOTO, end);
+            code.mark(ifFalse);
+            block(s.ifFalse);
+            code.mark(end);
+            return null;
+        }
+
+        public Void visit(final WhileStmt s, final Void arg) {
+            final int loopMark = code.newLocal(1);
+            final Bytecode.Label head = code.newLabel();
+            final Bytecode.Label end = code.newLabel();
+            code.aload(0);
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "stackTop", "()I");
+            code.istore(loopMark);
+            code.mark(head);
+            code.aload(0);
+            code.iload(loopMark);
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "popTo", "(I)V");
+            expression(s.guard);
+            code.branch(Bytecode.IFEQ, end);
+            continueLabels.push(head);
+            breakLabels.push(end);
+            block(s.body);
+            continueLabels.pop();
+            breakLabels.pop();
+            code.branch(Bytecode.GOTO, head);
+            code.mark(end);
+            return null;
+        }
+
+        public Void visit(final BreakStmt s, final Void arg) {
+            code.branch(Bytecode.GOTO, breakLabels.peek());
+            return null;
+        }
+
+        public Void visit(final ContinueStmt s, final Void arg) {
+            code.branch(Bytecode.GOTO, continueLabels.peek());
+            return null;
+        }
+
+        // the initializer can't see the variable, so it's bound last
+        public Void visit(final VariableDeclarationInitializationStmt s, final Void arg) {
+            final Type type = s.varDec.type;
+            final char kind = kind(type);
+            final Binding binding;
+            if (!needsMemory(s.varDec.variable, kind)) {
+                expression(s.exp);
+                final int slot = (kind == VOID) ? -1 : code.newLocal((isWide(kind)) ? 2 : 1);
+                storeLocal(kind, slot);
+                binding = new Binding(type, kind, false, slot);
+            } else if (kind == VOID) {
+                expression(s.exp);
+                binding = new Binding(type, kind, true, voidAddress());
+            } else {
+                final int address = allocate(type);
+                store(type, address, 0, s.exp);
+                binding = new Binding(type, kind, true, address);
+            }
+            bind(s.varDec.variable, binding);
+            return null;
+        }
+
+        public Void visit(final AssignmentStmt s, final Void arg) {
+            if (s.lhs instanceof VariableLhs) {
+                final Binding binding = bindings[((VariableLhs)s.lhs).variable.id];
+                if (!binding.inMemory) {
+                    expression(s.exp);
+                    storeLocal(binding.kind, binding.slot);
+                    return null;
+                }
+            }
+            final int address = code.newLocal(2);
+            final Type type = address(s.lhs);
+            code.lstore(address);
+            store(type, address, 0, s.exp);
+            return null;
+        }
+
+        public Void visit(final ReturnVoidStmt s, final Void arg) {
+            popFrame();
+            code.op(Bytecode.RETURN, 0);
+            return null;
+        }
+
+        public Void visit(final ReturnExpStmt s, final Void arg) {
+            final char kind = kind(def.returnType);
+            expression(s.exp);
+            if (kind == STRUCTURE) {
+                final int result = code.newLocal(2);
+                code.lstore(result);
+                code.aload(0);
+                code.iload(frameMark);
+                code.lload(result);
+                code.iconst(layout.sizeof(def.returnType));
+                code.iconst(layout.alignof(def.returnType));
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "popToKeeping", "(IJII)I");
+                code.op(Bytecode.I2L, 1);
+                code.op(Bytecode.LRETURN, -2);
+            } else {
+                popFrame();
+                if (kind == VOID) {
+                    code.op(Bytecode.RETURN, 0);
+                } else if (kind == POINTER) {
+                    code.op(Bytecode.LRETURN, -2);
+                } else {
+                    code.op(Bytecode.IRETURN, -1);
+                }
+            }
+            return null;
+        }
+
+        // nested sequences, on either side, are compiled in order from an
+        // explicit stack rather than by recursing
+        public Void visit(final SequenceStmt s, final Void arg) {
+            final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+            work.push(s);
+            while (!work.isEmpty()) {
+                final Stmt stmt = work.pop();
+                if (stmt instanceof SequenceStmt) {
+                    work.push(((SequenceStmt)stmt).second);
+                    work.push(((SequenceStmt)stmt).first);
+                } else {
+                    statement(stmt);
+                }
+            }
+            return null;
+        }
+
+        // expressions
+
+        private void expression(final Exp e) {
+            e.accept(this, null);
+        }
+
+        public Void visit(final IntExp e, final Void arg) {
+            code.iconst(e.value);
+            return null;
+        }
+
+        public Void visit(final CharExp e, final Void arg) {
+            code.iconst(e.value & 0xFF);
+            return null;
+        }
+
+        public Void visit(final BoolExp e, final Void arg) {
+            code.iconst((e.value) ? 1 : 0);
+            return null;
+        }
+
+        public Void visit(final VariableExp e, final Void arg) {
+            final Binding binding = bindings[e.variable.id];
+            if (!binding.inMemory || binding.kind == VOID) {
+                loadLocal(binding.kind, binding.slot);
+            } else if (binding.kind == STRUCTURE) {
+                code.lload(binding.slot);
+            } else {
+                code.aload(0);
+                code.lload(binding.slot);
+                loadFrom(binding.kind);
+            }
+            return null;
+        }
+
+        public Void visit(final MallocExp e, final Void arg) {
+            code.aload(0);
+            expression(e.amount);
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "malloc", "(I)I");
+            code.op(Bytecode.I2L, 1);
+            return null;
+        }
+
+        public Void visit(final FreeExp e, final Void arg) {
+            code.aload(0);
+            expression(e.value);
+            code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "free", "(J)V");
+            return null;
+        }
+
+        public Void visit(final SizeofExp e, final Void arg) {
+            final int size = layout.sizeof(e.type);
+            if (size == TypeLayout.UNSIZED) {
+                unsized(e.type);
+            } else {
+                code.iconst(size);
+            }
+            return null;
+        }
+
+        // Left operands which are themselves binops are compiled from an
+        // explicit stack, so long left-deep chains don't recurse.  Only the
+        // innermost binop's operands can be structures, pointers, or void.
+        public Void visit(final BinopExp e, final Void arg) {
+            final ArrayDeque<BinopExp> spine = new ArrayDeque<BinopExp>();
+            BinopExp innermost = e;
+            while (innermost.left instanceof BinopExp) {
+                spine.push(innermost);
+                innermost = (BinopExp)innermost.left;
+            }
+
+            final char operandKind = kind(expTypes.get(innermost.left));
+            if (innermost.op.kind() == Op.EQUALS && operandKind == STRUCTURE) {
+                code.aload(0);
+                expression(innermost.left);
+                expression(innermost.right);
+                code.iconst(layout.sizeof(expTypes.get(innermost.left)));
+                code.invoke(Bytecode.INVOKEVIRTUAL, MEMORY, "equal", "(JJI)Z");
+            } else if (innermost.op.kind() == Op.EQUALS && operandKind == VOID) {
+                expression(innermost.left);
+                expression(innermost.right);
+                code.iconst(1);
+            } else {
+                expression(innermost.left);
+                operator(innermost, operandKind);
+            }
+            while (!spine.isEmpty()) {
+                operator(spine.pop(), INT);
+            }
+            return null;
+        } // visit(BinopExp)
+
+        // with the left operand on the stack, compiles the right and applies
+        // the operator
+        private void operator(final BinopExp e, final char operandKind) {
+            expression(e.right);
+            switch (e.op.kind()) {
+            case Op.PLUS:
+                code.op(Bytecode.IADD, -1);
+                break;
+            case Op.MINUS:
+                code.op(Bytecode.ISUB, -1);
+                break;
+            case Op.MULT:
+                code.op(Bytecode.IMUL, -1);
+                break;
+            case Op.DIV:
+                code.op(Bytecode.IDIV, -1);
+                break;
+            case Op.LESS_THAN:
+                condition(Bytecode.IF_ICMPLT);
+                break;
+            default:
+                if (operandKind == POINTER) {
+                    code.op(Bytecode.LCMP, -3);
+                    condition(Bytecode.IFEQ);
+                } else {
+                    condition(Bytecode.IF_ICMPEQ);
+                }
+            }
+        }
+
+        public Void visit(final MakeStructureExp e, final Void arg) {
+            final StructureDeclaration dec = structures.get(e.name);
+            final Type type = expTypes.get(e);
+            final int address = allocate(type);
+            final int[] offsets = layout.fieldOffsets(e.name);
+            if (offsets != null) {
+                for (int index = 0; index < offsets.length; index++) {
+                    store(dec.fields[index].type, address, offsets[index], e.parameters[index]);
+                }
+            }
+            code.lload(address);
+            return null;
+        }
+
+        public Void visit(final FunctionCallExp e, final Void arg) {
+            final int index = functionIndices.get(e.name);
+            code.aload(0);
+            for (final Exp param : e.parameters) {
+                expression(param);
+            }
+            code.invoke(Bytecode.INVOKESTATIC,
+                        classFile.name,
+                        methodName(index),
+                        methodDescriptor(functions[index]));
+            return null;
+        }
+
+        public Void visit(final CastExp e, final Void arg) {
+            final char from = kind(expTypes.get(e.exp));
+            final char to = kind(e.type);
+            expression(e.exp);
+            switch (to) {
+            case INT:
+                if (isWide(from)) {
+                    code.op(Bytecode.L2I, -1);
+                }
+                break;
+            case CHAR:
+                if (isWide(from)) {
+                    code.op(Bytecode.L2I, -1);
+                }
+                code.iconst(0xFF);
+                code.op(Bytecode.IAND, -1);
+                break;
+            case BOOL:
+                if (isWide(from)) {
+                    code.lconst(0);
+                    code.op(Bytecode.LCMP, -3);
+                }
+                condition(Bytecode.IFNE);
+                break;
+            case VOID:
+                code.op((isWide(from)) ? Bytecode.POP2 : Bytecode.POP, (isWide(from)) ? -2 : -1);
+                break;
+            default:
+                if (!isWide(from)) {
+                    code.op(Bytecode.I2L, 1);
+                }
+                break;
+            }
+            return null;
+        } // visit(CastExp)
+
+        public Void visit(final AddressOfExp e, final Void arg) {
+            address(e.lhs);
+            return null;
+        }
+
+        public Void visit(final DereferenceExp e, final Void arg) {
+            final char kind = kind(expTypes.get(e));
+            if (loadsNeedMemory(kind)) {
+                code.aload(0);
+            }
+            expression(e.exp);
+            loadFrom(kind);
+            return null;
+        }
+
+        public Void visit(final FieldAccessExp e, final Void arg) {
+            final char kind = kind(expTypes.get(e));
+            final StructureName structure = ((StructureType)expTypes.get(e.exp)).name;
+            final int offset = layout.fieldOffset(structure, e.field);
+            if (loadsNeedMemory(kind)) {
+                code.aload(0);
+            }
+            expression(e.exp);
+            if (offset != 0) {
+                code.lconst(offset);
+                code.op(Bytecode.LADD, -2);
+            }
+            loadFrom(kind);
+            return null;
+        }
+    } // FunctionCompiler
+
+    private static class KindVisitor implements TypeVisitor<Void, Character, RuntimeException> {
+        public Character visit(final IntType t, final Void arg) {
+            return INT;
+        }
+
+        public Character visit(final CharType t, final Void arg) {
+            return CHAR;
+        }
+
+        public Character visit(final BoolType t, final Void arg) {
+            return BOOL;
+        }
+
+        public Character visit(final VoidType t, final Void arg) {
+            return VOID;
+        }
+
+        public Character visit(final StructureType t, final Void arg) {
+            return STRUCTURE;
+        }
+
+        public Character visit(final PointerType t, final Void arg) {
+            return POINTER;
+        }
+    } // KindVisitor
+} // BytecodeCompiler
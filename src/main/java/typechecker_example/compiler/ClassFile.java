@@ -0,0 +1,200 @@
+package typechecker_example.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a class file holding only public static methods, in version 49
+// (Java 5) format, so methods are verified by type inference and need no
+// stack map frames.  Constant pool entries are shared by value.  Going over
+// the limit on constant pool entries is only reported by toBytes.
+class ClassFile {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int MAX_CONSTANTS = 0xFFFF;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    // begin instance variables
+    public final String name;
+    private final ByteArrayOutputStream constantBytes;
+    private final DataOutputStream constants;
+    private final Map<String, Integer> constantIndices;
+    // the next free constant pool index; entry 0 is reserved
+    private int constantCount;
+    private final List<byte[]> methods;
+
+    // name is the internal form, like a/b/C
+    public ClassFile(final String name) {
+        this.name = name;
+        this.constantBytes = new ByteArrayOutputStream();
+        this.constants = new DataOutputStream(constantBytes);
+        this.constantIndices = new HashMap<String, Integer>();
+        this.constantCount = 1;
+        this.methods = new ArrayList<byte[]>();
+    }
+
+    // constant pool
+
+    private int constant(final String key, final int tag, final Object first, final Object second) {
+        final Integer existing = constantIndices.get(key);
+        if (existing != null) {
+            return existing.intValue();
+        }
+        // referenced entries must be added before this one is written
+        final int firstIndex = (first instanceof String) ? referenced(tag, (String)first, 0) : 0;
+        final int secondIndex = (second instanceof String) ? referenced(tag, (String)second, 1) : 0;
+        final int retval = constantCount;
+        try {
+            constants.writeByte(tag);
+            switch (tag) {
+            case CONSTANT_UTF8:
+                constants.writeUTF((String)first);
+                break;
+            case CONSTANT_INTEGER:
+                constants.writeInt(((Integer)first).intValue());
+                break;
+            case CONSTANT_LONG:
+                constants.writeLong(((Long)first).longValue());
+                break;
+            case CONSTANT_CLASS:
+            case CONSTANT_STRING:
+                constants.writeShort(firstIndex);
+                break;
+            default:
+                constants.writeShort(firstIndex);
+                constants.writeShort(secondIndex);
+                break;
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        // longs take two entries
+        constantCount += (tag == CONSTANT_LONG) ? 2 : 1;
+        constantIndices.put(key, retval);
+        return retval;
+    } // constant
+
+    // the index of what the given part of an entry with the tag refers to
+    private int referenced(final int tag, final String part, final int position) {
+        switch (tag) {
+        case CONSTANT_CLASS:
+        case CONSTANT_STRING:
+        case CONSTANT_NAME_AND_TYPE:
+            return utf8(part);
+        case CONSTANT_METHODREF:
+            if (position == 0) {
+                return classRef(part);
+            } else {
+                final int split = part.indexOf('(');
+                return nameAndType(part.substring(0, split), part.substring(split));
+            }
+        default:
+            return 0;
+        }
+    }
+
+    public int utf8(final String value) {
+        return constant("U" + value, CONSTANT_UTF8, value, null);
+    }
+
+    public int integer(final int value) {
+        return constant("I" + value, CONSTANT_INTEGER, Integer.valueOf(value), null);
+    }
+
+    public int longConstant(final long value) {
+        return constant("J" + value, CONSTANT_LONG, Long.valueOf(value), null);
+    }
+
+    public int string(final String value) {
+        return constant("S" + value, CONSTANT_STRING, value, null);
+    }
+
+    public int classRef(final String className) {
+        return constant("C" + className, CONSTANT_CLASS, className, null);
+    }
+
+    private int nameAndType(final String methodName, final String descriptor) {
+        return constant("N" + methodName + " " + descriptor, CONSTANT_NAME_AND_TYPE, methodName, descriptor);
+    }
+
+    public int methodRef(final String owner, final String methodName, final String descriptor) {
+        return constant("M" + owner + "." + methodName + descriptor,
+                        CONSTANT_METHODREF,
+                        owner,
+                        methodName + descriptor);
+    }
+
+    // methods
+
+    public void addMethod(final String methodName,
+                          final String descriptor,
+                          final Bytecode code) throws CompileException {
+        final byte[] bytecode = code.toBytes();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(ACC_PUBLIC | ACC_STATIC);
+            out.writeShort(utf8(methodName));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + bytecode.length);
+            out.writeShort(code.maxStack());
+            out.writeShort(code.maxLocals());
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        methods.add(bytes.toByteArray());
+    } // addMethod
+
+    public byte[] toBytes() throws CompileException {
+        final int thisClass = classRef(name);
+        final int superClass = classRef("java/lang/Object");
+        // indices past the limit were written truncated, so nothing is
+        // written out
+        if (constantCount > MAX_CONSTANTS) {
+            throw new CompileException("Too many constants: " + (constantCount - 1));
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(constantCount);
+            constantBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (final byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0); // attributes
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    } // toBytes
+} // ClassFile
@@ -0,0 +1,11 @@
+package typechecker_example.compiler;
+
+// A typechecked program which can't be compiled, as some function or the
+// class as a whole is over one of the JVM's limits.
+public class CompileException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public CompileException(final String message) {
+        super(message);
+    }
+}
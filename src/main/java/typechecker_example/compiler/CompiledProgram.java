@@ -0,0 +1,138 @@
+package typechecker_example.compiler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import typechecker_example.interpreter.Interpreter;
+import typechecker_example.interpreter.InterpreterException;
+import typechecker_example.interpreter.Memory;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.ExpTypes;
+import typechecker_example.typechecker.TypeErrorException;
+import typechecker_example.typechecker.Typechecker;
+
+// A typechecked program compiled to JVM bytecode, which runs with the same
+// results and kinds of runtime errors as the Interpreter, over the same
+// kind of Memory.  Only variables whose address is taken, and structures,
+// are on the Memory stack, so stack addresses differ from the
+// interpreter's; so do programs which depend on them, like those reading
+// through dangling pointers, and the addresses in error messages.
+// Programs are compiled when constructed, to a class of their own;
+// those over the JVM's limits on a class or method throw CompileException.
+// Not safe to share between threads.
+public class CompiledProgram {
+    private static final String CLASS_NAME = "typechecker_example/compiler/Generated";
+
+    // begin instance variables
+    private final Map<FunctionName, FunctionDefinition> functions;
+    private final Map<FunctionName, Method> methods;
+    private final Memory memory;
+
+    public CompiledProgram(final Program prog) throws TypeErrorException, CompileException {
+        this(prog, Interpreter.DEFAULT_STACK_SIZE, Interpreter.DEFAULT_HEAP_SIZE);
+    }
+
+    public CompiledProgram(final Program prog,
+                           final int stackSize,
+                           final int initialHeapSize) throws TypeErrorException, CompileException {
+        functions = Typechecker.makeFunctionMap(prog);
+        final Map<StructureName, StructureDeclaration> structures = Typechecker.makeStructureMap(prog);
+        final ExpTypes expTypes = new ExpTypes();
+        new Typechecker(functions, structures).typecheck(prog, expTypes);
+        final BytecodeCompiler compiler =
+            new BytecodeCompiler(CLASS_NAME, prog.functionDefs, structures, expTypes);
+        final Class<?> generated = new Loader().define(CLASS_NAME.replace('/', '.'), compiler.compile());
+
+        final Map<String, Method> methodsByName = new HashMap<String, Method>();
+        for (final Method method : generated.getMethods()) {
+            methodsByName.put(method.getName(), method);
+        }
+        methods = new HashMap<FunctionName, Method>();
+        for (int index = 0; index < prog.functionDefs.length; index++) {
+            methods.put(prog.functionDefs[index].name,
+                        methodsByName.get(BytecodeCompiler.methodName(index)));
+        }
+        memory = new Memory(stackSize, initialHeapSize);
+    } // CompiledProgram
+
+    public Memory memory() {
+        return memory;
+    }
+
+    // Calls the given function, as Interpreter.call does, including letting
+    // StackOverflowError through.
+    public long call(final FunctionName name, final long... arguments) throws InterpreterException {
+        final FunctionDefinition def = functions.get(name);
+        if (def == null) {
+            throw new IllegalArgumentException("No such function: " + name);
+        } else if (def.parameters.length != arguments.length) {
+            throw new IllegalArgumentException("Wrong number of arguments to: " + name);
+        }
+        final Object[] jvmArguments = new Object[1 + arguments.length];
+        int count = 0;
+        jvmArguments[count++] = memory;
+        for (int index = 0; index < arguments.length; index++) {
+            final Type type = def.parameters[index].type;
+            if (type instanceof StructureType) {
+                throw new IllegalArgumentException("Structure parameter to: " + name);
+            } else if (type instanceof PointerType) {
+                jvmArguments[count++] = arguments[index];
+            } else if (type instanceof CharType) {
+                jvmArguments[count++] = (int)(arguments[index] & 0xFF);
+            } else if (type instanceof BoolType) {
+                jvmArguments[count++] = (arguments[index] != 0) ? 1 : 0;
+            } else if (!(type instanceof VoidType)) {
+                jvmArguments[count++] = (int)arguments[index];
+            }
+        }
+        if (def.returnType instanceof StructureType) {
+            throw new IllegalArgumentException("Structure returned from: " + name);
+        }
+
+        final int stackMark = memory.stackTop();
+        try {
+            final Object result = methods.get(name).invoke(null, Arrays.copyOf(jvmArguments, count));
+            return (result == null) ? 0 : ((Number)result).longValue();
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InterpreterException) {
+                throw (InterpreterException)cause;
+            } else if (cause instanceof ArithmeticException) {
+                // only idiv throws these
+                throw new InterpreterException("Division by zero");
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            } else {
+                throw (RuntimeException)cause;
+            }
+        } catch (final IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            memory.popTo(stackMark);
+        }
+    } // call
+
+    // called from compiled code for runtime errors
+
+    public static int unsized(final String type) throws InterpreterException {
+        throw new InterpreterException("Type has no size: " + type);
+    }
+
+    public static InterpreterException missingReturn(final String function) {
+        return new InterpreterException("Function returned without a value: " + function);
+    }
+
+    // each program's class gets its own loader, so it can be collected
+    // along with the program
+    private static class Loader extends ClassLoader {
+        public Loader() {
+            super(CompiledProgram.class.getClassLoader());
+        }
+
+        public Class<?> define(final String name, final byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    } // Loader
+} // CompiledProgram
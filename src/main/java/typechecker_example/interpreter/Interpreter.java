@@ -0,0 +1,501 @@
+package typechecker_example.interpreter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.ExpTypes;
+import typechecker_example.typechecker.TypeErrorException;
+import typechecker_example.typechecker.TypeLayout;
+import typechecker_example.typechecker.Typechecker;
+
+// Runs typechecked programs by walking their ASTs.  Every value lives in
+// Memory, laid out as TypeLayout says, so locals can have their addresses
+// taken.  Values are passed around as longs: ints, chars, bools (as 0 or
+// 1), and pointers by value, and structures by the address of their bytes.
+// Anything which takes a structure copies it, so these addresses are never
+// kept.  The program is typechecked up front, recording the type of each
+// expression, which is needed to load values from memory.
+//
+// Locals are bound in arrays indexed by variable id, and a trail of
+// previous bindings is unwound on leaving a block or function.  Stack
+// memory is popped at the same points, and at the start of each loop
+// iteration.  Expressions and nested blocks recurse on the Java stack.
+// Not safe to share between threads.
+public class Interpreter {
+    public static final int DEFAULT_STACK_SIZE = 1 << 20;
+    public static final int DEFAULT_HEAP_SIZE = 1 << 20;
+
+    // how statements complete
+    private static final int NORMAL = 0;
+    private static final int BREAK = 1;
+    private static final int CONTINUE = 2;
+    private static final int RETURN = 3;
+
+    // how values of each type are represented
+    private static final int INT = 0;
+    private static final int CHAR = 1;
+    private static final int BOOL = 2;
+    private static final int POINTER = 3;
+    private static final int STRUCTURE = 4;
+    private static final int VOID = 5;
+
+    // begin instance variables
+    private final Map<FunctionName, FunctionDefinition> functions;
+    private final Map<StructureName, StructureDeclaration> structures;
+    private final ExpTypes expTypes;
+    private final TypeLayout layout;
+    private final Memory memory;
+    private final Representation representation;
+    private final ExpEvaluator expEvaluator;
+    private final LhsEvaluator lhsEvaluator;
+    private final StmtExecutor stmtExecutor;
+
+    // the address and type of each variable id, and (variable id, previous
+    // address, previous type) triples to undo
+    private int[] addresses;
+    private Type[] variableTypes;
+    private int[] trailVariables;
+    private int[] trailAddresses;
+    private Type[] trailTypes;
+    private int trailSize;
+
+    // set by return statements
+    private long returnValue;
+
+    public Interpreter(final Program prog) throws TypeErrorException {
+        this(prog, DEFAULT_STACK_SIZE, DEFAULT_HEAP_SIZE);
+    }
+
+    // the heap grows past its initial size as needed, but the stack doesn't
+    public Interpreter(final Program prog, final int stackSize, final int initialHeapSize) throws TypeErrorException {
+        functions = Typechecker.makeFunctionMap(prog);
+        structures = Typechecker.makeStructureMap(prog);
+        expTypes = new ExpTypes();
+        new Typechecker(functions, structures).typecheck(prog, expTypes);
+        layout = new TypeLayout(structures);
+        memory = new Memory(stackSize, initialHeapSize);
+        representation = new Representation();
+        expEvaluator = new ExpEvaluator();
+        lhsEvaluator = new LhsEvaluator();
+        stmtExecutor = new StmtExecutor();
+
+        addresses = new int[64];
+        variableTypes = new Type[64];
+        trailVariables = new int[64];
+        trailAddresses = new int[64];
+        trailTypes = new Type[64];
+    } // Interpreter
+
+    public Memory memory() {
+        return memory;
+    }
+
+    // Calls the given function, whose parameters and return type must not
+    // be structures.  Arguments and results are represented as described
+    // above; void functions return 0.  Calls nested too deeply for the Java
+    // stack throw StackOverflowError, which isn't caught, as it may come from
+    // anywhere; the bindings and stack memory of the call are still undone,
+    // so this can be called again afterwards.
+    public long call(final FunctionName name, final long... arguments) throws InterpreterException {
+        final FunctionDefinition def = functions.get(name);
+        if (def == null) {
+            throw new IllegalArgumentException("No such function: " + name);
+        } else if (def.parameters.length != arguments.length) {
+            throw new IllegalArgumentException("Wrong number of arguments to: " + name);
+        }
+        for (final VariableDeclaration param : def.parameters) {
+            if (representationOf(param.type) == STRUCTURE) {
+                throw new IllegalArgumentException("Structure parameter to: " + name);
+            }
+        }
+        if (representationOf(def.returnType) == STRUCTURE) {
+            throw new IllegalArgumentException("Structure returned from: " + name);
+        }
+
+        final int stackMark = memory.stackTop();
+        final int trailMark = trailSize;
+        try {
+            return invoke(def, arguments);
+        } finally {
+            unwind(trailMark);
+            memory.popTo(stackMark);
+        }
+    } // call
+
+    // leaves a structure result on the stack, and pops anything else
+    private long invoke(final FunctionDefinition def, final long[] arguments) throws InterpreterException {
+        final int stackMark = memory.stackTop();
+        final int trailMark = trailSize;
+        for (int index = 0; index < arguments.length; index++) {
+            final VariableDeclaration param = def.parameters[index];
+            bind(param.variable.id, allocate(param.type, arguments[index]), param.type);
+        }
+        final int status = execute(def.body);
+        unwind(trailMark);
+
+        final long retval;
+        if (status == RETURN) {
+            retval = returnValue;
+        } else if (representationOf(def.returnType) == VOID) {
+            retval = 0;
+        } else {
+            throw new InterpreterException("Function returned without a value: " + def.name);
+        }
+        if (representationOf(def.returnType) == STRUCTURE) {
+            return memory.popToKeeping(stackMark,
+                                       retval,
+                                       layout.sizeof(def.returnType),
+                                       layout.alignof(def.returnType));
+        } else {
+            memory.popTo(stackMark);
+            return retval;
+        }
+    } // invoke
+
+    private void bind(final int variable, final int address, final Type type) {
+        if (variable >= addresses.length) {
+            final int newLength = Math.max(variable + 1, addresses.length * 2);
+            addresses = Arrays.copyOf(addresses, newLength);
+            variableTypes = Arrays.copyOf(variableTypes, newLength);
+        }
+        if (trailSize == trailVariables.length) {
+            trailVariables = Arrays.copyOf(trailVariables, trailSize * 2);
+            trailAddresses = Arrays.copyOf(trailAddresses, trailSize * 2);
+            trailTypes = Arrays.copyOf(trailTypes, trailSize * 2);
+        }
+        trailVariables[trailSize] = variable;
+        trailAddresses[trailSize] = addresses[variable];
+        trailTypes[trailSize] = variableTypes[variable];
+        trailSize++;
+        addresses[variable] = address;
+        variableTypes[variable] = type;
+    } // bind
+
+    // undoes bindings back to the given trail size
+    private void unwind(final int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            addresses[trailVariables[trailSize]] = trailAddresses[trailSize];
+            variableTypes[trailVariables[trailSize]] = trailTypes[trailSize];
+            trailTypes[trailSize] = null;
+        }
+    }
+
+    private int representationOf(final Type type) {
+        return type.accept(representation, null);
+    }
+
+    private int sizeof(final Type type) throws InterpreterException {
+        final int retval = layout.sizeof(type);
+        if (retval == TypeLayout.UNSIZED) {
+            throw new InterpreterException("Type has no size: " + type);
+        }
+        return retval;
+    }
+
+    // Pushes a new stack slot for the type, holding the given value.  Void
+    // variables, as in void v = free(p), hold nothing and take no space.
+    private int allocate(final Type type, final long value) throws InterpreterException {
+        if (representationOf(type) == VOID) {
+            return memory.stackTop();
+        }
+        final int retval = memory.push(sizeof(type), layout.alignof(type));
+        store(retval, type, value);
+        return retval;
+    }
+
+    private long load(final long address, final Type type) throws InterpreterException {
+        switch (representationOf(type)) {
+        case INT:
+            return memory.getInt(address);
+        case CHAR:
+            return memory.getByte(address) & 0xFF;
+        case BOOL:
+            return memory.getByte(address);
+        case POINTER:
+            return memory.getLong(address);
+        case STRUCTURE:
+            memory.check(address, sizeof(type));
+            return address;
+        default:
+            return 0;
+        }
+    } // load
+
+    private void store(final long address, final Type type, final long value) throws InterpreterException {
+        switch (representationOf(type)) {
+        case INT:
+            memory.putInt(address, (int)value);
+            break;
+        case CHAR:
+        case BOOL:
+            memory.putByte(address, (byte)value);
+            break;
+        case POINTER:
+            memory.putLong(address, value);
+            break;
+        case STRUCTURE:
+            memory.copy(value, address, sizeof(type));
+            break;
+        default:
+            break;
+        }
+    } // store
+
+    private long evaluate(final Exp e) throws InterpreterException {
+        return e.accept(expEvaluator, null);
+    }
+
+    private int execute(final Stmt s) throws InterpreterException {
+        return s.accept(stmtExecutor, null);
+    }
+
+    // executes a nested block, whose bindings and stack memory are dropped
+    // after, unless it returned, when its stack memory may hold the result
+    private int executeBlock(final Stmt s) throws InterpreterException {
+        final int stackMark = memory.stackTop();
+        final int trailMark = trailSize;
+        final int status = execute(s);
+        unwind(trailMark);
+        if (status != RETURN) {
+            memory.popTo(stackMark);
+        }
+        return status;
+    }
+
+    private boolean isTrue(final Exp guard) throws InterpreterException {
+        return evaluate(guard) != 0;
+    }
+
+    private class StmtExecutor implements StmtVisitor<Void, Integer, InterpreterException> {
+        public Integer visit(final IfStmt s, final Void arg) throws InterpreterException {
+            return executeBlock((isTrue(s.guard)) ? s.ifTrue : s.ifFalse);
+        }
+
+        public Integer visit(final WhileStmt s, final Void arg) throws InterpreterException {
+            final int stackMark = memory.stackTop();
+            while (true) {
+                memory.popTo(stackMark);
+                if (!isTrue(s.guard)) {
+                    return NORMAL;
+                }
+                final int status = executeBlock(s.body);
+                if (status == BREAK) {
+                    return NORMAL;
+                } else if (status == RETURN) {
+                    return RETURN;
+                }
+            }
+        }
+
+        public Integer visit(final BreakStmt s, final Void arg) {
+            return BREAK;
+        }
+
+        public Integer visit(final ContinueStmt s, final Void arg) {
+            return CONTINUE;
+        }
+
+        public Integer visit(final VariableDeclarationInitializationStmt s, final Void arg) throws InterpreterException {
+            final long value = evaluate(s.exp);
+            final Type type = s.varDec.type;
+            bind(s.varDec.variable.id, allocate(type, value), type);
+            return NORMAL;
+        }
+
+        public Integer visit(final AssignmentStmt s, final Void arg) throws InterpreterException {
+            final long address = s.lhs.accept(lhsEvaluator, null);
+            final Type type = lhsEvaluator.type;
+            store(address, type, evaluate(s.exp));
+            return NORMAL;
+        }
+
+        public Integer visit(final ReturnVoidStmt s, final Void arg) {
+            returnValue = 0;
+            return RETURN;
+        }
+
+        public Integer visit(final ReturnExpStmt s, final Void arg) throws InterpreterException {
+            returnValue = evaluate(s.exp);
+            return RETURN;
+        }
+
+        // nested sequences, on either side, run in order from an explicit
+        // stack rather than by recursing
+        public Integer visit(final SequenceStmt s, final Void arg) throws InterpreterException {
+            final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+            work.push(s);
+            while (!work.isEmpty()) {
+                final Stmt stmt = work.pop();
+                if (stmt instanceof SequenceStmt) {
+                    work.push(((SequenceStmt)stmt).second);
+                    work.push(((SequenceStmt)stmt).first);
+                } else {
+                    final int status = execute(stmt);
+                    if (status != NORMAL) {
+                        return status;
+                    }
+                }
+            }
+            return NORMAL;
+        } // visit(SequenceStmt)
+    } // StmtExecutor
+
+    private class ExpEvaluator implements ExpVisitor<Void, Long, InterpreterException> {
+        public Long visit(final IntExp e, final Void arg) {
+            return (long)e.value;
+        }
+
+        public Long visit(final CharExp e, final Void arg) {
+            return (long)(e.value & 0xFF);
+        }
+
+        public Long visit(final BoolExp e, final Void arg) {
+            return (e.value) ? 1L : 0L;
+        }
+
+        public Long visit(final VariableExp e, final Void arg) throws InterpreterException {
+            final int variable = e.variable.id;
+            return load(addresses[variable], variableTypes[variable]);
+        }
+
+        public Long visit(final MallocExp e, final Void arg) throws InterpreterException {
+            return (long)memory.malloc((int)evaluate(e.amount));
+        }
+
+        public Long visit(final FreeExp e, final Void arg) throws InterpreterException {
+            memory.free(evaluate(e.value));
+            return 0L;
+        }
+
+        public Long visit(final SizeofExp e, final Void arg) throws InterpreterException {
+            return (long)sizeof(e.type);
+        }
+
+        public Long visit(final BinopExp e, final Void arg) throws InterpreterException {
+            final long left = evaluate(e.left);
+            final long right = evaluate(e.right);
+            switch (e.op.kind()) {
+            case Op.PLUS:
+                return (long)((int)left + (int)right);
+            case Op.MINUS:
+                return (long)((int)left - (int)right);
+            case Op.MULT:
+                return (long)((int)left * (int)right);
+            case Op.DIV:
+                if ((int)right == 0) {
+                    throw new InterpreterException("Division by zero");
+                }
+                return (long)((int)left / (int)right);
+            case Op.EQUALS:
+                final Type operandType = expTypes.get(e.left);
+                if (representationOf(operandType) == STRUCTURE) {
+                    return (memory.equal(left, right, sizeof(operandType))) ? 1L : 0L;
+                } else {
+                    return (left == right) ? 1L : 0L;
+                }
+            default:
+                return ((int)left < (int)right) ? 1L : 0L;
+            }
+        } // visit(BinopExp)
+
+        public Long visit(final MakeStructureExp e, final Void arg) throws InterpreterException {
+            final StructureDeclaration dec = structures.get(e.name);
+            final Type type = expTypes.get(e);
+            final int address = memory.push(sizeof(type), layout.alignof(type));
+            final int[] offsets = layout.fieldOffsets(e.name);
+            for (int index = 0; index < offsets.length; index++) {
+                store(address + offsets[index], dec.fields[index].type, evaluate(e.parameters[index]));
+            }
+            return (long)address;
+        }
+
+        public Long visit(final FunctionCallExp e, final Void arg) throws InterpreterException {
+            final long[] arguments = new long[e.parameters.length];
+            for (int index = 0; index < arguments.length; index++) {
+                arguments[index] = evaluate(e.parameters[index]);
+            }
+            return invoke(functions.get(e.name), arguments);
+        }
+
+        public Long visit(final CastExp e, final Void arg) throws InterpreterException {
+            final long value = evaluate(e.exp);
+            switch (representationOf(e.type)) {
+            case INT:
+                return (long)(int)value;
+            case CHAR:
+                return value & 0xFF;
+            case BOOL:
+                return (value != 0) ? 1L : 0L;
+            default:
+                return value;
+            }
+        }
+
+        public Long visit(final AddressOfExp e, final Void arg) throws InterpreterException {
+            return e.lhs.accept(lhsEvaluator, null);
+        }
+
+        public Long visit(final DereferenceExp e, final Void arg) throws InterpreterException {
+            return load(evaluate(e.exp), expTypes.get(e));
+        }
+
+        public Long visit(final FieldAccessExp e, final Void arg) throws InterpreterException {
+            final long base = evaluate(e.exp);
+            final StructureName structure = ((StructureType)expTypes.get(e.exp)).name;
+            return load(base + layout.fieldOffset(structure, e.field), expTypes.get(e));
+        }
+    } // ExpEvaluator
+
+    // Returns the address of the left-hand side, leaving its type in type.
+    // Left-hand sides aren't recorded in ExpTypes, so their types are
+    // worked out here.
+    private class LhsEvaluator implements LhsVisitor<Void, Long, InterpreterException> {
+        public Type type;
+
+        public Long visit(final VariableLhs lhs, final Void arg) {
+            type = variableTypes[lhs.variable.id];
+            return (long)addresses[lhs.variable.id];
+        }
+
+        public Long visit(final FieldAccessLhs lhs, final Void arg) throws InterpreterException {
+            final long base = lhs.lhs.accept(this, null);
+            final StructureName structure = ((StructureType)type).name;
+            type = structures.get(structure).fieldType(lhs.field);
+            return base + layout.fieldOffset(structure, lhs.field);
+        }
+
+        public Long visit(final DereferenceLhs lhs, final Void arg) throws InterpreterException {
+            final long pointer = memory.getLong(lhs.lhs.accept(this, null));
+            type = ((PointerType)type).pointsTo;
+            return pointer;
+        }
+    } // LhsEvaluator
+
+    private static class Representation implements TypeVisitor<Void, Integer, RuntimeException> {
+        public Integer visit(final IntType t, final Void arg) {
+            return INT;
+        }
+
+        public Integer visit(final CharType t, final Void arg) {
+            return CHAR;
+        }
+
+        public Integer visit(final BoolType t, final Void arg) {
+            return BOOL;
+        }
+
+        public Integer visit(final VoidType t, final Void arg) {
+            return VOID;
+        }
+
+        public Integer visit(final StructureType t, final Void arg) {
+            return STRUCTURE;
+        }
+
+        public Integer visit(final PointerType t, final Void arg) {
+            return POINTER;
+        }
+    } // Representation
+} // Interpreter
@@ -0,0 +1,10 @@
+package typechecker_example.interpreter;
+
+// A runtime error in the program being interpreted.
+public class InterpreterException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public InterpreterException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,209 @@
+package typechecker_example.interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// All memory of a running program, as one little-endian byte arena.
+// Addresses are offsets into the arena, and address 0 is null.  The arena
+// holds a fixed-size stack, for locals and temporaries, followed by a heap
+// which grows on demand.
+//
+// The heap is a segregated-fit allocator: blocks are powers of two from
+// MIN_CLASS up, with a free list per size, linked through the first word
+// of each free block.  Each block starts with an 8-byte header giving its
+// size class and whether it is allocated, which is how double frees and
+// frees of pointers which didn't come from malloc are caught.  Fresh stack
+// and heap memory is always zeroed, so programs run deterministically.  Not
+// safe to share between threads.
+public class Memory {
+    // the bytes below the stack, so nothing is ever at the null address
+    private static final int NULL_GUARD = 8;
+    private static final int HEADER_SIZE = 8;
+    private static final int MIN_CLASS = 4;
+    private static final int MAX_CLASS = 30;
+    private static final int ALLOCATED = 0x414c4c43;
+    private static final int FREED = 0x46524545;
+
+    // begin instance variables
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    public final int stackLimit;
+    // the first free byte of the stack and of the heap
+    private int stackTop;
+    private int heapTop;
+    // head of the free list for each size class, or 0 if it's empty
+    private final int[] freeLists;
+    private int liveBlocks;
+
+    public Memory(final int stackSize, final int initialHeapSize) {
+        stackLimit = NULL_GUARD + stackSize;
+        bytes = new byte[stackLimit + initialHeapSize];
+        buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        stackTop = NULL_GUARD;
+        heapTop = align(stackLimit, HEADER_SIZE);
+        freeLists = new int[MAX_CLASS + 1];
+    }
+
+    private static int align(final int offset, final int alignment) {
+        return (offset + alignment - 1) / alignment * alignment;
+    }
+
+    // stack
+
+    public int stackTop() {
+        return stackTop;
+    }
+
+    // frees everything pushed since the stack was at the given top
+    public void popTo(final int top) {
+        stackTop = top;
+    }
+
+    // returns the address of size fresh, zeroed bytes on the stack
+    public int push(final int size, final int alignment) throws InterpreterException {
+        final int retval = align(stackTop, alignment);
+        if (retval + size > stackLimit) {
+            throw new InterpreterException("Stack overflow");
+        }
+        stackTop = retval + size;
+        Arrays.fill(bytes, retval, stackTop, (byte)0);
+        return retval;
+    }
+
+    // Pops back to the given top, then pushes a copy of the size bytes at
+    // address, which may have been among those popped.  Returns the address
+    // of the copy.  The copy may overlap the original, so isn't zeroed first.
+    public int popToKeeping(final int top, final long address, final int size, final int alignment) throws InterpreterException {
+        final int from = check(address, size);
+        final int retval = align(top, alignment);
+        if (retval + size > stackLimit) {
+            throw new InterpreterException("Stack overflow");
+        }
+        System.arraycopy(bytes, from, bytes, retval, size);
+        stackTop = retval + size;
+        return retval;
+    }
+
+    // heap
+
+    public int malloc(final int size) throws InterpreterException {
+        if (size <= 0) {
+            throw new InterpreterException("Malloc of non-positive size: " + size);
+        }
+        int sizeClass = MIN_CLASS;
+        while (sizeClass <= MAX_CLASS && (1 << sizeClass) - HEADER_SIZE < size) {
+            sizeClass++;
+        }
+        if (sizeClass > MAX_CLASS) {
+            throw new InterpreterException("Malloc too large: " + size);
+        }
+
+        int block = freeLists[sizeClass];
+        if (block != 0) {
+            freeLists[sizeClass] = buffer.getInt(block + HEADER_SIZE);
+            Arrays.fill(bytes, block + HEADER_SIZE, block + (1 << sizeClass), (byte)0);
+        } else {
+            block = heapTop;
+            ensureCapacity((long)block + (1 << sizeClass));
+            heapTop = block + (1 << sizeClass);
+        }
+        buffer.putInt(block, sizeClass);
+        buffer.putInt(block + 4, ALLOCATED);
+        liveBlocks++;
+        return block + HEADER_SIZE;
+    } // malloc
+
+    // freeing null does nothing, as in C
+    public void free(final long address) throws InterpreterException {
+        if (address == 0) {
+            return;
+        }
+        final long block = address - HEADER_SIZE;
+        if (block < stackLimit || address >= heapTop || block % HEADER_SIZE != 0) {
+            throw new InterpreterException("Free of pointer not from malloc: " + address);
+        }
+        final int state = buffer.getInt((int)block + 4);
+        if (state == FREED) {
+            throw new InterpreterException("Double free: " + address);
+        } else if (state != ALLOCATED) {
+            throw new InterpreterException("Free of pointer not from malloc: " + address);
+        }
+        final int sizeClass = buffer.getInt((int)block);
+        buffer.putInt((int)block + 4, FREED);
+        buffer.putInt((int)address, freeLists[sizeClass]);
+        freeLists[sizeClass] = (int)block;
+        liveBlocks--;
+    } // free
+
+    // the number of blocks malloced but not yet freed
+    public int liveBlocks() {
+        return liveBlocks;
+    }
+
+    private void ensureCapacity(final long size) throws InterpreterException {
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new InterpreterException("Out of memory");
+        }
+        if (size > bytes.length) {
+            final long newLength = Math.max(size, Math.min(2L * bytes.length, Integer.MAX_VALUE - 8));
+            bytes = Arrays.copyOf(bytes, (int)newLength);
+            buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // access
+
+    // Returns the address as an index, if size bytes from it are in use.
+    // The bytes are out of use if they overlap the free part of the stack,
+    // so size 0 is fine right at the top of the stack, but not above it.
+    int check(final long address, final int size) throws InterpreterException {
+        if (address < NULL_GUARD) {
+            throw new InterpreterException("Null pointer dereference");
+        } else if (address + size > heapTop ||
+                   (address + size > stackTop && address < stackLimit)) {
+            throw new InterpreterException("Invalid memory access: " + address);
+        }
+        return (int)address;
+    }
+
+    public int getInt(final long address) throws InterpreterException {
+        return buffer.getInt(check(address, 4));
+    }
+
+    public void putInt(final long address, final int value) throws InterpreterException {
+        buffer.putInt(check(address, 4), value);
+    }
+
+    public byte getByte(final long address) throws InterpreterException {
+        return buffer.get(check(address, 1));
+    }
+
+    public void putByte(final long address, final byte value) throws InterpreterException {
+        buffer.put(check(address, 1), value);
+    }
+
+    public long getLong(final long address) throws InterpreterException {
+        return buffer.getLong(check(address, 8));
+    }
+
+    public void putLong(final long address, final long value) throws InterpreterException {
+        buffer.putLong(check(address, 8), value);
+    }
+
+    // copies size bytes; the ranges may overlap
+    public void copy(final long from, final long to, final int size) throws InterpreterException {
+        System.arraycopy(bytes, check(from, size), bytes, check(to, size), size);
+    }
+
+    public boolean equal(final long first, final long second, final int size) throws InterpreterException {
+        final int firstIndex = check(first, size);
+        final int secondIndex = check(second, size);
+        for (int index = 0; index < size; index++) {
+            if (bytes[firstIndex + index] != bytes[secondIndex + index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+} // Memory
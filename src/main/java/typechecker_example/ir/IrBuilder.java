@@ -0,0 +1,548 @@
+package typechecker_example.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.ExpTypes;
+import typechecker_example.typechecker.TypeErrorException;
+import typechecker_example.typechecker.Typechecker;
+
+// Lowers typechecked functions to IrFunctions, in one pass over each body,
+// so in time linear in its size.  Types of expressions come from the
+// ExpTypes the typechecker recorded, except where they're fixed by the
+// kind of expression.  Statement sequences and left-deep
+// binop chains are lowered from explicit stacks rather than by recursing.
+public class IrBuilder {
+    // begin instance variables
+    private final FunctionDefinition def;
+    private final Map<StructureName, StructureDeclaration> structures;
+    private final ExpTypes expTypes;
+    private final Set<Integer> addressTakenIds;
+    private final StatementLowerer statementLowerer;
+    private final ExpLowerer expLowerer;
+
+    private int instructionCount;
+    private int[] ops;
+    private int[] dests;
+    private int[] first;
+    private int[] second;
+    private int[] third;
+    private int listsSize;
+    private int[] lists;
+    private final List<Object> constants;
+    private final Map<Object, Integer> constantIndices;
+
+    private int registerCount;
+    private Type[] registerTypes;
+    private boolean[] addressTaken;
+
+    private int blockCount;
+    private int[] blockStarts;
+    private int[] blockEnds;
+    // the block being added to, or NONE after a terminator
+    private int currentBlock;
+
+    // registers by variable id, and (id, previous register) pairs to undo
+    private int[] registers;
+    private int[] trailIds;
+    private int[] trailRegisters;
+    private int trailSize;
+
+    // the head and exit of each enclosing loop, innermost first
+    private final ArrayDeque<Integer> continueBlocks;
+    private final ArrayDeque<Integer> breakBlocks;
+
+    private IrBuilder(final FunctionDefinition def,
+                      final Map<StructureName, StructureDeclaration> structures,
+                      final ExpTypes expTypes) {
+        this.def = def;
+        this.structures = structures;
+        this.expTypes = expTypes;
+        this.addressTakenIds = AddressTaken.variableIds(def.body);
+        this.statementLowerer = new StatementLowerer();
+        this.expLowerer = new ExpLowerer();
+        ops = new int[64];
+        dests = new int[64];
+        first = new int[64];
+        second = new int[64];
+        third = new int[64];
+        lists = new int[64];
+        constants = new ArrayList<Object>();
+        constantIndices = new HashMap<Object, Integer>();
+        registerTypes = new Type[64];
+        addressTaken = new boolean[64];
+        blockStarts = new int[16];
+        blockEnds = new int[16];
+        registers = new int[16];
+        Arrays.fill(registers, IrFunction.NONE);
+        trailIds = new int[16];
+        trailRegisters = new int[16];
+        continueBlocks = new ArrayDeque<Integer>();
+        breakBlocks = new ArrayDeque<Integer>();
+    }
+
+    // lowers every function in a program, after typechecking it
+    public static IrFunction[] lower(final Program prog) throws TypeErrorException {
+        final Map<FunctionName, FunctionDefinition> functions = Typechecker.makeFunctionMap(prog);
+        final Map<StructureName, StructureDeclaration> structures = Typechecker.makeStructureMap(prog);
+        final ExpTypes expTypes = new ExpTypes();
+        new Typechecker(functions, structures).typecheck(prog, expTypes);
+        final IrFunction[] retval = new IrFunction[prog.functionDefs.length];
+        for (int index = 0; index < retval.length; index++) {
+            retval[index] = lower(prog.functionDefs[index], structures, expTypes);
+        }
+        return retval;
+    }
+
+    // expTypes must hold the types of the function's expressions
+    public static IrFunction lower(final FunctionDefinition def,
+                                   final Map<StructureName, StructureDeclaration> structures,
+                                   final ExpTypes expTypes) {
+        final IrBuilder builder = new IrBuilder(def, structures, expTypes);
+        for (final VariableDeclaration param : def.parameters) {
+            builder.bind(param.variable, builder.register(param.type, param.variable));
+        }
+        builder.currentBlock = IrFunction.NONE;
+        builder.startBlock(builder.newBlock());
+        builder.stmt(def.body);
+        if (builder.currentBlock != IrFunction.NONE) {
+            if (def.returnType instanceof VoidType) {
+                builder.terminate(IrFunction.RETURN, IrFunction.NONE, 0, 0);
+            } else {
+                builder.terminate(IrFunction.FALL_OFF, 0, 0, 0);
+            }
+        }
+
+        final int count = builder.instructionCount;
+        return new IrFunction(def,
+                              count,
+                              Arrays.copyOf(builder.ops, count),
+                              Arrays.copyOf(builder.dests, count),
+                              Arrays.copyOf(builder.first, count),
+                              Arrays.copyOf(builder.second, count),
+                              Arrays.copyOf(builder.third, count),
+                              Arrays.copyOf(builder.lists, builder.listsSize),
+                              builder.constants.toArray(),
+                              builder.registerCount,
+                              Arrays.copyOf(builder.registerTypes, builder.registerCount),
+                              Arrays.copyOf(builder.addressTaken, builder.registerCount),
+                              builder.blockCount,
+                              Arrays.copyOf(builder.blockStarts, builder.blockCount),
+                              Arrays.copyOf(builder.blockEnds, builder.blockCount));
+    } // lower
+
+    // instructions
+
+    private void instruction(final int op, final int dest, final int a, final int b, final int c) {
+        if (currentBlock == IrFunction.NONE) {
+            // unreachable code, as after a return
+            startBlock(newBlock());
+        }
+        if (instructionCount == ops.length) {
+            final int newLength = ops.length * 2;
+            ops = Arrays.copyOf(ops, newLength);
+            dests = Arrays.copyOf(dests, newLength);
+            first = Arrays.copyOf(first, newLength);
+            second = Arrays.copyOf(second, newLength);
+            third = Arrays.copyOf(third, newLength);
+        }
+        ops[instructionCount] = op;
+        dests[instructionCount] = dest;
+        first[instructionCount] = a;
+        second[instructionCount] = b;
+        third[instructionCount] = c;
+        instructionCount++;
+    }
+
+    // adds an instruction with a new destination register of the type
+    private int value(final int op, final Type type, final int a, final int b) {
+        final int retval = register(type, null);
+        instruction(op, retval, a, b, 0);
+        return retval;
+    }
+
+    private void terminate(final int op, final int a, final int b, final int c) {
+        instruction(op, IrFunction.NONE, a, b, c);
+        blockEnds[currentBlock] = instructionCount;
+        currentBlock = IrFunction.NONE;
+    }
+
+    // adds a list of registers, returning its index
+    private int list(final int[] elements) {
+        if (listsSize + 1 + elements.length > lists.length) {
+            lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listsSize + 1 + elements.length));
+        }
+        final int retval = listsSize;
+        lists[retval] = elements.length;
+        System.arraycopy(elements, 0, lists, retval + 1, elements.length);
+        listsSize += 1 + elements.length;
+        return retval;
+    }
+
+    private int constant(final Object value) {
+        Integer retval = constantIndices.get(value);
+        if (retval == null) {
+            retval = constants.size();
+            constants.add(value);
+            constantIndices.put(value, retval);
+        }
+        return retval;
+    }
+
+    // a new register, for the variable if it isn't null
+    private int register(final Type type, final Variable variable) {
+        if (registerCount == registerTypes.length) {
+            registerTypes = Arrays.copyOf(registerTypes, registerCount * 2);
+            addressTaken = Arrays.copyOf(addressTaken, registerCount * 2);
+        }
+        registerTypes[registerCount] = type;
+        addressTaken[registerCount] = variable != null && addressTakenIds.contains(variable.id);
+        return registerCount++;
+    }
+
+    // blocks
+
+    private int newBlock() {
+        if (blockCount == blockStarts.length) {
+            blockStarts = Arrays.copyOf(blockStarts, blockCount * 2);
+            blockEnds = Arrays.copyOf(blockEnds, blockCount * 2);
+        }
+        return blockCount++;
+    }
+
+    // falls through from the current block, if any, to the given one
+    private void startBlock(final int block) {
+        if (currentBlock != IrFunction.NONE) {
+            terminate(IrFunction.JUMP, block, 0, 0);
+        }
+        blockStarts[block] = instructionCount;
+        currentBlock = block;
+    }
+
+    private void jump(final int block) {
+        if (currentBlock != IrFunction.NONE) {
+            terminate(IrFunction.JUMP, block, 0, 0);
+        }
+    }
+
+    // variables
+
+    private void bind(final Variable variable, final int register) {
+        if (variable.id >= registers.length) {
+            final int oldLength = registers.length;
+            registers = Arrays.copyOf(registers, Math.max(variable.id + 1, oldLength * 2));
+            Arrays.fill(registers, oldLength, registers.length, IrFunction.NONE);
+        }
+        if (trailSize == trailIds.length) {
+            trailIds = Arrays.copyOf(trailIds, trailSize * 2);
+            trailRegisters = Arrays.copyOf(trailRegisters, trailSize * 2);
+        }
+        trailIds[trailSize] = variable.id;
+        trailRegisters[trailSize] = registers[variable.id];
+        trailSize++;
+        registers[variable.id] = register;
+    }
+
+    // undoes bindings back to the given trail size
+    private void unwind(final int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            registers[trailIds[trailSize]] = trailRegisters[trailSize];
+        }
+    }
+
+    // statements
+
+    private void stmt(final Stmt s) {
+        s.accept(statementLowerer, null);
+    }
+
+    // a nested block, whose bindings are dropped after
+    private void block(final Stmt s) {
+        final int mark = trailSize;
+        stmt(s);
+        unwind(mark);
+    }
+
+    // left-hand sides
+
+    // the type of what the left-hand side names
+    private Type lhsType(final Lhs lhs) {
+        if (lhs instanceof VariableLhs) {
+            return registerTypes[registers[((VariableLhs)lhs).variable.id]];
+        } else if (lhs instanceof FieldAccessLhs) {
+            final FieldAccessLhs access = (FieldAccessLhs)lhs;
+            final StructureName structure = ((StructureType)lhsType(access.lhs)).name;
+            return structures.get(structure).fieldType(access.field);
+        } else {
+            return ((PointerType)lhsType(((DereferenceLhs)lhs).lhs)).pointsTo;
+        }
+    }
+
+    // returns a register holding the address of the left-hand side
+    private int address(final Lhs lhs) {
+        final Type type = new PointerType(lhsType(lhs));
+        if (lhs instanceof VariableLhs) {
+            return value(IrFunction.ADDRESS_OF, type, registers[((VariableLhs)lhs).variable.id], 0);
+        } else if (lhs instanceof FieldAccessLhs) {
+            final FieldAccessLhs access = (FieldAccessLhs)lhs;
+            final StructureName structure = ((StructureType)lhsType(access.lhs)).name;
+            return value(IrFunction.FIELD_ADDRESS,
+                         type,
+                         address(access.lhs),
+                         structures.get(structure).fieldSlot(access.field));
+        } else {
+            final Lhs pointer = ((DereferenceLhs)lhs).lhs;
+            if (pointer instanceof VariableLhs) {
+                return registers[((VariableLhs)pointer).variable.id];
+            } else {
+                return value(IrFunction.LOAD, lhsType(pointer), address(pointer), 0);
+            }
+        }
+    } // address
+
+    // expressions
+
+    // returns the register holding the value, or NONE if it's void
+    private int exp(final Exp e) {
+        return e.accept(expLowerer, null);
+    }
+
+    private int[] exps(final Exp[] exps) {
+        final int[] retval = new int[exps.length];
+        for (int index = 0; index < exps.length; index++) {
+            retval[index] = exp(exps[index]);
+        }
+        return retval;
+    }
+
+    private static int opcode(final Op op) {
+        switch (op.kind()) {
+        case Op.PLUS:
+            return IrFunction.ADD;
+        case Op.MINUS:
+            return IrFunction.SUB;
+        case Op.MULT:
+            return IrFunction.MUL;
+        case Op.DIV:
+            return IrFunction.DIV;
+        case Op.EQUALS:
+            return IrFunction.EQUALS;
+        default:
+            return IrFunction.LESS_THAN;
+        }
+    }
+
+    private class StatementLowerer implements StmtVisitor<Void, Void, RuntimeException> {
+        public Void visit(final IfStmt s, final Void arg) {
+            final int guard = exp(s.guard);
+            final int ifTrue = newBlock();
+            final int ifFalse = newBlock();
+            final int end = newBlock();
+            terminate(IrFunction.BRANCH, guard, ifTrue, ifFalse);
+            startBlock(ifTrue);
+            block(s.ifTrue);
+            jump(end);
+            startBlock(ifFalse);
+            block(s.ifFalse);
+            startBlock(end);
+            return null;
+        }
+
+        public Void visit(final WhileStmt s, final Void arg) {
+            final int head = newBlock();
+            final int body = newBlock();
+            final int exit = newBlock();
+            startBlock(head);
+            terminate(IrFunction.BRANCH, exp(s.guard), body, exit);
+            startBlock(body);
+            continueBlocks.push(head);
+            breakBlocks.push(exit);
+            block(s.body);
+            continueBlocks.pop();
+            breakBlocks.pop();
+            jump(head);
+            startBlock(exit);
+            return null;
+        }
+
+        public Void visit(final BreakStmt s, final Void arg) {
+            terminate(IrFunction.JUMP, breakBlocks.peek(), 0, 0);
+            return null;
+        }
+
+        public Void visit(final ContinueStmt s, final Void arg) {
+            terminate(IrFunction.JUMP, continueBlocks.peek(), 0, 0);
+            return null;
+        }
+
+        // A fresh register holding the initializer is used as the variable's
+        // own, rather than being copied.  Void variables whose address is
+        // taken get a register which is never written, so there's something
+        // to take the address of.  The initializer can't see the variable,
+        // so it's bound last.
+        public Void visit(final VariableDeclarationInitializationStmt s, final Void arg) {
+            final int firstNew = registerCount;
+            final int value = exp(s.exp);
+            final int register;
+            if (value == IrFunction.NONE) {
+                register = (addressTakenIds.contains(s.varDec.variable.id)) ?
+                    register(s.varDec.type, s.varDec.variable) : IrFunction.NONE;
+            } else if (value >= firstNew) {
+                register = value;
+                addressTaken[register] = addressTakenIds.contains(s.varDec.variable.id);
+            } else {
+                register = register(s.varDec.type, s.varDec.variable);
+                instruction(IrFunction.MOVE, register, value, 0, 0);
+            }
+            bind(s.varDec.variable, register);
+            return null;
+        }
+
+        public Void visit(final AssignmentStmt s, final Void arg) {
+            if (s.lhs instanceof VariableLhs) {
+                final int register = registers[((VariableLhs)s.lhs).variable.id];
+                final int value = exp(s.exp);
+                if (value != IrFunction.NONE) {
+                    instruction(IrFunction.MOVE, register, value, 0, 0);
+                }
+            } else {
+                final int pointer = address(s.lhs);
+                instruction(IrFunction.STORE, IrFunction.NONE, pointer, exp(s.exp), 0);
+            }
+            return null;
+        }
+
+        public Void visit(final ReturnVoidStmt s, final Void arg) {
+            terminate(IrFunction.RETURN, IrFunction.NONE, 0, 0);
+            return null;
+        }
+
+        public Void visit(final ReturnExpStmt s, final Void arg) {
+            terminate(IrFunction.RETURN, exp(s.exp), 0, 0);
+            return null;
+        }
+
+        // nested sequences, on either side, are lowered in order from an
+        // explicit stack rather than by recursing
+        public Void visit(final SequenceStmt s, final Void arg) {
+            final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+            work.push(s);
+            while (!work.isEmpty()) {
+                final Stmt stmt = work.pop();
+                if (stmt instanceof SequenceStmt) {
+                    work.push(((SequenceStmt)stmt).second);
+                    work.push(((SequenceStmt)stmt).first);
+                } else {
+                    stmt(stmt);
+                }
+            }
+            return null;
+        }
+    } // StatementLowerer
+
+    private class ExpLowerer implements ExpVisitor<Void, Integer, RuntimeException> {
+        public Integer visit(final IntExp e, final Void arg) {
+            return value(IrFunction.CONST, TypeTable.INT_TYPE, e.value, 0);
+        }
+
+        public Integer visit(final CharExp e, final Void arg) {
+            return value(IrFunction.CONST, TypeTable.CHAR_TYPE, e.value & 0xFF, 0);
+        }
+
+        public Integer visit(final BoolExp e, final Void arg) {
+            return value(IrFunction.CONST, TypeTable.BOOL_TYPE, (e.value) ? 1 : 0, 0);
+        }
+
+        // Variables whose address is taken may change through pointers before
+        // the value is used, so are read into a register of their own.  Void
+        // variables with a register still have no value.
+        public Integer visit(final VariableExp e, final Void arg) {
+            final int register = registers[e.variable.id];
+            if (register == IrFunction.NONE || registerTypes[register] instanceof VoidType) {
+                return IrFunction.NONE;
+            } else if (addressTaken[register]) {
+                return value(IrFunction.MOVE, registerTypes[register], register, 0);
+            }
+            return register;
+        }
+
+        public Integer visit(final MallocExp e, final Void arg) {
+            return value(IrFunction.MALLOC, expTypes.get(e), exp(e.amount), 0);
+        }
+
+        public Integer visit(final FreeExp e, final Void arg) {
+            instruction(IrFunction.FREE, IrFunction.NONE, exp(e.value), 0, 0);
+            return IrFunction.NONE;
+        }
+
+        public Integer visit(final SizeofExp e, final Void arg) {
+            return value(IrFunction.SIZEOF, TypeTable.INT_TYPE, constant(e.type), 0);
+        }
+
+        // left operands which are themselves binops are lowered from an
+        // explicit stack, so long left-deep chains don't recurse
+        public Integer visit(final BinopExp e, final Void arg) {
+            final ArrayDeque<BinopExp> spine = new ArrayDeque<BinopExp>();
+            BinopExp current = e;
+            while (current.left instanceof BinopExp) {
+                spine.push(current);
+                current = (BinopExp)current.left;
+            }
+            int left = exp(current.left);
+            while (true) {
+                final int right = exp(current.right);
+                final int op = opcode(current.op);
+                final Type type = (op == IrFunction.EQUALS || op == IrFunction.LESS_THAN) ?
+                    TypeTable.BOOL_TYPE : TypeTable.INT_TYPE;
+                left = value(op, type, left, right);
+                if (spine.isEmpty()) {
+                    return left;
+                }
+                current = spine.pop();
+            }
+        }
+
+        public Integer visit(final MakeStructureExp e, final Void arg) {
+            final int parameters = list(exps(e.parameters));
+            return value(IrFunction.MAKE_STRUCTURE, expTypes.get(e), constant(e.name), parameters);
+        }
+
+        public Integer visit(final FunctionCallExp e, final Void arg) {
+            final int parameters = list(exps(e.parameters));
+            final Type type = expTypes.get(e);
+            if (type instanceof VoidType) {
+                instruction(IrFunction.CALL, IrFunction.NONE, constant(e.name), parameters, 0);
+                return IrFunction.NONE;
+            }
+            return value(IrFunction.CALL, type, constant(e.name), parameters);
+        }
+
+        public Integer visit(final CastExp e, final Void arg) {
+            final int source = exp(e.exp);
+            final Type type = expTypes.get(e);
+            return (type instanceof VoidType) ? IrFunction.NONE : value(IrFunction.CAST, type, source, 0);
+        }
+
+        public Integer visit(final AddressOfExp e, final Void arg) {
+            return address(e.lhs);
+        }
+
+        public Integer visit(final DereferenceExp e, final Void arg) {
+            return value(IrFunction.LOAD, expTypes.get(e), exp(e.exp), 0);
+        }
+
+        public Integer visit(final FieldAccessExp e, final Void arg) {
+            final StructureName structure = ((StructureType)expTypes.get(e.exp)).name;
+            return value(IrFunction.FIELD,
+                         expTypes.get(e),
+                         exp(e.exp),
+                         structures.get(structure).fieldSlot(e.field));
+        }
+    } // ExpLowerer
+} // IrBuilder
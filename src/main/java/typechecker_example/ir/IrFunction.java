@@ -0,0 +1,289 @@
+package typechecker_example.ir;
+
+import typechecker_example.syntax.*;
+
+// One function in three-address form, stored as a struct of arrays.  Each
+// instruction is an index into ops, dests, first, second, and third; what
+// the slots hold depends on the op, as noted below.  Slots hold register
+// numbers, block numbers, literal values, indices into constants, or list
+// indices.  A list is a run in lists: its length, then its elements.
+//
+// Registers are typed by registerTypes, and the parameters are registers
+// 0 up to the parameter count.  Each variable declaration gets a register
+// of its own.  Structures are values held in registers.  A register whose
+// address is taken, as in &x, is marked in addressTaken, and may also be
+// read and written through pointers.  Void values have no register, which
+// is NONE; void parameters, and void variables whose address is taken, do
+// have one, but it's never read or written.
+//
+// Instructions are grouped into basic blocks, each a run of instructions
+// from blockStarts to blockEnds ending in exactly one terminator.  Block 0
+// is the entry.  The control-flow graph is stored in compressed form: the
+// successors of block b are successors[successorStarts[b]] up to
+// successors[successorStarts[b + 1]], and likewise for predecessors.  Code
+// after a break, continue, or return is in blocks with no predecessors.
+// Build these with IrBuilder.
+public class IrFunction {
+    public static final int NONE = -1;
+
+    public static final int CONST = 0; // dest, value
+    public static final int MOVE = 1; // dest, source
+    public static final int ADD = 2; // dest, left, right
+    public static final int SUB = 3; // dest, left, right
+    public static final int MUL = 4; // dest, left, right
+    public static final int DIV = 5; // dest, left, right
+    public static final int EQUALS = 6; // dest, left, right
+    public static final int LESS_THAN = 7; // dest, left, right
+    public static final int MALLOC = 8; // dest, amount
+    public static final int FREE = 9; // value
+    public static final int SIZEOF = 10; // dest, type constant
+    public static final int MAKE_STRUCTURE = 11; // dest, structure name constant, list of registers
+    public static final int CALL = 12; // dest or NONE, function name constant, list of registers
+    public static final int CAST = 13; // dest, source; dest's type is the target
+    public static final int ADDRESS_OF = 14; // dest, register
+    public static final int LOAD = 15; // dest, pointer
+    public static final int STORE = 16; // pointer, value
+    public static final int FIELD = 17; // dest, structure, field slot
+    public static final int FIELD_ADDRESS = 18; // dest, pointer to structure, field slot
+
+    // terminators
+    public static final int JUMP = 19; // block
+    public static final int BRANCH = 20; // condition, block if true, block if false
+    public static final int RETURN = 21; // value or NONE
+    public static final int FALL_OFF = 22; // end of a non-void function, with no return
+
+    private static final String[] OP_NAMES = new String[]{
+        "const", "move", "add", "sub", "mul", "div", "equals", "lessThan",
+        "malloc", "free", "sizeof", "makeStructure", "call", "cast",
+        "addressOf", "load", "store", "field", "fieldAddress",
+        "jump", "branch", "return", "fallOff"
+    };
+
+    // begin instance variables
+    public final FunctionDefinition def;
+    public final int instructionCount;
+    public final int[] ops;
+    public final int[] dests;
+    public final int[] first;
+    public final int[] second;
+    public final int[] third;
+    public final int[] lists;
+    public final Object[] constants;
+
+    public final int registerCount;
+    public final Type[] registerTypes;
+    public final boolean[] addressTaken;
+
+    public final int blockCount;
+    public final int[] blockStarts;
+    public final int[] blockEnds;
+    public final int[] successorStarts;
+    public final int[] successors;
+    public final int[] predecessorStarts;
+    public final int[] predecessors;
+
+    public IrFunction(final FunctionDefinition def,
+                      final int instructionCount,
+                      final int[] ops,
+                      final int[] dests,
+                      final int[] first,
+                      final int[] second,
+                      final int[] third,
+                      final int[] lists,
+                      final Object[] constants,
+                      final int registerCount,
+                      final Type[] registerTypes,
+                      final boolean[] addressTaken,
+                      final int blockCount,
+                      final int[] blockStarts,
+                      final int[] blockEnds) {
+        this.def = def;
+        this.instructionCount = instructionCount;
+        this.ops = ops;
+        this.dests = dests;
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.lists = lists;
+        this.constants = constants;
+        this.registerCount = registerCount;
+        this.registerTypes = registerTypes;
+        this.addressTaken = addressTaken;
+        this.blockCount = blockCount;
+        this.blockStarts = blockStarts;
+        this.blockEnds = blockEnds;
+
+        // successors come from each block's terminator
+        successorStarts = new int[blockCount + 1];
+        for (int block = 0; block < blockCount; block++) {
+            successorStarts[block + 1] = successorStarts[block] + successorCount(block);
+        }
+        successors = new int[successorStarts[blockCount]];
+        predecessorStarts = new int[blockCount + 1];
+        for (int block = 0; block < blockCount; block++) {
+            final int terminator = blockEnds[block] - 1;
+            int next = successorStarts[block];
+            if (ops[terminator] == JUMP) {
+                successors[next++] = first[terminator];
+            } else if (ops[terminator] == BRANCH) {
+                successors[next++] = second[terminator];
+                if (third[terminator] != second[terminator]) {
+                    successors[next++] = third[terminator];
+                }
+            }
+        }
+
+        // predecessors by counting sort on the edges
+        for (final int successor : successors) {
+            predecessorStarts[successor + 1]++;
+        }
+        for (int block = 0; block < blockCount; block++) {
+            predecessorStarts[block + 1] += predecessorStarts[block];
+        }
+        predecessors = new int[successors.length];
+        final int[] filled = new int[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            for (int edge = successorStarts[block]; edge < successorStarts[block + 1]; edge++) {
+                final int successor = successors[edge];
+                predecessors[predecessorStarts[successor] + filled[successor]++] = block;
+            }
+        }
+    } // IrFunction
+
+    private int successorCount(final int block) {
+        final int terminator = blockEnds[block] - 1;
+        if (ops[terminator] == JUMP) {
+            return 1;
+        } else if (ops[terminator] == BRANCH) {
+            return (second[terminator] == third[terminator]) ? 1 : 2;
+        } else {
+            return 0;
+        }
+    }
+
+    public static boolean isTerminator(final int op) {
+        return op >= JUMP;
+    }
+
+    // which blocks can be reached from the entry
+    public boolean[] reachableBlocks() {
+        final boolean[] retval = new boolean[blockCount];
+        final int[] work = new int[blockCount];
+        int workSize = 0;
+        retval[0] = true;
+        work[workSize++] = 0;
+        while (workSize > 0) {
+            final int block = work[--workSize];
+            for (int edge = successorStarts[block]; edge < successorStarts[block + 1]; edge++) {
+                if (!retval[successors[edge]]) {
+                    retval[successors[edge]] = true;
+                    work[workSize++] = successors[edge];
+                }
+            }
+        }
+        return retval;
+    } // reachableBlocks
+
+    // whether every path through the function ends in a return
+    public boolean alwaysReturns() {
+        final boolean[] reachable = reachableBlocks();
+        for (int block = 0; block < blockCount; block++) {
+            if (reachable[block] && ops[blockEnds[block] - 1] == FALL_OFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toString() {
+        final StringBuilder retval = new StringBuilder();
+        retval.append(def.name);
+        retval.append('(');
+        for (int index = 0; index < def.parameters.length; index++) {
+            if (index > 0) {
+                retval.append(", ");
+            }
+            retval.append('r');
+            retval.append(index);
+        }
+        retval.append(")\n");
+        for (int block = 0; block < blockCount; block++) {
+            retval.append('b');
+            retval.append(block);
+            retval.append(":\n");
+            for (int index = blockStarts[block]; index < blockEnds[block]; index++) {
+                retval.append("  ");
+                appendInstruction(retval, index);
+                retval.append('\n');
+            }
+        }
+        return retval.toString();
+    } // toString
+
+    private void appendInstruction(final StringBuilder out, final int index) {
+        final int op = ops[index];
+        if (dests[index] != NONE) {
+            out.append('r');
+            out.append(dests[index]);
+            out.append(" = ");
+        }
+        out.append(OP_NAMES[op]);
+        switch (op) {
+        case CONST:
+            out.append(' ');
+            out.append(first[index]);
+            break;
+        case FREE:
+        case MOVE:
+        case MALLOC:
+        case CAST:
+        case ADDRESS_OF:
+        case LOAD:
+        case RETURN:
+            appendRegister(out, first[index]);
+            break;
+        case SIZEOF:
+            out.append(' ');
+            out.append(constants[first[index]]);
+            break;
+        case MAKE_STRUCTURE:
+        case CALL:
+            out.append(' ');
+            out.append(constants[first[index]]);
+            for (int element = 0; element < lists[second[index]]; element++) {
+                appendRegister(out, lists[second[index] + 1 + element]);
+            }
+            break;
+        case FIELD:
+        case FIELD_ADDRESS:
+            appendRegister(out, first[index]);
+            out.append(" #");
+            out.append(second[index]);
+            break;
+        case JUMP:
+            out.append(" b");
+            out.append(first[index]);
+            break;
+        case BRANCH:
+            appendRegister(out, first[index]);
+            out.append(" b");
+            out.append(second[index]);
+            out.append(" b");
+            out.append(third[index]);
+            break;
+        case FALL_OFF:
+            break;
+        default:
+            appendRegister(out, first[index]);
+            appendRegister(out, second[index]);
+            break;
+        }
+    } // appendInstruction
+
+    private static void appendRegister(final StringBuilder out, final int register) {
+        if (register != NONE) {
+            out.append(" r");
+            out.append(register);
+        }
+    }
+} // IrFunction
@@ -0,0 +1,114 @@
+package typechecker_example.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import typechecker_example.syntax.AstWriter;
+import typechecker_example.syntax.Program;
+
+// A connection to a TypecheckServer.  Requests may be pipelined by sending
+// several before receiving; responses may then arrive in any order, and
+// are matched up by request id.  check sends one request and waits for its
+// response.  Not safe to share between threads.
+public class TypecheckClient implements AutoCloseable {
+    public static class Response {
+        public final long requestId;
+        public final byte status;
+        // empty where the error is outside of any function
+        public final String[] functions;
+        public final String[] messages;
+
+        public Response(final long requestId,
+                        final byte status,
+                        final String[] functions,
+                        final String[] messages) {
+            this.requestId = requestId;
+            this.status = status;
+            this.functions = functions;
+            this.messages = messages;
+        }
+
+        public boolean isOk() {
+            return status == TypecheckServer.OK;
+        }
+
+        public String toString() {
+            final StringBuilder retval = new StringBuilder();
+            for (int index = 0; index < messages.length; index++) {
+                if (!functions[index].isEmpty()) {
+                    retval.append("in ");
+                    retval.append(functions[index]);
+                    retval.append(": ");
+                }
+                retval.append(messages[index]);
+                retval.append('\n');
+            }
+            return retval.toString();
+        }
+    } // Response
+
+    // begin instance variables
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private long nextRequestId;
+
+    public TypecheckClient(final String host, final int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        nextRequestId = 1;
+    }
+
+    // returns the id of the request
+    public long send(final long session, final Program prog) throws IOException {
+        final byte[] bytes = AstWriter.toBytes(prog);
+        final long retval = nextRequestId++;
+        out.writeInt(16 + bytes.length);
+        out.writeLong(retval);
+        out.writeLong(session);
+        out.write(bytes);
+        out.flush();
+        return retval;
+    }
+
+    // waits for the next response to any request
+    public Response receive() throws IOException {
+        in.readInt();
+        final long requestId = in.readLong();
+        final byte status = in.readByte();
+        final int count = in.readInt();
+        final String[] functions = new String[count];
+        final String[] messages = new String[count];
+        for (int index = 0; index < count; index++) {
+            functions[index] = readString();
+            messages[index] = readString();
+        }
+        return new Response(requestId, status, functions, messages);
+    }
+
+    private String readString() throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // session 0 checks from scratch; see TypecheckServer
+    public Response check(final long session, final Program prog) throws IOException {
+        final long requestId = send(session, prog);
+        final Response retval = receive();
+        if (retval.requestId != requestId) {
+            throw new IOException("Response to unexpected request: " + retval.requestId);
+        }
+        return retval;
+    }
+
+    public void close() throws IOException {
+        socket.close();
+    }
+} // TypecheckClient
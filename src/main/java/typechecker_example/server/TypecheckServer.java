@@ -0,0 +1,269 @@
+package typechecker_example.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.Diagnostic;
+import typechecker_example.typechecker.Diagnostics;
+import typechecker_example.typechecker.IncrementalTypechecker;
+import typechecker_example.typechecker.Typechecker;
+
+// A long-running typechecker, listening on a localhost TCP port, so clients
+// don't pay JVM startup and JIT warm-up per check.  Requests from every
+// connection go onto one shared pool of workers: virtual threads where the
+// JVM has them, and otherwise one platform thread per processor.  A
+// connection may have up to MAX_IN_FLIGHT requests in flight, after which
+// the server stops reading from it until one is answered; responses carry
+// the id of their request, and may come back out of order.
+//
+// Requests and responses are frames: an int giving the length of the rest,
+// then a long request id.  Requests follow that with a long session id and
+// a program in AstWriter form.  Responses follow it with a status byte and
+// an int count of diagnostics, each a function name (empty outside of any
+// function) and a message, as strings.  Strings are an int length and
+// UTF-8 bytes.
+//
+// Session 0 checks each program from scratch.  Any other session keeps an
+// IncrementalTypechecker between requests, so resubmitting a program only
+// rechecks what changed.  Each session, and each request in session 0, has
+// a TypeTable of its own, so types are dropped along with the session or
+// request rather than kept for the life of the server.
+//
+// Requests aren't batched: each is handed to a worker as soon as it's read.
+// Requests in one session already run one at a time against the session's
+// warm tables, and each needs the diagnostics of its own program, while
+// requests in different sessions share no state to check together, so
+// holding requests back to form batches would only add latency.
+public class TypecheckServer implements AutoCloseable {
+    public static final byte OK = 0;
+    public static final byte TYPE_ERRORS = 1;
+    public static final byte BAD_REQUEST = 2;
+
+    public static final int DEFAULT_PORT = 4300;
+    public static final int DEFAULT_MAX_ERRORS = 100;
+    public static final int MAX_SESSIONS = 1024;
+    // requests longer than this are refused, and their connection closed
+    public static final int MAX_FRAME_LENGTH = 1 << 24;
+    // requests read from one connection but not yet answered
+    public static final int MAX_IN_FLIGHT = 16;
+
+    // begin instance variables
+    private final ServerSocket serverSocket;
+    private final ExecutorService workers;
+    private final int maxErrors;
+    // least recently used first
+    private final LinkedHashMap<Long, IncrementalTypechecker> sessions;
+    private volatile boolean closed;
+
+    // port 0 picks a free port
+    public TypecheckServer(final int port, final int maxErrors) throws IOException {
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.workers = newWorkerPool();
+        this.maxErrors = maxErrors;
+        this.sessions = new LinkedHashMap<Long, IncrementalTypechecker>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry<Long, IncrementalTypechecker> eldest) {
+                return size() > MAX_SESSIONS;
+            }
+        };
+    }
+
+    private static ExecutorService newWorkerPool() {
+        try {
+            // Java 21 and later
+            return (ExecutorService)Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    // accepts connections on a new thread, returning immediately
+    public void start() {
+        final Thread acceptor = new Thread(new Runnable() {
+                public void run() {
+                    acceptConnections();
+                }
+            }, "typecheck-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        workers.shutdown();
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (final IOException e) {
+                // closed
+                return;
+            }
+            final Thread reader = new Thread(new Runnable() {
+                    public void run() {
+                        serve(socket);
+                    }
+                }, "typecheck-server-connection");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    // reads requests until the connection closes, handing each to a worker
+    private void serve(final Socket socket) {
+        try (final Socket connection = socket) {
+            connection.setTcpNoDelay(true);
+            final DataInputStream in =
+                new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            final DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+            while (!closed) {
+                final int length;
+                try {
+                    length = in.readInt();
+                } catch (final EOFException e) {
+                    return;
+                }
+                if (length < 16 || length > MAX_FRAME_LENGTH) {
+                    return;
+                }
+                final long requestId = in.readLong();
+                final long session = in.readLong();
+                // before the program is buffered, so at most MAX_IN_FLIGHT
+                // are held per connection
+                inFlight.acquire();
+                final byte[] program = new byte[length - 16];
+                try {
+                    in.readFully(program);
+                    workers.execute(new Runnable() {
+                            public void run() {
+                                try {
+                                    respond(out, requestId, session, program);
+                                } finally {
+                                    inFlight.release();
+                                }
+                            }
+                        });
+                } catch (final IOException | RejectedExecutionException e) {
+                    inFlight.release();
+                    return;
+                }
+            }
+        } catch (final IOException e) {
+            // the client went away
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    } // serve
+
+    private void respond(final DataOutputStream out,
+                         final long requestId,
+                         final long session,
+                         final byte[] bytes) {
+        byte status;
+        Diagnostics diagnostics;
+        try {
+            final Program prog = AstReader.read(bytes);
+            diagnostics = check(session, prog);
+            status = (diagnostics.isEmpty()) ? OK : TYPE_ERRORS;
+        } catch (final IOException | RuntimeException e) {
+            diagnostics = badRequest(e.getMessage());
+            status = BAD_REQUEST;
+        } catch (final StackOverflowError e) {
+            // the client still gets an answer, and the worker survives
+            diagnostics = badRequest("Program nested too deeply");
+            status = BAD_REQUEST;
+        }
+
+        try {
+            synchronized (out) {
+                final byte[][] strings = new byte[2 * diagnostics.size()][];
+                int length = 8 + 1 + 4;
+                int index = 0;
+                for (final Diagnostic diagnostic : diagnostics.list()) {
+                    strings[index] = utf8((diagnostic.function == null) ? "" : diagnostic.function.name);
+                    strings[index + 1] = utf8(diagnostic.message);
+                    length += 8 + strings[index].length + strings[index + 1].length;
+                    index += 2;
+                }
+                out.writeInt(length);
+                out.writeLong(requestId);
+                out.writeByte(status);
+                out.writeInt(diagnostics.size());
+                for (final byte[] string : strings) {
+                    out.writeInt(string.length);
+                    out.write(string);
+                }
+                out.flush();
+            }
+        } catch (final IOException e) {
+            // the client went away; its reader thread will notice
+        }
+    } // respond
+
+    private static Diagnostics badRequest(final String message) {
+        final Diagnostics retval = new Diagnostics(1);
+        retval.add(null, "", "Bad request: " + message);
+        return retval;
+    }
+
+    private static byte[] utf8(final String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Diagnostics check(final long session, final Program prog) {
+        if (session == 0) {
+            return Typechecker.typecheckCollectingErrors(prog, maxErrors);
+        }
+
+        IncrementalTypechecker checker;
+        synchronized (sessions) {
+            checker = sessions.get(session);
+            if (checker == null) {
+                checker = new IncrementalTypechecker();
+                sessions.put(session, checker);
+            }
+        }
+        final Diagnostics retval = new Diagnostics(maxErrors);
+        // requests in one session are checked one at a time
+        synchronized (checker) {
+            checker.update(prog, retval);
+        }
+        return retval;
+    } // check
+
+    // java TypecheckServer [port]
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final TypecheckServer server = new TypecheckServer(port, DEFAULT_MAX_ERRORS);
+        server.start();
+        System.out.println("Typechecking on localhost:" + server.port());
+        Thread.currentThread().join();
+    }
+} // TypecheckServer
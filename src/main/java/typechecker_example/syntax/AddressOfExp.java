@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class AddressOfExp implements Exp {
     public final Lhs lhs;
+    private final long structuralHash;
 
     public AddressOfExp(final Lhs lhs) {
         this.lhs = lhs;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.ADDRESS_OF_EXP,
+                                lhs.structuralHash());
     }
 
-    public int hashCode() { return lhs.hashCode(); };
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof AddressOfExp &&
                 ((AddressOfExp)other).lhs.equals(lhs));
     }
     public String toString() {
-        return "&" + lhs.toString();
+        return AstPrinter.asString(this);
     }
 }
@@ -0,0 +1,169 @@
+package typechecker_example.syntax;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+// The ids of the variables whose address is taken directly in a function
+// body, as in &x.  Address-of anything else, like &x.f or &*p, takes the
+// address of memory which is already addressable.
+public class AddressTaken implements ExpVisitor<Void, Void, RuntimeException>,
+                                     StmtVisitor<Void, Void, RuntimeException> {
+    private final Set<Integer> ids;
+
+    private AddressTaken() {
+        ids = new HashSet<Integer>();
+    }
+
+    public static Set<Integer> variableIds(final Stmt body) {
+        final AddressTaken collector = new AddressTaken();
+        collector.addStmt(body);
+        return collector.ids;
+    }
+
+    private void addExps(final Exp[] exps) {
+        for (final Exp exp : exps) {
+            addExp(exp);
+        }
+    }
+
+    private void addExp(final Exp e) {
+        e.accept(this, null);
+    }
+
+    private void addStmt(final Stmt s) {
+        s.accept(this, null);
+    }
+
+    public Void visit(final IntExp e, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final CharExp e, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final BoolExp e, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final VariableExp e, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final MallocExp e, final Void arg) {
+        addExp(e.amount);
+        return null;
+    }
+
+    public Void visit(final FreeExp e, final Void arg) {
+        addExp(e.value);
+        return null;
+    }
+
+    public Void visit(final SizeofExp e, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final BinopExp e, final Void arg) {
+        final ArrayDeque<Exp> work = new ArrayDeque<Exp>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            final Exp exp = work.pop();
+            if (exp instanceof BinopExp) {
+                work.push(((BinopExp)exp).left);
+                work.push(((BinopExp)exp).right);
+            } else {
+                addExp(exp);
+            }
+        }
+        return null;
+    }
+
+    public Void visit(final MakeStructureExp e, final Void arg) {
+        addExps(e.parameters);
+        return null;
+    }
+
+    public Void visit(final FunctionCallExp e, final Void arg) {
+        addExps(e.parameters);
+        return null;
+    }
+
+    public Void visit(final CastExp e, final Void arg) {
+        addExp(e.exp);
+        return null;
+    }
+
+    public Void visit(final AddressOfExp e, final Void arg) {
+        if (e.lhs instanceof VariableLhs) {
+            ids.add(((VariableLhs)e.lhs).variable.id);
+        }
+        return null;
+    }
+
+    public Void visit(final DereferenceExp e, final Void arg) {
+        addExp(e.exp);
+        return null;
+    }
+
+    public Void visit(final FieldAccessExp e, final Void arg) {
+        addExp(e.exp);
+        return null;
+    }
+
+    public Void visit(final IfStmt s, final Void arg) {
+        addExp(s.guard);
+        addStmt(s.ifTrue);
+        addStmt(s.ifFalse);
+        return null;
+    }
+
+    public Void visit(final WhileStmt s, final Void arg) {
+        addExp(s.guard);
+        addStmt(s.body);
+        return null;
+    }
+
+    public Void visit(final BreakStmt s, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final ContinueStmt s, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final VariableDeclarationInitializationStmt s, final Void arg) {
+        addExp(s.exp);
+        return null;
+    }
+
+    public Void visit(final AssignmentStmt s, final Void arg) {
+        addExp(s.exp);
+        return null;
+    }
+
+    public Void visit(final ReturnVoidStmt s, final Void arg) {
+        return null;
+    }
+
+    public Void visit(final ReturnExpStmt s, final Void arg) {
+        addExp(s.exp);
+        return null;
+    }
+
+    public Void visit(final SequenceStmt s, final Void arg) {
+        final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+        work.push(s);
+        while (!work.isEmpty()) {
+            final Stmt stmt = work.pop();
+            if (stmt instanceof SequenceStmt) {
+                work.push(((SequenceStmt)stmt).second);
+                work.push(((SequenceStmt)stmt).first);
+            } else {
+                addStmt(stmt);
+            }
+        }
+        return null;
+    }
+} // AddressTaken
@@ -3,14 +3,27 @@ package typechecker_example.syntax;
 public class AssignmentStmt implements Stmt {
     public final Lhs lhs;
     public final Exp exp;
+    private final long structuralHash;
 
     public AssignmentStmt(final Lhs lhs, final Exp exp) {
         this.lhs = lhs;
         this.exp = exp;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.ASSIGNMENT_STMT,
+                                lhs.structuralHash(),
+                                exp.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return lhs.hashCode() + exp.hashCode();
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final StmtVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -24,6 +37,6 @@ public class AssignmentStmt implements Stmt {
     }
 
     public String toString() {
-        return lhs.toString() + " = " + exp.toString();
+        return AstPrinter.asString(this);
     }
 }
@@ -0,0 +1,71 @@
+package typechecker_example.syntax;
+
+// Constants shared by AstWriter and AstReader.  A serialized program is:
+//
+//   magic, version
+//   string count, then each string as a byte count and UTF-8 bytes
+//   struct count, then each structure declaration
+//   function count, then each function definition
+//
+// All counts, lengths, and string ids are unsigned varints; integer
+// literals are zigzag varints.  Each expression, statement, type,
+// left-hand side, and operator starts with a one-byte tag, from a separate
+// space for each kind of node.  Names are string ids.  A right-nested
+// chain of sequence statements is written as one tag, a count, and then
+// each statement in the chain.  Both sides read and write nested binops
+// and sequences with explicit stacks rather than by recursing.
+class AstFormat {
+    public static final int MAGIC = 0x54434153; // "TCAS"
+    public static final int VERSION = 1;
+
+    // types
+    public static final int INT_TYPE = 0;
+    public static final int CHAR_TYPE = 1;
+    public static final int BOOL_TYPE = 2;
+    public static final int VOID_TYPE = 3;
+    public static final int STRUCTURE_TYPE = 4;
+    public static final int POINTER_TYPE = 5;
+
+    // operators
+    public static final int PLUS_OP = 0;
+    public static final int MINUS_OP = 1;
+    public static final int MULT_OP = 2;
+    public static final int DIV_OP = 3;
+    public static final int EQUALS_OP = 4;
+    public static final int LESS_THAN_OP = 5;
+
+    // left-hand sides
+    public static final int VARIABLE_LHS = 0;
+    public static final int FIELD_ACCESS_LHS = 1;
+    public static final int DEREFERENCE_LHS = 2;
+
+    // expressions
+    public static final int INT_EXP = 0;
+    public static final int CHAR_EXP = 1;
+    public static final int TRUE_EXP = 2;
+    public static final int FALSE_EXP = 3;
+    public static final int VARIABLE_EXP = 4;
+    public static final int MALLOC_EXP = 5;
+    public static final int FREE_EXP = 6;
+    public static final int SIZEOF_EXP = 7;
+    public static final int BINOP_EXP = 8;
+    public static final int MAKE_STRUCTURE_EXP = 9;
+    public static final int FUNCTION_CALL_EXP = 10;
+    public static final int CAST_EXP = 11;
+    public static final int ADDRESS_OF_EXP = 12;
+    public static final int DEREFERENCE_EXP = 13;
+    public static final int FIELD_ACCESS_EXP = 14;
+
+    // statements
+    public static final int IF_STMT = 0;
+    public static final int WHILE_STMT = 1;
+    public static final int BREAK_STMT = 2;
+    public static final int CONTINUE_STMT = 3;
+    public static final int VARIABLE_DECLARATION_INITIALIZATION_STMT = 4;
+    public static final int ASSIGNMENT_STMT = 5;
+    public static final int RETURN_VOID_STMT = 6;
+    public static final int RETURN_EXP_STMT = 7;
+    public static final int SEQUENCE_STMT = 8;
+
+    private AstFormat() {}
+} // AstFormat
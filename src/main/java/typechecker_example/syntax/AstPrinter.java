@@ -0,0 +1,461 @@
+package typechecker_example.syntax;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+
+// Prints ASTs in a single pass into an Appendable, such as a StringBuilder
+// or a Writer, so printing is linear in the size of the tree.  All the
+// toString methods in the syntax package go through here.
+public class AstPrinter implements ExpVisitor<Void, Void, IOException>,
+                                   StmtVisitor<Void, Void, IOException>,
+                                   TypeVisitor<Void, Void, IOException>,
+                                   LhsVisitor<Void, Void, IOException>,
+                                   OpVisitor<Void, Void, IOException> {
+    // begin instance variables
+    private final Appendable out;
+
+    public AstPrinter(final Appendable out) {
+        this.out = out;
+    }
+
+    public static String asString(final Exp e) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(e);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final Stmt s) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(s);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final Type t) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(t);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final Lhs lhs) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(lhs);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final Op op) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(op);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final VariableDeclaration dec) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(dec);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final StructureDeclaration dec) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(dec);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final FunctionDefinition def) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(def);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String asString(final Program prog) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            new AstPrinter(builder).print(prog);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public void print(final Exp e) throws IOException {
+        e.accept(this, null);
+    }
+
+    public void print(final Stmt s) throws IOException {
+        s.accept(this, null);
+    }
+
+    public void print(final Type t) throws IOException {
+        t.accept(this, null);
+    }
+
+    public void print(final Lhs lhs) throws IOException {
+        lhs.accept(this, null);
+    }
+
+    public void print(final Op op) throws IOException {
+        op.accept(this, null);
+    }
+
+    public void print(final VariableDeclaration dec) throws IOException {
+        print(dec.type);
+        out.append(' ').append(dec.variable.name);
+    }
+
+    public void print(final StructureDeclaration dec) throws IOException {
+        out.append(dec.name.name).append(" { ");
+        for (int index = 0; index < dec.fields.length; index++) {
+            if (index > 0) {
+                out.append("; ");
+            }
+            print(dec.fields[index]);
+        }
+        out.append(" }");
+    }
+
+    public void print(final FunctionDefinition def) throws IOException {
+        print(def.returnType);
+        out.append(' ').append(def.name.name).append('(');
+        for (int index = 0; index < def.parameters.length; index++) {
+            if (index > 0) {
+                out.append(", ");
+            }
+            print(def.parameters[index]);
+        }
+        out.append(") { ");
+        print(def.body);
+        out.append(" }");
+    }
+
+    public void print(final Program prog) throws IOException {
+        for (int index = 0; index < prog.structDecs.length; index++) {
+            if (index > 0) {
+                out.append('\n');
+            }
+            print(prog.structDecs[index]);
+        }
+        out.append("\n\n");
+        for (int index = 0; index < prog.functionDefs.length; index++) {
+            if (index > 0) {
+                out.append('\n');
+            }
+            print(prog.functionDefs[index]);
+        }
+        out.append('\n');
+    }
+
+    private void printExps(final Exp[] exps) throws IOException {
+        for (int index = 0; index < exps.length; index++) {
+            if (index > 0) {
+                out.append(", ");
+            }
+            print(exps[index]);
+        }
+    }
+
+    // expressions
+
+    public Void visit(final IntExp e, final Void arg) throws IOException {
+        out.append(Integer.toString(e.value));
+        return null;
+    }
+
+    public Void visit(final CharExp e, final Void arg) throws IOException {
+        out.append(e.value);
+        return null;
+    }
+
+    public Void visit(final BoolExp e, final Void arg) throws IOException {
+        out.append(Boolean.toString(e.value));
+        return null;
+    }
+
+    public Void visit(final VariableExp e, final Void arg) throws IOException {
+        out.append(e.variable.name);
+        return null;
+    }
+
+    public Void visit(final MallocExp e, final Void arg) throws IOException {
+        out.append("malloc(");
+        print(e.amount);
+        out.append(')');
+        return null;
+    }
+
+    public Void visit(final FreeExp e, final Void arg) throws IOException {
+        out.append("free(");
+        print(e.value);
+        out.append(')');
+        return null;
+    }
+
+    public Void visit(final SizeofExp e, final Void arg) throws IOException {
+        out.append("sizeof(");
+        print(e.type);
+        out.append(')');
+        return null;
+    }
+
+    // Nested binops are printed from an explicit stack of pending
+    // expressions, operators, and strings, rather than by recursing.
+    public Void visit(final BinopExp e, final Void arg) throws IOException {
+        final ArrayDeque<Object> work = new ArrayDeque<Object>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            final Object item = work.pop();
+            if (item instanceof BinopExp) {
+                final BinopExp binop = (BinopExp)item;
+                work.push(")");
+                work.push(binop.right);
+                work.push(" ");
+                work.push(binop.op);
+                work.push(" ");
+                work.push(binop.left);
+                out.append('(');
+            } else if (item instanceof Exp) {
+                print((Exp)item);
+            } else if (item instanceof Op) {
+                print((Op)item);
+            } else {
+                out.append((String)item);
+            }
+        }
+        return null;
+    } // visit(BinopExp)
+
+    public Void visit(final MakeStructureExp e, final Void arg) throws IOException {
+        out.append(e.name.name).append('(');
+        printExps(e.parameters);
+        out.append(')');
+        return null;
+    }
+
+    public Void visit(final FunctionCallExp e, final Void arg) throws IOException {
+        out.append(e.name.name).append('(');
+        printExps(e.parameters);
+        out.append(')');
+        return null;
+    }
+
+    public Void visit(final CastExp e, final Void arg) throws IOException {
+        out.append('(');
+        print(e.type);
+        out.append(')');
+        print(e.exp);
+        return null;
+    }
+
+    public Void visit(final AddressOfExp e, final Void arg) throws IOException {
+        out.append('&');
+        print(e.lhs);
+        return null;
+    }
+
+    public Void visit(final DereferenceExp e, final Void arg) throws IOException {
+        out.append('*');
+        print(e.exp);
+        return null;
+    }
+
+    public Void visit(final FieldAccessExp e, final Void arg) throws IOException {
+        print(e.exp);
+        out.append('.').append(e.field.name);
+        return null;
+    }
+
+    // statements
+
+    public Void visit(final IfStmt s, final Void arg) throws IOException {
+        out.append("if (");
+        print(s.guard);
+        out.append(") { ");
+        print(s.ifTrue);
+        out.append(" } else { ");
+        print(s.ifFalse);
+        out.append('}');
+        return null;
+    }
+
+    public Void visit(final WhileStmt s, final Void arg) throws IOException {
+        out.append("while (");
+        print(s.guard);
+        out.append(") { ");
+        print(s.body);
+        out.append(" }");
+        return null;
+    }
+
+    public Void visit(final BreakStmt s, final Void arg) throws IOException {
+        out.append("break");
+        return null;
+    }
+
+    public Void visit(final ContinueStmt s, final Void arg) throws IOException {
+        out.append("continue");
+        return null;
+    }
+
+    public Void visit(final VariableDeclarationInitializationStmt s, final Void arg) throws IOException {
+        print(s.varDec);
+        out.append(" = ");
+        print(s.exp);
+        return null;
+    }
+
+    public Void visit(final AssignmentStmt s, final Void arg) throws IOException {
+        print(s.lhs);
+        out.append(" = ");
+        print(s.exp);
+        return null;
+    }
+
+    public Void visit(final ReturnVoidStmt s, final Void arg) throws IOException {
+        out.append("return");
+        return null;
+    }
+
+    public Void visit(final ReturnExpStmt s, final Void arg) throws IOException {
+        out.append("return ");
+        print(s.exp);
+        return null;
+    }
+
+    // sequences are usually nested to the right, so walk down that spine
+    // with a loop rather than recursing once per statement
+    // Nested sequences, on either side, are printed from an explicit stack
+    // of pending statements and separators, rather than by recursing.
+    public Void visit(final SequenceStmt s, final Void arg) throws IOException {
+        final ArrayDeque<Object> work = new ArrayDeque<Object>();
+        work.push(s);
+        while (!work.isEmpty()) {
+            final Object item = work.pop();
+            if (item instanceof SequenceStmt) {
+                final SequenceStmt seq = (SequenceStmt)item;
+                work.push(seq.second);
+                work.push("; ");
+                work.push(seq.first);
+            } else if (item instanceof Stmt) {
+                print((Stmt)item);
+            } else {
+                out.append((String)item);
+            }
+        }
+        return null;
+    } // visit(SequenceStmt)
+
+    // types
+
+    public Void visit(final IntType t, final Void arg) throws IOException {
+        out.append("int");
+        return null;
+    }
+
+    public Void visit(final CharType t, final Void arg) throws IOException {
+        out.append("char");
+        return null;
+    }
+
+    public Void visit(final BoolType t, final Void arg) throws IOException {
+        out.append("bool");
+        return null;
+    }
+
+    public Void visit(final VoidType t, final Void arg) throws IOException {
+        out.append("void");
+        return null;
+    }
+
+    public Void visit(final StructureType t, final Void arg) throws IOException {
+        out.append(t.name.name);
+        return null;
+    }
+
+    public Void visit(final PointerType t, final Void arg) throws IOException {
+        print(t.pointsTo);
+        out.append('*');
+        return null;
+    }
+
+    // left-hand sides
+
+    public Void visit(final VariableLhs lhs, final Void arg) throws IOException {
+        out.append(lhs.variable.name);
+        return null;
+    }
+
+    public Void visit(final FieldAccessLhs lhs, final Void arg) throws IOException {
+        print(lhs.lhs);
+        out.append('.').append(lhs.field.name);
+        return null;
+    }
+
+    public Void visit(final DereferenceLhs lhs, final Void arg) throws IOException {
+        out.append('*');
+        print(lhs.lhs);
+        return null;
+    }
+
+    // operators
+
+    public Void visit(final PlusOp op, final Void arg) throws IOException {
+        out.append('+');
+        return null;
+    }
+
+    public Void visit(final MinusOp op, final Void arg) throws IOException {
+        out.append('-');
+        return null;
+    }
+
+    public Void visit(final MultOp op, final Void arg) throws IOException {
+        out.append('*');
+        return null;
+    }
+
+    public Void visit(final DivOp op, final Void arg) throws IOException {
+        out.append('/');
+        return null;
+    }
+
+    public Void visit(final EqualsOp op, final Void arg) throws IOException {
+        out.append("==");
+        return null;
+    }
+
+    public Void visit(final LessThanOp op, final Void arg) throws IOException {
+        out.append('<');
+        return null;
+    }
+} // AstPrinter
@@ -0,0 +1,400 @@
+package typechecker_example.syntax;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+// Deserializes programs written by AstWriter.  Decoding works directly
+// against the given buffer, which may be memory-mapped; only the strings are
+// copied out.  Each name is built once per kind and shared by every node
+// that mentions it, as are the primitive types.  Binops and sequences are
+// read with explicit stacks, as they can be nested arbitrarily deep.
+public class AstReader {
+    // on the binop stack, a binop whose left operand hasn't been read
+    private static final Object AWAITING_LEFT = new Object();
+
+    // begin instance variables
+    private final ByteBuffer buffer;
+    private String[] strings;
+    private Variable[] variables;
+    private FunctionName[] functionNames;
+    private StructureName[] structureNames;
+    private FieldName[] fieldNames;
+
+    private final IntType intType;
+    private final CharType charType;
+    private final BoolType boolType;
+    private final VoidType voidType;
+
+    private AstReader(final ByteBuffer buffer) {
+        // reads through a view so the caller's position is left alone
+        this.buffer = buffer.duplicate();
+        intType = new IntType();
+        charType = new CharType();
+        boolType = new BoolType();
+        voidType = new VoidType();
+    }
+
+    public static Program read(final ByteBuffer buffer) throws IOException {
+        try {
+            return new AstReader(buffer).readProgram();
+        } catch (final BufferUnderflowException e) {
+            throw new IOException("Truncated AST");
+        }
+    }
+
+    public static Program read(final byte[] bytes) throws IOException {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    public static Program read(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer mapped =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(mapped);
+        }
+    }
+
+    private int readByte() {
+        return buffer.get() & 0xFF;
+    }
+
+    private int readVarint() throws IOException {
+        int retval = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int current = readByte();
+            retval |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return retval;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private int readSignedVarint() throws IOException {
+        final int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // a count of elements which each take at least one byte
+    private int readCount() throws IOException {
+        final int retval = readVarint();
+        if (retval < 0 || retval > buffer.remaining()) {
+            throw new IOException("Bad count: " + retval);
+        }
+        return retval;
+    }
+
+    private int readStringId() throws IOException {
+        final int retval = readVarint();
+        if (retval < 0 || retval >= strings.length) {
+            throw new IOException("Bad string id: " + retval);
+        }
+        return retval;
+    }
+
+    private void readHeader() throws IOException {
+        final int magic = buffer.getInt();
+        if (magic != AstFormat.MAGIC) {
+            throw new IOException("Not a serialized AST");
+        }
+        final int version = readByte();
+        if (version != AstFormat.VERSION) {
+            throw new IOException("Unsupported AST version: " + version);
+        }
+
+        strings = new String[readCount()];
+        for (int index = 0; index < strings.length; index++) {
+            final int length = readCount();
+            if (buffer.hasArray()) {
+                strings[index] = new String(buffer.array(),
+                                            buffer.arrayOffset() + buffer.position(),
+                                            length,
+                                            StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            } else {
+                final byte[] utf8 = new byte[length];
+                buffer.get(utf8);
+                strings[index] = new String(utf8, StandardCharsets.UTF_8);
+            }
+        }
+        variables = new Variable[strings.length];
+        functionNames = new FunctionName[strings.length];
+        structureNames = new StructureName[strings.length];
+        fieldNames = new FieldName[strings.length];
+    } // readHeader
+
+    private Variable readVariable() throws IOException {
+        final int id = readStringId();
+        if (variables[id] == null) {
+            variables[id] = new Variable(strings[id]);
+        }
+        return variables[id];
+    }
+
+    private FunctionName readFunctionName() throws IOException {
+        final int id = readStringId();
+        if (functionNames[id] == null) {
+            functionNames[id] = new FunctionName(strings[id]);
+        }
+        return functionNames[id];
+    }
+
+    private StructureName readStructureName() throws IOException {
+        final int id = readStringId();
+        if (structureNames[id] == null) {
+            structureNames[id] = new StructureName(strings[id]);
+        }
+        return structureNames[id];
+    }
+
+    private FieldName readFieldName() throws IOException {
+        final int id = readStringId();
+        if (fieldNames[id] == null) {
+            fieldNames[id] = new FieldName(strings[id]);
+        }
+        return fieldNames[id];
+    }
+
+    private Program readProgram() throws IOException {
+        readHeader();
+        final StructureDeclaration[] structDecs = new StructureDeclaration[readCount()];
+        for (int index = 0; index < structDecs.length; index++) {
+            final StructureName name = readStructureName();
+            structDecs[index] = new StructureDeclaration(name, readVariableDeclarations());
+        }
+        final FunctionDefinition[] functionDefs = new FunctionDefinition[readCount()];
+        for (int index = 0; index < functionDefs.length; index++) {
+            final Type returnType = readType();
+            final FunctionName name = readFunctionName();
+            final VariableDeclaration[] parameters = readVariableDeclarations();
+            functionDefs[index] = new FunctionDefinition(returnType, name, parameters, readStmt());
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Trailing bytes after AST");
+        }
+        return new Program(structDecs, functionDefs);
+    } // readProgram
+
+    private VariableDeclaration readVariableDeclaration() throws IOException {
+        final Type type = readType();
+        return new VariableDeclaration(type, readVariable());
+    }
+
+    private VariableDeclaration[] readVariableDeclarations() throws IOException {
+        final VariableDeclaration[] retval = new VariableDeclaration[readCount()];
+        for (int index = 0; index < retval.length; index++) {
+            retval[index] = readVariableDeclaration();
+        }
+        return retval;
+    }
+
+    private Type readType() throws IOException {
+        final int tag = readByte();
+        if (tag == AstFormat.INT_TYPE) {
+            return intType;
+        } else if (tag == AstFormat.CHAR_TYPE) {
+            return charType;
+        } else if (tag == AstFormat.BOOL_TYPE) {
+            return boolType;
+        } else if (tag == AstFormat.VOID_TYPE) {
+            return voidType;
+        } else if (tag == AstFormat.STRUCTURE_TYPE) {
+            return new StructureType(readStructureName());
+        } else if (tag == AstFormat.POINTER_TYPE) {
+            return new PointerType(readType());
+        } else {
+            throw new IOException("Bad type tag: " + tag);
+        }
+    } // readType
+
+    private Op readOp() throws IOException {
+        final int tag = readByte();
+        if (tag == AstFormat.PLUS_OP) {
+            return new PlusOp();
+        } else if (tag == AstFormat.MINUS_OP) {
+            return new MinusOp();
+        } else if (tag == AstFormat.MULT_OP) {
+            return new MultOp();
+        } else if (tag == AstFormat.DIV_OP) {
+            return new DivOp();
+        } else if (tag == AstFormat.EQUALS_OP) {
+            return new EqualsOp();
+        } else if (tag == AstFormat.LESS_THAN_OP) {
+            return new LessThanOp();
+        } else {
+            throw new IOException("Bad operator tag: " + tag);
+        }
+    } // readOp
+
+    private Lhs readLhs() throws IOException {
+        final int tag = readByte();
+        if (tag == AstFormat.VARIABLE_LHS) {
+            return new VariableLhs(readVariable());
+        } else if (tag == AstFormat.FIELD_ACCESS_LHS) {
+            final Lhs lhs = readLhs();
+            return new FieldAccessLhs(lhs, readFieldName());
+        } else if (tag == AstFormat.DEREFERENCE_LHS) {
+            return new DereferenceLhs(readLhs());
+        } else {
+            throw new IOException("Bad left-hand side tag: " + tag);
+        }
+    } // readLhs
+
+    private Exp[] readExps() throws IOException {
+        final Exp[] retval = new Exp[readCount()];
+        for (int index = 0; index < retval.length; index++) {
+            retval[index] = readExp();
+        }
+        return retval;
+    }
+
+    // Reads nested binops iteratively.  The stack holds AWAITING_LEFT for
+    // each binop whose left operand is being read, and the left operand
+    // and operator of each binop whose right operand is being read.
+    private Exp readExp() throws IOException {
+        final ArrayDeque<Object> pending = new ArrayDeque<Object>();
+        while (true) {
+            final int tag = readByte();
+            if (tag == AstFormat.BINOP_EXP) {
+                pending.push(AWAITING_LEFT);
+                continue;
+            }
+            Exp operand = readNonBinopExp(tag);
+            while (!pending.isEmpty() && pending.peek() != AWAITING_LEFT) {
+                final Op op = (Op)pending.pop();
+                final Exp left = (Exp)pending.pop();
+                operand = new BinopExp(left, op, operand);
+            }
+            if (pending.isEmpty()) {
+                return operand;
+            }
+            pending.pop();
+            pending.push(operand);
+            pending.push(readOp());
+        }
+    } // readExp
+
+    private Exp readNonBinopExp(final int tag) throws IOException {
+        if (tag == AstFormat.INT_EXP) {
+            return new IntExp(readSignedVarint());
+        } else if (tag == AstFormat.CHAR_EXP) {
+            return new CharExp((char)readVarint());
+        } else if (tag == AstFormat.TRUE_EXP) {
+            return new BoolExp(true);
+        } else if (tag == AstFormat.FALSE_EXP) {
+            return new BoolExp(false);
+        } else if (tag == AstFormat.VARIABLE_EXP) {
+            return new VariableExp(readVariable());
+        } else if (tag == AstFormat.MALLOC_EXP) {
+            return new MallocExp(readExp());
+        } else if (tag == AstFormat.FREE_EXP) {
+            return new FreeExp(readExp());
+        } else if (tag == AstFormat.SIZEOF_EXP) {
+            return new SizeofExp(readType());
+        } else if (tag == AstFormat.MAKE_STRUCTURE_EXP) {
+            final StructureName name = readStructureName();
+            return new MakeStructureExp(name, readExps());
+        } else if (tag == AstFormat.FUNCTION_CALL_EXP) {
+            final FunctionName name = readFunctionName();
+            return new FunctionCallExp(name, readExps());
+        } else if (tag == AstFormat.CAST_EXP) {
+            final Type type = readType();
+            return new CastExp(type, readExp());
+        } else if (tag == AstFormat.ADDRESS_OF_EXP) {
+            return new AddressOfExp(readLhs());
+        } else if (tag == AstFormat.DEREFERENCE_EXP) {
+            return new DereferenceExp(readExp());
+        } else if (tag == AstFormat.FIELD_ACCESS_EXP) {
+            final Exp exp = readExp();
+            return new FieldAccessExp(exp, readFieldName());
+        } else {
+            throw new IOException("Bad expression tag: " + tag);
+        }
+    } // readNonBinopExp
+
+    private Stmt readStmt() throws IOException {
+        final int tag = readByte();
+        return (tag == AstFormat.SEQUENCE_STMT) ? readSequence() : readNonSequenceStmt(tag);
+    }
+
+    // Reads a sequence whose tag has been read.  Sequences within it are
+    // read with an explicit stack of the statements read so far of each
+    // enclosing chain, and how many of them there are.
+    private Stmt readSequence() throws IOException {
+        final ArrayDeque<Stmt[]> chains = new ArrayDeque<Stmt[]>();
+        final ArrayDeque<Integer> counts = new ArrayDeque<Integer>();
+        chains.push(readChainStart());
+        counts.push(0);
+        while (true) {
+            final Stmt[] chain = chains.peek();
+            final int count = counts.peek();
+            if (count < chain.length) {
+                final int tag = readByte();
+                if (tag == AstFormat.SEQUENCE_STMT) {
+                    chains.push(readChainStart());
+                    counts.push(0);
+                } else {
+                    chain[count] = readNonSequenceStmt(tag);
+                    counts.push(counts.pop() + 1);
+                }
+                continue;
+            }
+
+            // every statement of the chain read
+            chains.pop();
+            counts.pop();
+            Stmt retval = chain[chain.length - 1];
+            for (int index = chain.length - 2; index >= 0; index--) {
+                retval = new SequenceStmt(chain[index], retval);
+            }
+            if (chains.isEmpty()) {
+                return retval;
+            }
+            final int parentCount = counts.pop();
+            chains.peek()[parentCount] = retval;
+            counts.push(parentCount + 1);
+        }
+    } // readSequence
+
+    private Stmt[] readChainStart() throws IOException {
+        final int length = readCount();
+        if (length < 2) {
+            throw new IOException("Bad sequence length: " + length);
+        }
+        return new Stmt[length];
+    }
+
+    private Stmt readNonSequenceStmt(final int tag) throws IOException {
+        if (tag == AstFormat.IF_STMT) {
+            final Exp guard = readExp();
+            final Stmt ifTrue = readStmt();
+            return new IfStmt(guard, ifTrue, readStmt());
+        } else if (tag == AstFormat.WHILE_STMT) {
+            final Exp guard = readExp();
+            return new WhileStmt(guard, readStmt());
+        } else if (tag == AstFormat.BREAK_STMT) {
+            return new BreakStmt();
+        } else if (tag == AstFormat.CONTINUE_STMT) {
+            return new ContinueStmt();
+        } else if (tag == AstFormat.VARIABLE_DECLARATION_INITIALIZATION_STMT) {
+            final VariableDeclaration varDec = readVariableDeclaration();
+            return new VariableDeclarationInitializationStmt(varDec, readExp());
+        } else if (tag == AstFormat.ASSIGNMENT_STMT) {
+            final Lhs lhs = readLhs();
+            return new AssignmentStmt(lhs, readExp());
+        } else if (tag == AstFormat.RETURN_VOID_STMT) {
+            return new ReturnVoidStmt();
+        } else if (tag == AstFormat.RETURN_EXP_STMT) {
+            return new ReturnExpStmt(readExp());
+        } else {
+            throw new IOException("Bad statement tag: " + tag);
+        }
+    } // readNonSequenceStmt
+} // AstReader
@@ -0,0 +1,436 @@
+package typechecker_example.syntax;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Serializes programs into the binary format described in AstFormat.  The
+// tree is encoded into a buffer while the string table is built, and the
+// table is then written ahead of it, so the reader can decode names up front.
+public class AstWriter implements ExpVisitor<Void, Void, RuntimeException>,
+                                  StmtVisitor<Void, Void, RuntimeException>,
+                                  TypeVisitor<Void, Void, RuntimeException>,
+                                  LhsVisitor<Void, Void, RuntimeException>,
+                                  OpVisitor<Void, Void, RuntimeException> {
+    // begin instance variables
+    private final Map<String, Integer> stringIds;
+    private final List<String> strings;
+    private byte[] bytes;
+    private int size;
+
+    private AstWriter() {
+        stringIds = new HashMap<String, Integer>();
+        strings = new ArrayList<String>();
+        bytes = new byte[256];
+        size = 0;
+    }
+
+    public static byte[] toBytes(final Program prog) {
+        final AstWriter body = new AstWriter();
+        body.writeProgram(prog);
+
+        final AstWriter retval = new AstWriter();
+        retval.writeHeader(body.strings);
+        retval.writeBytes(body.bytes, 0, body.size);
+        return Arrays.copyOf(retval.bytes, retval.size);
+    }
+
+    public static void write(final Program prog, final OutputStream out) throws IOException {
+        final AstWriter body = new AstWriter();
+        body.writeProgram(prog);
+
+        final AstWriter header = new AstWriter();
+        header.writeHeader(body.strings);
+        out.write(header.bytes, 0, header.size);
+        out.write(body.bytes, 0, body.size);
+    }
+
+    private void writeHeader(final List<String> table) {
+        writeByte(AstFormat.MAGIC >>> 24);
+        writeByte(AstFormat.MAGIC >>> 16);
+        writeByte(AstFormat.MAGIC >>> 8);
+        writeByte(AstFormat.MAGIC);
+        writeByte(AstFormat.VERSION);
+        writeVarint(table.size());
+        for (final String string : table) {
+            final byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            writeBytes(utf8, 0, utf8.length);
+        }
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    private void writeByte(final int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte)value;
+    }
+
+    private void writeBytes(final byte[] from, final int offset, final int length) {
+        ensureCapacity(length);
+        System.arraycopy(from, offset, bytes, size, length);
+        size += length;
+    }
+
+    // unsigned LEB128
+    private void writeVarint(final int value) {
+        ensureCapacity(5);
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            bytes[size++] = (byte)((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        bytes[size++] = (byte)remaining;
+    }
+
+    private void writeSignedVarint(final int value) {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    private void writeName(final Name name) {
+        Integer id = stringIds.get(name.name);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(name.name, id);
+            strings.add(name.name);
+        }
+        writeVarint(id);
+    }
+
+    private void writeProgram(final Program prog) {
+        writeVarint(prog.structDecs.length);
+        for (final StructureDeclaration dec : prog.structDecs) {
+            writeName(dec.name);
+            writeVariableDeclarations(dec.fields);
+        }
+        writeVarint(prog.functionDefs.length);
+        for (final FunctionDefinition def : prog.functionDefs) {
+            writeType(def.returnType);
+            writeName(def.name);
+            writeVariableDeclarations(def.parameters);
+            writeStmt(def.body);
+        }
+    }
+
+    private void writeVariableDeclarations(final VariableDeclaration[] decs) {
+        writeVarint(decs.length);
+        for (final VariableDeclaration dec : decs) {
+            writeType(dec.type);
+            writeName(dec.variable);
+        }
+    }
+
+    private void writeExps(final Exp[] exps) {
+        writeVarint(exps.length);
+        for (final Exp exp : exps) {
+            writeExp(exp);
+        }
+    }
+
+    private void writeExp(final Exp e) {
+        e.accept(this, null);
+    }
+
+    private void writeStmt(final Stmt s) {
+        s.accept(this, null);
+    }
+
+    private void writeType(final Type t) {
+        t.accept(this, null);
+    }
+
+    private void writeLhs(final Lhs lhs) {
+        lhs.accept(this, null);
+    }
+
+    // expressions
+
+    public Void visit(final IntExp e, final Void arg) {
+        writeByte(AstFormat.INT_EXP);
+        writeSignedVarint(e.value);
+        return null;
+    }
+
+    public Void visit(final CharExp e, final Void arg) {
+        writeByte(AstFormat.CHAR_EXP);
+        writeVarint(e.value);
+        return null;
+    }
+
+    public Void visit(final BoolExp e, final Void arg) {
+        writeByte((e.value) ? AstFormat.TRUE_EXP : AstFormat.FALSE_EXP);
+        return null;
+    }
+
+    public Void visit(final VariableExp e, final Void arg) {
+        writeByte(AstFormat.VARIABLE_EXP);
+        writeName(e.variable);
+        return null;
+    }
+
+    public Void visit(final MallocExp e, final Void arg) {
+        writeByte(AstFormat.MALLOC_EXP);
+        writeExp(e.amount);
+        return null;
+    }
+
+    public Void visit(final FreeExp e, final Void arg) {
+        writeByte(AstFormat.FREE_EXP);
+        writeExp(e.value);
+        return null;
+    }
+
+    public Void visit(final SizeofExp e, final Void arg) {
+        writeByte(AstFormat.SIZEOF_EXP);
+        writeType(e.type);
+        return null;
+    }
+
+    // Writes nested binops with an explicit stack rather than by recursing,
+    // as chains of operators can be arbitrarily deep.  The stack holds the
+    // operands and operators still to be written, next on top.
+    public Void visit(final BinopExp e, final Void arg) {
+        final ArrayDeque<Object> work = new ArrayDeque<Object>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            final Object current = work.pop();
+            if (current instanceof BinopExp) {
+                final BinopExp binop = (BinopExp)current;
+                writeByte(AstFormat.BINOP_EXP);
+                work.push(binop.right);
+                work.push(binop.op);
+                work.push(binop.left);
+            } else if (current instanceof Op) {
+                ((Op)current).accept(this, null);
+            } else {
+                writeExp((Exp)current);
+            }
+        }
+        return null;
+    } // visit(BinopExp)
+
+    public Void visit(final MakeStructureExp e, final Void arg) {
+        writeByte(AstFormat.MAKE_STRUCTURE_EXP);
+        writeName(e.name);
+        writeExps(e.parameters);
+        return null;
+    }
+
+    public Void visit(final FunctionCallExp e, final Void arg) {
+        writeByte(AstFormat.FUNCTION_CALL_EXP);
+        writeName(e.name);
+        writeExps(e.parameters);
+        return null;
+    }
+
+    public Void visit(final CastExp e, final Void arg) {
+        writeByte(AstFormat.CAST_EXP);
+        writeType(e.type);
+        writeExp(e.exp);
+        return null;
+    }
+
+    public Void visit(final AddressOfExp e, final Void arg) {
+        writeByte(AstFormat.ADDRESS_OF_EXP);
+        writeLhs(e.lhs);
+        return null;
+    }
+
+    public Void visit(final DereferenceExp e, final Void arg) {
+        writeByte(AstFormat.DEREFERENCE_EXP);
+        writeExp(e.exp);
+        return null;
+    }
+
+    public Void visit(final FieldAccessExp e, final Void arg) {
+        writeByte(AstFormat.FIELD_ACCESS_EXP);
+        writeExp(e.exp);
+        writeName(e.field);
+        return null;
+    }
+
+    // statements
+
+    public Void visit(final IfStmt s, final Void arg) {
+        writeByte(AstFormat.IF_STMT);
+        writeExp(s.guard);
+        writeStmt(s.ifTrue);
+        writeStmt(s.ifFalse);
+        return null;
+    }
+
+    public Void visit(final WhileStmt s, final Void arg) {
+        writeByte(AstFormat.WHILE_STMT);
+        writeExp(s.guard);
+        writeStmt(s.body);
+        return null;
+    }
+
+    public Void visit(final BreakStmt s, final Void arg) {
+        writeByte(AstFormat.BREAK_STMT);
+        return null;
+    }
+
+    public Void visit(final ContinueStmt s, final Void arg) {
+        writeByte(AstFormat.CONTINUE_STMT);
+        return null;
+    }
+
+    public Void visit(final VariableDeclarationInitializationStmt s, final Void arg) {
+        writeByte(AstFormat.VARIABLE_DECLARATION_INITIALIZATION_STMT);
+        writeType(s.varDec.type);
+        writeName(s.varDec.variable);
+        writeExp(s.exp);
+        return null;
+    }
+
+    public Void visit(final AssignmentStmt s, final Void arg) {
+        writeByte(AstFormat.ASSIGNMENT_STMT);
+        writeLhs(s.lhs);
+        writeExp(s.exp);
+        return null;
+    }
+
+    public Void visit(final ReturnVoidStmt s, final Void arg) {
+        writeByte(AstFormat.RETURN_VOID_STMT);
+        return null;
+    }
+
+    public Void visit(final ReturnExpStmt s, final Void arg) {
+        writeByte(AstFormat.RETURN_EXP_STMT);
+        writeExp(s.exp);
+        return null;
+    }
+
+    // The chain s1; (s2; (...; sn)) is written as n, then s1 through sn.
+    // Any si which is itself a sequence is written the same way, from an
+    // explicit stack of the statements still to be written, so sequences
+    // nested to the left don't need deep recursion either.
+    public Void visit(final SequenceStmt s, final Void arg) {
+        final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+        work.push(s);
+        while (!work.isEmpty()) {
+            final Stmt stmt = work.pop();
+            if (!(stmt instanceof SequenceStmt)) {
+                writeStmt(stmt);
+                continue;
+            }
+            int length = 1;
+            Stmt current = stmt;
+            while (current instanceof SequenceStmt) {
+                length++;
+                current = ((SequenceStmt)current).second;
+            }
+            writeByte(AstFormat.SEQUENCE_STMT);
+            writeVarint(length);
+            final Stmt[] chain = new Stmt[length];
+            current = stmt;
+            for (int index = 0; index < length - 1; index++) {
+                chain[index] = ((SequenceStmt)current).first;
+                current = ((SequenceStmt)current).second;
+            }
+            chain[length - 1] = current;
+            for (int index = length - 1; index >= 0; index--) {
+                work.push(chain[index]);
+            }
+        }
+        return null;
+    } // visit(SequenceStmt)
+
+    // types
+
+    public Void visit(final IntType t, final Void arg) {
+        writeByte(AstFormat.INT_TYPE);
+        return null;
+    }
+
+    public Void visit(final CharType t, final Void arg) {
+        writeByte(AstFormat.CHAR_TYPE);
+        return null;
+    }
+
+    public Void visit(final BoolType t, final Void arg) {
+        writeByte(AstFormat.BOOL_TYPE);
+        return null;
+    }
+
+    public Void visit(final VoidType t, final Void arg) {
+        writeByte(AstFormat.VOID_TYPE);
+        return null;
+    }
+
+    public Void visit(final StructureType t, final Void arg) {
+        writeByte(AstFormat.STRUCTURE_TYPE);
+        writeName(t.name);
+        return null;
+    }
+
+    public Void visit(final PointerType t, final Void arg) {
+        writeByte(AstFormat.POINTER_TYPE);
+        writeType(t.pointsTo);
+        return null;
+    }
+
+    // left-hand sides
+
+    public Void visit(final VariableLhs lhs, final Void arg) {
+        writeByte(AstFormat.VARIABLE_LHS);
+        writeName(lhs.variable);
+        return null;
+    }
+
+    public Void visit(final FieldAccessLhs lhs, final Void arg) {
+        writeByte(AstFormat.FIELD_ACCESS_LHS);
+        writeLhs(lhs.lhs);
+        writeName(lhs.field);
+        return null;
+    }
+
+    public Void visit(final DereferenceLhs lhs, final Void arg) {
+        writeByte(AstFormat.DEREFERENCE_LHS);
+        writeLhs(lhs.lhs);
+        return null;
+    }
+
+    // operators
+
+    public Void visit(final PlusOp op, final Void arg) {
+        writeByte(AstFormat.PLUS_OP);
+        return null;
+    }
+
+    public Void visit(final MinusOp op, final Void arg) {
+        writeByte(AstFormat.MINUS_OP);
+        return null;
+    }
+
+    public Void visit(final MultOp op, final Void arg) {
+        writeByte(AstFormat.MULT_OP);
+        return null;
+    }
+
+    public Void visit(final DivOp op, final Void arg) {
+        writeByte(AstFormat.DIV_OP);
+        return null;
+    }
+
+    public Void visit(final EqualsOp op, final Void arg) {
+        writeByte(AstFormat.EQUALS_OP);
+        return null;
+    }
+
+    public Void visit(final LessThanOp op, final Void arg) {
+        writeByte(AstFormat.LESS_THAN_OP);
+        return null;
+    }
+} // AstWriter
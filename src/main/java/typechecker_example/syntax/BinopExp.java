@@ -1,9 +1,12 @@
 package typechecker_example.syntax;
 
+import java.util.ArrayDeque;
+
 public class BinopExp implements Exp {
     public final Exp left;
     public final Op op;
     public final Exp right;
+    private final long structuralHash;
 
     public BinopExp(final Exp left,
                     final Op op,
@@ -11,29 +14,61 @@ public class BinopExp implements Exp {
         this.left = left;
         this.op = op;
         this.right = right;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.BINOP_EXP,
+                                left.structuralHash(),
+                                op.structuralHash(),
+                                right.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return (left.hashCode() +
-                op.hashCode() +
-                right.hashCode());
+        return StructuralHash.toInt(structuralHash);
     }
 
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
+
+    // Compares nested binops, on either side, with an explicit stack of
+    // pairs rather than by recursing.  Hashes are compared first, as
+    // unequal hashes mean unequal expressions.
     public boolean equals(final Object other) {
-        if (other instanceof BinopExp) {
-            final BinopExp otherBinop = (BinopExp)other;
-            return (otherBinop.left.equals(left) &&
-                    otherBinop.op.equals(op) &&
-                    otherBinop.right.equals(right));
-        } else {
+        if (!(other instanceof BinopExp)) {
             return false;
         }
-    }
+        final ArrayDeque<Exp> work = new ArrayDeque<Exp>();
+        work.push((Exp)other);
+        work.push(this);
+        while (!work.isEmpty()) {
+            final Exp mine = work.pop();
+            final Exp theirs = work.pop();
+            if (mine == theirs) {
+                continue;
+            } else if (mine.structuralHash() != theirs.structuralHash()) {
+                return false;
+            } else if (mine instanceof BinopExp && theirs instanceof BinopExp) {
+                final BinopExp myBinop = (BinopExp)mine;
+                final BinopExp theirBinop = (BinopExp)theirs;
+                if (!myBinop.op.equals(theirBinop.op)) {
+                    return false;
+                }
+                work.push(theirBinop.right);
+                work.push(myBinop.right);
+                work.push(theirBinop.left);
+                work.push(myBinop.left);
+            } else if (!mine.equals(theirs)) {
+                return false;
+            }
+        }
+        return true;
+    } // equals
 
     public String toString() {
-        return ("(" + left.toString() +
-                " " + op.toString() + " " +
-                right.toString() + ")");
+        return AstPrinter.asString(this);
     }
 }
 
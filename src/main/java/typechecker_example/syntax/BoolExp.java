@@ -2,13 +2,25 @@ package typechecker_example.syntax;
 
 public class BoolExp implements Exp {
     public final boolean value;
+    private final long structuralHash;
 
     public BoolExp(final boolean value) {
         this.value = value;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.BOOL_EXP,
+                                (value) ? 1 : 0);
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return (value) ? 1 : 0;
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -16,6 +28,6 @@ public class BoolExp implements Exp {
                 ((BoolExp)other).value == value);
     }
     public String toString() {
-        return Boolean.toString(value);
+        return AstPrinter.asString(this);
     }
 }
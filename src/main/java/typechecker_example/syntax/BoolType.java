@@ -1,9 +1,16 @@
 package typechecker_example.syntax;
 
 public class BoolType implements Type {
-    public int hashCode() { return 3; }
+    private static final long STRUCTURAL_HASH =
+        StructuralHash.hash(StructuralHash.BOOL_TYPE);
+
+    public long structuralHash() { return STRUCTURAL_HASH; }
+    public int hashCode() { return StructuralHash.toInt(STRUCTURAL_HASH); }
+    public <A, R, E extends Exception> R accept(final TypeVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return other instanceof BoolType;
     }
-    public String toString() { return "bool"; }
+    public String toString() { return AstPrinter.asString(this); }
 }
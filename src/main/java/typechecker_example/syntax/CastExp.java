@@ -3,14 +3,27 @@ package typechecker_example.syntax;
 public class CastExp implements Exp {
     public final Type type;
     public final Exp exp;
+    private final long structuralHash;
 
     public CastExp(final Type type, final Exp exp) {
         this.type = type;
         this.exp = exp;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.CAST_EXP,
+                                type.structuralHash(),
+                                exp.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return type.hashCode() + exp.hashCode();
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -24,6 +37,6 @@ public class CastExp implements Exp {
     }
 
     public String toString() {
-        return "(" + type.toString() + ")" + exp.toString();
+        return AstPrinter.asString(this);
     }
 }
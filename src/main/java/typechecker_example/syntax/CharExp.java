@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class CharExp implements Exp {
     public final char value;
+    private final long structuralHash;
 
     public CharExp(final char value) {
         this.value = value;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.CHAR_EXP,
+                                value);
     }
 
-    public int hashCode() { return (int)value; }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof CharExp &&
                 ((CharExp)other).value == value);
     }
     public String toString() {
-        return Character.toString(value);
+        return AstPrinter.asString(this);
     }
 }
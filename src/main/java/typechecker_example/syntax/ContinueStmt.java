@@ -1,9 +1,16 @@
 package typechecker_example.syntax;
 
 public class ContinueStmt implements Stmt {
-    public int hashCode() { return 1; }
+    private static final long STRUCTURAL_HASH =
+        StructuralHash.hash(StructuralHash.CONTINUE_STMT);
+
+    public long structuralHash() { return STRUCTURAL_HASH; }
+    public int hashCode() { return StructuralHash.toInt(STRUCTURAL_HASH); }
+    public <A, R, E extends Exception> R accept(final StmtVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return other instanceof ContinueStmt;
     }
-    public String toString() { return "continue"; }
+    public String toString() { return AstPrinter.asString(this); }
 }
@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class DereferenceExp implements Exp {
     public final Exp exp;
+    private final long structuralHash;
 
     public DereferenceExp(final Exp exp) {
         this.exp = exp;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.DEREFERENCE_EXP,
+                                exp.structuralHash());
     }
 
-    public int hashCode() { return exp.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof DereferenceExp &&
                 ((DereferenceExp)other).exp.equals(exp));
     }
     public String toString() {
-        return "*" + exp.toString();
+        return AstPrinter.asString(this);
     }
 }
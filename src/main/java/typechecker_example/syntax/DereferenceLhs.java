@@ -2,13 +2,25 @@ package typechecker_example.syntax;
 
 public class DereferenceLhs implements Lhs {
     public final Lhs lhs;
+    private final long structuralHash;
 
     public DereferenceLhs(final Lhs lhs) {
         this.lhs = lhs;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.DEREFERENCE_LHS,
+                                lhs.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return 1 + lhs.hashCode();
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final LhsVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -17,6 +29,6 @@ public class DereferenceLhs implements Lhs {
     }
 
     public String toString() {
-        return "*" + lhs.toString();
+        return AstPrinter.asString(this);
     }
 }
@@ -1,3 +1,5 @@
 package typechecker_example.syntax;
 
-public interface Exp {}
+public interface Exp extends StructurallyHashable {
+    public <A, R, E extends Exception> R accept(ExpVisitor<A, R, E> visitor, A arg) throws E;
+}
@@ -0,0 +1,20 @@
+package typechecker_example.syntax;
+
+// Dispatches on the kind of expression.  A is an extra argument passed through
+// accept, R is the result, and E is the exception the visitor may throw.
+public interface ExpVisitor<A, R, E extends Exception> {
+    public R visit(IntExp e, A arg) throws E;
+    public R visit(CharExp e, A arg) throws E;
+    public R visit(BoolExp e, A arg) throws E;
+    public R visit(VariableExp e, A arg) throws E;
+    public R visit(MallocExp e, A arg) throws E;
+    public R visit(FreeExp e, A arg) throws E;
+    public R visit(SizeofExp e, A arg) throws E;
+    public R visit(BinopExp e, A arg) throws E;
+    public R visit(MakeStructureExp e, A arg) throws E;
+    public R visit(FunctionCallExp e, A arg) throws E;
+    public R visit(CastExp e, A arg) throws E;
+    public R visit(AddressOfExp e, A arg) throws E;
+    public R visit(DereferenceExp e, A arg) throws E;
+    public R visit(FieldAccessExp e, A arg) throws E;
+}
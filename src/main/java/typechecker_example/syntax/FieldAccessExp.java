@@ -3,15 +3,28 @@ package typechecker_example.syntax;
 public class FieldAccessExp implements Exp {
     public final Exp exp;
     public final FieldName field;
+    private final long structuralHash;
 
     public FieldAccessExp(final Exp exp,
                           final FieldName field) {
         this.exp = exp;
         this.field = field;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.FIELD_ACCESS_EXP,
+                                exp.structuralHash(),
+                                field.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return exp.hashCode() + field.hashCode();
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -25,6 +38,6 @@ public class FieldAccessExp implements Exp {
     }
 
     public String toString() {
-        return exp.toString() + "." + field.toString();
+        return AstPrinter.asString(this);
     }
 }
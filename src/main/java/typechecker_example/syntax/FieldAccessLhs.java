@@ -3,15 +3,28 @@ package typechecker_example.syntax;
 public class FieldAccessLhs implements Lhs {
     public final Lhs lhs;
     public final FieldName field;
+    private final long structuralHash;
 
     public FieldAccessLhs(final Lhs lhs,
                           final FieldName field) {
         this.lhs = lhs;
         this.field = field;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.FIELD_ACCESS_LHS,
+                                lhs.structuralHash(),
+                                field.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return lhs.hashCode() + field.hashCode();
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final LhsVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -25,6 +38,6 @@ public class FieldAccessLhs implements Lhs {
     }
 
     public String toString() {
-        return lhs.toString() + "." + field.toString();
+        return AstPrinter.asString(this);
     }
 }
@@ -0,0 +1,397 @@
+package typechecker_example.syntax;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Converts programs from the object form to a FlatProgram.  Names are
+// interned into one table, and types are hash-consed into nodes.
+public class FlatBuilder implements ExpVisitor<Void, Integer, RuntimeException>,
+                                    StmtVisitor<Void, Integer, RuntimeException>,
+                                    TypeVisitor<Void, Integer, RuntimeException>,
+                                    LhsVisitor<Void, Integer, RuntimeException>,
+                                    OpVisitor<Void, Integer, RuntimeException> {
+    // begin instance variables
+    private int nodeCount;
+    private int[] kinds;
+    private int[] first;
+    private int[] second;
+    private int[] third;
+    private int listsSize;
+    private int[] lists;
+    private final Map<String, Integer> nameIds;
+    private final List<String> names;
+    // keyed by kind in the high half and first slot in the low half
+    private final Map<Long, Integer> typeNodes;
+
+    private FlatBuilder() {
+        kinds = new int[256];
+        first = new int[256];
+        second = new int[256];
+        third = new int[256];
+        lists = new int[256];
+        nameIds = new HashMap<String, Integer>();
+        names = new ArrayList<String>();
+        typeNodes = new HashMap<Long, Integer>();
+
+        type(FlatProgram.INT_TYPE, 0);
+        type(FlatProgram.CHAR_TYPE, 0);
+        type(FlatProgram.BOOL_TYPE, 0);
+        type(FlatProgram.VOID_TYPE, 0);
+        type(FlatProgram.POINTER_TYPE, FlatProgram.VOID_TYPE_NODE);
+    }
+
+    public static FlatProgram build(final Program prog) {
+        final FlatBuilder builder = new FlatBuilder();
+        final int[] structureNames = new int[prog.structDecs.length];
+        final int[] structureFields = new int[prog.structDecs.length];
+        for (int index = 0; index < structureNames.length; index++) {
+            structureNames[index] = builder.name(prog.structDecs[index].name);
+            structureFields[index] = builder.variableDeclarations(prog.structDecs[index].fields);
+        }
+
+        final int[] functionNames = new int[prog.functionDefs.length];
+        final int[] functionReturnTypes = new int[prog.functionDefs.length];
+        final int[] functionParameters = new int[prog.functionDefs.length];
+        final int[] functionBodies = new int[prog.functionDefs.length];
+        for (int index = 0; index < functionNames.length; index++) {
+            final FunctionDefinition def = prog.functionDefs[index];
+            functionNames[index] = builder.name(def.name);
+            functionReturnTypes[index] = builder.type(def.returnType);
+            functionParameters[index] = builder.variableDeclarations(def.parameters);
+            functionBodies[index] = builder.stmt(def.body);
+        }
+
+        final int count = builder.nodeCount;
+        return new FlatProgram(count,
+                               Arrays.copyOf(builder.kinds, count),
+                               Arrays.copyOf(builder.first, count),
+                               Arrays.copyOf(builder.second, count),
+                               Arrays.copyOf(builder.third, count),
+                               Arrays.copyOf(builder.lists, builder.listsSize),
+                               builder.names.toArray(new String[builder.names.size()]),
+                               structureNames,
+                               structureFields,
+                               functionNames,
+                               functionReturnTypes,
+                               functionParameters,
+                               functionBodies);
+    } // build
+
+    private int node(final int kind, final int a, final int b, final int c) {
+        if (nodeCount == kinds.length) {
+            final int newLength = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, newLength);
+            first = Arrays.copyOf(first, newLength);
+            second = Arrays.copyOf(second, newLength);
+            third = Arrays.copyOf(third, newLength);
+        }
+        kinds[nodeCount] = kind;
+        first[nodeCount] = a;
+        second[nodeCount] = b;
+        third[nodeCount] = c;
+        return nodeCount++;
+    }
+
+    // adds a list of length elements, stored in slots, returning its index
+    private int list(final int length, final int[] slots) {
+        if (listsSize + 1 + slots.length > lists.length) {
+            lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listsSize + 1 + slots.length));
+        }
+        final int retval = listsSize;
+        lists[retval] = length;
+        System.arraycopy(slots, 0, lists, retval + 1, slots.length);
+        listsSize += 1 + slots.length;
+        return retval;
+    }
+
+    private int name(final Name name) {
+        Integer id = nameIds.get(name.name);
+        if (id == null) {
+            id = names.size();
+            nameIds.put(name.name, id);
+            names.add(name.name);
+        }
+        return id;
+    }
+
+    private int type(final int kind, final int a) {
+        final Long key = ((long)kind << 32) | (a & 0xFFFFFFFFL);
+        Integer retval = typeNodes.get(key);
+        if (retval == null) {
+            retval = node(kind, a, 0, 0);
+            typeNodes.put(key, retval);
+        }
+        return retval;
+    }
+
+    private int type(final Type t) {
+        return t.accept(this, null);
+    }
+
+    private int exp(final Exp e) {
+        return e.accept(this, null);
+    }
+
+    private int stmt(final Stmt s) {
+        return s.accept(this, null);
+    }
+
+    private int lhs(final Lhs lhs) {
+        return lhs.accept(this, null);
+    }
+
+    private int variableDeclarations(final VariableDeclaration[] decs) {
+        final int[] elements = new int[2 * decs.length];
+        for (int index = 0; index < decs.length; index++) {
+            elements[2 * index] = type(decs[index].type);
+            elements[2 * index + 1] = name(decs[index].variable);
+        }
+        return list(decs.length, elements);
+    }
+
+    // the parameters are built before the list is added, as they may add
+    // lists of their own
+    private int exps(final Exp[] exps) {
+        final int[] elements = new int[exps.length];
+        for (int index = 0; index < exps.length; index++) {
+            elements[index] = exp(exps[index]);
+        }
+        return list(exps.length, elements);
+    }
+
+    // expressions
+
+    public Integer visit(final IntExp e, final Void arg) {
+        return node(FlatProgram.INT_EXP, e.value, 0, 0);
+    }
+
+    public Integer visit(final CharExp e, final Void arg) {
+        return node(FlatProgram.CHAR_EXP, e.value, 0, 0);
+    }
+
+    public Integer visit(final BoolExp e, final Void arg) {
+        return node(FlatProgram.BOOL_EXP, (e.value) ? 1 : 0, 0, 0);
+    }
+
+    public Integer visit(final VariableExp e, final Void arg) {
+        return node(FlatProgram.VARIABLE_EXP, name(e.variable), 0, 0);
+    }
+
+    public Integer visit(final MallocExp e, final Void arg) {
+        return node(FlatProgram.MALLOC_EXP, exp(e.amount), 0, 0);
+    }
+
+    public Integer visit(final FreeExp e, final Void arg) {
+        return node(FlatProgram.FREE_EXP, exp(e.value), 0, 0);
+    }
+
+    public Integer visit(final SizeofExp e, final Void arg) {
+        return node(FlatProgram.SIZEOF_EXP, type(e.type), 0, 0);
+    }
+
+    // Nested binops are built from an explicit stack rather than by
+    // recursing, so long chains can't overflow the Java stack.  The stack
+    // holds operands to build, and binops whose operands' nodes are on top
+    // of the built stack.
+    public Integer visit(final BinopExp e, final Void arg) {
+        final ArrayDeque<Object> work = new ArrayDeque<Object>();
+        final ArrayDeque<Integer> built = new ArrayDeque<Integer>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            final Object item = work.pop();
+            if (item instanceof Pending) {
+                final BinopExp binop = (BinopExp)((Pending)item).node;
+                final int right = built.pop();
+                final int left = built.pop();
+                built.push(node(FlatProgram.BINOP_EXP, left, binop.op.accept(this, null), right));
+            } else if (item instanceof BinopExp) {
+                final BinopExp binop = (BinopExp)item;
+                work.push(new Pending(binop));
+                work.push(binop.right);
+                work.push(binop.left);
+            } else {
+                built.push(exp((Exp)item));
+            }
+        }
+        return built.pop();
+    } // visit(BinopExp)
+
+    public Integer visit(final MakeStructureExp e, final Void arg) {
+        final int name = name(e.name);
+        final int parameters = exps(e.parameters);
+        return node(FlatProgram.MAKE_STRUCTURE_EXP,
+                    name,
+                    parameters,
+                    type(FlatProgram.STRUCTURE_TYPE, name));
+    }
+
+    public Integer visit(final FunctionCallExp e, final Void arg) {
+        final int name = name(e.name);
+        return node(FlatProgram.FUNCTION_CALL_EXP, name, exps(e.parameters), 0);
+    }
+
+    public Integer visit(final CastExp e, final Void arg) {
+        final int type = type(e.type);
+        return node(FlatProgram.CAST_EXP, type, exp(e.exp), 0);
+    }
+
+    public Integer visit(final AddressOfExp e, final Void arg) {
+        return node(FlatProgram.ADDRESS_OF_EXP, lhs(e.lhs), 0, 0);
+    }
+
+    public Integer visit(final DereferenceExp e, final Void arg) {
+        return node(FlatProgram.DEREFERENCE_EXP, exp(e.exp), 0, 0);
+    }
+
+    public Integer visit(final FieldAccessExp e, final Void arg) {
+        final int exp = exp(e.exp);
+        return node(FlatProgram.FIELD_ACCESS_EXP, exp, name(e.field), 0);
+    }
+
+    // statements
+
+    public Integer visit(final IfStmt s, final Void arg) {
+        final int guard = exp(s.guard);
+        final int ifTrue = stmt(s.ifTrue);
+        return node(FlatProgram.IF_STMT, guard, ifTrue, stmt(s.ifFalse));
+    }
+
+    public Integer visit(final WhileStmt s, final Void arg) {
+        final int guard = exp(s.guard);
+        return node(FlatProgram.WHILE_STMT, guard, stmt(s.body), 0);
+    }
+
+    public Integer visit(final BreakStmt s, final Void arg) {
+        return node(FlatProgram.BREAK_STMT, 0, 0, 0);
+    }
+
+    public Integer visit(final ContinueStmt s, final Void arg) {
+        return node(FlatProgram.CONTINUE_STMT, 0, 0, 0);
+    }
+
+    public Integer visit(final VariableDeclarationInitializationStmt s, final Void arg) {
+        final int type = type(s.varDec.type);
+        final int variable = name(s.varDec.variable);
+        return node(FlatProgram.VARIABLE_DECLARATION_INITIALIZATION_STMT,
+                    type,
+                    variable,
+                    exp(s.exp));
+    }
+
+    public Integer visit(final AssignmentStmt s, final Void arg) {
+        final int lhs = lhs(s.lhs);
+        return node(FlatProgram.ASSIGNMENT_STMT, lhs, exp(s.exp), 0);
+    }
+
+    public Integer visit(final ReturnVoidStmt s, final Void arg) {
+        return node(FlatProgram.RETURN_VOID_STMT, 0, 0, 0);
+    }
+
+    public Integer visit(final ReturnExpStmt s, final Void arg) {
+        return node(FlatProgram.RETURN_EXP_STMT, exp(s.exp), 0, 0);
+    }
+
+    // nested sequences, on either side, are built from an explicit stack,
+    // as binops are
+    public Integer visit(final SequenceStmt s, final Void arg) {
+        final ArrayDeque<Object> work = new ArrayDeque<Object>();
+        final ArrayDeque<Integer> built = new ArrayDeque<Integer>();
+        work.push(s);
+        while (!work.isEmpty()) {
+            final Object item = work.pop();
+            if (item instanceof Pending) {
+                final int second = built.pop();
+                final int first = built.pop();
+                built.push(node(FlatProgram.SEQUENCE_STMT, first, second, 0));
+            } else if (item instanceof SequenceStmt) {
+                final SequenceStmt seq = (SequenceStmt)item;
+                work.push(new Pending(seq));
+                work.push(seq.second);
+                work.push(seq.first);
+            } else {
+                built.push(stmt((Stmt)item));
+            }
+        }
+        return built.pop();
+    } // visit(SequenceStmt)
+
+    // types
+
+    public Integer visit(final IntType t, final Void arg) {
+        return FlatProgram.INT_TYPE_NODE;
+    }
+
+    public Integer visit(final CharType t, final Void arg) {
+        return FlatProgram.CHAR_TYPE_NODE;
+    }
+
+    public Integer visit(final BoolType t, final Void arg) {
+        return FlatProgram.BOOL_TYPE_NODE;
+    }
+
+    public Integer visit(final VoidType t, final Void arg) {
+        return FlatProgram.VOID_TYPE_NODE;
+    }
+
+    public Integer visit(final StructureType t, final Void arg) {
+        return type(FlatProgram.STRUCTURE_TYPE, name(t.name));
+    }
+
+    public Integer visit(final PointerType t, final Void arg) {
+        return type(FlatProgram.POINTER_TYPE, type(t.pointsTo));
+    }
+
+    // left-hand sides
+
+    public Integer visit(final VariableLhs lhs, final Void arg) {
+        return node(FlatProgram.VARIABLE_LHS, name(lhs.variable), 0, 0);
+    }
+
+    public Integer visit(final FieldAccessLhs lhs, final Void arg) {
+        final int inner = lhs(lhs.lhs);
+        return node(FlatProgram.FIELD_ACCESS_LHS, inner, name(lhs.field), 0);
+    }
+
+    public Integer visit(final DereferenceLhs lhs, final Void arg) {
+        return node(FlatProgram.DEREFERENCE_LHS, lhs(lhs.lhs), 0, 0);
+    }
+
+    // operators, which are stored inline rather than as nodes
+
+    public Integer visit(final PlusOp op, final Void arg) {
+        return FlatProgram.PLUS_OP;
+    }
+
+    public Integer visit(final MinusOp op, final Void arg) {
+        return FlatProgram.MINUS_OP;
+    }
+
+    public Integer visit(final MultOp op, final Void arg) {
+        return FlatProgram.MULT_OP;
+    }
+
+    public Integer visit(final DivOp op, final Void arg) {
+        return FlatProgram.DIV_OP;
+    }
+
+    public Integer visit(final EqualsOp op, final Void arg) {
+        return FlatProgram.EQUALS_OP;
+    }
+
+    public Integer visit(final LessThanOp op, final Void arg) {
+        return FlatProgram.LESS_THAN_OP;
+    }
+
+    // a binop or sequence on a work stack, whose children are built
+    private static class Pending {
+        public final Object node;
+
+        public Pending(final Object node) {
+            this.node = node;
+        }
+    } // Pending
+} // FlatBuilder
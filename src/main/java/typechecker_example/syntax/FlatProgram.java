@@ -0,0 +1,307 @@
+package typechecker_example.syntax;
+
+import java.util.ArrayDeque;
+
+// A program stored as a struct of arrays rather than as a graph of
+// objects.  Each node is an index into kinds, first, second, and third;
+// what the three slots hold depends on the kind, as noted below.  Slots
+// hold child node indices, name ids (indices into names), literal values,
+// or list indices.  A list is a run in lists: its length, then its
+// elements.  Types are nodes too, and are hash-consed, so two types are
+// equal exactly when their node indices are.  Build these with FlatBuilder.
+public class FlatProgram {
+    // types: first is a name id for structures, and the pointee for pointers
+    public static final int INT_TYPE = 0;
+    public static final int CHAR_TYPE = 1;
+    public static final int BOOL_TYPE = 2;
+    public static final int VOID_TYPE = 3;
+    public static final int STRUCTURE_TYPE = 4;
+    public static final int POINTER_TYPE = 5;
+
+    // operators, only ever stored in the second slot of a BINOP_EXP
+    public static final int PLUS_OP = 6;
+    public static final int MINUS_OP = 7;
+    public static final int MULT_OP = 8;
+    public static final int DIV_OP = 9;
+    public static final int EQUALS_OP = 10;
+    public static final int LESS_THAN_OP = 11;
+
+    // left-hand sides
+    public static final int VARIABLE_LHS = 12; // variable
+    public static final int FIELD_ACCESS_LHS = 13; // lhs, field
+    public static final int DEREFERENCE_LHS = 14; // lhs
+
+    // expressions
+    public static final int INT_EXP = 15; // value
+    public static final int CHAR_EXP = 16; // value
+    public static final int BOOL_EXP = 17; // 1 for true, 0 for false
+    public static final int VARIABLE_EXP = 18; // variable
+    public static final int MALLOC_EXP = 19; // amount
+    public static final int FREE_EXP = 20; // value
+    public static final int SIZEOF_EXP = 21; // type
+    public static final int BINOP_EXP = 22; // left, op, right
+    public static final int MAKE_STRUCTURE_EXP = 23; // structure, list of parameters, structure type
+    public static final int FUNCTION_CALL_EXP = 24; // function, list of parameters
+    public static final int CAST_EXP = 25; // type, exp
+    public static final int ADDRESS_OF_EXP = 26; // lhs
+    public static final int DEREFERENCE_EXP = 27; // exp
+    public static final int FIELD_ACCESS_EXP = 28; // exp, field
+
+    // statements
+    public static final int IF_STMT = 29; // guard, ifTrue, ifFalse
+    public static final int WHILE_STMT = 30; // guard, body
+    public static final int BREAK_STMT = 31;
+    public static final int CONTINUE_STMT = 32;
+    public static final int VARIABLE_DECLARATION_INITIALIZATION_STMT = 33; // type, variable, exp
+    public static final int ASSIGNMENT_STMT = 34; // lhs, exp
+    public static final int RETURN_VOID_STMT = 35;
+    public static final int RETURN_EXP_STMT = 36; // exp
+    public static final int SEQUENCE_STMT = 37; // first, second
+
+    // the primitive types, and void*, are always these nodes
+    public static final int INT_TYPE_NODE = 0;
+    public static final int CHAR_TYPE_NODE = 1;
+    public static final int BOOL_TYPE_NODE = 2;
+    public static final int VOID_TYPE_NODE = 3;
+    public static final int VOID_POINTER_TYPE_NODE = 4;
+
+    // begin instance variables
+    public final int nodeCount;
+    public final int[] kinds;
+    public final int[] first;
+    public final int[] second;
+    public final int[] third;
+    public final int[] lists;
+    public final String[] names;
+
+    // per structure: its name id, and a list of (type, name id) pairs
+    public final int[] structureNames;
+    public final int[] structureFields;
+
+    // per function: its name id, return type, list of (type, name id)
+    // pairs, and body
+    public final int[] functionNames;
+    public final int[] functionReturnTypes;
+    public final int[] functionParameters;
+    public final int[] functionBodies;
+
+    public FlatProgram(final int nodeCount,
+                       final int[] kinds,
+                       final int[] first,
+                       final int[] second,
+                       final int[] third,
+                       final int[] lists,
+                       final String[] names,
+                       final int[] structureNames,
+                       final int[] structureFields,
+                       final int[] functionNames,
+                       final int[] functionReturnTypes,
+                       final int[] functionParameters,
+                       final int[] functionBodies) {
+        this.nodeCount = nodeCount;
+        this.kinds = kinds;
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.lists = lists;
+        this.names = names;
+        this.structureNames = structureNames;
+        this.structureFields = structureFields;
+        this.functionNames = functionNames;
+        this.functionReturnTypes = functionReturnTypes;
+        this.functionParameters = functionParameters;
+        this.functionBodies = functionBodies;
+    }
+
+    // converts back to the object form
+    public Program toProgram() {
+        final StructureDeclaration[] structDecs = new StructureDeclaration[structureNames.length];
+        for (int index = 0; index < structDecs.length; index++) {
+            structDecs[index] = new StructureDeclaration(new StructureName(names[structureNames[index]]),
+                                                         toVariableDeclarations(structureFields[index]));
+        }
+        final FunctionDefinition[] functionDefs = new FunctionDefinition[functionNames.length];
+        for (int index = 0; index < functionDefs.length; index++) {
+            functionDefs[index] = new FunctionDefinition(toType(functionReturnTypes[index]),
+                                                         new FunctionName(names[functionNames[index]]),
+                                                         toVariableDeclarations(functionParameters[index]),
+                                                         toStmt(functionBodies[index]));
+        }
+        return new Program(structDecs, functionDefs);
+    }
+
+    private VariableDeclaration[] toVariableDeclarations(final int list) {
+        final VariableDeclaration[] retval = new VariableDeclaration[lists[list]];
+        for (int index = 0; index < retval.length; index++) {
+            retval[index] = new VariableDeclaration(toType(lists[list + 1 + 2 * index]),
+                                                    new Variable(names[lists[list + 2 + 2 * index]]));
+        }
+        return retval;
+    }
+
+    private Exp[] toExps(final int list) {
+        final Exp[] retval = new Exp[lists[list]];
+        for (int index = 0; index < retval.length; index++) {
+            retval[index] = toExp(lists[list + 1 + index]);
+        }
+        return retval;
+    }
+
+    public Type toType(final int node) {
+        final int kind = kinds[node];
+        if (kind == INT_TYPE) {
+            return new IntType();
+        } else if (kind == CHAR_TYPE) {
+            return new CharType();
+        } else if (kind == BOOL_TYPE) {
+            return new BoolType();
+        } else if (kind == VOID_TYPE) {
+            return new VoidType();
+        } else if (kind == STRUCTURE_TYPE) {
+            return new StructureType(new StructureName(names[first[node]]));
+        } else if (kind == POINTER_TYPE) {
+            return new PointerType(toType(first[node]));
+        } else {
+            throw new IllegalArgumentException("Not a type: " + node);
+        }
+    } // toType
+
+    public Op toOp(final int kind) {
+        if (kind == PLUS_OP) {
+            return new PlusOp();
+        } else if (kind == MINUS_OP) {
+            return new MinusOp();
+        } else if (kind == MULT_OP) {
+            return new MultOp();
+        } else if (kind == DIV_OP) {
+            return new DivOp();
+        } else if (kind == EQUALS_OP) {
+            return new EqualsOp();
+        } else if (kind == LESS_THAN_OP) {
+            return new LessThanOp();
+        } else {
+            throw new IllegalArgumentException("Not an operator: " + kind);
+        }
+    } // toOp
+
+    public Lhs toLhs(final int node) {
+        final int kind = kinds[node];
+        if (kind == VARIABLE_LHS) {
+            return new VariableLhs(new Variable(names[first[node]]));
+        } else if (kind == FIELD_ACCESS_LHS) {
+            return new FieldAccessLhs(toLhs(first[node]), new FieldName(names[second[node]]));
+        } else if (kind == DEREFERENCE_LHS) {
+            return new DereferenceLhs(toLhs(first[node]));
+        } else {
+            throw new IllegalArgumentException("Not a left-hand side: " + node);
+        }
+    } // toLhs
+
+    public Exp toExp(final int node) {
+        final int kind = kinds[node];
+        if (kind == INT_EXP) {
+            return new IntExp(first[node]);
+        } else if (kind == CHAR_EXP) {
+            return new CharExp((char)first[node]);
+        } else if (kind == BOOL_EXP) {
+            return new BoolExp(first[node] != 0);
+        } else if (kind == VARIABLE_EXP) {
+            return new VariableExp(new Variable(names[first[node]]));
+        } else if (kind == MALLOC_EXP) {
+            return new MallocExp(toExp(first[node]));
+        } else if (kind == FREE_EXP) {
+            return new FreeExp(toExp(first[node]));
+        } else if (kind == SIZEOF_EXP) {
+            return new SizeofExp(toType(first[node]));
+        } else if (kind == BINOP_EXP) {
+            return toBinops(node);
+        } else if (kind == MAKE_STRUCTURE_EXP) {
+            return new MakeStructureExp(new StructureName(names[first[node]]), toExps(second[node]));
+        } else if (kind == FUNCTION_CALL_EXP) {
+            return new FunctionCallExp(new FunctionName(names[first[node]]), toExps(second[node]));
+        } else if (kind == CAST_EXP) {
+            return new CastExp(toType(first[node]), toExp(second[node]));
+        } else if (kind == ADDRESS_OF_EXP) {
+            return new AddressOfExp(toLhs(first[node]));
+        } else if (kind == DEREFERENCE_EXP) {
+            return new DereferenceExp(toExp(first[node]));
+        } else if (kind == FIELD_ACCESS_EXP) {
+            return new FieldAccessExp(toExp(first[node]), new FieldName(names[second[node]]));
+        } else {
+            throw new IllegalArgumentException("Not an expression: " + node);
+        }
+    } // toExp
+
+    // Nested binops are rebuilt from an explicit stack rather than by
+    // recursing.  The stack holds operands to rebuild, and, as ~node,
+    // binops whose operands are on top of the built stack.
+    private Exp toBinops(final int binop) {
+        final ArrayDeque<Integer> work = new ArrayDeque<Integer>();
+        final ArrayDeque<Exp> built = new ArrayDeque<Exp>();
+        work.push(binop);
+        while (!work.isEmpty()) {
+            final int item = work.pop();
+            if (item < 0) {
+                final Exp right = built.pop();
+                final Exp left = built.pop();
+                built.push(new BinopExp(left, toOp(second[~item]), right));
+            } else if (kinds[item] == BINOP_EXP) {
+                work.push(~item);
+                work.push(third[item]);
+                work.push(first[item]);
+            } else {
+                built.push(toExp(item));
+            }
+        }
+        return built.pop();
+    } // toBinops
+
+    public Stmt toStmt(final int node) {
+        final int kind = kinds[node];
+        if (kind == IF_STMT) {
+            return new IfStmt(toExp(first[node]), toStmt(second[node]), toStmt(third[node]));
+        } else if (kind == WHILE_STMT) {
+            return new WhileStmt(toExp(first[node]), toStmt(second[node]));
+        } else if (kind == BREAK_STMT) {
+            return new BreakStmt();
+        } else if (kind == CONTINUE_STMT) {
+            return new ContinueStmt();
+        } else if (kind == VARIABLE_DECLARATION_INITIALIZATION_STMT) {
+            return new VariableDeclarationInitializationStmt(
+                new VariableDeclaration(toType(first[node]), new Variable(names[second[node]])),
+                toExp(third[node]));
+        } else if (kind == ASSIGNMENT_STMT) {
+            return new AssignmentStmt(toLhs(first[node]), toExp(second[node]));
+        } else if (kind == RETURN_VOID_STMT) {
+            return new ReturnVoidStmt();
+        } else if (kind == RETURN_EXP_STMT) {
+            return new ReturnExpStmt(toExp(first[node]));
+        } else if (kind == SEQUENCE_STMT) {
+            return toSequence(node);
+        } else {
+            throw new IllegalArgumentException("Not a statement: " + node);
+        }
+    } // toStmt
+
+    // nested sequences, on either side, are rebuilt as binops are
+    private Stmt toSequence(final int sequence) {
+        final ArrayDeque<Integer> work = new ArrayDeque<Integer>();
+        final ArrayDeque<Stmt> built = new ArrayDeque<Stmt>();
+        work.push(sequence);
+        while (!work.isEmpty()) {
+            final int item = work.pop();
+            if (item < 0) {
+                final Stmt second = built.pop();
+                final Stmt first = built.pop();
+                built.push(new SequenceStmt(first, second));
+            } else if (kinds[item] == SEQUENCE_STMT) {
+                work.push(~item);
+                work.push(second[item]);
+                work.push(first[item]);
+            } else {
+                built.push(toStmt(item));
+            }
+        }
+        return built.pop();
+    } // toSequence
+} // FlatProgram
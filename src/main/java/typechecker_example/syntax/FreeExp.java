@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class FreeExp implements Exp {
     public final Exp value;
+    private final long structuralHash;
 
     public FreeExp(final Exp value) {
         this.value = value;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.FREE_EXP,
+                                value.structuralHash());
     }
 
-    public int hashCode() { return value.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof FreeExp &&
                 ((FreeExp)other).value.equals(value));
     }
     public String toString() {
-        return "free(" + value.toString() + ")";
+        return AstPrinter.asString(this);
     }
 }
@@ -2,11 +2,12 @@ package typechecker_example.syntax;
 
 import java.util.Arrays;
 
-public class FunctionDefinition {
+public class FunctionDefinition implements StructurallyHashable {
     public final Type returnType;
     public final FunctionName name;
     public final VariableDeclaration[] parameters;
     public final Stmt body;
+    private final long structuralHash;
 
     public FunctionDefinition(final Type returnType,
                               final FunctionName name,
@@ -16,13 +17,20 @@ public class FunctionDefinition {
         this.name = name;
         this.parameters = parameters;
         this.body = body;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.FUNCTION_DEFINITION,
+                                returnType.structuralHash(),
+                                name.structuralHash(),
+                                StructuralHash.ofArray(parameters),
+                                body.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return (returnType.hashCode() +
-                name.hashCode() +
-                Arrays.deepHashCode(parameters) +
-                body.hashCode());
+        return StructuralHash.toInt(structuralHash);
     }
 
     public boolean equals(final Object other) {
@@ -39,9 +47,6 @@ public class FunctionDefinition {
     }
 
     public String toString() {
-        return (returnType.toString() + " " +
-                name.toString() + "(" +
-                Join.join(", ", parameters) +
-                ") { " + body.toString() + " }");
+        return AstPrinter.asString(this);
     }
 }
@@ -2,11 +2,7 @@ package typechecker_example.syntax;
 
 public class FunctionName extends Name {
     public FunctionName(final String name) {
-        super(name);
-    }
-
-    public boolean sameClass(final Name other) {
-        return other instanceof FunctionName;
+        super(name, StructuralHash.FUNCTION_NAME, SymbolTable.FUNCTION_NAMES);
     }
 }
 
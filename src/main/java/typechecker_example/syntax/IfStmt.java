@@ -4,6 +4,7 @@ public class IfStmt implements Stmt {
     public final Exp guard;
     public final Stmt ifTrue;
     public final Stmt ifFalse;
+    private final long structuralHash;
 
     public IfStmt(final Exp guard,
                   final Stmt ifTrue,
@@ -11,12 +12,23 @@ public class IfStmt implements Stmt {
         this.guard = guard;
         this.ifTrue = ifTrue;
         this.ifFalse = ifFalse;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.IF_STMT,
+                                guard.structuralHash(),
+                                ifTrue.structuralHash(),
+                                ifFalse.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return (guard.hashCode() +
-                ifTrue.hashCode() +
-                ifFalse.hashCode());
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final StmtVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -31,8 +43,6 @@ public class IfStmt implements Stmt {
     }
 
     public String toString() {
-        return ("if (" + guard.toString() + ") { " +
-                ifTrue.toString() + " } else { " +
-                ifFalse.toString() + "}");
+        return AstPrinter.asString(this);
     }
 }
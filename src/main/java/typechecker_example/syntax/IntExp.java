@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class IntExp implements Exp {
     public final int value;
+    private final long structuralHash;
 
     public IntExp(final int value) {
         this.value = value;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.INT_EXP,
+                                value);
     }
 
-    public int hashCode() { return value; }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof IntExp &&
                 ((IntExp)other).value == value);
     }
     public String toString() {
-        return Integer.toString(value);
+        return AstPrinter.asString(this);
     }
 }
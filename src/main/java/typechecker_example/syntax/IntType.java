@@ -1,9 +1,16 @@
 package typechecker_example.syntax;
 
 public class IntType implements Type {
-    public int hashCode() { return 0; }
+    private static final long STRUCTURAL_HASH =
+        StructuralHash.hash(StructuralHash.INT_TYPE);
+
+    public long structuralHash() { return STRUCTURAL_HASH; }
+    public int hashCode() { return StructuralHash.toInt(STRUCTURAL_HASH); }
+    public <A, R, E extends Exception> R accept(final TypeVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return other instanceof IntType;
     }
-    public String toString() { return "int"; }
+    public String toString() { return AstPrinter.asString(this); }
 }
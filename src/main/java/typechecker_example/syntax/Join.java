@@ -4,14 +4,13 @@ package typechecker_example.syntax;
 public class Join {
     public static <A> String join(final String delimiter,
                                   final A[] items) {
-        if (items.length == 0) {
-            return "";
+        final StringBuilder retval = new StringBuilder();
+        for (int x = 0; x < items.length; x++) {
+            if (x > 0) {
+                retval.append(delimiter);
+            }
+            retval.append(items[x].toString());
         }
-        String retval = "";
-        for (int x = 0; x < items.length - 1; x++) {
-            retval += items[x].toString() + delimiter;
-        }
-        retval += items[items.length - 1].toString();
-        return retval;
+        return retval.toString();
     }
 }
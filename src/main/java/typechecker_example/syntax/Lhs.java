@@ -1,3 +1,5 @@
 package typechecker_example.syntax;
 
-public interface Lhs {}
+public interface Lhs extends StructurallyHashable {
+    public <A, R, E extends Exception> R accept(LhsVisitor<A, R, E> visitor, A arg) throws E;
+}
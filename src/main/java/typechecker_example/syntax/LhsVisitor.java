@@ -0,0 +1,9 @@
+package typechecker_example.syntax;
+
+// Dispatches on the kind of left-hand side.  A is an extra argument passed through
+// accept, R is the result, and E is the exception the visitor may throw.
+public interface LhsVisitor<A, R, E extends Exception> {
+    public R visit(VariableLhs lhs, A arg) throws E;
+    public R visit(FieldAccessLhs lhs, A arg) throws E;
+    public R visit(DereferenceLhs lhs, A arg) throws E;
+}
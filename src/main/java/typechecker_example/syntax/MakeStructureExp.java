@@ -5,15 +5,28 @@ import java.util.Arrays;
 public class MakeStructureExp implements Exp {
     public final StructureName name;
     public final Exp[] parameters;
+    private final long structuralHash;
 
     public MakeStructureExp(final StructureName name,
                             final Exp[] parameters) {
         this.name = name;
         this.parameters = parameters;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.MAKE_STRUCTURE_EXP,
+                                name.structuralHash(),
+                                StructuralHash.ofArray(parameters));
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return name.hashCode() + Arrays.deepHashCode(parameters);
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -28,7 +41,6 @@ public class MakeStructureExp implements Exp {
     }
     
     public String toString() {
-        return (name.toString() + "(" +
-                Join.join(", ", parameters) + ")");
+        return AstPrinter.asString(this);
     }
 }
@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class MallocExp implements Exp {
     public final Exp amount;
+    private final long structuralHash;
 
     public MallocExp(final Exp amount) {
         this.amount = amount;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.MALLOC_EXP,
+                                amount.structuralHash());
     }
 
-    public int hashCode() { return amount.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof MallocExp &&
                 ((MallocExp)other).amount.equals(amount));
     }
     public String toString() {
-        return "malloc(" + amount.toString() + ")";
+        return AstPrinter.asString(this);
     }
 }
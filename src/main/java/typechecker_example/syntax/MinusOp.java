@@ -1,10 +1,18 @@
 package typechecker_example.syntax;
 
 public class MinusOp implements Op {
-    public int hashCode() { return 1; }
+    private static final long STRUCTURAL_HASH =
+        StructuralHash.hash(StructuralHash.MINUS_OP);
+
+    public long structuralHash() { return STRUCTURAL_HASH; }
+    public int hashCode() { return StructuralHash.toInt(STRUCTURAL_HASH); }
+    public int kind() { return MINUS; }
+    public <A, R, E extends Exception> R accept(final OpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return other instanceof MinusOp;
     }
-    public String toString() { return "-"; }
+    public String toString() { return AstPrinter.asString(this); }
 }
 
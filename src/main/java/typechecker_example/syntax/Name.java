@@ -1,21 +1,34 @@
 package typechecker_example.syntax;
 
-public abstract class Name {
+// Each name is interned into the symbol table for its kind, so names are
+// compared by id rather than by string.
+public abstract class Name implements StructurallyHashable {
     public final String name;
+    // dense within symbols, the table for this kind of name
+    public final int id;
+    private final SymbolTable symbols;
+    // keeps id assigned to name for as long as this is alive
+    private final SymbolTable.Symbol symbol;
+    private final long structuralHash;
 
-    public Name(final String name) {
+    // kind distinguishes the hashes of different kinds of names
+    public Name(final String name, final long kind, final SymbolTable symbols) {
         this.name = name;
+        this.symbol = symbols.intern(name);
+        this.id = symbol.id;
+        this.symbols = symbols;
+        this.structuralHash =
+            StructuralHash.hash(kind, StructuralHash.ofString(name));
     }
 
-    public abstract boolean sameClass(Name other);
-    
-    public int hashCode() { return name.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
     public String toString() { return name; }
     public boolean equals(final Object other) {
         if (other instanceof Name) {
             final Name otherName = (Name)other;
-            return (otherName.name.equals(name) &&
-                    sameClass(otherName));
+            return (otherName.id == id &&
+                    otherName.symbols == symbols);
         } else {
             return false;
         }
@@ -1,3 +1,15 @@
 package typechecker_example.syntax;
 
-public interface Op {}
+public interface Op extends StructurallyHashable {
+    // kinds of operator, for switching on where a visitor would only map
+    // each operator to a constant
+    public static final int PLUS = 0;
+    public static final int MINUS = 1;
+    public static final int MULT = 2;
+    public static final int DIV = 3;
+    public static final int EQUALS = 4;
+    public static final int LESS_THAN = 5;
+
+    public int kind();
+    public <A, R, E extends Exception> R accept(OpVisitor<A, R, E> visitor, A arg) throws E;
+}
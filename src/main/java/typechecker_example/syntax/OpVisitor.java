@@ -0,0 +1,12 @@
+package typechecker_example.syntax;
+
+// Dispatches on the kind of operator.  A is an extra argument passed through
+// accept, R is the result, and E is the exception the visitor may throw.
+public interface OpVisitor<A, R, E extends Exception> {
+    public R visit(PlusOp op, A arg) throws E;
+    public R visit(MinusOp op, A arg) throws E;
+    public R visit(MultOp op, A arg) throws E;
+    public R visit(DivOp op, A arg) throws E;
+    public R visit(EqualsOp op, A arg) throws E;
+    public R visit(LessThanOp op, A arg) throws E;
+}
@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class PointerType implements Type {
     public final Type pointsTo;
+    private final long structuralHash;
     
     public PointerType(final Type pointsTo) {
         this.pointsTo = pointsTo;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.POINTER_TYPE,
+                                pointsTo.structuralHash());
     }
 
-    public int hashCode() { return 1 + pointsTo.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final TypeVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof PointerType &&
                 ((PointerType)other).pointsTo.equals(pointsTo));
     }
     public String toString() {
-        return pointsTo.toString() + "*";
+        return AstPrinter.asString(this);
     }
 }
@@ -2,19 +2,27 @@ package typechecker_example.syntax;
 
 import java.util.Arrays;
 
-public class Program {
+public class Program implements StructurallyHashable {
     public final StructureDeclaration[] structDecs;
     public final FunctionDefinition[] functionDefs;
+    private final long structuralHash;
 
     public Program(final StructureDeclaration[] structDecs,
                    final FunctionDefinition[] functionDefs) {
         this.structDecs = structDecs;
         this.functionDefs = functionDefs;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.PROGRAM,
+                                StructuralHash.ofArray(structDecs),
+                                StructuralHash.ofArray(functionDefs));
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return (Arrays.deepHashCode(structDecs) +
-                Arrays.deepHashCode(functionDefs));
+        return StructuralHash.toInt(structuralHash);
     }
 
     public boolean equals(final Object other) {
@@ -28,7 +36,6 @@ public class Program {
     }
 
     public String toString() {
-        return (Join.join("\n", structDecs) + "\n\n" +
-                Join.join("\n", functionDefs) + "\n");
+        return AstPrinter.asString(this);
     }
 }
@@ -2,12 +2,21 @@ package typechecker_example.syntax;
 
 public class ReturnExpStmt implements Stmt {
     public final Exp exp;
+    private final long structuralHash;
 
     public ReturnExpStmt(final Exp exp) {
         this.exp = exp;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.RETURN_EXP_STMT,
+                                exp.structuralHash());
     }
 
-    public int hashCode() { return exp.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+
+    public <A, R, E extends Exception> R accept(final StmtVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
 
     public boolean equals(final Object other) {
         return (other instanceof ReturnExpStmt &&
@@ -15,6 +24,6 @@ public class ReturnExpStmt implements Stmt {
     }
 
     public String toString() {
-        return "return " + exp.toString();
+        return AstPrinter.asString(this);
     }
 }
@@ -1,30 +1,66 @@
 package typechecker_example.syntax;
 
+import java.util.ArrayDeque;
+
 public class SequenceStmt implements Stmt {
     public final Stmt first;
     public final Stmt second;
+    private final long structuralHash;
 
     public SequenceStmt(final Stmt first,
                         final Stmt second) {
         this.first = first;
         this.second = second;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.SEQUENCE_STMT,
+                                first.structuralHash(),
+                                second.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return first.hashCode() + second.hashCode();
+        return StructuralHash.toInt(structuralHash);
     }
 
+    public <A, R, E extends Exception> R accept(final StmtVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
+
+    // Compares nested sequences, on either side, with an explicit stack of
+    // pairs rather than by recursing.  Hashes are compared first, as
+    // unequal hashes mean unequal statements.
     public boolean equals(final Object other) {
-        if (other instanceof SequenceStmt) {
-            final SequenceStmt otherStmt = (SequenceStmt)other;
-            return (otherStmt.first.equals(first) &&
-                    otherStmt.second.equals(second));
-        } else {
+        if (!(other instanceof SequenceStmt)) {
             return false;
         }
-    }
+        final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+        work.push((Stmt)other);
+        work.push(this);
+        while (!work.isEmpty()) {
+            final Stmt mine = work.pop();
+            final Stmt theirs = work.pop();
+            if (mine == theirs) {
+                continue;
+            } else if (mine.structuralHash() != theirs.structuralHash()) {
+                return false;
+            } else if (mine instanceof SequenceStmt && theirs instanceof SequenceStmt) {
+                final SequenceStmt mySeq = (SequenceStmt)mine;
+                final SequenceStmt theirSeq = (SequenceStmt)theirs;
+                work.push(theirSeq.second);
+                work.push(mySeq.second);
+                work.push(theirSeq.first);
+                work.push(mySeq.first);
+            } else if (!mine.equals(theirs)) {
+                return false;
+            }
+        }
+        return true;
+    } // equals
 
     public String toString() {
-        return first.toString() + "; " + second.toString();
+        return AstPrinter.asString(this);
     }
 }
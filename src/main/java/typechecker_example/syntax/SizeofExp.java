@@ -2,17 +2,25 @@ package typechecker_example.syntax;
 
 public class SizeofExp implements Exp {
     public final Type type;
+    private final long structuralHash;
 
     public SizeofExp(final Type type) {
         this.type = type;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.SIZEOF_EXP,
+                                type.structuralHash());
     }
 
-    public int hashCode() { return type.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof SizeofExp &&
                 ((SizeofExp)other).type.equals(type));
     }
     public String toString() {
-        return "sizeof(" + type.toString() + ")";
+        return AstPrinter.asString(this);
     }
 }
@@ -1,3 +1,5 @@
 package typechecker_example.syntax;
 
-public interface Stmt {}
+public interface Stmt extends StructurallyHashable {
+    public <A, R, E extends Exception> R accept(StmtVisitor<A, R, E> visitor, A arg) throws E;
+}
@@ -0,0 +1,15 @@
+package typechecker_example.syntax;
+
+// Dispatches on the kind of statement.  A is an extra argument passed through
+// accept, R is the result, and E is the exception the visitor may throw.
+public interface StmtVisitor<A, R, E extends Exception> {
+    public R visit(IfStmt s, A arg) throws E;
+    public R visit(WhileStmt s, A arg) throws E;
+    public R visit(BreakStmt s, A arg) throws E;
+    public R visit(ContinueStmt s, A arg) throws E;
+    public R visit(VariableDeclarationInitializationStmt s, A arg) throws E;
+    public R visit(AssignmentStmt s, A arg) throws E;
+    public R visit(ReturnVoidStmt s, A arg) throws E;
+    public R visit(ReturnExpStmt s, A arg) throws E;
+    public R visit(SequenceStmt s, A arg) throws E;
+}
@@ -0,0 +1,102 @@
+package typechecker_example.syntax;
+
+// Helpers for computing structural hashes.  Each node computes its hash once,
+// in its constructor, from its kind and its children's hashes, so hashing is
+// O(1) per node and is order-sensitive.
+public class StructuralHash {
+    // node kinds, which salt the hashes of different kinds of nodes
+    public static final long INT_TYPE = 1;
+    public static final long CHAR_TYPE = 2;
+    public static final long BOOL_TYPE = 3;
+    public static final long VOID_TYPE = 4;
+    public static final long STRUCTURE_TYPE = 5;
+    public static final long POINTER_TYPE = 6;
+    public static final long PLUS_OP = 7;
+    public static final long MINUS_OP = 8;
+    public static final long MULT_OP = 9;
+    public static final long DIV_OP = 10;
+    public static final long EQUALS_OP = 11;
+    public static final long LESS_THAN_OP = 12;
+    public static final long VARIABLE = 13;
+    public static final long FUNCTION_NAME = 14;
+    public static final long STRUCTURE_NAME = 15;
+    public static final long FIELD_NAME = 16;
+    public static final long VARIABLE_LHS = 17;
+    public static final long FIELD_ACCESS_LHS = 18;
+    public static final long DEREFERENCE_LHS = 19;
+    public static final long INT_EXP = 20;
+    public static final long CHAR_EXP = 21;
+    public static final long BOOL_EXP = 22;
+    public static final long VARIABLE_EXP = 23;
+    public static final long MALLOC_EXP = 24;
+    public static final long FREE_EXP = 25;
+    public static final long SIZEOF_EXP = 26;
+    public static final long BINOP_EXP = 27;
+    public static final long MAKE_STRUCTURE_EXP = 28;
+    public static final long FUNCTION_CALL_EXP = 29;
+    public static final long CAST_EXP = 30;
+    public static final long ADDRESS_OF_EXP = 31;
+    public static final long DEREFERENCE_EXP = 32;
+    public static final long FIELD_ACCESS_EXP = 33;
+    public static final long IF_STMT = 34;
+    public static final long WHILE_STMT = 35;
+    public static final long BREAK_STMT = 36;
+    public static final long CONTINUE_STMT = 37;
+    public static final long VARIABLE_DECLARATION_INITIALIZATION_STMT = 38;
+    public static final long ASSIGNMENT_STMT = 39;
+    public static final long RETURN_VOID_STMT = 40;
+    public static final long RETURN_EXP_STMT = 41;
+    public static final long SEQUENCE_STMT = 42;
+    public static final long VARIABLE_DECLARATION = 43;
+    public static final long STRUCTURE_DECLARATION = 44;
+    public static final long FUNCTION_DEFINITION = 45;
+    public static final long PROGRAM = 46;
+
+    private StructuralHash() {}
+
+    public static long mix(final long hash, final long value) {
+        final long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    public static long hash(final long kind) {
+        return mix(0xCBF29CE484222325L, kind);
+    }
+
+    public static long hash(final long kind, final long first) {
+        return mix(hash(kind), first);
+    }
+
+    public static long hash(final long kind, final long first, final long second) {
+        return mix(hash(kind, first), second);
+    }
+
+    public static long hash(final long kind, final long first, final long second, final long third) {
+        return mix(hash(kind, first, second), third);
+    }
+
+    public static long hash(final long kind, final long first, final long second, final long third, final long fourth) {
+        return mix(hash(kind, first, second, third), fourth);
+    }
+
+    public static long ofString(final String string) {
+        long h = mix(0, string.length());
+        for (int index = 0; index < string.length(); index++) {
+            h = mix(h, string.charAt(index));
+        }
+        return h;
+    }
+
+    public static long ofArray(final StructurallyHashable[] items) {
+        long h = mix(0, items.length);
+        for (final StructurallyHashable item : items) {
+            h = mix(h, item.structuralHash());
+        }
+        return h;
+    }
+
+    // folds a structural hash down for use as a hashCode
+    public static int toInt(final long hash) {
+        return (int)(hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,7 @@
+package typechecker_example.syntax;
+
+// AST nodes with a 64-bit structural hash.  Equal nodes have equal hashes,
+// and hashes depend only on a node's structure, so are stable across runs.
+public interface StructurallyHashable {
+    public long structuralHash();
+}
@@ -2,18 +2,90 @@ package typechecker_example.syntax;
 
 import java.util.Arrays;
 
-public class StructureDeclaration {
+public class StructureDeclaration implements StructurallyHashable {
+    private static final int EMPTY = -1;
+
     public final StructureName name;
     public final VariableDeclaration[] fields;
+    private final long structuralHash;
+    // slot in fields of each field, open-addressed by the hash of its name,
+    // with linear probing; a power of two in size, at most half full.  The
+    // first wins if a name is repeated.
+    private final int[] fieldSlots;
+    // the field types interned into the table last asked for
+    private volatile InternedFieldTypes interned;
 
     public StructureDeclaration(final StructureName name,
                                 final VariableDeclaration[] fields) {
         this.name = name;
         this.fields = fields;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.STRUCTURE_DECLARATION,
+                                name.structuralHash(),
+                                StructuralHash.ofArray(fields));
+        int capacity = 2;
+        while (capacity < 2 * fields.length) {
+            capacity *= 2;
+        }
+        this.fieldSlots = new int[capacity];
+        Arrays.fill(fieldSlots, EMPTY);
+        for (int slot = 0; slot < fields.length; slot++) {
+            final String fieldName = fields[slot].variable.name;
+            int index = indexOf(fieldName);
+            while (fieldSlots[index] != EMPTY &&
+                   !fields[fieldSlots[index]].variable.name.equals(fieldName)) {
+                index = (index + 1) & (fieldSlots.length - 1);
+            }
+            if (fieldSlots[index] == EMPTY) {
+                fieldSlots[index] = slot;
+            }
+        }
+    }
+
+    private int indexOf(final String fieldName) {
+        return (fieldName.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(fieldSlots.length));
+    }
+
+    // returns -1 if there is no such field
+    public int fieldSlot(final FieldName field) {
+        int index = indexOf(field.name);
+        while (fieldSlots[index] != EMPTY) {
+            if (fields[fieldSlots[index]].variable.name.equals(field.name)) {
+                return fieldSlots[index];
+            }
+            index = (index + 1) & (fieldSlots.length - 1);
+        }
+        return -1;
+    }
+
+    // returns null if there is no such field
+    public Type fieldType(final FieldName field) {
+        final int slot = fieldSlot(field);
+        return (slot < 0) ? null : fields[slot].type;
+    }
+
+    // The type of the field in the given slot, interned in types.  The
+    // field types are interned once per table, so repeated lookups with
+    // the same table don't go through it.
+    public Type fieldType(final int slot, final TypeTable types) {
+        InternedFieldTypes current = interned;
+        if (current == null || current.types != types) {
+            final Type[] fieldTypes = new Type[fields.length];
+            for (int index = 0; index < fields.length; index++) {
+                fieldTypes[index] = types.intern(fields[index].type);
+            }
+            current = new InternedFieldTypes(types, fieldTypes);
+            interned = current;
+        }
+        return current.fieldTypes[slot];
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return name.hashCode() + Arrays.deepHashCode(fields);
+        return StructuralHash.toInt(structuralHash);
     }
 
     public boolean equals(final Object other) {
@@ -28,8 +100,17 @@ public class StructureDeclaration {
     }
 
     public String toString() {
-        return (name.toString() + " { " +
-                Join.join("; ", fields) + " }");
+        return AstPrinter.asString(this);
     }
-}
 
+    // published whole, so readers on other threads see both or neither
+    private static class InternedFieldTypes {
+        public final TypeTable types;
+        public final Type[] fieldTypes;
+
+        public InternedFieldTypes(final TypeTable types, final Type[] fieldTypes) {
+            this.types = types;
+            this.fieldTypes = fieldTypes;
+        }
+    } // InternedFieldTypes
+}
@@ -2,15 +2,23 @@ package typechecker_example.syntax;
 
 public class StructureType implements Type {
     public final StructureName name;
+    private final long structuralHash;
 
     public StructureType(final StructureName name) {
         this.name = name;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.STRUCTURE_TYPE,
+                                name.structuralHash());
     }
 
-    public int hashCode() { return name.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final TypeVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof StructureType &&
                 ((StructureType)other).name.equals(name));
     }
-    public String toString() { return name.toString(); }
+    public String toString() { return AstPrinter.asString(this); }
 }
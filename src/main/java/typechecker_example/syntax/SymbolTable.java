@@ -0,0 +1,130 @@
+package typechecker_example.syntax;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Interns the strings of one kind of name to dense ids, counting up from 0,
+// so names of that kind can be compared by id and used to index arrays.
+// There is one table per kind, shared by the whole process, as names are
+// made all over without any context to hang a table off of.  Tables are
+// safe to share between threads.
+//
+// Interning is weak: each name holds the Symbol for its string, and once no
+// name does, the string is dropped and its id handed out again.  So a
+// long-running process, such as a server taking programs from clients,
+// only keeps the names still in use, and ids stay dense in those rather
+// than in every name ever seen.  Two live names with the same string always
+// share an id; a name made after all others with its string are gone may
+// get a different one.
+public class SymbolTable {
+    public static final SymbolTable VARIABLES = new SymbolTable();
+    public static final SymbolTable FUNCTION_NAMES = new SymbolTable();
+    public static final SymbolTable STRUCTURE_NAMES = new SymbolTable();
+    public static final SymbolTable FIELD_NAMES = new SymbolTable();
+
+    // What a name holds to keep its id assigned.
+    public static class Symbol {
+        public final int id;
+
+        private Symbol(final int id) {
+            this.id = id;
+        }
+    } // Symbol
+
+    // begin instance variables
+    private final ConcurrentMap<String, Entry> entries;
+    // entries whose symbols are no longer held by any name
+    private final ReferenceQueue<Symbol> unused;
+    // only written while holding the lock on this; null for free ids
+    private volatile String[] strings;
+    private int size;
+    private int[] freeIds;
+    private int freeCount;
+
+    private SymbolTable() {
+        entries = new ConcurrentHashMap<String, Entry>();
+        unused = new ReferenceQueue<Symbol>();
+        strings = new String[64];
+        freeIds = new int[16];
+    }
+
+    public Symbol intern(final String string) {
+        final Symbol existing = live(entries.get(string));
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            releaseUnused();
+            final Symbol raced = live(entries.get(string));
+            if (raced != null) {
+                return raced;
+            }
+            final int id;
+            if (freeCount > 0) {
+                id = freeIds[--freeCount];
+            } else {
+                if (size == strings.length) {
+                    strings = Arrays.copyOf(strings, size * 2);
+                }
+                id = size++;
+            }
+            strings[id] = string;
+            final Symbol retval = new Symbol(id);
+            // replaces any entry whose symbol is gone but not yet released
+            entries.put(string, new Entry(string, retval, unused));
+            return retval;
+        }
+    } // intern
+
+    // returns null if there's no entry, or its symbol is gone
+    private static Symbol live(final Entry entry) {
+        return (entry == null) ? null : entry.get();
+    }
+
+    // frees the ids of the symbols no name holds any more
+    private void releaseUnused() {
+        Entry entry;
+        while ((entry = (Entry)unused.poll()) != null) {
+            // a newer entry for the same string stays
+            entries.remove(entry.string, entry);
+            strings[entry.id] = null;
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            }
+            freeIds[freeCount++] = entry.id;
+        }
+    } // releaseUnused
+
+    // id must be held by a live name from this table
+    public String string(final int id) {
+        return strings[id];
+    }
+
+    // one more than the largest id handed out so far
+    public synchronized int size() {
+        return size;
+    }
+
+    // the number of ids currently held by names, after releasing any which
+    // no longer are
+    public synchronized int liveCount() {
+        releaseUnused();
+        return size - freeCount;
+    }
+
+    private static class Entry extends WeakReference<Symbol> {
+        public final String string;
+        public final int id;
+
+        public Entry(final String string,
+                     final Symbol symbol,
+                     final ReferenceQueue<Symbol> queue) {
+            super(symbol, queue);
+            this.string = string;
+            this.id = symbol.id;
+        }
+    } // Entry
+} // SymbolTable
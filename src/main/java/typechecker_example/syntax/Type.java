@@ -1,3 +1,5 @@
 package typechecker_example.syntax;
 
-public interface Type {}
+public interface Type extends StructurallyHashable {
+    public <A, R, E extends Exception> R accept(TypeVisitor<A, R, E> visitor, A arg) throws E;
+}
@@ -0,0 +1,101 @@
+package typechecker_example.syntax;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Hash-conses types, so that any two equal types which have gone through
+// the same table are the same object.  Types from a table can then be
+// compared with ==.  Tables are safe to share between threads.
+public class TypeTable {
+    public static final IntType INT_TYPE = new IntType();
+    public static final CharType CHAR_TYPE = new CharType();
+    public static final BoolType BOOL_TYPE = new BoolType();
+    public static final VoidType VOID_TYPE = new VoidType();
+
+    // begin instance variables
+    // keyed by the canonical type being pointed to
+    private final ConcurrentMap<Type, PointerType> pointers;
+    private final ConcurrentMap<StructureName, StructureType> structures;
+    private final Interner interner;
+    public final PointerType voidPointerType;
+
+    public TypeTable() {
+        pointers = new ConcurrentHashMap<Type, PointerType>();
+        structures = new ConcurrentHashMap<StructureName, StructureType>();
+        interner = new Interner();
+        voidPointerType = pointerTo(VOID_TYPE);
+    }
+
+    // pointsTo must already be canonical
+    public PointerType pointerTo(final Type pointsTo) {
+        final PointerType existing = pointers.get(pointsTo);
+        if (existing != null) {
+            return existing;
+        } else {
+            return putIfAbsent(pointers, pointsTo, new PointerType(pointsTo));
+        }
+    }
+
+    public StructureType structureType(final StructureName name) {
+        final StructureType existing = structures.get(name);
+        if (existing != null) {
+            return existing;
+        } else {
+            return putIfAbsent(structures, name, new StructureType(name));
+        }
+    }
+
+    // returns whichever value won the race to be added
+    private static <K, V> V putIfAbsent(final ConcurrentMap<K, V> map,
+                                        final K key,
+                                        final V value) {
+        final V existing = map.putIfAbsent(key, value);
+        return (existing == null) ? value : existing;
+    }
+
+    // Returns the canonical version of the given type.  Where the given
+    // type is the first of its kind to be seen, it becomes the canonical
+    // version itself, so interning never allocates for new types.
+    public Type intern(final Type type) {
+        return type.accept(interner, null);
+    }
+
+    private class Interner implements TypeVisitor<Void, Type, RuntimeException> {
+        public Type visit(final IntType t, final Void arg) {
+            return INT_TYPE;
+        }
+
+        public Type visit(final CharType t, final Void arg) {
+            return CHAR_TYPE;
+        }
+
+        public Type visit(final BoolType t, final Void arg) {
+            return BOOL_TYPE;
+        }
+
+        public Type visit(final VoidType t, final Void arg) {
+            return VOID_TYPE;
+        }
+
+        public Type visit(final StructureType t, final Void arg) {
+            final StructureType existing = structures.get(t.name);
+            if (existing != null) {
+                return existing;
+            } else {
+                return putIfAbsent(structures, t.name, t);
+            }
+        }
+
+        public Type visit(final PointerType t, final Void arg) {
+            final Type pointsTo = t.pointsTo.accept(this, null);
+            final PointerType existing = pointers.get(pointsTo);
+            if (existing != null) {
+                return existing;
+            } else if (pointsTo == t.pointsTo) {
+                return putIfAbsent(pointers, pointsTo, t);
+            } else {
+                return pointerTo(pointsTo);
+            }
+        }
+    } // Interner
+}
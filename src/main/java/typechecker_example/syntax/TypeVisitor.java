@@ -0,0 +1,12 @@
+package typechecker_example.syntax;
+
+// Dispatches on the kind of type.  A is an extra argument passed through
+// accept, R is the result, and E is the exception the visitor may throw.
+public interface TypeVisitor<A, R, E extends Exception> {
+    public R visit(IntType t, A arg) throws E;
+    public R visit(CharType t, A arg) throws E;
+    public R visit(BoolType t, A arg) throws E;
+    public R visit(VoidType t, A arg) throws E;
+    public R visit(StructureType t, A arg) throws E;
+    public R visit(PointerType t, A arg) throws E;
+}
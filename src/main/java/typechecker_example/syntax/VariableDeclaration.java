@@ -1,17 +1,26 @@
 package typechecker_example.syntax;
 
-public class VariableDeclaration {
+public class VariableDeclaration implements StructurallyHashable {
     public final Type type;
     public final Variable variable;
+    private final long structuralHash;
 
     public VariableDeclaration(final Type type,
                                final Variable variable) {
         this.type = type;
         this.variable = variable;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.VARIABLE_DECLARATION,
+                                type.structuralHash(),
+                                variable.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return type.hashCode() + variable.hashCode();
+        return StructuralHash.toInt(structuralHash);
     }
 
     public boolean equals(final Object other) {
@@ -25,6 +34,6 @@ public class VariableDeclaration {
     }
 
     public String toString() {
-        return type.toString() + " " + variable.toString();
+        return AstPrinter.asString(this);
     }
 }
@@ -3,15 +3,28 @@ package typechecker_example.syntax;
 public class VariableDeclarationInitializationStmt implements Stmt {
     public final VariableDeclaration varDec;
     public final Exp exp;
+    private final long structuralHash;
     
     public VariableDeclarationInitializationStmt(final VariableDeclaration varDec,
                                                  final Exp exp) {
         this.varDec = varDec;
         this.exp = exp;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.VARIABLE_DECLARATION_INITIALIZATION_STMT,
+                                varDec.structuralHash(),
+                                exp.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return varDec.hashCode() + exp.hashCode();
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final StmtVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -26,7 +39,7 @@ public class VariableDeclarationInitializationStmt implements Stmt {
     }
 
     public String toString() {
-        return varDec.toString() + " = " + exp.toString();
+        return AstPrinter.asString(this);
     }
 }
 
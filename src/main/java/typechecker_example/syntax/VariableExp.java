@@ -2,16 +2,24 @@ package typechecker_example.syntax;
 
 public class VariableExp implements Exp {
     public final Variable variable;
+    private final long structuralHash;
 
     public VariableExp(final Variable variable) {
         this.variable = variable;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.VARIABLE_EXP,
+                                variable.structuralHash());
     }
 
-    public int hashCode() { return variable.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final ExpVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof VariableExp &&
                 ((VariableExp)other).variable.equals(variable));
     }
-    public String toString() { return variable.toString(); }
+    public String toString() { return AstPrinter.asString(this); }
 }
 
@@ -2,15 +2,23 @@ package typechecker_example.syntax;
 
 public class VariableLhs implements Lhs {
     public final Variable variable;
+    private final long structuralHash;
 
     public VariableLhs(final Variable variable) {
         this.variable = variable;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.VARIABLE_LHS,
+                                variable.structuralHash());
     }
 
-    public int hashCode() { return 1 + variable.hashCode(); }
+    public long structuralHash() { return structuralHash; }
+    public int hashCode() { return StructuralHash.toInt(structuralHash); }
+    public <A, R, E extends Exception> R accept(final LhsVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return (other instanceof VariableLhs &&
                 ((VariableLhs)other).variable.equals(variable));
     }
-    public String toString() { return variable.toString(); }
+    public String toString() { return AstPrinter.asString(this); }
 }
@@ -1,9 +1,16 @@
 package typechecker_example.syntax;
 
 public class VoidType implements Type {
-    public int hashCode() { return 2; }
+    private static final long STRUCTURAL_HASH =
+        StructuralHash.hash(StructuralHash.VOID_TYPE);
+
+    public long structuralHash() { return STRUCTURAL_HASH; }
+    public int hashCode() { return StructuralHash.toInt(STRUCTURAL_HASH); }
+    public <A, R, E extends Exception> R accept(final TypeVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
+    }
     public boolean equals(final Object other) {
         return other instanceof VoidType;
     }
-    public String toString() { return "void"; }
+    public String toString() { return AstPrinter.asString(this); }
 }
@@ -3,15 +3,28 @@ package typechecker_example.syntax;
 public class WhileStmt implements Stmt {
     public final Exp guard;
     public final Stmt body;
+    private final long structuralHash;
 
     public WhileStmt(final Exp guard,
                      final Stmt body) {
         this.guard = guard;
         this.body = body;
+        this.structuralHash =
+            StructuralHash.hash(StructuralHash.WHILE_STMT,
+                                guard.structuralHash(),
+                                body.structuralHash());
+    }
+
+    public long structuralHash() {
+        return structuralHash;
     }
 
     public int hashCode() {
-        return guard.hashCode() + body.hashCode();
+        return StructuralHash.toInt(structuralHash);
+    }
+
+    public <A, R, E extends Exception> R accept(final StmtVisitor<A, R, E> visitor, final A arg) throws E {
+        return visitor.visit(this, arg);
     }
 
     public boolean equals(final Object other) {
@@ -25,7 +38,6 @@ public class WhileStmt implements Stmt {
     }
 
     public String toString() {
-        return ("while (" + guard.toString() +
-                ") { " + body.toString() + " }");
+        return AstPrinter.asString(this);
     }
 }
@@ -0,0 +1,337 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import typechecker_example.syntax.*;
+
+// Rewrites constant expressions in programs which have already been
+// typechecked to their values: arithmetic and comparisons on literals, and
+// sizeof of types with a size under TypeLayout.  Arithmetic wraps around
+// on overflow, as ints are 32 bits.  Subtrees which don't change are kept
+// as they are, rather than copied.
+//
+// Division by a constant zero, and malloc of a constant size which isn't
+// positive, are errors.  As with Typechecker, errors are either thrown on
+// the first one, or collected into a Diagnostics; the divisions and
+// mallocs are left as they are in the latter case.  Not safe to share
+// between threads.
+public class ConstantFolder {
+    // begin instance variables
+    private final TypeLayout layout;
+    private final ExpFolder expFolder;
+    private final StmtFolder stmtFolder;
+    // where errors go, or null to throw them, and the function being folded
+    private Diagnostics diagnostics;
+    private FunctionName function;
+
+    public ConstantFolder(final Map<StructureName, StructureDeclaration> structures) {
+        this.layout = new TypeLayout(structures);
+        this.expFolder = new ExpFolder();
+        this.stmtFolder = new StmtFolder();
+    }
+
+    // prog must typecheck
+    public static Program foldConstants(final Program prog) throws TypeErrorException {
+        return new ConstantFolder(Typechecker.makeStructureMap(prog)).fold(prog);
+    }
+
+    public Program fold(final Program prog) throws TypeErrorException {
+        return foldProgram(prog, null);
+    }
+
+    // errors are added to diagnostics, and never thrown
+    public Program fold(final Program prog, final Diagnostics diagnostics) {
+        try {
+            return foldProgram(prog, diagnostics);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Threw while collecting errors", e);
+        }
+    }
+
+    // diagnostics: where errors go, or null to throw them
+    private Program foldProgram(final Program prog, final Diagnostics diagnostics) throws TypeErrorException {
+        this.diagnostics = diagnostics;
+        try {
+            final FunctionDefinition[] functionDefs = new FunctionDefinition[prog.functionDefs.length];
+            boolean changed = false;
+            for (int index = 0; index < functionDefs.length; index++) {
+                functionDefs[index] = fold(prog.functionDefs[index]);
+                changed |= functionDefs[index] != prog.functionDefs[index];
+            }
+            return (changed) ? new Program(prog.structDecs, functionDefs) : prog;
+        } finally {
+            this.diagnostics = null;
+        }
+    } // foldProgram
+
+    public FunctionDefinition fold(final FunctionDefinition def) throws TypeErrorException {
+        function = def.name;
+        try {
+            final Stmt body = fold(def.body);
+            return (body == def.body) ?
+                def :
+                new FunctionDefinition(def.returnType, def.name, def.parameters, body);
+        } finally {
+            function = null;
+        }
+    }
+
+    public Stmt fold(final Stmt s) throws TypeErrorException {
+        return s.accept(stmtFolder, null);
+    }
+
+    public Exp fold(final Exp e) throws TypeErrorException {
+        return e.accept(expFolder, null);
+    }
+
+    private void error(final Object node, final String message) throws TypeErrorException {
+        if (diagnostics == null) {
+            throw new TypeErrorException(message);
+        } else {
+            diagnostics.add(function, node, message);
+        }
+    }
+
+    // returns the original array if no element changed
+    private Exp[] fold(final Exp[] exps) throws TypeErrorException {
+        Exp[] retval = exps;
+        for (int index = 0; index < exps.length; index++) {
+            final Exp folded = fold(exps[index]);
+            if (folded != exps[index]) {
+                if (retval == exps) {
+                    retval = exps.clone();
+                }
+                retval[index] = folded;
+            }
+        }
+        return retval;
+    }
+
+    // returns null if the operands aren't both literals, or if folding
+    // would divide by zero
+    private Exp evaluate(final BinopExp e, final Exp left, final Exp right) throws TypeErrorException {
+        final int op = e.op.kind();
+        if (left instanceof IntExp && right instanceof IntExp) {
+            final int leftValue = ((IntExp)left).value;
+            final int rightValue = ((IntExp)right).value;
+            switch (op) {
+            case Op.PLUS:
+                return new IntExp(leftValue + rightValue);
+            case Op.MINUS:
+                return new IntExp(leftValue - rightValue);
+            case Op.MULT:
+                return new IntExp(leftValue * rightValue);
+            case Op.DIV:
+                if (rightValue == 0) {
+                    error(e, "Division by zero");
+                    return null;
+                }
+                return new IntExp(leftValue / rightValue);
+            case Op.EQUALS:
+                return new BoolExp(leftValue == rightValue);
+            default:
+                return new BoolExp(leftValue < rightValue);
+            }
+        } else if (op == Op.DIV && right instanceof IntExp && ((IntExp)right).value == 0) {
+            error(e, "Division by zero");
+            return null;
+        } else if (op == Op.EQUALS && left instanceof CharExp && right instanceof CharExp) {
+            return new BoolExp(((CharExp)left).value == ((CharExp)right).value);
+        } else if (op == Op.EQUALS && left instanceof BoolExp && right instanceof BoolExp) {
+            return new BoolExp(((BoolExp)left).value == ((BoolExp)right).value);
+        } else {
+            return null;
+        }
+    } // evaluate
+
+    // a binop on the work stack in ExpFolder, whose operands are folded
+    private static class PendingBinop {
+        public final BinopExp binop;
+
+        public PendingBinop(final BinopExp binop) {
+            this.binop = binop;
+        }
+    } // PendingBinop
+
+    // a sequence on the work stack in StmtFolder, whose statements are folded
+    private static class PendingSequence {
+        public final SequenceStmt seq;
+
+        public PendingSequence(final SequenceStmt seq) {
+            this.seq = seq;
+        }
+    } // PendingSequence
+
+    private class ExpFolder implements ExpVisitor<Void, Exp, TypeErrorException> {
+        public Exp visit(final IntExp e, final Void arg) {
+            return e;
+        }
+
+        public Exp visit(final CharExp e, final Void arg) {
+            return e;
+        }
+
+        public Exp visit(final BoolExp e, final Void arg) {
+            return e;
+        }
+
+        public Exp visit(final VariableExp e, final Void arg) {
+            return e;
+        }
+
+        public Exp visit(final MallocExp e, final Void arg) throws TypeErrorException {
+            final Exp amount = fold(e.amount);
+            if (amount instanceof IntExp && ((IntExp)amount).value <= 0) {
+                error(e, "Malloc of non-positive size: " + ((IntExp)amount).value);
+            }
+            return (amount == e.amount) ? e : new MallocExp(amount);
+        }
+
+        public Exp visit(final FreeExp e, final Void arg) throws TypeErrorException {
+            final Exp value = fold(e.value);
+            return (value == e.value) ? e : new FreeExp(value);
+        }
+
+        public Exp visit(final SizeofExp e, final Void arg) {
+            final int size = layout.sizeof(e.type);
+            return (size == TypeLayout.UNSIZED) ? e : new IntExp(size);
+        }
+
+        // Operands which are themselves binops are expanded onto an explicit
+        // stack rather than recursed into, so long chains can't overflow
+        // the Java stack.  The stack holds operands to fold, and binops
+        // whose folded operands are on top of the folded stack.
+        public Exp visit(final BinopExp e, final Void arg) throws TypeErrorException {
+            final ArrayDeque<Object> work = new ArrayDeque<Object>();
+            final ArrayDeque<Exp> folded = new ArrayDeque<Exp>();
+            work.push(e);
+            while (!work.isEmpty()) {
+                final Object item = work.pop();
+                if (item instanceof PendingBinop) {
+                    final BinopExp binop = ((PendingBinop)item).binop;
+                    final Exp right = folded.pop();
+                    final Exp left = folded.pop();
+                    final Exp value = evaluate(binop, left, right);
+                    if (value != null) {
+                        folded.push(value);
+                    } else if (left == binop.left && right == binop.right) {
+                        folded.push(binop);
+                    } else {
+                        folded.push(new BinopExp(left, binop.op, right));
+                    }
+                } else if (item instanceof BinopExp) {
+                    final BinopExp binop = (BinopExp)item;
+                    work.push(new PendingBinop(binop));
+                    work.push(binop.right);
+                    work.push(binop.left);
+                } else {
+                    folded.push(fold((Exp)item));
+                }
+            }
+            return folded.pop();
+        } // visit(BinopExp)
+
+        public Exp visit(final MakeStructureExp e, final Void arg) throws TypeErrorException {
+            final Exp[] parameters = fold(e.parameters);
+            return (parameters == e.parameters) ? e : new MakeStructureExp(e.name, parameters);
+        }
+
+        public Exp visit(final FunctionCallExp e, final Void arg) throws TypeErrorException {
+            final Exp[] parameters = fold(e.parameters);
+            return (parameters == e.parameters) ? e : new FunctionCallExp(e.name, parameters);
+        }
+
+        public Exp visit(final CastExp e, final Void arg) throws TypeErrorException {
+            final Exp exp = fold(e.exp);
+            return (exp == e.exp) ? e : new CastExp(e.type, exp);
+        }
+
+        public Exp visit(final AddressOfExp e, final Void arg) {
+            return e;
+        }
+
+        public Exp visit(final DereferenceExp e, final Void arg) throws TypeErrorException {
+            final Exp exp = fold(e.exp);
+            return (exp == e.exp) ? e : new DereferenceExp(exp);
+        }
+
+        public Exp visit(final FieldAccessExp e, final Void arg) throws TypeErrorException {
+            final Exp exp = fold(e.exp);
+            return (exp == e.exp) ? e : new FieldAccessExp(exp, e.field);
+        }
+    } // ExpFolder
+
+    private class StmtFolder implements StmtVisitor<Void, Stmt, TypeErrorException> {
+        public Stmt visit(final IfStmt s, final Void arg) throws TypeErrorException {
+            final Exp guard = fold(s.guard);
+            final Stmt ifTrue = fold(s.ifTrue);
+            final Stmt ifFalse = fold(s.ifFalse);
+            return (guard == s.guard && ifTrue == s.ifTrue && ifFalse == s.ifFalse) ?
+                s :
+                new IfStmt(guard, ifTrue, ifFalse);
+        }
+
+        public Stmt visit(final WhileStmt s, final Void arg) throws TypeErrorException {
+            final Exp guard = fold(s.guard);
+            final Stmt body = fold(s.body);
+            return (guard == s.guard && body == s.body) ? s : new WhileStmt(guard, body);
+        }
+
+        public Stmt visit(final BreakStmt s, final Void arg) {
+            return s;
+        }
+
+        public Stmt visit(final ContinueStmt s, final Void arg) {
+            return s;
+        }
+
+        public Stmt visit(final VariableDeclarationInitializationStmt s, final Void arg) throws TypeErrorException {
+            final Exp exp = fold(s.exp);
+            return (exp == s.exp) ? s : new VariableDeclarationInitializationStmt(s.varDec, exp);
+        }
+
+        public Stmt visit(final AssignmentStmt s, final Void arg) throws TypeErrorException {
+            final Exp exp = fold(s.exp);
+            return (exp == s.exp) ? s : new AssignmentStmt(s.lhs, exp);
+        }
+
+        public Stmt visit(final ReturnVoidStmt s, final Void arg) {
+            return s;
+        }
+
+        public Stmt visit(final ReturnExpStmt s, final Void arg) throws TypeErrorException {
+            final Exp exp = fold(s.exp);
+            return (exp == s.exp) ? s : new ReturnExpStmt(exp);
+        }
+
+        // Nested sequences, on either side, are folded in post order from an
+        // explicit stack, as binops are.  The stack holds statements to
+        // fold, and sequences whose folded statements are on top of the
+        // folded stack.  A sequence is kept if neither of its statements
+        // changed.
+        public Stmt visit(final SequenceStmt s, final Void arg) throws TypeErrorException {
+            final ArrayDeque<Object> work = new ArrayDeque<Object>();
+            final ArrayDeque<Stmt> folded = new ArrayDeque<Stmt>();
+            work.push(s);
+            while (!work.isEmpty()) {
+                final Object item = work.pop();
+                if (item instanceof PendingSequence) {
+                    final SequenceStmt seq = ((PendingSequence)item).seq;
+                    final Stmt second = folded.pop();
+                    final Stmt first = folded.pop();
+                    folded.push((first == seq.first && second == seq.second) ?
+                                seq :
+                                new SequenceStmt(first, second));
+                } else if (item instanceof SequenceStmt) {
+                    final SequenceStmt seq = (SequenceStmt)item;
+                    work.push(new PendingSequence(seq));
+                    work.push(seq.second);
+                    work.push(seq.first);
+                } else {
+                    folded.push(fold((Stmt)item));
+                }
+            }
+            return folded.pop();
+        } // visit(SequenceStmt)
+    } // StmtFolder
+} // ConstantFolder
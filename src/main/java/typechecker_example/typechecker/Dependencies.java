@@ -0,0 +1,243 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import typechecker_example.syntax.*;
+
+// The functions and structures whose definitions can affect whether a given
+// function typechecks.  Structures are closed over: any structure reachable
+// through the fields of a used structure, or through the signature of a
+// called function, is also included, as field accesses can reach it without
+// naming it.
+public class Dependencies {
+    // in the order they're first called in the body
+    public final Set<FunctionName> functions;
+    public final Set<StructureName> structures;
+    private final ExpCollector expCollector;
+    private final StmtCollector stmtCollector;
+
+    private Dependencies() {
+        functions = new LinkedHashSet<FunctionName>();
+        structures = new HashSet<StructureName>();
+        expCollector = new ExpCollector();
+        stmtCollector = new StmtCollector();
+    }
+
+    public static Dependencies of(final FunctionDefinition def,
+                                  final Map<FunctionName, FunctionDefinition> functionMap,
+                                  final Map<StructureName, StructureDeclaration> structureMap) {
+        final Dependencies retval = new Dependencies();
+        retval.addType(def.returnType);
+        for (final VariableDeclaration param : def.parameters) {
+            retval.addType(param.type);
+        }
+        retval.addStmt(def.body);
+
+        for (final FunctionName name : retval.functions) {
+            final FunctionDefinition callee = functionMap.get(name);
+            if (callee != null) {
+                retval.addType(callee.returnType);
+                for (final VariableDeclaration param : callee.parameters) {
+                    retval.addType(param.type);
+                }
+            }
+        }
+
+        final Deque<StructureName> worklist =
+            new ArrayDeque<StructureName>(retval.structures);
+        while (!worklist.isEmpty()) {
+            final StructureDeclaration dec = structureMap.get(worklist.pop());
+            if (dec != null) {
+                for (final VariableDeclaration field : dec.fields) {
+                    final StructureName reached = structureIn(field.type);
+                    if (reached != null && retval.structures.add(reached)) {
+                        worklist.push(reached);
+                    }
+                }
+            }
+        }
+        return retval;
+    } // of
+
+    // the functions called in the body of def, in the order they're first
+    // called, without anything else of what it depends on
+    public static Set<FunctionName> callees(final FunctionDefinition def) {
+        final Dependencies retval = new Dependencies();
+        retval.addStmt(def.body);
+        return retval.functions;
+    }
+
+    // returns the structure named by type, looking through pointers
+    private static StructureName structureIn(final Type type) {
+        Type current = type;
+        while (current instanceof PointerType) {
+            current = ((PointerType)current).pointsTo;
+        }
+        return (current instanceof StructureType) ? ((StructureType)current).name : null;
+    }
+
+    private void addType(final Type type) {
+        final StructureName name = structureIn(type);
+        if (name != null) {
+            structures.add(name);
+        }
+    }
+
+    private void addExps(final Exp[] exps) {
+        for (final Exp exp : exps) {
+            addExp(exp);
+        }
+    }
+
+    private void addExp(final Exp e) {
+        e.accept(expCollector, null);
+    }
+
+    private void addStmt(final Stmt s) {
+        s.accept(stmtCollector, null);
+    }
+
+    private class ExpCollector implements ExpVisitor<Void, Void, RuntimeException> {
+        public Void visit(final IntExp e, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final CharExp e, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final BoolExp e, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final VariableExp e, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final MallocExp e, final Void arg) {
+            addExp(e.amount);
+            return null;
+        }
+
+        public Void visit(final FreeExp e, final Void arg) {
+            addExp(e.value);
+            return null;
+        }
+
+        public Void visit(final SizeofExp e, final Void arg) {
+            addType(e.type);
+            return null;
+        }
+
+        // iterative, as chains of operators can be arbitrarily deep
+        public Void visit(final BinopExp e, final Void arg) {
+            final ArrayDeque<Exp> work = new ArrayDeque<Exp>();
+            work.push(e);
+            while (!work.isEmpty()) {
+                final Exp exp = work.pop();
+                if (exp instanceof BinopExp) {
+                    work.push(((BinopExp)exp).right);
+                    work.push(((BinopExp)exp).left);
+                } else {
+                    addExp(exp);
+                }
+            }
+            return null;
+        }
+
+        public Void visit(final MakeStructureExp e, final Void arg) {
+            structures.add(e.name);
+            addExps(e.parameters);
+            return null;
+        }
+
+        public Void visit(final FunctionCallExp e, final Void arg) {
+            functions.add(e.name);
+            addExps(e.parameters);
+            return null;
+        }
+
+        public Void visit(final CastExp e, final Void arg) {
+            addType(e.type);
+            addExp(e.exp);
+            return null;
+        }
+
+        public Void visit(final AddressOfExp e, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final DereferenceExp e, final Void arg) {
+            addExp(e.exp);
+            return null;
+        }
+
+        public Void visit(final FieldAccessExp e, final Void arg) {
+            addExp(e.exp);
+            return null;
+        }
+    } // ExpCollector
+
+    private class StmtCollector implements StmtVisitor<Void, Void, RuntimeException> {
+        public Void visit(final IfStmt s, final Void arg) {
+            addExp(s.guard);
+            addStmt(s.ifTrue);
+            addStmt(s.ifFalse);
+            return null;
+        }
+
+        public Void visit(final WhileStmt s, final Void arg) {
+            addExp(s.guard);
+            addStmt(s.body);
+            return null;
+        }
+
+        public Void visit(final BreakStmt s, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final ContinueStmt s, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final VariableDeclarationInitializationStmt s, final Void arg) {
+            addType(s.varDec.type);
+            addExp(s.exp);
+            return null;
+        }
+
+        public Void visit(final AssignmentStmt s, final Void arg) {
+            addExp(s.exp);
+            return null;
+        }
+
+        public Void visit(final ReturnVoidStmt s, final Void arg) {
+            return null;
+        }
+
+        public Void visit(final ReturnExpStmt s, final Void arg) {
+            addExp(s.exp);
+            return null;
+        }
+
+        // iterative, as sequences can be arbitrarily deep
+        public Void visit(final SequenceStmt s, final Void arg) {
+            final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+            work.push(s);
+            while (!work.isEmpty()) {
+                final Stmt stmt = work.pop();
+                if (stmt instanceof SequenceStmt) {
+                    work.push(((SequenceStmt)stmt).second);
+                    work.push(((SequenceStmt)stmt).first);
+                } else {
+                    addStmt(stmt);
+                }
+            }
+            return null;
+        }
+    } // StmtCollector
+} // Dependencies
@@ -0,0 +1,25 @@
+package typechecker_example.typechecker;
+
+import typechecker_example.syntax.FunctionName;
+
+// A type error found while collecting errors rather than failing fast.
+public class Diagnostic {
+    // null if the error is outside of any function
+    public final FunctionName function;
+    // the offending AST node
+    public final Object node;
+    public final String message;
+
+    public Diagnostic(final FunctionName function,
+                      final Object node,
+                      final String message) {
+        this.function = function;
+        this.node = node;
+        this.message = message;
+    }
+
+    public String toString() {
+        return ((function == null) ? "" : "in " + function.toString() + ": ") +
+            message + " at: " + node.toString();
+    }
+}
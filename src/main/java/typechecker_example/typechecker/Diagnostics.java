@@ -0,0 +1,59 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import typechecker_example.syntax.FunctionName;
+
+// Collects type errors, up to a maximum number.  Errors past the maximum
+// are dropped.  Checking a whole program skips the functions left once the
+// maximum is reached, but the function being checked is always finished,
+// with its later errors dropped.
+public class Diagnostics {
+    public final int maxErrors;
+    private final List<Diagnostic> diagnostics;
+
+    public Diagnostics(final int maxErrors) {
+        this.maxErrors = maxErrors;
+        this.diagnostics = new ArrayList<Diagnostic>();
+    }
+
+    public void add(final FunctionName function, final Object node, final String message) {
+        if (!isFull()) {
+            diagnostics.add(new Diagnostic(function, node, message));
+        }
+    }
+
+    public void addAll(final Diagnostics other) {
+        for (final Diagnostic diagnostic : other.diagnostics) {
+            if (isFull()) {
+                return;
+            }
+            diagnostics.add(diagnostic);
+        }
+    }
+
+    public boolean isFull() {
+        return diagnostics.size() >= maxErrors;
+    }
+
+    public boolean isEmpty() {
+        return diagnostics.isEmpty();
+    }
+
+    public int size() {
+        return diagnostics.size();
+    }
+
+    public List<Diagnostic> list() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Diagnostic diagnostic : diagnostics) {
+            builder.append(diagnostic.toString()).append("\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package typechecker_example.typechecker;
+
+import typechecker_example.syntax.Type;
+import typechecker_example.syntax.TypeVisitor;
+
+// The type of an expression which failed to typecheck when collecting
+// errors.  It is compatible with every type, so one error doesn't cascade
+// into many.  It never appears in an AST, so can't be visited.
+class ErrorType implements Type {
+    public static final ErrorType ERROR_TYPE = new ErrorType();
+
+    private ErrorType() {}
+
+    public long structuralHash() { return 0; }
+    public <A, R, E extends Exception> R accept(final TypeVisitor<A, R, E> visitor, final A arg) {
+        throw new IllegalStateException("The error type has no syntax");
+    }
+    public String toString() { return "<error>"; }
+}
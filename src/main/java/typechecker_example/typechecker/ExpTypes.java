@@ -0,0 +1,33 @@
+package typechecker_example.typechecker;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import typechecker_example.syntax.Exp;
+import typechecker_example.syntax.Type;
+
+// The canonical type of each expression checked, recorded as it is checked
+// so later passes needn't call typeofExp again.  Keyed on the identity of
+// the expression rather than on its structure, so equal expressions in
+// different places each get their own entry.  An expression instance
+// shared between places holds the type from the last place checked.  Not
+// safe to share between threads.
+public class ExpTypes {
+    private final Map<Exp, Type> types;
+
+    public ExpTypes() {
+        types = new IdentityHashMap<Exp, Type>();
+    }
+
+    public void put(final Exp exp, final Type type) {
+        types.put(exp, type);
+    }
+
+    // returns null if the expression wasn't checked
+    public Type get(final Exp exp) {
+        return types.get(exp);
+    }
+
+    public int size() {
+        return types.size();
+    }
+} // ExpTypes
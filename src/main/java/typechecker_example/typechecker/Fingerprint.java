@@ -0,0 +1,30 @@
+package typechecker_example.typechecker;
+
+import typechecker_example.syntax.*;
+
+// Stable 64-bit fingerprints of functions and structures, used to tell if a
+// definition changed between runs.  These are built from the structural
+// hashes cached in each node, so are O(1) for whole definitions.
+public class Fingerprint {
+    private Fingerprint() {}
+
+    // hashes the whole definition, including the body
+    public static long ofFunction(final FunctionDefinition def) {
+        return def.structuralHash();
+    }
+
+    // hashes only what callers can see: name, return type, and parameter types
+    public static long ofSignature(final FunctionDefinition def) {
+        long hash = StructuralHash.mix(def.name.structuralHash(),
+                                       def.returnType.structuralHash());
+        hash = StructuralHash.mix(hash, def.parameters.length);
+        for (final VariableDeclaration param : def.parameters) {
+            hash = StructuralHash.mix(hash, param.type.structuralHash());
+        }
+        return hash;
+    }
+
+    public static long ofStructure(final StructureDeclaration dec) {
+        return dec.structuralHash();
+    }
+} // Fingerprint
@@ -0,0 +1,372 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import typechecker_example.syntax.FlatProgram;
+
+// Typechecks a FlatProgram directly, without going back to the object form.
+// It accepts and rejects the same programs as Typechecker, with the same
+// messages.  Types are node indices, as FlatProgram hash-conses them, so
+// they are compared with ==; pointer types the program never mentions are
+// numbered from nodeCount up.  Variables are bound in an array indexed by
+// name id, and a trail of previous bindings is unwound on leaving a block.
+// Not safe to share between threads.
+public class FlatTypechecker {
+    // begin instance variables
+    private final FlatProgram prog;
+    private final int[] kinds;
+    private final int[] first;
+    private final int[] second;
+    private final int[] third;
+    private final int[] lists;
+
+    // indexed by name id; -1 if there is no such function or structure
+    private final int[] functionByName;
+    private final int[] structureByName;
+
+    // the canonical pointer type to each type, and the pointees of the
+    // pointer types made here
+    private final Map<Integer, Integer> pointers;
+    private int[] extraPointees;
+    private int extraCount;
+
+    // the type bound to each name id, or -1, and (name id, previous type)
+    // pairs to undo
+    private final int[] bindings;
+    private int[] trail;
+    private int trailSize;
+
+    public FlatTypechecker(final FlatProgram prog) throws TypeErrorException {
+        this.prog = prog;
+        kinds = prog.kinds;
+        first = prog.first;
+        second = prog.second;
+        third = prog.third;
+        lists = prog.lists;
+
+        functionByName = new int[prog.names.length];
+        Arrays.fill(functionByName, -1);
+        for (int index = 0; index < prog.functionNames.length; index++) {
+            if (functionByName[prog.functionNames[index]] != -1) {
+                throw new TypeErrorException("Duplicate function name: " +
+                                             prog.names[prog.functionNames[index]]);
+            }
+            functionByName[prog.functionNames[index]] = index;
+        }
+        structureByName = new int[prog.names.length];
+        Arrays.fill(structureByName, -1);
+        for (int index = 0; index < prog.structureNames.length; index++) {
+            if (structureByName[prog.structureNames[index]] != -1) {
+                throw new TypeErrorException("Duplicate structure name: " +
+                                             prog.names[prog.structureNames[index]]);
+            }
+            structureByName[prog.structureNames[index]] = index;
+        }
+
+        pointers = new HashMap<Integer, Integer>();
+        for (int node = 0; node < prog.nodeCount; node++) {
+            if (kinds[node] == FlatProgram.POINTER_TYPE) {
+                pointers.put(first[node], node);
+            }
+        }
+        extraPointees = new int[16];
+
+        bindings = new int[prog.names.length];
+        Arrays.fill(bindings, -1);
+        trail = new int[64];
+    } // FlatTypechecker
+
+    public void typecheck() throws TypeErrorException {
+        for (int index = 0; index < prog.functionNames.length; index++) {
+            typecheckFunction(index);
+        }
+    }
+
+    // index is the function's position in the program
+    public void typecheckFunction(final int index) throws TypeErrorException {
+        try {
+            final int params = prog.functionParameters[index];
+            for (int param = 0; param < lists[params]; param++) {
+                bind(lists[params + 2 + 2 * param], lists[params + 1 + 2 * param]);
+            }
+            checkStmt(prog.functionBodies[index], false, prog.functionReturnTypes[index]);
+        } finally {
+            unwind(0);
+        }
+    }
+
+    private void bind(final int variable, final int type) {
+        if (trailSize + 2 > trail.length) {
+            trail = Arrays.copyOf(trail, trail.length * 2);
+        }
+        trail[trailSize++] = variable;
+        trail[trailSize++] = bindings[variable];
+        bindings[variable] = type;
+    }
+
+    // undoes bindings back to the given trail size
+    private void unwind(final int mark) {
+        while (trailSize > mark) {
+            final int previous = trail[--trailSize];
+            bindings[trail[--trailSize]] = previous;
+        }
+    }
+
+    private int typeKind(final int type) {
+        return (type < prog.nodeCount) ? kinds[type] : FlatProgram.POINTER_TYPE;
+    }
+
+    private int pointee(final int type) {
+        return (type < prog.nodeCount) ? first[type] : extraPointees[type - prog.nodeCount];
+    }
+
+    private int pointerTo(final int type) {
+        final Integer existing = pointers.get(type);
+        if (existing != null) {
+            return existing;
+        }
+        if (extraCount == extraPointees.length) {
+            extraPointees = Arrays.copyOf(extraPointees, extraCount * 2);
+        }
+        extraPointees[extraCount] = type;
+        final int retval = prog.nodeCount + extraCount++;
+        pointers.put(type, retval);
+        return retval;
+    }
+
+    private String typeString(final int type) {
+        final int kind = typeKind(type);
+        if (kind == FlatProgram.INT_TYPE) {
+            return "int";
+        } else if (kind == FlatProgram.CHAR_TYPE) {
+            return "char";
+        } else if (kind == FlatProgram.BOOL_TYPE) {
+            return "bool";
+        } else if (kind == FlatProgram.VOID_TYPE) {
+            return "void";
+        } else if (kind == FlatProgram.STRUCTURE_TYPE) {
+            return prog.names[first[type]];
+        } else {
+            return typeString(pointee(type)) + "*";
+        }
+    } // typeString
+
+    private void ensureTypesSame(final int expected, final int actual) throws TypeErrorException {
+        if (expected != actual) {
+            throw new TypeErrorException("expected: " + typeString(expected) +
+                                         " got: " + typeString(actual));
+        }
+    }
+
+    private int lookupVariable(final int variable) throws TypeErrorException {
+        final int retval = bindings[variable];
+        if (retval == -1) {
+            throw new TypeErrorException("variable not defined: " + prog.names[variable]);
+        }
+        return retval;
+    }
+
+    // returns the type of the given field; the first wins if repeated
+    private int fieldType(final int structType, final int field) throws TypeErrorException {
+        if (typeKind(structType) != FlatProgram.STRUCTURE_TYPE) {
+            throw new TypeErrorException("Expected structure; got: " + typeString(structType));
+        }
+        final int structure = structureByName[first[structType]];
+        if (structure == -1) {
+            throw new TypeErrorException("No such structure with name: " +
+                                         prog.names[first[structType]]);
+        }
+        final int fields = prog.structureFields[structure];
+        for (int index = 0; index < lists[fields]; index++) {
+            if (lists[fields + 2 + 2 * index] == field) {
+                return lists[fields + 1 + 2 * index];
+            }
+        }
+        throw new TypeErrorException("No such field defined: " + prog.names[field]);
+    } // fieldType
+
+    private int pointsTo(final int pointerType) throws TypeErrorException {
+        if (typeKind(pointerType) != FlatProgram.POINTER_TYPE) {
+            throw new TypeErrorException("Expected pointer; got: " + typeString(pointerType));
+        }
+        final int retval = pointee(pointerType);
+        if (retval == FlatProgram.VOID_TYPE_NODE) {
+            throw new TypeErrorException("Cannot dereference void pointer");
+        }
+        return retval;
+    }
+
+    // Bindings made by the statement are left in place; blocks which
+    // shouldn't leak them unwind after themselves.  Nested sequences, on
+    // either side, are checked in order from an explicit stack.
+    private void checkStmt(final int stmt, final boolean inLoop, final int returnType) throws TypeErrorException {
+        final ArrayDeque<Integer> work = new ArrayDeque<Integer>();
+        work.push(stmt);
+        while (!work.isEmpty()) {
+            final int node = work.pop();
+            if (kinds[node] == FlatProgram.SEQUENCE_STMT) {
+                work.push(second[node]);
+                work.push(first[node]);
+            } else {
+                checkNonSequenceStmt(node, inLoop, returnType);
+            }
+        }
+    }
+
+    private void checkNonSequenceStmt(final int node, final boolean inLoop, final int returnType) throws TypeErrorException {
+        final int kind = kinds[node];
+        if (kind == FlatProgram.IF_STMT) {
+            ensureTypesSame(FlatProgram.BOOL_TYPE_NODE, typeofExp(first[node]));
+            final int mark = trailSize;
+            checkStmt(second[node], inLoop, returnType);
+            unwind(mark);
+            checkStmt(third[node], inLoop, returnType);
+            unwind(mark);
+        } else if (kind == FlatProgram.WHILE_STMT) {
+            ensureTypesSame(FlatProgram.BOOL_TYPE_NODE, typeofExp(first[node]));
+            final int mark = trailSize;
+            checkStmt(second[node], true, returnType);
+            unwind(mark);
+        } else if (kind == FlatProgram.BREAK_STMT) {
+            if (!inLoop) {
+                throw new TypeErrorException("Break outside of loop");
+            }
+        } else if (kind == FlatProgram.CONTINUE_STMT) {
+            if (!inLoop) {
+                throw new TypeErrorException("Continue outside of loop");
+            }
+        } else if (kind == FlatProgram.VARIABLE_DECLARATION_INITIALIZATION_STMT) {
+            ensureTypesSame(first[node], typeofExp(third[node]));
+            bind(second[node], first[node]);
+        } else if (kind == FlatProgram.ASSIGNMENT_STMT) {
+            final int lhsType = typeofLhs(first[node]);
+            ensureTypesSame(lhsType, typeofExp(second[node]));
+        } else if (kind == FlatProgram.RETURN_VOID_STMT) {
+            ensureTypesSame(returnType, FlatProgram.VOID_TYPE_NODE);
+        } else if (kind == FlatProgram.RETURN_EXP_STMT) {
+            ensureTypesSame(returnType, typeofExp(first[node]));
+        } else {
+            throw new IllegalArgumentException("Not a statement: " + node);
+        }
+    } // checkNonSequenceStmt
+
+    private int typeofLhs(final int node) throws TypeErrorException {
+        final int kind = kinds[node];
+        if (kind == FlatProgram.VARIABLE_LHS) {
+            return lookupVariable(first[node]);
+        } else if (kind == FlatProgram.FIELD_ACCESS_LHS) {
+            return fieldType(typeofLhs(first[node]), second[node]);
+        } else if (kind == FlatProgram.DEREFERENCE_LHS) {
+            return pointsTo(typeofLhs(first[node]));
+        } else {
+            throw new IllegalArgumentException("Not a left-hand side: " + node);
+        }
+    } // typeofLhs
+
+    // decs: a list of (type, name id) pairs
+    private void checkParameters(final int decs, final int params) throws TypeErrorException {
+        for (int index = 0; index < lists[params]; index++) {
+            ensureTypesSame(lists[decs + 1 + 2 * index], typeofExp(lists[params + 1 + index]));
+        }
+    }
+
+    // Nested binops are checked from an explicit stack rather than by
+    // recursing, in the same order.  The stack holds operands to check,
+    // and, as ~node, binops whose operands' types are on top of the types
+    // stack.
+    private int typeofBinops(final int binop) throws TypeErrorException {
+        final ArrayDeque<Integer> work = new ArrayDeque<Integer>();
+        final ArrayDeque<Integer> operandTypes = new ArrayDeque<Integer>();
+        work.push(binop);
+        while (!work.isEmpty()) {
+            final int item = work.pop();
+            if (item < 0) {
+                final int rightType = operandTypes.pop();
+                final int leftType = operandTypes.pop();
+                operandTypes.push(typeofBinop(second[~item], leftType, rightType));
+            } else if (kinds[item] == FlatProgram.BINOP_EXP) {
+                work.push(~item);
+                work.push(third[item]);
+                work.push(first[item]);
+            } else {
+                operandTypes.push(typeofExp(item));
+            }
+        }
+        return operandTypes.pop();
+    } // typeofBinops
+
+    private int typeofBinop(final int op, final int leftType, final int rightType) throws TypeErrorException {
+        if (op == FlatProgram.EQUALS_OP) {
+            ensureTypesSame(leftType, rightType);
+            return FlatProgram.BOOL_TYPE_NODE;
+        } else {
+            ensureTypesSame(FlatProgram.INT_TYPE_NODE, leftType);
+            ensureTypesSame(FlatProgram.INT_TYPE_NODE, rightType);
+            return (op == FlatProgram.LESS_THAN_OP) ?
+                FlatProgram.BOOL_TYPE_NODE :
+                FlatProgram.INT_TYPE_NODE;
+        }
+    }
+
+    private int typeofExp(final int node) throws TypeErrorException {
+        final int kind = kinds[node];
+        if (kind == FlatProgram.INT_EXP || kind == FlatProgram.SIZEOF_EXP) {
+            return FlatProgram.INT_TYPE_NODE;
+        } else if (kind == FlatProgram.CHAR_EXP) {
+            return FlatProgram.CHAR_TYPE_NODE;
+        } else if (kind == FlatProgram.BOOL_EXP) {
+            return FlatProgram.BOOL_TYPE_NODE;
+        } else if (kind == FlatProgram.VARIABLE_EXP) {
+            return lookupVariable(first[node]);
+        } else if (kind == FlatProgram.MALLOC_EXP) {
+            ensureTypesSame(FlatProgram.INT_TYPE_NODE, typeofExp(first[node]));
+            return FlatProgram.VOID_POINTER_TYPE_NODE;
+        } else if (kind == FlatProgram.FREE_EXP) {
+            ensureTypesSame(FlatProgram.VOID_POINTER_TYPE_NODE, typeofExp(first[node]));
+            return FlatProgram.VOID_TYPE_NODE;
+        } else if (kind == FlatProgram.BINOP_EXP) {
+            return typeofBinops(node);
+        } else if (kind == FlatProgram.MAKE_STRUCTURE_EXP) {
+            final int structure = structureByName[first[node]];
+            if (structure == -1) {
+                throw new TypeErrorException("No such structure with name: " +
+                                             prog.names[first[node]]);
+            }
+            final int fields = prog.structureFields[structure];
+            if (lists[fields] != lists[second[node]]) {
+                throw new TypeErrorException("Structure creation has wrong arity: " +
+                                             prog.names[first[node]]);
+            }
+            checkParameters(fields, second[node]);
+            return third[node];
+        } else if (kind == FlatProgram.FUNCTION_CALL_EXP) {
+            final int function = functionByName[first[node]];
+            if (function == -1) {
+                throw new TypeErrorException("Function not defined: " +
+                                             prog.names[first[node]]);
+            }
+            final int params = prog.functionParameters[function];
+            if (lists[params] != lists[second[node]]) {
+                throw new TypeErrorException("Function call has wrong arity: " +
+                                             prog.names[first[node]]);
+            }
+            checkParameters(params, second[node]);
+            return prog.functionReturnTypes[function];
+        } else if (kind == FlatProgram.CAST_EXP) {
+            if (typeofExp(second[node]) == FlatProgram.VOID_TYPE_NODE) {
+                throw new TypeErrorException("Cannot cast void: " + prog.toExp(second[node]));
+            }
+            return first[node];
+        } else if (kind == FlatProgram.ADDRESS_OF_EXP) {
+            return pointerTo(typeofLhs(first[node]));
+        } else if (kind == FlatProgram.DEREFERENCE_EXP) {
+            return pointsTo(typeofExp(first[node]));
+        } else if (kind == FlatProgram.FIELD_ACCESS_EXP) {
+            return fieldType(typeofExp(first[node]), second[node]);
+        } else {
+            throw new IllegalArgumentException("Not an expression: " + node);
+        }
+    } // typeofExp
+} // FlatTypechecker
@@ -0,0 +1,21 @@
+package typechecker_example.typechecker;
+
+import typechecker_example.syntax.FunctionName;
+import typechecker_example.syntax.Type;
+
+// What a call to a function is checked against.  All types are canonical,
+// from the TypeTable of the FunctionSignatures holding this.  Holds
+// nothing of the function's body.
+public class FunctionSignature {
+    public final FunctionName name;
+    public final Type returnType;
+    public final Type[] parameterTypes;
+
+    public FunctionSignature(final FunctionName name,
+                             final Type returnType,
+                             final Type[] parameterTypes) {
+        this.name = name;
+        this.returnType = returnType;
+        this.parameterTypes = parameterTypes;
+    }
+} // FunctionSignature
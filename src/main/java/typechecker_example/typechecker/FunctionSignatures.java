@@ -0,0 +1,165 @@
+package typechecker_example.typechecker;
+
+import java.util.Arrays;
+import java.util.Collection;
+import typechecker_example.syntax.*;
+
+// The signature of each function in a program, in an open-addressed table
+// keyed by the id of the function's name, so looking one up is a multiply
+// and a probe or two, with no boxing.  The table is sized by the number of
+// functions, not by the largest id, as ids are shared by every program in
+// the process.  Types are interned into types as signatures are added.
+// Not safe to modify while another thread reads it.
+public class FunctionSignatures {
+    private static final int EMPTY = -1;
+
+    // begin instance variables
+    public final TypeTable types;
+    // linear probing; the capacity is a power of two, at most half full
+    private int[] ids;
+    private FunctionSignature[] signatures;
+    private int size;
+
+    public FunctionSignatures(final TypeTable types) {
+        this.types = types;
+        this.ids = newIds(16);
+        this.signatures = new FunctionSignature[16];
+    }
+
+    private static int[] newIds(final int capacity) {
+        final int[] retval = new int[capacity];
+        Arrays.fill(retval, EMPTY);
+        return retval;
+    }
+
+    public static FunctionSignatures of(final Program prog, final TypeTable types) throws TypeErrorException {
+        return of(prog, types, null);
+    }
+
+    // diagnostics: where duplicate names go, or null to throw them; the
+    // first definition of a name is used
+    public static FunctionSignatures of(final Program prog,
+                                        final TypeTable types,
+                                        final Diagnostics diagnostics) throws TypeErrorException {
+        final FunctionSignatures retval = new FunctionSignatures(types);
+        retval.reserve(prog.functionDefs);
+        for (final FunctionDefinition def : prog.functionDefs) {
+            if (retval.get(def.name) != null) {
+                Typechecker.report(diagnostics, null, def, "Duplicate function name: " + def.name);
+            } else {
+                retval.put(def);
+            }
+        }
+        return retval;
+    } // of
+
+    // defs must have distinct names
+    public static FunctionSignatures of(final Collection<FunctionDefinition> defs, final TypeTable types) {
+        final FunctionSignatures retval = new FunctionSignatures(types);
+        for (final FunctionDefinition def : defs) {
+            retval.put(def);
+        }
+        return retval;
+    }
+
+    // grows the table once, up front, for all of defs
+    private void reserve(final FunctionDefinition[] defs) {
+        ensureCapacity(defs.length);
+    }
+
+    private void ensureCapacity(final int count) {
+        int capacity = ids.length;
+        while (2 * count > capacity) {
+            capacity *= 2;
+        }
+        if (capacity == ids.length) {
+            return;
+        }
+        final int[] oldIds = ids;
+        final FunctionSignature[] oldSignatures = signatures;
+        ids = newIds(capacity);
+        signatures = new FunctionSignature[capacity];
+        for (int index = 0; index < oldIds.length; index++) {
+            if (oldIds[index] != EMPTY) {
+                final int slot = slot(oldIds[index]);
+                ids[slot] = oldIds[index];
+                signatures[slot] = oldSignatures[index];
+            }
+        }
+    } // ensureCapacity
+
+    private int home(final int id) {
+        return (id * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(ids.length));
+    }
+
+    // the slot holding id, or else the empty slot where it would go
+    private int slot(final int id) {
+        final int mask = ids.length - 1;
+        int retval = home(id);
+        while (ids[retval] != EMPTY && ids[retval] != id) {
+            retval = (retval + 1) & mask;
+        }
+        return retval;
+    }
+
+    // returns null if there is no such function
+    public FunctionSignature get(final FunctionName name) {
+        return signatures[slot(name.id)];
+    }
+
+    // replaces any signature with the same name, returning it, or null
+    public FunctionSignature put(final FunctionDefinition def) {
+        final Type[] parameterTypes = new Type[def.parameters.length];
+        for (int index = 0; index < parameterTypes.length; index++) {
+            parameterTypes[index] = types.intern(def.parameters[index].type);
+        }
+        ensureCapacity(size + 1);
+        final int slot = slot(def.name.id);
+        final FunctionSignature retval = signatures[slot];
+        ids[slot] = def.name.id;
+        signatures[slot] =
+            new FunctionSignature(def.name, types.intern(def.returnType), parameterTypes);
+        if (retval == null) {
+            size++;
+        }
+        return retval;
+    } // put
+
+    // shifts later entries of the probe run back over the removed one, so
+    // no tombstones are needed
+    public void remove(final FunctionName name) {
+        final int mask = ids.length - 1;
+        int hole = slot(name.id);
+        if (ids[hole] == EMPTY) {
+            return;
+        }
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (ids[next] == EMPTY) {
+                break;
+            }
+            // an entry can fill the hole if its home isn't cyclically
+            // after the hole, up to where it is
+            final int home = home(ids[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                ids[hole] = ids[next];
+                signatures[hole] = signatures[next];
+                hole = next;
+            }
+        }
+        ids[hole] = EMPTY;
+        signatures[hole] = null;
+        size--;
+    } // remove
+
+    public void clear() {
+        Arrays.fill(ids, EMPTY);
+        Arrays.fill(signatures, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+} // FunctionSignatures
@@ -0,0 +1,368 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import typechecker_example.syntax.*;
+
+// A typechecking session over successive versions of a program.  Each call
+// to update only rechecks functions whose own definition changed, or which
+// depend on a function signature or structure that changed.  Definitions
+// are first compared by identity, so unchanged definitions cost nothing
+// when the caller reuses them between versions; changed ones are compared
+// by Fingerprint, so an identical rebuilt definition isn't rechecked.
+// Each function's errors are kept between updates, so errors can be
+// reported in full for functions which weren't rechecked.
+public class IncrementalTypechecker {
+    // begin instance variables
+    private final Map<FunctionName, FunctionDefinition> functions;
+    private final Map<StructureName, StructureDeclaration> structures;
+    // kept in step with functions
+    private final FunctionSignatures signatures;
+    private final TypeTable types;
+    private final Typechecker checker;
+
+    private final Map<FunctionName, Long> functionFingerprints;
+    private final Map<FunctionName, Long> signatureFingerprints;
+    private final Map<StructureName, Long> structureFingerprints;
+
+    private final Map<FunctionName, Dependencies> dependencies;
+    private final Map<FunctionName, Set<FunctionName>> callers;
+    private final Map<StructureName, Set<FunctionName>> structureUsers;
+
+    // only functions with errors have an entry
+    private final Map<FunctionName, Diagnostics> errors;
+    private final Map<FunctionName, Integer> positions;
+    private FunctionDefinition[] previousDefs;
+    private StructureDeclaration[] previousDecs;
+
+    public IncrementalTypechecker() {
+        this(new TypeTable());
+    }
+
+    // types may be shared with other sessions
+    public IncrementalTypechecker(final TypeTable types) {
+        functions = new HashMap<FunctionName, FunctionDefinition>();
+        structures = new HashMap<StructureName, StructureDeclaration>();
+        signatures = new FunctionSignatures(types);
+        this.types = types;
+        checker = new Typechecker(signatures, structures, false, null);
+        functionFingerprints = new HashMap<FunctionName, Long>();
+        signatureFingerprints = new HashMap<FunctionName, Long>();
+        structureFingerprints = new HashMap<StructureName, Long>();
+        dependencies = new HashMap<FunctionName, Dependencies>();
+        callers = new HashMap<FunctionName, Set<FunctionName>>();
+        structureUsers = new HashMap<StructureName, Set<FunctionName>>();
+        errors = new HashMap<FunctionName, Diagnostics>();
+        positions = new HashMap<FunctionName, Integer>();
+        previousDefs = new FunctionDefinition[0];
+        previousDecs = new StructureDeclaration[0];
+    }
+
+    // Brings the session up to date with prog, returning the names of the
+    // functions which were rechecked.  Throws if any function in prog has
+    // a type error, whether or not it was rechecked this time.
+    public Set<FunctionName> update(final Program prog) throws TypeErrorException {
+        final Set<FunctionName> retval = apply(prog);
+        throwErrors();
+        return retval;
+    }
+
+    // Like update, but adds the errors of every function in prog to
+    // diagnostics, in program order, rather than throwing.  Duplicate names
+    // and recursive structures leave nothing to update, so then the session
+    // is reset and prog is checked from scratch.
+    public Set<FunctionName> update(final Program prog, final Diagnostics diagnostics) {
+        try {
+            final Set<FunctionName> retval = apply(prog);
+            for (final FunctionName name : failing()) {
+                diagnostics.addAll(errors.get(name));
+            }
+            return retval;
+        } catch (final TypeErrorException e) {
+            Typechecker.forProgram(prog, diagnostics, types).typecheck(prog, diagnostics);
+            final Set<FunctionName> retval = new HashSet<FunctionName>();
+            for (final FunctionDefinition def : prog.functionDefs) {
+                retval.add(def.name);
+            }
+            return retval;
+        }
+    } // update
+
+    // updates the tables and rechecks, returning the rechecked functions;
+    // throws, after resetting, on errors outside of function bodies
+    private Set<FunctionName> apply(final Program prog) throws TypeErrorException {
+        final List<StructureDeclaration> removedDecs = new ArrayList<StructureDeclaration>();
+        final List<StructureDeclaration> addedDecs = new ArrayList<StructureDeclaration>();
+        diff(previousDecs, prog.structDecs, removedDecs, addedDecs, null);
+
+        final List<FunctionDefinition> removedDefs = new ArrayList<FunctionDefinition>();
+        final List<FunctionDefinition> addedDefs = new ArrayList<FunctionDefinition>();
+        final List<Integer> addedPositions = new ArrayList<Integer>();
+        final boolean aligned =
+            diff(previousDefs, prog.functionDefs, removedDefs, addedDefs, addedPositions);
+
+        final Set<FunctionName> dirty = new HashSet<FunctionName>();
+        try {
+            updateStructures(removedDecs, addedDecs, dirty);
+            updateFunctions(removedDefs, addedDefs, dirty);
+        } catch (final TypeErrorException e) {
+            // the tables no longer match any version; start over next time
+            reset();
+            throw e;
+        }
+        previousDecs = prog.structDecs;
+        previousDefs = prog.functionDefs;
+
+        if (aligned) {
+            for (int index = 0; index < addedDefs.size(); index++) {
+                positions.put(addedDefs.get(index).name, addedPositions.get(index));
+            }
+        } else {
+            positions.clear();
+            for (int index = 0; index < prog.functionDefs.length; index++) {
+                positions.put(prog.functionDefs[index].name, index);
+            }
+        }
+
+        for (final FunctionName name : dirty) {
+            recheck(name);
+        }
+        return dirty;
+    } // apply
+
+    public void reset() {
+        functions.clear();
+        signatures.clear();
+        structures.clear();
+        functionFingerprints.clear();
+        signatureFingerprints.clear();
+        structureFingerprints.clear();
+        dependencies.clear();
+        callers.clear();
+        structureUsers.clear();
+        errors.clear();
+        positions.clear();
+        previousDefs = new FunctionDefinition[0];
+        previousDecs = new StructureDeclaration[0];
+    }
+
+    // Finds the elements which differ between two versions of an array.
+    // If the arrays are the same length, they are compared index by index,
+    // which only costs a reference comparison per unchanged element, and
+    // true is returned.  Otherwise they are compared as identity sets.
+    // If addedPositions is non-null, it receives the index of each added
+    // element in the aligned case.
+    private static <A> boolean diff(final A[] previous,
+                                    final A[] current,
+                                    final List<A> removed,
+                                    final List<A> added,
+                                    final List<Integer> addedPositions) {
+        if (previous.length == current.length) {
+            for (int index = 0; index < current.length; index++) {
+                if (previous[index] != current[index]) {
+                    removed.add(previous[index]);
+                    added.add(current[index]);
+                    if (addedPositions != null) {
+                        addedPositions.add(index);
+                    }
+                }
+            }
+            return true;
+        } else {
+            final Map<A, Boolean> previousSet = new IdentityHashMap<A, Boolean>();
+            final Map<A, Boolean> currentSet = new IdentityHashMap<A, Boolean>();
+            for (final A element : previous) {
+                previousSet.put(element, Boolean.TRUE);
+            }
+            for (final A element : current) {
+                currentSet.put(element, Boolean.TRUE);
+                if (!previousSet.containsKey(element)) {
+                    added.add(element);
+                }
+            }
+            for (final A element : previous) {
+                if (!currentSet.containsKey(element)) {
+                    removed.add(element);
+                }
+            }
+            return false;
+        }
+    } // diff
+
+    private void updateStructures(final List<StructureDeclaration> removedDecs,
+                                  final List<StructureDeclaration> addedDecs,
+                                  final Set<FunctionName> dirty) throws TypeErrorException {
+        final Set<StructureName> changed = new HashSet<StructureName>();
+        for (final StructureDeclaration dec : removedDecs) {
+            if (structures.get(dec.name) == dec) {
+                structures.remove(dec.name);
+            }
+            changed.add(dec.name);
+        }
+        for (final StructureDeclaration dec : addedDecs) {
+            if (structures.put(dec.name, dec) != null) {
+                throw new TypeErrorException("Duplicate structure name: " + dec.name);
+            }
+            changed.add(dec.name);
+        }
+        // the previous version had no recursive structures, so any cycle
+        // now goes through a changed one
+        final StructureName recursive = TypeLayout.recursiveStructureFrom(structures, changed);
+        if (recursive != null) {
+            throw new TypeErrorException(Typechecker.recursiveStructureMessage(recursive));
+        }
+
+        for (final StructureName name : changed) {
+            final StructureDeclaration dec = structures.get(name);
+            final Long fingerprint = (dec == null) ? null : Fingerprint.ofStructure(dec);
+            if (!sameFingerprint(structureFingerprints, name, fingerprint)) {
+                addAll(dirty, structureUsers.get(name));
+            }
+        }
+    } // updateStructures
+
+    private void updateFunctions(final List<FunctionDefinition> removedDefs,
+                                 final List<FunctionDefinition> addedDefs,
+                                 final Set<FunctionName> dirty) throws TypeErrorException {
+        final Set<FunctionName> changed = new HashSet<FunctionName>();
+        for (final FunctionDefinition def : removedDefs) {
+            if (functions.get(def.name) == def) {
+                functions.remove(def.name);
+                signatures.remove(def.name);
+            }
+            changed.add(def.name);
+        }
+        for (final FunctionDefinition def : addedDefs) {
+            if (functions.put(def.name, def) != null) {
+                throw new TypeErrorException("Duplicate function name: " + def.name);
+            }
+            signatures.put(def);
+            changed.add(def.name);
+        }
+
+        for (final FunctionName name : changed) {
+            final FunctionDefinition def = functions.get(name);
+            if (def == null) {
+                sameFingerprint(signatureFingerprints, name, null);
+                sameFingerprint(functionFingerprints, name, null);
+                addAll(dirty, callers.get(name));
+                forget(name);
+                positions.remove(name);
+            } else {
+                if (!sameFingerprint(signatureFingerprints, name, Fingerprint.ofSignature(def))) {
+                    addAll(dirty, callers.get(name));
+                }
+                if (!sameFingerprint(functionFingerprints, name, Fingerprint.ofFunction(def))) {
+                    dirty.add(name);
+                }
+            }
+        }
+        dirty.retainAll(functions.keySet());
+    } // updateFunctions
+
+    // records the new fingerprint (null if removed), returning whether it
+    // matches the old one
+    private static <K> boolean sameFingerprint(final Map<K, Long> fingerprints,
+                                               final K key,
+                                               final Long fingerprint) {
+        final Long previous = (fingerprint == null) ?
+            fingerprints.remove(key) :
+            fingerprints.put(key, fingerprint);
+        return (previous == null) ? fingerprint == null : previous.equals(fingerprint);
+    }
+
+    private static <A> void addAll(final Set<A> to, final Set<A> from) {
+        if (from != null) {
+            to.addAll(from);
+        }
+    }
+
+    // removes everything recorded about the given function's last check
+    private void forget(final FunctionName name) {
+        errors.remove(name);
+        final Dependencies deps = dependencies.remove(name);
+        if (deps != null) {
+            for (final FunctionName callee : deps.functions) {
+                removeEdge(callers, callee, name);
+            }
+            for (final StructureName structure : deps.structures) {
+                removeEdge(structureUsers, structure, name);
+            }
+        }
+    }
+
+    private static <K> void removeEdge(final Map<K, Set<FunctionName>> edges,
+                                       final K from,
+                                       final FunctionName to) {
+        final Set<FunctionName> set = edges.get(from);
+        if (set != null) {
+            set.remove(to);
+            if (set.isEmpty()) {
+                edges.remove(from);
+            }
+        }
+    }
+
+    private static <K> void addEdge(final Map<K, Set<FunctionName>> edges,
+                                    final K from,
+                                    final FunctionName to) {
+        Set<FunctionName> set = edges.get(from);
+        if (set == null) {
+            set = new HashSet<FunctionName>();
+            edges.put(from, set);
+        }
+        set.add(to);
+    }
+
+    private void recheck(final FunctionName name) {
+        forget(name);
+        final FunctionDefinition def = functions.get(name);
+        final Dependencies deps = Dependencies.of(def, functions, structures);
+        dependencies.put(name, deps);
+        for (final FunctionName callee : deps.functions) {
+            addEdge(callers, callee, name);
+        }
+        for (final StructureName structure : deps.structures) {
+            addEdge(structureUsers, structure, name);
+        }
+
+        // every error is kept, whatever the caller's maximum
+        final Diagnostics diagnostics = new Diagnostics(Integer.MAX_VALUE);
+        checker.typecheckFunction(def, diagnostics);
+        if (!diagnostics.isEmpty()) {
+            errors.put(name, diagnostics);
+        }
+    } // recheck
+
+    // the functions with errors, in program order
+    private List<FunctionName> failing() {
+        final List<FunctionName> retval = new ArrayList<FunctionName>(errors.keySet());
+        Collections.sort(retval, new Comparator<FunctionName>() {
+                public int compare(final FunctionName first, final FunctionName second) {
+                    return Integer.compare(positions.get(first), positions.get(second));
+                }
+            });
+        return retval;
+    }
+
+    // throws the first error of the earliest failing function, with the
+    // first of each other failing function's suppressed
+    private void throwErrors() throws TypeErrorException {
+        if (!errors.isEmpty()) {
+            final List<FunctionName> failing = failing();
+            final TypeErrorException retval =
+                new TypeErrorException(errors.get(failing.get(0)).list().get(0).message);
+            for (int index = 1; index < failing.size(); index++) {
+                retval.addSuppressed(new TypeErrorException(errors.get(failing.get(index)).list().get(0).message));
+            }
+            throw retval;
+        }
+    } // throwErrors
+} // IncrementalTypechecker
@@ -0,0 +1,163 @@
+package typechecker_example.typechecker;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import typechecker_example.syntax.FunctionDefinition;
+import typechecker_example.syntax.Program;
+
+// Typechecks the bodies of a program's functions concurrently.  The
+// function and structure tables are built once up front and only read
+// afterwards, so function bodies can be checked in any order.  Errors are
+// reported in program order regardless of scheduling: the thrown exception
+// is that of the first failing function, with any others suppressed.
+// When collecting errors, each function's errors are collected separately,
+// up to the maximum, and then merged in program order, giving the same
+// errors as checking sequentially.  Unlike checking sequentially, every
+// function is checked even once the maximum is reached.  Closing shuts down the pool, if this
+// made it.
+public class ParallelTypechecker implements AutoCloseable {
+    // ranges of at most this many functions are checked on one thread
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    // begin instance variables
+    private final ForkJoinPool pool;
+    // whether the pool was made here, and so is shut down on close
+    private final boolean ownsPool;
+
+    // the caller keeps ownership of pool
+    public ParallelTypechecker(final ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    public ParallelTypechecker(final int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    public ParallelTypechecker() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    private ParallelTypechecker(final ForkJoinPool pool, final boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    public void typecheck(final Program prog) throws TypeErrorException {
+        final Typechecker checker = Typechecker.forProgram(prog);
+        final TypeErrorException[] errors =
+            new TypeErrorException[prog.functionDefs.length];
+        pool.invoke(new CheckFunctions(checker, prog.functionDefs, errors,
+                                       0, prog.functionDefs.length));
+
+        TypeErrorException first = null;
+        for (final TypeErrorException error : errors) {
+            if (error != null) {
+                if (first == null) {
+                    first = error;
+                } else {
+                    first.addSuppressed(error);
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    } // typecheck
+
+    // checks prog, collecting up to maxErrors errors
+    public Diagnostics typecheckCollectingErrors(final Program prog, final int maxErrors) {
+        final Diagnostics retval = new Diagnostics(maxErrors);
+        final Typechecker checker = Typechecker.forProgram(prog, retval);
+        final Diagnostics[] perFunction = new Diagnostics[prog.functionDefs.length];
+        pool.invoke(new CollectFunctions(checker, prog.functionDefs, perFunction, maxErrors,
+                                         0, prog.functionDefs.length));
+        for (final Diagnostics diagnostics : perFunction) {
+            retval.addAll(diagnostics);
+        }
+        return retval;
+    } // typecheckCollectingErrors
+
+    // checks defs[start, end), recording each function's error by index
+    private static class CheckFunctions extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Typechecker checker;
+        private final FunctionDefinition[] defs;
+        private final TypeErrorException[] errors;
+        private final int start;
+        private final int end;
+
+        CheckFunctions(final Typechecker checker,
+                       final FunctionDefinition[] defs,
+                       final TypeErrorException[] errors,
+                       final int start,
+                       final int end) {
+            this.checker = checker;
+            this.defs = defs;
+            this.errors = errors;
+            this.start = start;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - start <= SEQUENTIAL_THRESHOLD) {
+                for (int index = start; index < end; index++) {
+                    try {
+                        checker.typecheckFunction(defs[index]);
+                    } catch (final TypeErrorException e) {
+                        errors[index] = e;
+                    }
+                }
+            } else {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new CheckFunctions(checker, defs, errors, start, middle),
+                          new CheckFunctions(checker, defs, errors, middle, end));
+            }
+        }
+    } // CheckFunctions
+
+    // checks defs[start, end), recording each function's errors by index
+    private static class CollectFunctions extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Typechecker checker;
+        private final FunctionDefinition[] defs;
+        private final Diagnostics[] diagnostics;
+        private final int maxErrors;
+        private final int start;
+        private final int end;
+
+        CollectFunctions(final Typechecker checker,
+                         final FunctionDefinition[] defs,
+                         final Diagnostics[] diagnostics,
+                         final int maxErrors,
+                         final int start,
+                         final int end) {
+            this.checker = checker;
+            this.defs = defs;
+            this.diagnostics = diagnostics;
+            this.maxErrors = maxErrors;
+            this.start = start;
+            this.end = end;
+        }
+
+        protected void compute() {
+            if (end - start <= SEQUENTIAL_THRESHOLD) {
+                for (int index = start; index < end; index++) {
+                    diagnostics[index] = new Diagnostics(maxErrors);
+                    checker.typecheckFunction(defs[index], diagnostics[index]);
+                }
+            } else {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new CollectFunctions(checker, defs, diagnostics, maxErrors, start, middle),
+                          new CollectFunctions(checker, defs, diagnostics, maxErrors, middle, end));
+            }
+        }
+    } // CollectFunctions
+} // ParallelTypechecker
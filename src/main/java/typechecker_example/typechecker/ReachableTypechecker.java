@@ -0,0 +1,133 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import typechecker_example.syntax.*;
+
+// Typechecks only the bodies of functions reachable through calls from
+// given roots, so functions nothing calls cost nothing beyond their
+// signatures.  Signatures and structures are still checked for the whole
+// program up front, as for Typechecker.forProgram.  Functions are checked
+// in the order they're reached, breadth first from the roots in the order
+// given, and from each function to its callees in the order it first calls
+// them.  More roots can be added later; only functions not already
+// reached are checked then.  Not safe to share between threads.
+public class ReachableTypechecker {
+    // begin instance variables
+    private final Program prog;
+    private final Typechecker checker;
+    // the first definition of each name
+    private final Map<FunctionName, FunctionDefinition> functions;
+    private final Set<FunctionName> reached;
+
+    // throws on duplicate names or recursive structures
+    public ReachableTypechecker(final Program prog) throws TypeErrorException {
+        this(prog, Typechecker.forProgram(prog));
+    }
+
+    // program-wide errors are added to diagnostics
+    public ReachableTypechecker(final Program prog, final Diagnostics diagnostics) {
+        this(prog, Typechecker.forProgram(prog, diagnostics));
+    }
+
+    private ReachableTypechecker(final Program prog, final Typechecker checker) {
+        this.prog = prog;
+        this.checker = checker;
+        this.functions = new HashMap<FunctionName, FunctionDefinition>();
+        for (final FunctionDefinition def : prog.functionDefs) {
+            functions.putIfAbsent(def.name, def);
+        }
+        this.reached = new HashSet<FunctionName>();
+    }
+
+    // throws on the first error, in the order functions are reached
+    public void typecheckFrom(final Collection<FunctionName> roots) throws TypeErrorException {
+        final Deque<FunctionDefinition> work = reach(roots, null);
+        try {
+            while (!work.isEmpty()) {
+                final FunctionDefinition def = work.peek();
+                checker.typecheckFunction(def);
+                work.poll();
+                reachCallees(def, work);
+            }
+        } catch (final TypeErrorException e) {
+            // those not checked can be reached again later
+            for (final FunctionDefinition def : work) {
+                reached.remove(def.name);
+            }
+            throw e;
+        }
+    } // typecheckFrom
+
+    public void typecheckFrom(final Collection<FunctionName> roots, final Diagnostics diagnostics) {
+        final Deque<FunctionDefinition> work;
+        try {
+            work = reach(roots, diagnostics);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Threw while collecting errors", e);
+        }
+        while (!work.isEmpty() && !diagnostics.isFull()) {
+            final FunctionDefinition def = work.poll();
+            checker.typecheckFunction(def, diagnostics);
+            reachCallees(def, work);
+        }
+        // those not checked once diagnostics filled can be reached again
+        // later
+        for (final FunctionDefinition def : work) {
+            reached.remove(def.name);
+        }
+    } // typecheckFrom
+
+    // The definitions of the roots not yet reached, marking them reached.
+    // A root with no definition is an error; a call with none is reported
+    // when its caller is checked.
+    private Deque<FunctionDefinition> reach(final Collection<FunctionName> roots,
+                                            final Diagnostics diagnostics) throws TypeErrorException {
+        final Deque<FunctionDefinition> retval = new ArrayDeque<FunctionDefinition>();
+        for (final FunctionName root : roots) {
+            final FunctionDefinition def = functions.get(root);
+            if (def == null) {
+                Typechecker.report(diagnostics, null, root, "Root function not defined: " + root);
+            } else if (reached.add(root)) {
+                retval.add(def);
+            }
+        }
+        return retval;
+    } // reach
+
+    private void reachCallees(final FunctionDefinition def, final Deque<FunctionDefinition> work) {
+        for (final FunctionName callee : Dependencies.callees(def)) {
+            final FunctionDefinition calleeDef = functions.get(callee);
+            if (calleeDef != null && reached.add(callee)) {
+                work.add(calleeDef);
+            }
+        }
+    }
+
+    public boolean isReached(final FunctionName name) {
+        return reached.contains(name);
+    }
+
+    public int reachedCount() {
+        return reached.size();
+    }
+
+    // the functions whose bodies haven't been checked, or threw when they
+    // were, in program order
+    public List<FunctionName> skipped() {
+        final List<FunctionName> retval = new ArrayList<FunctionName>();
+        for (final FunctionDefinition def : prog.functionDefs) {
+            if (!reached.contains(def.name)) {
+                retval.add(def.name);
+            }
+        }
+        return retval;
+    }
+} // ReachableTypechecker
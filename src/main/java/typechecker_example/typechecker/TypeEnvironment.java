@@ -0,0 +1,122 @@
+package typechecker_example.typechecker;
+
+import typechecker_example.syntax.Type;
+import typechecker_example.syntax.Variable;
+
+// Persistent map from variables to their types, implemented as a hash
+// array mapped trie.  Extending an environment leaves the original intact
+// and shares all but O(log n) nodes with it, so environments can be
+// threaded through statements without copying.  The trie is keyed on
+// variable ids, which are dense and unique, so keys are compared by id and
+// never collide.
+public class TypeEnvironment {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final TypeEnvironment EMPTY = new TypeEnvironment(Node.EMPTY);
+
+    // begin instance variables
+    private final Node root;
+    public final int size;
+
+    private TypeEnvironment(final Node root) {
+        this.root = root;
+        this.size = root.count;
+    }
+
+    public static TypeEnvironment empty() {
+        return EMPTY;
+    }
+
+    // returns null if the variable is not in scope
+    public Type lookup(final Variable variable) {
+        return root.lookup(variable.id, 0);
+    }
+
+    // later bindings shadow earlier ones
+    public TypeEnvironment extend(final Variable variable, final Type type) {
+        return new TypeEnvironment(root.extend(variable.id, 0, variable, type));
+    }
+
+    // Entries are stored in pairs: (key, value) for a binding, or
+    // (null, child) for a subtrie.  Only slots present in bitmap are stored.
+    // Each node counts the bindings under it, so whether extending added a
+    // key shows in the new node's count, with nothing else to return.
+    private static class Node {
+        static final Node EMPTY = new Node(0, new Object[0], 0);
+
+        final int bitmap;
+        final Object[] array;
+        final int count;
+
+        Node(final int bitmap, final Object[] array, final int count) {
+            this.bitmap = bitmap;
+            this.array = array;
+            this.count = count;
+        }
+
+        private int index(final int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        // hash is the id of the key
+        Type lookup(final int hash, final int shift) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            final int index = index(bit);
+            final Object keyOrNull = array[2 * index];
+            final Object valueOrNode = array[2 * index + 1];
+            if (keyOrNull == null) {
+                return ((Node)valueOrNode).lookup(hash, shift + BITS);
+            } else if (((Variable)keyOrNull).id == hash) {
+                return (Type)valueOrNode;
+            } else {
+                return null;
+            }
+        }
+
+        Node extend(final int hash, final int shift, final Variable key, final Type value) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            final int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                final Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, 2 * index);
+                newArray[2 * index] = key;
+                newArray[2 * index + 1] = value;
+                System.arraycopy(array, 2 * index, newArray, 2 * index + 2, array.length - 2 * index);
+                return new Node(bitmap | bit, newArray, count + 1);
+            }
+
+            final Object keyOrNull = array[2 * index];
+            final Object valueOrNode = array[2 * index + 1];
+            final Object[] newArray = array.clone();
+            final int newCount;
+            if (keyOrNull == null) {
+                final Node child = (Node)valueOrNode;
+                final Node newChild = child.extend(hash, shift + BITS, key, value);
+                newArray[2 * index + 1] = newChild;
+                newCount = count - child.count + newChild.count;
+            } else if (((Variable)keyOrNull).id == hash) {
+                newArray[2 * index + 1] = value;
+                newCount = count;
+            } else {
+                newArray[2 * index] = null;
+                newArray[2 * index + 1] =
+                    makeNode(shift + BITS, (Variable)keyOrNull, (Type)valueOrNode,
+                             hash, key, value);
+                newCount = count + 1;
+            }
+            return new Node(bitmap, newArray, newCount);
+        } // extend
+
+        // the ids of the two keys are distinct, so they split eventually
+        private static Node makeNode(final int shift,
+                                     final Variable key1, final Type value1,
+                                     final int hash2, final Variable key2, final Type value2) {
+            return EMPTY
+                .extend(key1.id, shift, key1, value1)
+                .extend(hash2, shift, key2, value2);
+        }
+    } // Node
+} // TypeEnvironment
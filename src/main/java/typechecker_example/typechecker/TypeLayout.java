@@ -0,0 +1,360 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import typechecker_example.syntax.*;
+
+// The size and alignment of values of each type, in bytes, as laid out in
+// memory: ints take 4 bytes, chars and bools 1, and pointers 8, each
+// aligned to its size.  Structures lay out their fields in order, each at
+// the next offset aligned for it, and are padded to a multiple of their
+// strictest field's alignment.  Void, unknown structures, and structures
+// which contain themselves by value, directly or through other structures,
+// have no size; nor do structures containing those by value.
+//
+// Every structure is laid out up front, in one pass over the graph of
+// which structures contain which by value, in time linear in the total
+// number of fields.  The pass finds the graph's strongly connected
+// components, iteratively, with Tarjan's algorithm, which completes each
+// component after all of those it contains; a structure's layout is
+// computed as its component completes.  Components with more than one
+// structure, or one containing itself, are the recursive structures.
+// Structures are numbered by their position in one pass over structures,
+// and layouts kept by that position, so space is linear in the number of
+// structures too, however large name ids get.  Safe to share between
+// threads once made, as long as structures isn't changed.
+public class TypeLayout {
+    public static final int INT_SIZE = 4;
+    public static final int CHAR_SIZE = 1;
+    public static final int BOOL_SIZE = 1;
+    public static final int POINTER_SIZE = 8;
+    public static final int UNSIZED = -1;
+
+    // begin instance variables
+    private final Map<StructureName, StructureDeclaration> structures;
+    // the position of each structure, which indexes structureLayouts
+    private final Map<StructureName, Integer> positions;
+    private final StructureLayout[] structureLayouts;
+    // in the order their components completed
+    private final List<StructureName> recursiveStructures;
+    private final SizeVisitor sizeVisitor;
+    private final AlignmentVisitor alignmentVisitor;
+
+    public TypeLayout(final Map<StructureName, StructureDeclaration> structures) {
+        this.structures = structures;
+        this.positions = new HashMap<StructureName, Integer>();
+        this.structureLayouts = new StructureLayout[structures.size()];
+        this.recursiveStructures = new ArrayList<StructureName>();
+        this.sizeVisitor = new SizeVisitor();
+        this.alignmentVisitor = new AlignmentVisitor();
+        layOutStructures();
+    }
+
+    // returns UNSIZED if the type has no size
+    public int sizeof(final Type type) {
+        return type.accept(sizeVisitor, null);
+    }
+
+    // returns UNSIZED if the type has no size
+    public int alignof(final Type type) {
+        return type.accept(alignmentVisitor, null);
+    }
+
+    // Returns the offset of the given field from the start of the
+    // structure, or UNSIZED if the structure has no size or no such field.
+    // Where a field name is repeated, this is the offset of the first.
+    public int fieldOffset(final StructureName structure, final FieldName field) {
+        final StructureLayout layout = structureLayout(structure);
+        if (layout.size == UNSIZED) {
+            return UNSIZED;
+        }
+        final int slot = structures.get(structure).fieldSlot(field);
+        return (slot < 0) ? UNSIZED : layout.offsets[slot];
+    }
+
+    // returns the offset of each field, in declaration order, or null if
+    // the structure has no size
+    public int[] fieldOffsets(final StructureName structure) {
+        return structureLayout(structure).offsets;
+    }
+
+    // whether the structure contains itself by value
+    public boolean isRecursive(final StructureName structure) {
+        return structureLayout(structure).recursive;
+    }
+
+    public List<StructureName> recursiveStructures() {
+        return Collections.unmodifiableList(recursiveStructures);
+    }
+
+    // Returns a structure which contains itself by value, and which one of
+    // roots contains by value or is, or null if there is none.  Only the
+    // structures reachable from roots are visited, so checking the
+    // structures changed since a version with no recursive structures
+    // costs time in those, rather than in every structure.
+    public static StructureName recursiveStructureFrom(final Map<StructureName, StructureDeclaration> structures,
+                                                       final Collection<StructureName> roots) {
+        // TRUE while a structure is on the path being followed, and FALSE
+        // once every structure it contains has been followed
+        final Map<StructureName, Boolean> onPath = new HashMap<StructureName, Boolean>();
+        final ArrayDeque<PendingFields> path = new ArrayDeque<PendingFields>();
+        for (final StructureName root : roots) {
+            final StructureDeclaration rootDec = structures.get(root);
+            if (rootDec == null || onPath.containsKey(root)) {
+                continue;
+            }
+            onPath.put(root, Boolean.TRUE);
+            path.push(new PendingFields(root, rootDec));
+            while (!path.isEmpty()) {
+                final PendingFields current = path.peek();
+                if (current.nextField < current.dec.fields.length) {
+                    final Type fieldType = current.dec.fields[current.nextField++].type;
+                    if (fieldType instanceof StructureType) {
+                        final StructureName contained = ((StructureType)fieldType).name;
+                        final Boolean state = onPath.get(contained);
+                        if (state == null) {
+                            final StructureDeclaration dec = structures.get(contained);
+                            if (dec != null) {
+                                onPath.put(contained, Boolean.TRUE);
+                                path.push(new PendingFields(contained, dec));
+                            }
+                        } else if (state.booleanValue()) {
+                            return contained;
+                        }
+                    }
+                } else {
+                    onPath.put(current.name, Boolean.FALSE);
+                    path.pop();
+                }
+            }
+        }
+        return null;
+    } // recursiveStructureFrom
+
+    // returns -1 if there is no such structure
+    private int position(final StructureName name) {
+        final Integer retval = positions.get(name);
+        return (retval == null) ? -1 : retval.intValue();
+    }
+
+    private StructureLayout structureLayout(final StructureName name) {
+        final int position = position(name);
+        final StructureLayout retval = (position == -1) ? null : structureLayouts[position];
+        return (retval == null) ? StructureLayout.UNSIZED_LAYOUT : retval;
+    }
+
+    // the position of the declaration which a field of the given type
+    // contains by value, or -1 if none
+    private int containedPosition(final Type fieldType) {
+        if (fieldType instanceof StructureType) {
+            return position(((StructureType)fieldType).name);
+        } else {
+            return -1;
+        }
+    }
+
+    private void layOutStructures() {
+        final int count = structures.size();
+        final StructureName[] names = new StructureName[count];
+        final StructureDeclaration[] decs = new StructureDeclaration[count];
+        int position = 0;
+        for (final Map.Entry<StructureName, StructureDeclaration> entry : structures.entrySet()) {
+            names[position] = entry.getKey();
+            decs[position] = entry.getValue();
+            positions.put(entry.getKey(), position);
+            position++;
+        }
+
+        // per declaration: when it was first reached, or -1 if not yet; the
+        // earliest reached declaration still on the component stack which
+        // it reaches; the next field to follow; whether it's on the
+        // component stack; and whether it contains itself directly
+        final int[] reached = new int[count];
+        Arrays.fill(reached, -1);
+        final int[] lowest = new int[count];
+        final int[] nextField = new int[count];
+        final boolean[] onComponentStack = new boolean[count];
+        final boolean[] containsItself = new boolean[count];
+        final int[] componentStack = new int[count];
+        int componentStackSize = 0;
+        // the path of declarations being followed
+        final int[] path = new int[count];
+        int pathSize = 0;
+        int reachedCount = 0;
+
+        for (int root = 0; root < count; root++) {
+            if (reached[root] != -1) {
+                continue;
+            }
+            reached[root] = lowest[root] = reachedCount++;
+            componentStack[componentStackSize++] = root;
+            onComponentStack[root] = true;
+            path[pathSize++] = root;
+            while (pathSize > 0) {
+                final int current = path[pathSize - 1];
+                final VariableDeclaration[] fields = decs[current].fields;
+                if (nextField[current] < fields.length) {
+                    final int contained = containedPosition(fields[nextField[current]++].type);
+                    if (contained == -1) {
+                        continue;
+                    } else if (contained == current) {
+                        containsItself[current] = true;
+                    } else if (reached[contained] == -1) {
+                        reached[contained] = lowest[contained] = reachedCount++;
+                        componentStack[componentStackSize++] = contained;
+                        onComponentStack[contained] = true;
+                        path[pathSize++] = contained;
+                    } else if (onComponentStack[contained]) {
+                        lowest[current] = Math.min(lowest[current], reached[contained]);
+                    }
+                    continue;
+                }
+
+                // every field followed
+                pathSize--;
+                if (pathSize > 0) {
+                    final int parent = path[pathSize - 1];
+                    lowest[parent] = Math.min(lowest[parent], lowest[current]);
+                }
+                if (lowest[current] == reached[current]) {
+                    // current heads a component, of it and all above it
+                    int start = componentStackSize - 1;
+                    while (componentStack[start] != current) {
+                        start--;
+                    }
+                    final boolean recursive =
+                        (start < componentStackSize - 1) || containsItself[current];
+                    for (int index = start; index < componentStackSize; index++) {
+                        final int member = componentStack[index];
+                        onComponentStack[member] = false;
+                        if (recursive) {
+                            structureLayouts[member] = StructureLayout.RECURSIVE_LAYOUT;
+                            recursiveStructures.add(names[member]);
+                        } else {
+                            structureLayouts[member] = layOut(decs[member]);
+                        }
+                    }
+                    componentStackSize = start;
+                }
+            }
+        }
+    } // layOutStructures
+
+    // each structure dec contains by value must already be laid out
+    private StructureLayout layOut(final StructureDeclaration dec) {
+        final int[] offsets = new int[dec.fields.length];
+        int size = 0;
+        int alignment = 1;
+        for (int index = 0; index < offsets.length; index++) {
+            final Type fieldType = dec.fields[index].type;
+            final int fieldSize = sizeof(fieldType);
+            final int fieldAlignment = alignof(fieldType);
+            if (fieldSize == UNSIZED) {
+                return StructureLayout.UNSIZED_LAYOUT;
+            }
+            offsets[index] = align(size, fieldAlignment);
+            size = offsets[index] + fieldSize;
+            alignment = Math.max(alignment, fieldAlignment);
+        }
+        return new StructureLayout(align(size, alignment), alignment, offsets, false);
+    } // layOut
+
+    // rounds offset up to a multiple of alignment
+    private static int align(final int offset, final int alignment) {
+        return (offset + alignment - 1) / alignment * alignment;
+    }
+
+    // a structure on the path in recursiveStructureFrom, whose fields
+    // before nextField have been followed
+    private static class PendingFields {
+        public final StructureName name;
+        public final StructureDeclaration dec;
+        public int nextField;
+
+        public PendingFields(final StructureName name, final StructureDeclaration dec) {
+            this.name = name;
+            this.dec = dec;
+            this.nextField = 0;
+        }
+    } // PendingFields
+
+    private static class StructureLayout {
+        public static final StructureLayout UNSIZED_LAYOUT =
+            new StructureLayout(UNSIZED, UNSIZED, null, false);
+        public static final StructureLayout RECURSIVE_LAYOUT =
+            new StructureLayout(UNSIZED, UNSIZED, null, true);
+
+        public final int size;
+        public final int alignment;
+        public final int[] offsets;
+        public final boolean recursive;
+
+        public StructureLayout(final int size,
+                               final int alignment,
+                               final int[] offsets,
+                               final boolean recursive) {
+            this.size = size;
+            this.alignment = alignment;
+            this.offsets = offsets;
+            this.recursive = recursive;
+        }
+    } // StructureLayout
+
+    private class SizeVisitor implements TypeVisitor<Void, Integer, RuntimeException> {
+        public Integer visit(final IntType t, final Void arg) {
+            return INT_SIZE;
+        }
+
+        public Integer visit(final CharType t, final Void arg) {
+            return CHAR_SIZE;
+        }
+
+        public Integer visit(final BoolType t, final Void arg) {
+            return BOOL_SIZE;
+        }
+
+        public Integer visit(final VoidType t, final Void arg) {
+            return UNSIZED;
+        }
+
+        public Integer visit(final StructureType t, final Void arg) {
+            return structureLayout(t.name).size;
+        }
+
+        public Integer visit(final PointerType t, final Void arg) {
+            return POINTER_SIZE;
+        }
+    } // SizeVisitor
+
+    private class AlignmentVisitor implements TypeVisitor<Void, Integer, RuntimeException> {
+        public Integer visit(final IntType t, final Void arg) {
+            return INT_SIZE;
+        }
+
+        public Integer visit(final CharType t, final Void arg) {
+            return CHAR_SIZE;
+        }
+
+        public Integer visit(final BoolType t, final Void arg) {
+            return BOOL_SIZE;
+        }
+
+        public Integer visit(final VoidType t, final Void arg) {
+            return UNSIZED;
+        }
+
+        public Integer visit(final StructureType t, final Void arg) {
+            return structureLayout(t.name).alignment;
+        }
+
+        public Integer visit(final PointerType t, final Void arg) {
+            return POINTER_SIZE;
+        }
+    } // AlignmentVisitor
+} // TypeLayout
@@ -0,0 +1,126 @@
+package typechecker_example.typechecker;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import typechecker_example.syntax.FunctionName;
+
+// A running total of TypecheckStats, which may be added to from any
+// thread, and which can be registered with the platform MBean server to be
+// read over JMX.
+public class TypecheckMetrics implements TypecheckMetricsMXBean {
+    public static final String DEFAULT_NAME = "typechecker_example:type=TypecheckMetrics";
+    public static final int SLOWEST_FUNCTIONS = 20;
+
+    // begin instance variables
+    private TypecheckStats total;
+
+    public TypecheckMetrics() {
+        total = TypecheckStats.empty();
+    }
+
+    public synchronized void add(final TypecheckStats stats) {
+        total = total.plus(stats);
+    }
+
+    // adds the recorder's counts, then resets it
+    public void drain(final TypecheckRecorder recorder) {
+        add(recorder.snapshot());
+        recorder.reset();
+    }
+
+    public synchronized TypecheckStats total() {
+        return total;
+    }
+
+    public synchronized void reset() {
+        total = TypecheckStats.empty();
+    }
+
+    public void register() throws JMException {
+        register(DEFAULT_NAME);
+    }
+
+    public void register(final String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    public void unregister(final String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(name));
+    }
+
+    // MXBean attributes
+
+    public Map<String, Long> getExpressionVisits() {
+        final TypecheckStats stats = total();
+        final Map<String, Long> retval = new LinkedHashMap<String, Long>();
+        for (int kind = 0; kind < TypecheckStats.EXPRESSION_KINDS.length; kind++) {
+            retval.put(TypecheckStats.EXPRESSION_KINDS[kind], stats.expressionVisits(kind));
+        }
+        return retval;
+    }
+
+    public Map<String, Long> getStatementVisits() {
+        final TypecheckStats stats = total();
+        final Map<String, Long> retval = new LinkedHashMap<String, Long>();
+        for (int kind = 0; kind < TypecheckStats.STATEMENT_KINDS.length; kind++) {
+            retval.put(TypecheckStats.STATEMENT_KINDS[kind], stats.statementVisits(kind));
+        }
+        return retval;
+    }
+
+    public Map<String, Long> getLhsVisits() {
+        final TypecheckStats stats = total();
+        final Map<String, Long> retval = new LinkedHashMap<String, Long>();
+        for (int kind = 0; kind < TypecheckStats.LHS_KINDS.length; kind++) {
+            retval.put(TypecheckStats.LHS_KINDS[kind], stats.lhsVisits(kind));
+        }
+        return retval;
+    }
+
+    public long getEnvironmentExtensions() {
+        return total().environmentExtensions;
+    }
+
+    public long getEnvironmentLookups() {
+        return total().environmentLookups;
+    }
+
+    public long getFieldLookups() {
+        return total().fieldLookups;
+    }
+
+    public long getSignatureLookups() {
+        return total().signatureLookups;
+    }
+
+    public long getFunctionsChecked() {
+        return total().functionsChecked;
+    }
+
+    public long getFunctionNanos() {
+        return total().functionNanos;
+    }
+
+    public Map<String, Long> getSlowestFunctionNanos() {
+        final List<Map.Entry<FunctionName, Long>> entries =
+            new ArrayList<Map.Entry<FunctionName, Long>>(total().nanosPerFunction().entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<FunctionName, Long>>() {
+                public int compare(final Map.Entry<FunctionName, Long> first,
+                                   final Map.Entry<FunctionName, Long> second) {
+                    return Long.compare(second.getValue(), first.getValue());
+                }
+            });
+        final Map<String, Long> retval = new LinkedHashMap<String, Long>();
+        for (int index = 0; index < entries.size() && index < SLOWEST_FUNCTIONS; index++) {
+            retval.put(entries.get(index).getKey().name, entries.get(index).getValue());
+        }
+        return retval;
+    } // getSlowestFunctionNanos
+} // TypecheckMetrics
@@ -0,0 +1,19 @@
+package typechecker_example.typechecker;
+
+import java.util.Map;
+
+// What TypecheckMetrics shows over JMX.
+public interface TypecheckMetricsMXBean {
+    public Map<String, Long> getExpressionVisits();
+    public Map<String, Long> getStatementVisits();
+    public Map<String, Long> getLhsVisits();
+    public long getEnvironmentExtensions();
+    public long getEnvironmentLookups();
+    public long getFieldLookups();
+    public long getSignatureLookups();
+    public long getFunctionsChecked();
+    public long getFunctionNanos();
+    // the functions which took longest to check, slowest first
+    public Map<String, Long> getSlowestFunctionNanos();
+    public void reset();
+} // TypecheckMetricsMXBean
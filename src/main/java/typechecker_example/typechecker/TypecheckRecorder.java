@@ -0,0 +1,84 @@
+package typechecker_example.typechecker;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import typechecker_example.syntax.FunctionName;
+
+// Where an instrumented Typechecker counts what it does; see
+// TypecheckStats.  Checkers made without a recorder count nothing, at the
+// cost of a null check per count.  A Typechecker without a recorder is
+// safe to share between threads, but the counts here aren't synchronized,
+// so one with a recorder must only be used by one thread at a time, and
+// must not be given to ParallelTypechecker or otherwise shared.  To count
+// work on several threads, give each thread's checker its own recorder,
+// and add up their snapshots, as TypecheckMetrics.drain does.
+public class TypecheckRecorder {
+    // begin instance variables
+    final long[] expressionVisits;
+    final long[] statementVisits;
+    final long[] lhsVisits;
+    long environmentExtensions;
+    long environmentLookups;
+    long fieldLookups;
+    long signatureLookups;
+    long functionsChecked;
+    long functionNanos;
+    // indexed by function name id, so timing a function allocates nothing
+    // once its name has been seen
+    private long[] nanosById;
+    private FunctionName[] namesById;
+
+    public TypecheckRecorder() {
+        expressionVisits = new long[TypecheckStats.EXPRESSION_KINDS.length];
+        statementVisits = new long[TypecheckStats.STATEMENT_KINDS.length];
+        lhsVisits = new long[TypecheckStats.LHS_KINDS.length];
+        nanosById = new long[0];
+        namesById = new FunctionName[0];
+    }
+
+    void functionChecked(final FunctionName name, final long nanos) {
+        functionsChecked++;
+        functionNanos += nanos;
+        if (name.id >= nanosById.length) {
+            final int length = Math.max(name.id + 1, 2 * nanosById.length);
+            nanosById = Arrays.copyOf(nanosById, length);
+            namesById = Arrays.copyOf(namesById, length);
+        }
+        nanosById[name.id] += nanos;
+        namesById[name.id] = name;
+    }
+
+    public TypecheckStats snapshot() {
+        final Map<FunctionName, Long> nanosPerFunction = new HashMap<FunctionName, Long>();
+        for (int id = 0; id < namesById.length; id++) {
+            if (namesById[id] != null) {
+                nanosPerFunction.put(namesById[id], nanosById[id]);
+            }
+        }
+        return new TypecheckStats(expressionVisits,
+                                  statementVisits,
+                                  lhsVisits,
+                                  environmentExtensions,
+                                  environmentLookups,
+                                  fieldLookups,
+                                  signatureLookups,
+                                  functionsChecked,
+                                  functionNanos,
+                                  nanosPerFunction);
+    }
+
+    public void reset() {
+        Arrays.fill(expressionVisits, 0);
+        Arrays.fill(statementVisits, 0);
+        Arrays.fill(lhsVisits, 0);
+        environmentExtensions = 0;
+        environmentLookups = 0;
+        fieldLookups = 0;
+        signatureLookups = 0;
+        functionsChecked = 0;
+        functionNanos = 0;
+        Arrays.fill(nanosById, 0);
+        Arrays.fill(namesById, null);
+    }
+} // TypecheckRecorder
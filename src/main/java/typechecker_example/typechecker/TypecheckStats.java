@@ -0,0 +1,198 @@
+package typechecker_example.typechecker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import typechecker_example.syntax.FunctionName;
+
+// Counts of what a Typechecker did, taken from a TypecheckRecorder.
+// Expressions, statements, and left-hand sides are counted per kind,
+// indexed by the constants below.  An expression whose type came from the memo isn't
+// counted, as it isn't visited.  Times are in nanoseconds, and include
+// time spent reporting errors.
+public class TypecheckStats {
+    public static final int INT_EXP = 0;
+    public static final int CHAR_EXP = 1;
+    public static final int BOOL_EXP = 2;
+    public static final int VARIABLE_EXP = 3;
+    public static final int MALLOC_EXP = 4;
+    public static final int FREE_EXP = 5;
+    public static final int SIZEOF_EXP = 6;
+    public static final int BINOP_EXP = 7;
+    public static final int MAKE_STRUCTURE_EXP = 8;
+    public static final int FUNCTION_CALL_EXP = 9;
+    public static final int CAST_EXP = 10;
+    public static final int ADDRESS_OF_EXP = 11;
+    public static final int DEREFERENCE_EXP = 12;
+    public static final int FIELD_ACCESS_EXP = 13;
+
+    public static final String[] EXPRESSION_KINDS = new String[]{
+        "IntExp", "CharExp", "BoolExp", "VariableExp", "MallocExp", "FreeExp",
+        "SizeofExp", "BinopExp", "MakeStructureExp", "FunctionCallExp",
+        "CastExp", "AddressOfExp", "DereferenceExp", "FieldAccessExp"
+    };
+
+    public static final int IF_STMT = 0;
+    public static final int WHILE_STMT = 1;
+    public static final int BREAK_STMT = 2;
+    public static final int CONTINUE_STMT = 3;
+    public static final int VARIABLE_DECLARATION_INITIALIZATION_STMT = 4;
+    public static final int ASSIGNMENT_STMT = 5;
+    public static final int RETURN_VOID_STMT = 6;
+    public static final int RETURN_EXP_STMT = 7;
+    public static final int SEQUENCE_STMT = 8;
+
+    public static final String[] STATEMENT_KINDS = new String[]{
+        "IfStmt", "WhileStmt", "BreakStmt", "ContinueStmt",
+        "VariableDeclarationInitializationStmt", "AssignmentStmt",
+        "ReturnVoidStmt", "ReturnExpStmt", "SequenceStmt"
+    };
+
+    public static final int VARIABLE_LHS = 0;
+    public static final int FIELD_ACCESS_LHS = 1;
+    public static final int DEREFERENCE_LHS = 2;
+
+    public static final String[] LHS_KINDS = new String[]{
+        "VariableLhs", "FieldAccessLhs", "DereferenceLhs"
+    };
+
+    // begin instance variables
+    private final long[] expressionVisits;
+    private final long[] statementVisits;
+    private final long[] lhsVisits;
+    public final long environmentExtensions;
+    public final long environmentLookups;
+    public final long fieldLookups;
+    public final long signatureLookups;
+    public final long functionsChecked;
+    public final long functionNanos;
+    // the total time checking each function, over every time it was checked
+    private final Map<FunctionName, Long> nanosPerFunction;
+
+    public TypecheckStats(final long[] expressionVisits,
+                          final long[] statementVisits,
+                          final long[] lhsVisits,
+                          final long environmentExtensions,
+                          final long environmentLookups,
+                          final long fieldLookups,
+                          final long signatureLookups,
+                          final long functionsChecked,
+                          final long functionNanos,
+                          final Map<FunctionName, Long> nanosPerFunction) {
+        this.expressionVisits = expressionVisits.clone();
+        this.statementVisits = statementVisits.clone();
+        this.lhsVisits = lhsVisits.clone();
+        this.environmentExtensions = environmentExtensions;
+        this.environmentLookups = environmentLookups;
+        this.fieldLookups = fieldLookups;
+        this.signatureLookups = signatureLookups;
+        this.functionsChecked = functionsChecked;
+        this.functionNanos = functionNanos;
+        this.nanosPerFunction =
+            Collections.unmodifiableMap(new HashMap<FunctionName, Long>(nanosPerFunction));
+    }
+
+    public static TypecheckStats empty() {
+        return new TypecheckStats(new long[EXPRESSION_KINDS.length],
+                                  new long[STATEMENT_KINDS.length],
+                                  new long[LHS_KINDS.length],
+                                  0, 0, 0, 0, 0, 0,
+                                  Collections.<FunctionName, Long>emptyMap());
+    }
+
+    public long expressionVisits(final int kind) {
+        return expressionVisits[kind];
+    }
+
+    public long statementVisits(final int kind) {
+        return statementVisits[kind];
+    }
+
+    public long lhsVisits(final int kind) {
+        return lhsVisits[kind];
+    }
+
+    public long expressionVisits() {
+        return sum(expressionVisits);
+    }
+
+    public long statementVisits() {
+        return sum(statementVisits);
+    }
+
+    public long lhsVisits() {
+        return sum(lhsVisits);
+    }
+
+    private static long sum(final long[] counts) {
+        long retval = 0;
+        for (final long count : counts) {
+            retval += count;
+        }
+        return retval;
+    }
+
+    public Map<FunctionName, Long> nanosPerFunction() {
+        return nanosPerFunction;
+    }
+
+    // the counts of both together, as from checkers on different threads
+    public TypecheckStats plus(final TypecheckStats other) {
+        final long[] newExpressionVisits = expressionVisits.clone();
+        for (int kind = 0; kind < newExpressionVisits.length; kind++) {
+            newExpressionVisits[kind] += other.expressionVisits[kind];
+        }
+        final long[] newStatementVisits = statementVisits.clone();
+        for (int kind = 0; kind < newStatementVisits.length; kind++) {
+            newStatementVisits[kind] += other.statementVisits[kind];
+        }
+        final long[] newLhsVisits = lhsVisits.clone();
+        for (int kind = 0; kind < newLhsVisits.length; kind++) {
+            newLhsVisits[kind] += other.lhsVisits[kind];
+        }
+        final Map<FunctionName, Long> newNanosPerFunction =
+            new HashMap<FunctionName, Long>(nanosPerFunction);
+        for (final Map.Entry<FunctionName, Long> entry : other.nanosPerFunction.entrySet()) {
+            final Long previous = newNanosPerFunction.get(entry.getKey());
+            newNanosPerFunction.put(entry.getKey(),
+                                    (previous == null) ? entry.getValue() : previous + entry.getValue());
+        }
+        return new TypecheckStats(newExpressionVisits,
+                                  newStatementVisits,
+                                  newLhsVisits,
+                                  environmentExtensions + other.environmentExtensions,
+                                  environmentLookups + other.environmentLookups,
+                                  fieldLookups + other.fieldLookups,
+                                  signatureLookups + other.signatureLookups,
+                                  functionsChecked + other.functionsChecked,
+                                  functionNanos + other.functionNanos,
+                                  newNanosPerFunction);
+    } // plus
+
+    public String toString() {
+        final StringBuilder retval = new StringBuilder();
+        for (int kind = 0; kind < EXPRESSION_KINDS.length; kind++) {
+            appendCount(retval, EXPRESSION_KINDS[kind], expressionVisits[kind]);
+        }
+        for (int kind = 0; kind < STATEMENT_KINDS.length; kind++) {
+            appendCount(retval, STATEMENT_KINDS[kind], statementVisits[kind]);
+        }
+        for (int kind = 0; kind < LHS_KINDS.length; kind++) {
+            appendCount(retval, LHS_KINDS[kind], lhsVisits[kind]);
+        }
+        appendCount(retval, "environment extensions", environmentExtensions);
+        appendCount(retval, "environment lookups", environmentLookups);
+        appendCount(retval, "field lookups", fieldLookups);
+        appendCount(retval, "signature lookups", signatureLookups);
+        appendCount(retval, "functions checked", functionsChecked);
+        appendCount(retval, "function nanoseconds", functionNanos);
+        return retval.toString();
+    }
+
+    private static void appendCount(final StringBuilder out, final String name, final long count) {
+        out.append(name);
+        out.append(": ");
+        out.append(count);
+        out.append('\n');
+    }
+} // TypecheckStats
@@ -1,142 +1,760 @@
 package typechecker_example.typechecker;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import typechecker_example.syntax.*;
 
-class Typechecker {
+// Errors are either thrown as a TypeErrorException on the first one, or
+// collected into a Diagnostics; the methods taking a Diagnostics do the
+// latter, and never throw.  When collecting, expressions which fail to
+// typecheck are given ErrorType, which is compatible with everything.  The
+// methods taking an ExpTypes record the type of every expression into it.
+//
+// A memoizing checker types each expression instance at most once per
+// environment, so instances shared between parents (i.e., a DAG rather
+// than a tree) aren't checked again for each parent.  The memo lasts for
+// one call, as the function and structure maps may change between calls.
+//
+// A checker made with a TypecheckRecorder counts its work into it.  A
+// checker without one is safe to share between threads; one with a
+// recorder must only be used by one thread at a time.
+public class Typechecker {
     // begin instance variables
-    private final Map<FunctionName, FunctionDefinition> functions;
+    private final FunctionSignatures signatures;
     private final Map<StructureName, StructureDeclaration> structures;
-    
+    private final TypeTable types;
+    private final ExpChecker expChecker;
+    private final LhsChecker lhsChecker;
+    private final OpChecker opChecker;
+    private final StatementChecker outsideLoopChecker;
+    private final StatementChecker insideLoopChecker;
+    private final boolean memoizing;
+    // null if not counting
+    private final TypecheckRecorder recorder;
+
     public Typechecker(final Map<FunctionName, FunctionDefinition> functions,
                        final Map<StructureName, StructureDeclaration> structures) {
-        this.functions = functions;
+        this(functions, structures, false);
+    }
+
+    public Typechecker(final Map<FunctionName, FunctionDefinition> functions,
+                       final Map<StructureName, StructureDeclaration> structures,
+                       final boolean memoizing) {
+        this(functions, structures, new TypeTable(), memoizing);
+    }
+
+    // types may be shared with other checkers, on any thread, to keep
+    // interned types between programs
+    public Typechecker(final Map<FunctionName, FunctionDefinition> functions,
+                       final Map<StructureName, StructureDeclaration> structures,
+                       final TypeTable types,
+                       final boolean memoizing) {
+        this(functions, structures, types, memoizing, null);
+    }
+
+    // recorder: where to count work, or null to not count it
+    public Typechecker(final Map<FunctionName, FunctionDefinition> functions,
+                       final Map<StructureName, StructureDeclaration> structures,
+                       final TypeTable types,
+                       final boolean memoizing,
+                       final TypecheckRecorder recorder) {
+        this(FunctionSignatures.of(functions.values(), types), structures, memoizing, recorder);
+    }
+
+    // Calls are checked against signatures, which may be changed between
+    // calls to this, as by IncrementalTypechecker.  Types come from the
+    // TypeTable of signatures.
+    public Typechecker(final FunctionSignatures signatures,
+                       final Map<StructureName, StructureDeclaration> structures,
+                       final boolean memoizing,
+                       final TypecheckRecorder recorder) {
+        this.memoizing = memoizing;
+        this.recorder = recorder;
+        this.signatures = signatures;
         this.structures = structures;
+        this.types = signatures.types;
+        this.expChecker = new ExpChecker();
+        this.lhsChecker = new LhsChecker();
+        this.opChecker = new OpChecker();
+        this.outsideLoopChecker = new StatementChecker(false);
+        this.insideLoopChecker = new StatementChecker(true);
+    }
+
+    public static Map<FunctionName, FunctionDefinition> makeFunctionMap(final Program prog) throws TypeErrorException {
+        final Map<FunctionName, FunctionDefinition> retval =
+            new HashMap<FunctionName, FunctionDefinition>();
+        for (final FunctionDefinition def : prog.functionDefs) {
+            if (retval.putIfAbsent(def.name, def) != null) {
+                throw new TypeErrorException("Duplicate function name: " + def.name);
+            }
+        }
+        return retval;
+    } // makeFunctionMap
+
+    public static Map<StructureName, StructureDeclaration> makeStructureMap(final Program prog) throws TypeErrorException {
+        return makeStructureMap(prog, null);
+    }
+
+    private static Map<StructureName, StructureDeclaration> makeStructureMap(final Program prog, final Diagnostics diagnostics) throws TypeErrorException {
+        final Map<StructureName, StructureDeclaration> retval =
+            new HashMap<StructureName, StructureDeclaration>();
+        for (final StructureDeclaration dec : prog.structDecs) {
+            if (retval.putIfAbsent(dec.name, dec) != null) {
+                report(diagnostics, null, dec, "Duplicate structure name: " + dec.name);
+            }
+        }
+        final TypeLayout layout = new TypeLayout(retval);
+        for (final StructureDeclaration dec : prog.structDecs) {
+            if (retval.get(dec.name) == dec && layout.isRecursive(dec.name)) {
+                report(diagnostics, null, dec, recursiveStructureMessage(dec.name));
+            }
+        }
+        return retval;
+    } // makeStructureMap
+
+    static String recursiveStructureMessage(final StructureName name) {
+        return "Structure contains itself by value: " + name;
+    }
+
+    public static Typechecker forProgram(final Program prog) throws TypeErrorException {
+        return new Typechecker(FunctionSignatures.of(prog, new TypeTable()),
+                               makeStructureMap(prog),
+                               false,
+                               null);
+    }
+
+    // duplicate names are added to diagnostics; the first definition is used
+    public static Typechecker forProgram(final Program prog, final Diagnostics diagnostics) {
+        return forProgram(prog, diagnostics, new TypeTable());
     }
-    
+
+    public static Typechecker forProgram(final Program prog, final Diagnostics diagnostics, final TypeTable types) {
+        try {
+            return new Typechecker(FunctionSignatures.of(prog, types, diagnostics),
+                                   makeStructureMap(prog, diagnostics),
+                                   false,
+                                   null);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Threw while collecting errors", e);
+        }
+    }
+
+    // checks prog, collecting up to maxErrors errors
+    public static Diagnostics typecheckCollectingErrors(final Program prog, final int maxErrors) {
+        return typecheckCollectingErrors(prog, maxErrors, new TypeTable());
+    }
+
+    public static Diagnostics typecheckCollectingErrors(final Program prog, final int maxErrors, final TypeTable types) {
+        final Diagnostics diagnostics = new Diagnostics(maxErrors);
+        forProgram(prog, diagnostics, types).typecheck(prog, diagnostics);
+        return diagnostics;
+    }
+
+    // the functions and structures of prog must be those this was made with
     public void typecheck(final Program prog) throws TypeErrorException {
+        for (final FunctionDefinition def : prog.functionDefs) {
+            typecheckFunction(def);
+        }
+    }
+
+    public void typecheck(final Program prog, final Diagnostics diagnostics) {
+        for (final FunctionDefinition def : prog.functionDefs) {
+            if (diagnostics.isFull()) {
+                return;
+            }
+            typecheckFunction(def, diagnostics);
+        }
+    }
+
+    public void typecheck(final Program prog, final ExpTypes expTypes) throws TypeErrorException {
+        for (final FunctionDefinition def : prog.functionDefs) {
+            typecheckFunction(def, expTypes);
+        }
+    }
+
+    public void typecheckFunction(final FunctionDefinition def) throws TypeErrorException {
+        checkFunction(def, null, null);
+    }
+
+    public void typecheckFunction(final FunctionDefinition def, final ExpTypes expTypes) throws TypeErrorException {
+        checkFunction(def, null, expTypes);
+    }
+
+    public void typecheckFunction(final FunctionDefinition def, final Diagnostics diagnostics) {
+        try {
+            checkFunction(def, diagnostics, null);
+        } catch (final TypeErrorException e) {
+            throw new IllegalStateException("Threw while collecting errors", e);
+        }
+    }
+
+    // expTypes: where expression types go, or null to drop them
+    private void checkFunction(final FunctionDefinition def, final Diagnostics diagnostics, final ExpTypes expTypes) throws TypeErrorException {
+        final long start = (recorder == null) ? 0 : System.nanoTime();
+        TypeEnvironment env = TypeEnvironment.empty();
+        for (final VariableDeclaration param : def.parameters) {
+            env = extend(env, param.variable, types.intern(param.type));
+        }
+        try {
+            def.body.accept(outsideLoopChecker,
+                            new Context(env, types.intern(def.returnType), def.name, diagnostics, expTypes, newMemo()));
+        } finally {
+            if (recorder != null) {
+                recorder.functionChecked(def.name, System.nanoTime() - start);
+            }
+        }
+    } // checkFunction
+
+    // counting
+
+    private void countExpression(final int kind) {
+        if (recorder != null) {
+            recorder.expressionVisits[kind]++;
+        }
+    }
+
+    private void countStatement(final int kind) {
+        if (recorder != null) {
+            recorder.statementVisits[kind]++;
+        }
+    }
+
+    private void countLhs(final int kind) {
+        if (recorder != null) {
+            recorder.lhsVisits[kind]++;
+        }
+    }
+
+    private TypeEnvironment extend(final TypeEnvironment env, final Variable variable, final Type type) {
+        if (recorder != null) {
+            recorder.environmentExtensions++;
+        }
+        return env.extend(variable, type);
     }
 
     // inLoop: indicates if this statement is in a loop
-    public Map<Variable,Type> typecheckStatement(final Map<Variable, Type> env, final Stmt s, final boolean inLoop) throws TypeErrorException {
-        if (s instanceof WhileStmt) {
-            final WhileStmt asWhile = (WhileStmt)s;
-            final Type guardType = typeofExp(env, asWhile.guard);
-            ensureTypesSame(new BoolType(), guardType);
-            typecheckStatement(env, s.body, true);
-            return env;
-        } else if (s instanceof BreakStmt) {
-            if (!inLoop) {
-                throw new TypeErrorException("Break outside of loop");
-            }
-            return env;
-        } else if (s instanceof VariableDeclarationInitializationStmt) {
-            final VariableDeclarationInitializationStmt asDec =
-                (VariableDeclarationInitializationStmt)s;
-            ensureTypesSame(asDec.varDec.type, typeofExp(env, asDec.exp));
-            
-            final Map<Variable, Type> newEnv = Map(env);
-            newEnv.put(asDec.varDec.variable, asDec.varDec.type);
-
-            return newEnv;
+    // returnType: the canonical return type of the enclosing function
+    public TypeEnvironment typecheckStatement(final TypeEnvironment env, final Stmt s, final boolean inLoop, final Type returnType) throws TypeErrorException {
+        final StatementChecker checker =
+            (inLoop) ? insideLoopChecker : outsideLoopChecker;
+        return s.accept(checker, new Context(env, returnType, null, null, null, newMemo()));
+    } // typecheckStatement
+
+    // env = environment = type environment
+    // all types in env, and all returned types, are canonical
+    public Type typeofExp(final TypeEnvironment env, final Exp e) throws TypeErrorException {
+        return expChecker.typeof(e, new Context(env, null, null, null, null, newMemo()));
+    } // typeofExp
+
+    public Type typeofLhs(final TypeEnvironment env, final Lhs lhs) throws TypeErrorException {
+        return lhs.accept(lhsChecker, new Context(env, null, null, null, null, newMemo()));
+    } // typeofLhs
+
+    private ExpMemo newMemo() {
+        return (memoizing) ? new ExpMemo() : null;
+    }
+
+    // both types must be canonical (i.e., come from types)
     public void ensureTypesSame(final Type expected, final Type actual) throws TypeErrorException {
-        if (!expected.equals(actual)) {
+        if (expected != actual) {
             throw new TypeErrorException("expected: " + expected.toString() +
                                          " got: " + actual.toString());
         }
     } // ensureTypesSame
-    
-    // env = environment = type environment
-    public Type typeofExp(final Map<Variable, Type> env, final Exp e) throws TypeErrorException {
-        if (e instanceof IntExp) {
-            return new IntType();
-        } else if (e instanceof CharExp) {
-            return new CharType();
-        } else if (e instanceof BoolExp) {
-            return new BoolType();
-        } else if (e instanceof VariableExp) {
-            final VariableExp asVar = (VariableExp)e;
-            final Variable var = asVar.variable;
-            final Type retType = env.get(var);
-            if (retType == null) {
-                throw new TypeErrorException("variable not defined: " + var.toString());
+
+    // throws if diagnostics is null, and otherwise adds to it
+    static void report(final Diagnostics diagnostics,
+                               final FunctionName function,
+                               final Object node,
+                               final String message) throws TypeErrorException {
+        if (diagnostics == null) {
+            throw new TypeErrorException(message);
+        } else {
+            diagnostics.add(function, node, message);
+        }
+    }
+
+    // reports an error in the current function, returning the error type
+    private static Type error(final Context context, final Object node, final String message) throws TypeErrorException {
+        report(context.diagnostics, context.function, node, message);
+        return ErrorType.ERROR_TYPE;
+    }
+
+    private static boolean isError(final Type type) {
+        return type == ErrorType.ERROR_TYPE;
+    }
+
+    // both types must be canonical; the error type matches anything
+    private static void ensureTypesSame(final Context context, final Object node, final Type expected, final Type actual) throws TypeErrorException {
+        if (expected != actual && !isError(expected) && !isError(actual)) {
+            error(context, node, "expected: " + expected.toString() +
+                  " got: " + actual.toString());
+        }
+    } // ensureTypesSame
+
+    private Type lookupVariable(final Context context, final Object node, final Variable var) throws TypeErrorException {
+        if (recorder != null) {
+            recorder.environmentLookups++;
+        }
+        final Type retType = context.env.lookup(var);
+        if (retType == null) {
+            return error(context, node, "variable not defined: " + var.toString());
+        } else {
+            return retType;
+        }
+    } // lookupVariable
+
+    // returns the canonical type of the given field
+    private Type fieldType(final Context context, final Object node, final Type structType, final FieldName fieldBeingAccessed) throws TypeErrorException {
+        if (recorder != null) {
+            recorder.fieldLookups++;
+        }
+        if (isError(structType)) {
+            return structType;
+        } else if (structType instanceof StructureType) {
+            final StructureName structName = ((StructureType)structType).name;
+            final StructureDeclaration dec = structures.get(structName);
+            if (dec == null) {
+                return error(context, node, "No such structure with name: " + structName);
             } else {
-                return retType;
+                final int slot = dec.fieldSlot(fieldBeingAccessed);
+                if (slot < 0) {
+                    return error(context, node, "No such field defined: " + fieldBeingAccessed.name);
+                } else {
+                    return dec.fieldType(slot, types);
+                }
             }
-        } else if (e instanceof MallocExp) {
-            final MallocExp asMalloc = (MallocExp)e;
-            final Exp subexpression = asMalloc.amount;
-            final Type subexpressionType = typeofExp(env, subexpression);
-            ensureTypesSame(new IntType(), subexpressionType);
-            return new PointerType(new VoidType());
-        } else if (e instanceof FreeExp) {
-            final FreeExp asFree = (FreeExp)e;
-            final Exp subexpression = asFree.value;
-            final Type subexpressionType = typeofExp(env, subexpression);
-            ensureTypesSame(new PointerType(new VoidType()), subexpressionType);
-            return new VoidType();
-        } else if (e instanceof BinopExp) {
-            final BinopExp asBinop = (BinopExp)e;
-            final Type leftType = typeofExp(env, asBinop.left);
-            final Type rightType = typeofExp(env, asBinop.right);
-
-            if (op instanceof PlusOp ||
-                op instanceof MinusOp ||
-                op instanceof MultOp ||
-                op instanceof DivOp) {
-                ensureTypesSame(new IntType(), leftType);
-                ensureTypesSame(new IntType(), rightType);
-                return new IntType();
-            } else if (op instanceof EqualsOp) {
-                ensureTypesSame(leftType, rightType);
-                return new BoolType();
-            } // TODO: need less than
-        } else if (e instanceof FunctionCallExp) {
-            final FunctionCallExp asFunc = (FunctionCallExp)e;
-            final FunctionDefinition def = functions.get(asFunc.name);
-            if (def == null) {
-                throw new TypeErrorException("Function not defined: " + asFunc.name);
+        } else {
+            return error(context, node, "Expected structure; got: " + structType.toString());
+        }
+    } // fieldType
+
+    private static Type pointsTo(final Context context, final Object node, final Type pointerType) throws TypeErrorException {
+        if (isError(pointerType)) {
+            return pointerType;
+        } else if (pointerType instanceof PointerType) {
+            final Type retType = ((PointerType)pointerType).pointsTo;
+            if (retType == TypeTable.VOID_TYPE) {
+                return error(context, node, "Cannot dereference void pointer");
             } else {
-                if (def.parameters.length != asFunc.parameters.length) {
-                    throw new TypeErrorException("Function call has wrong arity: " + asFunc.name);
+                return retType;
+            }
+        } else {
+            return error(context, node, "Expected pointer; got: " + pointerType.toString());
+        }
+    } // pointsTo
+
+    // What code is checked against: the environment before it, the
+    // canonical return type and name of the enclosing function, where
+    // errors go (null to throw them), and where expression types go (null
+    // to drop them), and the memo of types already computed (null if not
+    // memoizing).  Statements outside of functions have no return type or
+    // name.
+    private static class Context {
+        public final TypeEnvironment env;
+        public final Type returnType;
+        public final FunctionName function;
+        public final Diagnostics diagnostics;
+        public final ExpTypes expTypes;
+        public final ExpMemo memo;
+
+        public Context(final TypeEnvironment env,
+                       final Type returnType,
+                       final FunctionName function,
+                       final Diagnostics diagnostics,
+                       final ExpTypes expTypes,
+                       final ExpMemo memo) {
+            this.env = env;
+            this.returnType = returnType;
+            this.function = function;
+            this.diagnostics = diagnostics;
+            this.expTypes = expTypes;
+            this.memo = memo;
+        }
+
+        public Context withEnv(final TypeEnvironment newEnv) {
+            return (newEnv == env) ? this : new Context(newEnv, returnType, function, diagnostics, expTypes, memo);
+        }
+    } // Context
+
+    // The type of each expression instance, along with the environment it
+    // was computed in.  Only the latest environment is kept per instance.
+    private static class ExpMemo {
+        private final Map<Exp, MemoEntry> entries;
+
+        public ExpMemo() {
+            entries = new IdentityHashMap<Exp, MemoEntry>();
+        }
+
+        // returns null if e hasn't been typed in env
+        public Type get(final Exp e, final TypeEnvironment env) {
+            final MemoEntry entry = entries.get(e);
+            return (entry != null && entry.env == env) ? entry.type : null;
+        }
+
+        public void put(final Exp e, final TypeEnvironment env, final Type type) {
+            entries.put(e, new MemoEntry(env, type));
+        }
+    } // ExpMemo
+
+    private static class MemoEntry {
+        public final TypeEnvironment env;
+        public final Type type;
+
+        public MemoEntry(final TypeEnvironment env, final Type type) {
+            this.env = env;
+            this.type = type;
+        }
+    } // MemoEntry
+
+    // Returns the environment after the statement.  There is one checker for
+    // statements inside of loops, and one for statements outside of them.
+    private class StatementChecker implements StmtVisitor<Context, TypeEnvironment, TypeErrorException> {
+        private final boolean inLoop;
+
+        public StatementChecker(final boolean inLoop) {
+            this.inLoop = inLoop;
+        }
+
+        private Type typeofExp(final Exp e, final Context context) throws TypeErrorException {
+            return expChecker.typeof(e, context);
+        }
+
+        public TypeEnvironment visit(final IfStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.IF_STMT);
+            ensureTypesSame(context, s.guard, TypeTable.BOOL_TYPE, typeofExp(s.guard, context));
+            s.ifTrue.accept(this, context);
+            s.ifFalse.accept(this, context);
+            return context.env;
+        }
+
+        public TypeEnvironment visit(final WhileStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.WHILE_STMT);
+            ensureTypesSame(context, s.guard, TypeTable.BOOL_TYPE, typeofExp(s.guard, context));
+            s.body.accept(insideLoopChecker, context);
+            return context.env;
+        }
+
+        public TypeEnvironment visit(final BreakStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.BREAK_STMT);
+            if (!inLoop) {
+                error(context, s, "Break outside of loop");
+            }
+            return context.env;
+        }
+
+        public TypeEnvironment visit(final ContinueStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.CONTINUE_STMT);
+            if (!inLoop) {
+                error(context, s, "Continue outside of loop");
+            }
+            return context.env;
+        }
+
+        public TypeEnvironment visit(final VariableDeclarationInitializationStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.VARIABLE_DECLARATION_INITIALIZATION_STMT);
+            final Type declaredType = types.intern(s.varDec.type);
+            ensureTypesSame(context, s.exp, declaredType, typeofExp(s.exp, context));
+            return extend(context.env, s.varDec.variable, declaredType);
+        }
+
+        public TypeEnvironment visit(final AssignmentStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.ASSIGNMENT_STMT);
+            ensureTypesSame(context, s,
+                            s.lhs.accept(lhsChecker, context),
+                            typeofExp(s.exp, context));
+            return context.env;
+        }
+
+        public TypeEnvironment visit(final ReturnVoidStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.RETURN_VOID_STMT);
+            ensureTypesSame(context, s, context.returnType, TypeTable.VOID_TYPE);
+            return context.env;
+        }
+
+        public TypeEnvironment visit(final ReturnExpStmt s, final Context context) throws TypeErrorException {
+            countStatement(TypecheckStats.RETURN_EXP_STMT);
+            ensureTypesSame(context, s, context.returnType, typeofExp(s.exp, context));
+            return context.env;
+        }
+
+        // Nested sequences, on either side, are checked in order from an
+        // explicit stack rather than by recursing, so long ones can't
+        // overflow the Java stack.
+        public TypeEnvironment visit(final SequenceStmt s, final Context context) throws TypeErrorException {
+            final ArrayDeque<Stmt> work = new ArrayDeque<Stmt>();
+            work.push(s);
+            Context current = context;
+            while (!work.isEmpty()) {
+                final Stmt stmt = work.pop();
+                if (stmt instanceof SequenceStmt) {
+                    countStatement(TypecheckStats.SEQUENCE_STMT);
+                    work.push(((SequenceStmt)stmt).second);
+                    work.push(((SequenceStmt)stmt).first);
                 } else {
-                    for (int index = 0; index < def.parameters; index++) {
-                        final Exp param = asFunc.parameters[index];
-                        final VariableDeclaration varDec = def.parameters[index];
-                        ensureTypesSame(varDec.type, typeofExp(env, param));
-                    }
-                    return def.returnType;
+                    current = current.withEnv(stmt.accept(this, current));
                 }
             }
-        } else if (e instanceof CastExp) {
-            final CastExp asCast = (CastExp)e;
-            if (typeofExp(asCast.exp) instanceof VoidType) {
-                throw new TypeError("Cannot cast void: " + asCase.exp);
-            } else {
-                return e.type;
+            return current.env;
+        } // visit(SequenceStmt)
+    } // StatementChecker
+
+    private class ExpChecker implements ExpVisitor<Context, Type, TypeErrorException> {
+        // checks e, unless it's memoized, and records its type if the
+        // context asks for it
+        public Type typeof(final Exp e, final Context context) throws TypeErrorException {
+            final Type memoized = memoized(e, context);
+            return record(e, context, (memoized == null) ? e.accept(this, context) : memoized);
+        }
+
+        // returns null if not memoizing, or if e isn't memoized
+        private Type memoized(final Exp e, final Context context) {
+            return (context.memo == null) ? null : context.memo.get(e, context.env);
+        }
+
+        // memoizes and records the type of e, if the context asks for it
+        private Type record(final Exp e, final Context context, final Type type) {
+            if (context.memo != null) {
+                context.memo.put(e, context.env, type);
+            }
+            if (context.expTypes != null) {
+                context.expTypes.put(e, type);
             }
-        } else if (e instanceof FieldAccessExp) {
-            final FieldAccessExp asAccess = (FieldAccessExp)e;
-            final Type expType = typeofExp(asAccess.exp);
+            return type;
+        }
+
+        public Type visit(final IntExp e, final Context context) {
+            countExpression(TypecheckStats.INT_EXP);
+            return TypeTable.INT_TYPE;
+        }
 
-            if (expType instanceof StructureType) {
-                final StructureName structName = ((StructureType)expType).name;
-                final StructureDeclaration dec = structures.get(structName);
-                if (dec == null) {
-                    throw new TypeError("No such structure with name: " + dec.name);
+        public Type visit(final CharExp e, final Context context) {
+            countExpression(TypecheckStats.CHAR_EXP);
+            return TypeTable.CHAR_TYPE;
+        }
+
+        public Type visit(final BoolExp e, final Context context) {
+            countExpression(TypecheckStats.BOOL_EXP);
+            return TypeTable.BOOL_TYPE;
+        }
+
+        public Type visit(final VariableExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.VARIABLE_EXP);
+            return lookupVariable(context, e, e.variable);
+        }
+
+        public Type visit(final MallocExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.MALLOC_EXP);
+            ensureTypesSame(context, e.amount, TypeTable.INT_TYPE, typeof(e.amount, context));
+            return types.voidPointerType;
+        }
+
+        public Type visit(final FreeExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.FREE_EXP);
+            ensureTypesSame(context, e.value, types.voidPointerType, typeof(e.value, context));
+            return TypeTable.VOID_TYPE;
+        }
+
+        public Type visit(final SizeofExp e, final Context context) {
+            countExpression(TypecheckStats.SIZEOF_EXP);
+            return TypeTable.INT_TYPE;
+        }
+
+        // Operands which are themselves binops are expanded onto an explicit
+        // stack rather than recursed into, so long chains can't overflow
+        // the Java stack.  The stack holds operands to check, and binops
+        // whose operands' types are on top of the types stack.  Each binop
+        // but e is memoized and recorded here, as typeof isn't called on it.
+        public Type visit(final BinopExp e, final Context context) throws TypeErrorException {
+            final ArrayDeque<Object> work = new ArrayDeque<Object>();
+            final ArrayDeque<Type> operandTypes = new ArrayDeque<Type>();
+            countExpression(TypecheckStats.BINOP_EXP);
+            work.push(new PendingBinop(e));
+            work.push(e.right);
+            work.push(e.left);
+            while (!work.isEmpty()) {
+                final Object item = work.pop();
+                if (item instanceof PendingBinop) {
+                    final BinopExp binop = ((PendingBinop)item).binop;
+                    final Type rightType = operandTypes.pop();
+                    final Type leftType = operandTypes.pop();
+                    final Type retType = typeofBinop(binop, leftType, rightType, context);
+                    operandTypes.push((binop == e) ? retType : record(binop, context, retType));
                 } else {
-                    final FieldName fieldBeingAccessed = asAccess.field;
-                    for (final VariableDeclaration field : dec.fields) {
-                        if (fieldBeingAccessed.name.equals(field.variable.name)) {
-                            return field.type;
-                        }
+                    final Exp operand = (Exp)item;
+                    final Type memoized = memoized(operand, context);
+                    if (memoized != null) {
+                        operandTypes.push(record(operand, context, memoized));
+                    } else if (operand instanceof BinopExp) {
+                        final BinopExp binop = (BinopExp)operand;
+                        countExpression(TypecheckStats.BINOP_EXP);
+                        work.push(new PendingBinop(binop));
+                        work.push(binop.right);
+                        work.push(binop.left);
+                    } else {
+                        operandTypes.push(typeof(operand, context));
                     }
-                    throw new TypeError("No such field defined: " + fieldBeingAccessed.name);
                 }
+            }
+            return operandTypes.pop();
+        } // visit(BinopExp)
+
+        private Type typeofBinop(final BinopExp e, final Type leftType, final Type rightType, final Context context) throws TypeErrorException {
+            final OperatorSignature signature = e.op.accept(opChecker, null);
+            if (signature.operandType == null) {
+                ensureTypesSame(context, e, leftType, rightType);
             } else {
-                throw new TypeError("Expected structure; got: " + expType.toString());
+                ensureTypesSame(context, e.left, signature.operandType, leftType);
+                ensureTypesSame(context, e.right, signature.operandType, rightType);
             }
+            return signature.resultType;
+        }
+
+        // checks each parameter against the corresponding declaration, if any
+        private void checkParameters(final Context context, final VariableDeclaration[] decs, final Exp[] params) throws TypeErrorException {
+            for (int index = 0; index < params.length; index++) {
+                final Type paramType = typeof(params[index], context);
+                if (decs != null && index < decs.length) {
+                    ensureTypesSame(context, params[index], types.intern(decs[index].type), paramType);
+                }
+            }
+        }
+
+        // checks each argument against the corresponding canonical type, if any
+        private void checkArguments(final Context context, final Type[] parameterTypes, final Exp[] params) throws TypeErrorException {
+            for (int index = 0; index < params.length; index++) {
+                final Type paramType = typeof(params[index], context);
+                if (index < parameterTypes.length) {
+                    ensureTypesSame(context, params[index], parameterTypes[index], paramType);
+                }
+            }
+        }
+
+        public Type visit(final MakeStructureExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.MAKE_STRUCTURE_EXP);
+            final StructureDeclaration dec = structures.get(e.name);
+            if (dec == null) {
+                final Type retType = error(context, e, "No such structure with name: " + e.name);
+                checkParameters(context, null, e.parameters);
+                return retType;
+            } else if (dec.fields.length != e.parameters.length) {
+                error(context, e, "Structure creation has wrong arity: " + e.name);
+            }
+            checkParameters(context, dec.fields, e.parameters);
+            return types.structureType(e.name);
+        }
+
+        public Type visit(final FunctionCallExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.FUNCTION_CALL_EXP);
+            if (recorder != null) {
+                recorder.signatureLookups++;
+            }
+            final FunctionSignature signature = signatures.get(e.name);
+            if (signature == null) {
+                final Type retType = error(context, e, "Function not defined: " + e.name);
+                checkParameters(context, null, e.parameters);
+                return retType;
+            } else if (signature.parameterTypes.length != e.parameters.length) {
+                error(context, e, "Function call has wrong arity: " + e.name);
+            }
+            checkArguments(context, signature.parameterTypes, e.parameters);
+            return signature.returnType;
+        }
+
+        public Type visit(final CastExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.CAST_EXP);
+            if (typeof(e.exp, context) == TypeTable.VOID_TYPE) {
+                error(context, e, "Cannot cast void: " + e.exp);
+            }
+            return types.intern(e.type);
+        }
+
+        public Type visit(final AddressOfExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.ADDRESS_OF_EXP);
+            final Type lhsType = e.lhs.accept(lhsChecker, context);
+            return (isError(lhsType)) ? lhsType : types.pointerTo(lhsType);
+        }
+
+        public Type visit(final DereferenceExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.DEREFERENCE_EXP);
+            return pointsTo(context, e, typeof(e.exp, context));
         }
-    } // typeofExp
-} // Typechecker
 
+        public Type visit(final FieldAccessExp e, final Context context) throws TypeErrorException {
+            countExpression(TypecheckStats.FIELD_ACCESS_EXP);
+            return fieldType(context, e, typeof(e.exp, context), e.field);
+        }
+    } // ExpChecker
+
+    private class LhsChecker implements LhsVisitor<Context, Type, TypeErrorException> {
+        public Type visit(final VariableLhs lhs, final Context context) throws TypeErrorException {
+            countLhs(TypecheckStats.VARIABLE_LHS);
+            return lookupVariable(context, lhs, lhs.variable);
+        }
+
+        public Type visit(final FieldAccessLhs lhs, final Context context) throws TypeErrorException {
+            countLhs(TypecheckStats.FIELD_ACCESS_LHS);
+            return fieldType(context, lhs, lhs.lhs.accept(this, context), lhs.field);
+        }
+
+        public Type visit(final DereferenceLhs lhs, final Context context) throws TypeErrorException {
+            countLhs(TypecheckStats.DEREFERENCE_LHS);
+            return pointsTo(context, lhs, lhs.lhs.accept(this, context));
+        }
+    } // LhsChecker
+
+    // a binop on the work stack in ExpChecker, whose operands are checked
+    private static class PendingBinop {
+        public final BinopExp binop;
+
+        public PendingBinop(final BinopExp binop) {
+            this.binop = binop;
+        }
+    } // PendingBinop
+
+    // operandType is null if the operands can be of any (shared) type
+    private static class OperatorSignature {
+        public static final OperatorSignature ARITHMETIC =
+            new OperatorSignature(TypeTable.INT_TYPE, TypeTable.INT_TYPE);
+        public static final OperatorSignature EQUALITY =
+            new OperatorSignature(null, TypeTable.BOOL_TYPE);
+        public static final OperatorSignature COMPARISON =
+            new OperatorSignature(TypeTable.INT_TYPE, TypeTable.BOOL_TYPE);
+
+        public final Type operandType;
+        public final Type resultType;
+
+        private OperatorSignature(final Type operandType, final Type resultType) {
+            this.operandType = operandType;
+            this.resultType = resultType;
+        }
+    } // OperatorSignature
+
+    private static class OpChecker implements OpVisitor<Void, OperatorSignature, RuntimeException> {
+        public OperatorSignature visit(final PlusOp op, final Void arg) {
+            return OperatorSignature.ARITHMETIC;
+        }
+
+        public OperatorSignature visit(final MinusOp op, final Void arg) {
+            return OperatorSignature.ARITHMETIC;
+        }
+
+        public OperatorSignature visit(final MultOp op, final Void arg) {
+            return OperatorSignature.ARITHMETIC;
+        }
+
+        public OperatorSignature visit(final DivOp op, final Void arg) {
+            return OperatorSignature.ARITHMETIC;
+        }
+
+        public OperatorSignature visit(final EqualsOp op, final Void arg) {
+            return OperatorSignature.EQUALITY;
+        }
+
+        public OperatorSignature visit(final LessThanOp op, final Void arg) {
+            return OperatorSignature.COMPARISON;
+        }
+    } // OpChecker
+} // Typechecker
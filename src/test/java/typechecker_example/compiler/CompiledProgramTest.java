@@ -0,0 +1,86 @@
+package typechecker_example.compiler;
+
+import org.junit.Test;
+import typechecker_example.interpreter.Interpreter;
+import typechecker_example.interpreter.InterpreterException;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.TypeErrorException;
+
+import static org.junit.Assert.*;
+
+public class CompiledProgramTest {
+    private static final FunctionName MAIN = new FunctionName("main");
+    private static final FunctionName TAKE = new FunctionName("take");
+    private static final Variable D = new Variable("d");
+    private static final Variable V = new Variable("v");
+    private static final Variable Q = new Variable("q");
+
+    private static Type voidPointer() {
+        return new PointerType(new VoidType());
+    }
+
+    // int take(void v) { void* q = &v; if (&v == q) return 2; else return 0; }
+    // int main() { void d = free(malloc(4)); void* q = &d;
+    //              if (&d == q) return take(d) + 1; else return 0; }
+    private static Program voidAddresses() {
+        final FunctionDefinition take =
+            new FunctionDefinition(new IntType(),
+                                   TAKE,
+                                   new VariableDeclaration[] { new VariableDeclaration(new VoidType(), V) },
+                                   new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(voidPointer(), Q),
+                                                                                              new AddressOfExp(new VariableLhs(V))),
+                                                    new IfStmt(new BinopExp(new AddressOfExp(new VariableLhs(V)),
+                                                                            new EqualsOp(),
+                                                                            new VariableExp(Q)),
+                                                               new ReturnExpStmt(new IntExp(2)),
+                                                               new ReturnExpStmt(new IntExp(0)))));
+        final FunctionDefinition main =
+            new FunctionDefinition(new IntType(),
+                                   MAIN,
+                                   new VariableDeclaration[0],
+                                   new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new VoidType(), D),
+                                                                                              new FreeExp(new MallocExp(new IntExp(4)))),
+                                                    new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(voidPointer(), Q),
+                                                                                                               new AddressOfExp(new VariableLhs(D))),
+                                                                     new IfStmt(new BinopExp(new AddressOfExp(new VariableLhs(D)),
+                                                                                             new EqualsOp(),
+                                                                                             new VariableExp(Q)),
+                                                                                new ReturnExpStmt(new BinopExp(new FunctionCallExp(TAKE, new Exp[] { new VariableExp(D) }),
+                                                                                                               new PlusOp(),
+                                                                                                               new IntExp(1))),
+                                                                                new ReturnExpStmt(new IntExp(0))))));
+        return new Program(new StructureDeclaration[0], new FunctionDefinition[] { take, main });
+    }
+
+    // int main() { int x0 = 0; int x1 = 1; ... return 0; }, with more
+    // locals than a method can have
+    private static Program tooManyLocals() {
+        Stmt body = new ReturnExpStmt(new IntExp(0));
+        for (int index = 70000; index >= 0; index--) {
+            body = new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(),
+                                                                                                     new Variable("x" + index)),
+                                                                              new IntExp(index)),
+                                    body);
+        }
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new IntType(), MAIN, new VariableDeclaration[0], body)
+                           });
+    }
+
+    @Test
+    public void takesAddressOfVoidVariables() throws TypeErrorException, CompileException, InterpreterException {
+        assertEquals(3, new Interpreter(voidAddresses()).call(MAIN));
+        assertEquals(3, new CompiledProgram(voidAddresses()).call(MAIN));
+    }
+
+    @Test
+    public void reportsJvmLimits() throws TypeErrorException {
+        try {
+            new CompiledProgram(tooManyLocals());
+            fail("Expected CompileException");
+        } catch (final CompileException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith(" in function: main"));
+        }
+    }
+} // CompiledProgramTest
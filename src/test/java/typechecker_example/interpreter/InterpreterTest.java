@@ -0,0 +1,104 @@
+package typechecker_example.interpreter;
+
+import org.junit.Test;
+import typechecker_example.compiler.CompileException;
+import typechecker_example.compiler.CompiledProgram;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.TypeErrorException;
+
+import static org.junit.Assert.*;
+
+public class InterpreterTest {
+    private static final StructureName E = new StructureName("E");
+    private static final FunctionName MAIN = new FunctionName("main");
+    private static final FunctionName FOREVER = new FunctionName("forever");
+    private static final Variable D = new Variable("d");
+
+    private static FunctionDefinition function(final FunctionName name, final Stmt body) {
+        return new FunctionDefinition(new IntType(), name, new VariableDeclaration[0], body);
+    }
+
+    // struct E {}; int main() { E d = E(); if (d == d) return sizeof(E) + 1; else return 0; }
+    private static Program emptyStructure() {
+        final Stmt body =
+            new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new StructureType(E), D),
+                                                                       new MakeStructureExp(E, new Exp[0])),
+                             new IfStmt(new BinopExp(new VariableExp(D), new EqualsOp(), new VariableExp(D)),
+                                        new ReturnExpStmt(new BinopExp(new SizeofExp(new StructureType(E)),
+                                                                       new PlusOp(),
+                                                                       new IntExp(1))),
+                                        new ReturnExpStmt(new IntExp(0))));
+        return new Program(new StructureDeclaration[] {
+                               new StructureDeclaration(E, new VariableDeclaration[0])
+                           },
+                           new FunctionDefinition[] { function(MAIN, body) });
+    }
+
+    // int forever() { return forever(); } int main() { return 1; }
+    private static Program unboundedRecursion() {
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               function(FOREVER, new ReturnExpStmt(new FunctionCallExp(FOREVER, new Exp[0]))),
+                               function(MAIN, new ReturnExpStmt(new IntExp(1)))
+                           });
+    }
+
+    // an empty structure sits exactly at the top of the stack
+    @Test
+    public void comparesEmptyStructureAtStackTop() throws TypeErrorException, CompileException, InterpreterException {
+        assertEquals(1, new Interpreter(emptyStructure()).call(MAIN));
+        assertEquals(1, new CompiledProgram(emptyStructure()).call(MAIN));
+    }
+
+    @Test
+    public void sizeZeroAccessAboveStackTopFails() throws InterpreterException {
+        final Memory memory = new Memory(64, 64);
+        final int top = memory.stackTop();
+        memory.check(top, 0);
+        try {
+            memory.check(top + 1, 0);
+            fail("Expected an access above the stack top to fail");
+        } catch (final InterpreterException e) {
+            assertEquals("Invalid memory access: " + (top + 1), e.getMessage());
+        }
+    }
+
+    @Test
+    public void accessStraddlingStackTopFails() throws InterpreterException {
+        final Memory memory = new Memory(64, 64);
+        final int address = memory.push(4, 4);
+        memory.getInt(address);
+        try {
+            memory.getInt(address + 2);
+            fail("Expected an access past the stack top to fail");
+        } catch (final InterpreterException e) {
+            assertEquals("Invalid memory access: " + (address + 2), e.getMessage());
+        }
+    }
+
+    @Test
+    public void interpreterLetsStackOverflowThrough() throws TypeErrorException, InterpreterException {
+        final Interpreter interpreter = new Interpreter(unboundedRecursion());
+        final int top = interpreter.memory().stackTop();
+        try {
+            interpreter.call(FOREVER);
+            fail("Expected StackOverflowError");
+        } catch (final StackOverflowError e) {
+            // expected
+        }
+        assertEquals(top, interpreter.memory().stackTop());
+        assertEquals(1, interpreter.call(MAIN));
+    }
+
+    @Test
+    public void compiledProgramLetsStackOverflowThrough() throws TypeErrorException, CompileException, InterpreterException {
+        final CompiledProgram compiled = new CompiledProgram(unboundedRecursion());
+        try {
+            compiled.call(FOREVER);
+            fail("Expected StackOverflowError");
+        } catch (final StackOverflowError e) {
+            // expected
+        }
+        assertEquals(1, compiled.call(MAIN));
+    }
+} // InterpreterTest
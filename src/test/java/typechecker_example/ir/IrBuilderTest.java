@@ -0,0 +1,44 @@
+package typechecker_example.ir;
+
+import org.junit.Test;
+import typechecker_example.syntax.*;
+import typechecker_example.typechecker.TypeErrorException;
+
+import static org.junit.Assert.*;
+
+public class IrBuilderTest {
+    private static final FunctionName MAIN = new FunctionName("main");
+    private static final Variable D = new Variable("d");
+    private static final Variable Q = new Variable("q");
+
+    // void main() { void d = free(malloc(4)); void* q = &d; d = (void)1; }
+    private static Program voidAddress() {
+        final Stmt body =
+            new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new VoidType(), D),
+                                                                       new FreeExp(new MallocExp(new IntExp(4)))),
+                             new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new PointerType(new VoidType()), Q),
+                                                                                        new AddressOfExp(new VariableLhs(D))),
+                                              new AssignmentStmt(new VariableLhs(D),
+                                                                 new CastExp(new VoidType(), new IntExp(1)))));
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new VoidType(), MAIN, new VariableDeclaration[0], body)
+                           });
+    }
+
+    @Test
+    public void takesAddressOfVoidVariable() throws TypeErrorException {
+        final IrFunction function = IrBuilder.lower(voidAddress())[0];
+        int addressOf = -1;
+        for (int index = 0; index < function.instructionCount; index++) {
+            assertNotEquals(IrFunction.MOVE, function.ops[index]);
+            if (function.ops[index] == IrFunction.ADDRESS_OF) {
+                addressOf = index;
+            }
+        }
+        assertTrue(addressOf >= 0);
+        final int register = function.first[addressOf];
+        assertTrue(function.registerTypes[register] instanceof VoidType);
+        assertTrue(function.addressTaken[register]);
+    }
+} // IrBuilderTest
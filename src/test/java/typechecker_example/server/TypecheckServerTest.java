@@ -0,0 +1,52 @@
+package typechecker_example.server;
+
+import java.io.IOException;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class TypecheckServerTest {
+    private static final FunctionName MAIN = new FunctionName("main");
+
+    // int main() { return value; }
+    private static Program returning(final Exp value) {
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new IntType(),
+                                                      MAIN,
+                                                      new VariableDeclaration[0],
+                                                      new ReturnExpStmt(value))
+                           });
+    }
+
+    // more requests than may be in flight are all answered, in sessions
+    // and out
+    @Test
+    public void answersPipelinedRequests() throws IOException {
+        try (final TypecheckServer server = new TypecheckServer(0, TypecheckServer.DEFAULT_MAX_ERRORS);
+             final TypecheckClient client = new TypecheckClient("localhost", server.port())) {
+            server.start();
+            final int count = 4 * TypecheckServer.MAX_IN_FLIGHT;
+            for (int index = 0; index < count; index++) {
+                final Exp value = (index % 2 == 0) ? new IntExp(index) : new BoolExp(true);
+                client.send(index % 3, returning(value));
+            }
+            int ok = 0;
+            int errors = 0;
+            for (int index = 0; index < count; index++) {
+                final TypecheckClient.Response response = client.receive();
+                if (response.isOk()) {
+                    // ids count up from 1
+                    assertEquals(1, response.requestId % 2);
+                    ok++;
+                } else {
+                    assertEquals(TypecheckServer.TYPE_ERRORS, response.status);
+                    errors++;
+                }
+            }
+            assertEquals(count / 2, ok);
+            assertEquals(count / 2, errors);
+        }
+    }
+} // TypecheckServerTest
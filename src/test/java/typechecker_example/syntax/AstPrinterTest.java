@@ -0,0 +1,277 @@
+package typechecker_example.syntax;
+
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// AstPrinter must print every kind of node as the toString methods it
+// replaced did; baseline below is those methods, gathered into one
+public class AstPrinterTest {
+    private static final Variable X = new Variable("x");
+    private static final Variable P = new Variable("p");
+    private static final StructureName S = new StructureName("S");
+    private static final FieldName F = new FieldName("f");
+
+    private static Exp x() {
+        return new VariableExp(X);
+    }
+
+    private static final Type[] TYPES = new Type[] {
+        new IntType(),
+        new CharType(),
+        new BoolType(),
+        new VoidType(),
+        new StructureType(S),
+        new PointerType(new PointerType(new StructureType(S)))
+    };
+
+    private static final Op[] OPS = new Op[] {
+        new PlusOp(), new MinusOp(), new MultOp(), new DivOp(), new EqualsOp(), new LessThanOp()
+    };
+
+    private static final Lhs[] LHSES = new Lhs[] {
+        new VariableLhs(X),
+        new FieldAccessLhs(new DereferenceLhs(new VariableLhs(P)), F),
+        new DereferenceLhs(new DereferenceLhs(new VariableLhs(P)))
+    };
+
+    private static final Exp[] EXPS = new Exp[] {
+        new IntExp(-42),
+        new CharExp('c'),
+        new BoolExp(false),
+        x(),
+        new MallocExp(new IntExp(8)),
+        new FreeExp(x()),
+        new SizeofExp(new PointerType(new StructureType(S))),
+        new BinopExp(new BinopExp(x(), new PlusOp(), new IntExp(1)), new LessThanOp(), x()),
+        new MakeStructureExp(S, new Exp[] { new IntExp(1), new CharExp('a') }),
+        new MakeStructureExp(S, new Exp[0]),
+        new FunctionCallExp(new FunctionName("g"), new Exp[] { x(), new BoolExp(true), new IntExp(3) }),
+        new FunctionCallExp(new FunctionName("h"), new Exp[0]),
+        new CastExp(new PointerType(new IntType()), new MallocExp(new IntExp(4))),
+        new AddressOfExp(new FieldAccessLhs(new VariableLhs(X), F)),
+        new DereferenceExp(new DereferenceExp(new VariableExp(P))),
+        new FieldAccessExp(new DereferenceExp(new VariableExp(P)), F)
+    };
+
+    private static final Stmt[] STMTS = new Stmt[] {
+        new IfStmt(new BoolExp(true), new BreakStmt(), new ContinueStmt()),
+        new WhileStmt(new BinopExp(x(), new LessThanOp(), new IntExp(10)),
+                      new AssignmentStmt(new VariableLhs(X), new BinopExp(x(), new PlusOp(), new IntExp(1)))),
+        new BreakStmt(),
+        new ContinueStmt(),
+        new VariableDeclarationInitializationStmt(new VariableDeclaration(new PointerType(new CharType()), P),
+                                                  new CastExp(new PointerType(new CharType()), new MallocExp(new IntExp(1)))),
+        new AssignmentStmt(new DereferenceLhs(new VariableLhs(P)), new CharExp('z')),
+        new ReturnVoidStmt(),
+        new ReturnExpStmt(x()),
+        new SequenceStmt(new SequenceStmt(new BreakStmt(), new ReturnVoidStmt()),
+                         new SequenceStmt(new ContinueStmt(), new ReturnExpStmt(new IntExp(0))))
+    };
+
+    private static String join(final String delimiter, final Object[] items) {
+        final StringBuilder retval = new StringBuilder();
+        for (int index = 0; index < items.length; index++) {
+            if (index > 0) {
+                retval.append(delimiter);
+            }
+            retval.append(baseline(items[index]));
+        }
+        return retval.toString();
+    }
+
+    private static String baseline(final Object node) {
+        if (node instanceof Name) {
+            return ((Name)node).name;
+        } else if (node instanceof IntType) {
+            return "int";
+        } else if (node instanceof CharType) {
+            return "char";
+        } else if (node instanceof BoolType) {
+            return "bool";
+        } else if (node instanceof VoidType) {
+            return "void";
+        } else if (node instanceof StructureType) {
+            return baseline(((StructureType)node).name);
+        } else if (node instanceof PointerType) {
+            return baseline(((PointerType)node).pointsTo) + "*";
+        } else if (node instanceof PlusOp) {
+            return "+";
+        } else if (node instanceof MinusOp) {
+            return "-";
+        } else if (node instanceof MultOp) {
+            return "*";
+        } else if (node instanceof DivOp) {
+            return "/";
+        } else if (node instanceof EqualsOp) {
+            return "==";
+        } else if (node instanceof LessThanOp) {
+            return "<";
+        } else if (node instanceof VariableLhs) {
+            return baseline(((VariableLhs)node).variable);
+        } else if (node instanceof FieldAccessLhs) {
+            final FieldAccessLhs lhs = (FieldAccessLhs)node;
+            return baseline(lhs.lhs) + "." + baseline(lhs.field);
+        } else if (node instanceof DereferenceLhs) {
+            return "*" + baseline(((DereferenceLhs)node).lhs);
+        } else if (node instanceof IntExp) {
+            return Integer.toString(((IntExp)node).value);
+        } else if (node instanceof CharExp) {
+            return Character.toString(((CharExp)node).value);
+        } else if (node instanceof BoolExp) {
+            return Boolean.toString(((BoolExp)node).value);
+        } else if (node instanceof VariableExp) {
+            return baseline(((VariableExp)node).variable);
+        } else if (node instanceof MallocExp) {
+            return "malloc(" + baseline(((MallocExp)node).amount) + ")";
+        } else if (node instanceof FreeExp) {
+            return "free(" + baseline(((FreeExp)node).value) + ")";
+        } else if (node instanceof SizeofExp) {
+            return "sizeof(" + baseline(((SizeofExp)node).type) + ")";
+        } else if (node instanceof BinopExp) {
+            final BinopExp e = (BinopExp)node;
+            return "(" + baseline(e.left) + " " + baseline(e.op) + " " + baseline(e.right) + ")";
+        } else if (node instanceof MakeStructureExp) {
+            final MakeStructureExp e = (MakeStructureExp)node;
+            return baseline(e.name) + "(" + join(", ", e.parameters) + ")";
+        } else if (node instanceof FunctionCallExp) {
+            final FunctionCallExp e = (FunctionCallExp)node;
+            return baseline(e.name) + "(" + join(", ", e.parameters) + ")";
+        } else if (node instanceof CastExp) {
+            final CastExp e = (CastExp)node;
+            return "(" + baseline(e.type) + ")" + baseline(e.exp);
+        } else if (node instanceof AddressOfExp) {
+            return "&" + baseline(((AddressOfExp)node).lhs);
+        } else if (node instanceof DereferenceExp) {
+            return "*" + baseline(((DereferenceExp)node).exp);
+        } else if (node instanceof FieldAccessExp) {
+            final FieldAccessExp e = (FieldAccessExp)node;
+            return baseline(e.exp) + "." + baseline(e.field);
+        } else if (node instanceof IfStmt) {
+            final IfStmt s = (IfStmt)node;
+            return "if (" + baseline(s.guard) + ") { " + baseline(s.ifTrue) +
+                " } else { " + baseline(s.ifFalse) + "}";
+        } else if (node instanceof WhileStmt) {
+            final WhileStmt s = (WhileStmt)node;
+            return "while (" + baseline(s.guard) + ") { " + baseline(s.body) + " }";
+        } else if (node instanceof BreakStmt) {
+            return "break";
+        } else if (node instanceof ContinueStmt) {
+            return "continue";
+        } else if (node instanceof VariableDeclarationInitializationStmt) {
+            final VariableDeclarationInitializationStmt s = (VariableDeclarationInitializationStmt)node;
+            return baseline(s.varDec) + " = " + baseline(s.exp);
+        } else if (node instanceof AssignmentStmt) {
+            final AssignmentStmt s = (AssignmentStmt)node;
+            return baseline(s.lhs) + " = " + baseline(s.exp);
+        } else if (node instanceof ReturnVoidStmt) {
+            return "return";
+        } else if (node instanceof ReturnExpStmt) {
+            return "return " + baseline(((ReturnExpStmt)node).exp);
+        } else if (node instanceof SequenceStmt) {
+            final SequenceStmt s = (SequenceStmt)node;
+            return baseline(s.first) + "; " + baseline(s.second);
+        } else if (node instanceof VariableDeclaration) {
+            final VariableDeclaration dec = (VariableDeclaration)node;
+            return baseline(dec.type) + " " + baseline(dec.variable);
+        } else if (node instanceof StructureDeclaration) {
+            final StructureDeclaration dec = (StructureDeclaration)node;
+            return baseline(dec.name) + " { " + join("; ", dec.fields) + " }";
+        } else if (node instanceof FunctionDefinition) {
+            final FunctionDefinition def = (FunctionDefinition)node;
+            return baseline(def.returnType) + " " + baseline(def.name) + "(" +
+                join(", ", def.parameters) + ") { " + baseline(def.body) + " }";
+        } else if (node instanceof Program) {
+            final Program prog = (Program)node;
+            return join("\n", prog.structDecs) + "\n\n" + join("\n", prog.functionDefs) + "\n";
+        } else {
+            throw new IllegalArgumentException("Unknown node: " + node);
+        }
+    } // baseline
+
+    private static void assertPrintsAsBaseline(final Object node) {
+        assertEquals(baseline(node), node.toString());
+    }
+
+    @Test
+    public void printsTypesAsBaseline() {
+        for (final Type type : TYPES) {
+            assertPrintsAsBaseline(type);
+        }
+    }
+
+    @Test
+    public void printsOperatorsAsBaseline() {
+        for (final Op op : OPS) {
+            assertPrintsAsBaseline(op);
+            assertPrintsAsBaseline(new BinopExp(new IntExp(1), op, new IntExp(2)));
+        }
+    }
+
+    @Test
+    public void printsLhsesAsBaseline() {
+        for (final Lhs lhs : LHSES) {
+            assertPrintsAsBaseline(lhs);
+            assertPrintsAsBaseline(new AssignmentStmt(lhs, new IntExp(1)));
+        }
+    }
+
+    @Test
+    public void printsExpressionsAsBaseline() {
+        for (final Exp e : EXPS) {
+            assertPrintsAsBaseline(e);
+            assertPrintsAsBaseline(new ReturnExpStmt(e));
+        }
+    }
+
+    @Test
+    public void printsStatementsAsBaseline() {
+        for (final Stmt s : STMTS) {
+            assertPrintsAsBaseline(s);
+            assertPrintsAsBaseline(new IfStmt(x(), s, s));
+            assertPrintsAsBaseline(new WhileStmt(x(), s));
+        }
+    }
+
+    @Test
+    public void printsDeclarationsAndProgramsAsBaseline() {
+        final StructureDeclaration s =
+            new StructureDeclaration(S, new VariableDeclaration[] {
+                    new VariableDeclaration(new IntType(), new Variable("f")),
+                    new VariableDeclaration(new PointerType(new StructureType(S)), new Variable("next"))
+                });
+        final StructureDeclaration empty =
+            new StructureDeclaration(new StructureName("E"), new VariableDeclaration[0]);
+        final FunctionDefinition g =
+            new FunctionDefinition(new IntType(),
+                                   new FunctionName("g"),
+                                   new VariableDeclaration[] {
+                                       new VariableDeclaration(new IntType(), X),
+                                       new VariableDeclaration(new PointerType(new StructureType(S)), P)
+                                   },
+                                   STMTS[STMTS.length - 1]);
+        final FunctionDefinition main =
+            new FunctionDefinition(new VoidType(), new FunctionName("main"), new VariableDeclaration[0], new ReturnVoidStmt());
+        assertPrintsAsBaseline(s.fields[0]);
+        assertPrintsAsBaseline(s);
+        assertPrintsAsBaseline(empty);
+        assertPrintsAsBaseline(g);
+        assertPrintsAsBaseline(main);
+        assertPrintsAsBaseline(new Program(new StructureDeclaration[] { s, empty }, new FunctionDefinition[] { g, main }));
+        assertPrintsAsBaseline(new Program(new StructureDeclaration[0], new FunctionDefinition[0]));
+    }
+
+    // printing into an Appendable gives the same text as toString
+    @Test
+    public void printsIntoAppendable() throws IOException {
+        final Program prog =
+            new Program(new StructureDeclaration[0],
+                        new FunctionDefinition[] {
+                            new FunctionDefinition(new IntType(), new FunctionName("f"), new VariableDeclaration[0], STMTS[1])
+                        });
+        final StringBuilder out = new StringBuilder();
+        new AstPrinter(out).print(prog);
+        assertEquals(baseline(prog), out.toString());
+    }
+} // AstPrinterTest
@@ -0,0 +1,147 @@
+package typechecker_example.syntax;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AstReaderTest {
+    public static final int DEPTH = 100000;
+
+    private static final StructureName S = new StructureName("S");
+    private static final FieldName F = new FieldName("f");
+    private static final Variable X = new Variable("x");
+    private static final Variable P = new Variable("p");
+
+    private static Program program(final Stmt body) {
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new IntType(),
+                                                      new FunctionName("main"),
+                                                      new VariableDeclaration[0],
+                                                      body)
+                           });
+    }
+
+    private static Program roundTrip(final Program prog) throws IOException {
+        return AstReader.read(AstWriter.toBytes(prog));
+    }
+
+    private static Stmt assign(final Exp exp) {
+        return new AssignmentStmt(new VariableLhs(X), exp);
+    }
+
+    // one of every kind of node
+    private static Program everyNode() {
+        final StructureDeclaration s =
+            new StructureDeclaration(S,
+                                     new VariableDeclaration[] {
+                                         new VariableDeclaration(new IntType(), new Variable("f")),
+                                         new VariableDeclaration(new PointerType(new StructureType(S)),
+                                                                 new Variable("next"))
+                                     });
+        final Exp[] exps = new Exp[] {
+            new IntExp(-7),
+            new CharExp('c'),
+            new BoolExp(true),
+            new BoolExp(false),
+            new MallocExp(new SizeofExp(new StructureType(S))),
+            new FreeExp(new VariableExp(P)),
+            new BinopExp(new IntExp(1), new MinusOp(), new IntExp(2)),
+            new BinopExp(new IntExp(1), new MultOp(), new IntExp(2)),
+            new BinopExp(new IntExp(1), new DivOp(), new IntExp(2)),
+            new BinopExp(new IntExp(1), new EqualsOp(), new IntExp(2)),
+            new BinopExp(new IntExp(1), new LessThanOp(), new IntExp(2)),
+            new MakeStructureExp(S, new Exp[] { new IntExp(0), new VariableExp(P) }),
+            new FunctionCallExp(new FunctionName("main"), new Exp[0]),
+            new CastExp(new CharType(), new IntExp(65)),
+            new AddressOfExp(new FieldAccessLhs(new DereferenceLhs(new VariableLhs(P)), F)),
+            new FieldAccessExp(new DereferenceExp(new VariableExp(P)), F)
+        };
+        Stmt body = new ReturnExpStmt(new VariableExp(X));
+        for (int index = exps.length - 1; index >= 0; index--) {
+            body = new SequenceStmt(assign(exps[index]), body);
+        }
+        body = new SequenceStmt(new IfStmt(new BoolExp(true),
+                                           new WhileStmt(new BoolExp(false),
+                                                         new SequenceStmt(new BreakStmt(),
+                                                                          new ContinueStmt())),
+                                           new ReturnVoidStmt()),
+                                body);
+        body = new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), X),
+                                                                          new IntExp(0)),
+                                body);
+        return new Program(new StructureDeclaration[] { s },
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new VoidType(),
+                                                      new FunctionName("main"),
+                                                      new VariableDeclaration[] {
+                                                          new VariableDeclaration(new PointerType(new StructureType(S)), P)
+                                                      },
+                                                      body)
+                           });
+    } // everyNode
+
+    @Test
+    public void roundTripsEveryNode() throws IOException {
+        final Program prog = everyNode();
+        assertEquals(prog, roundTrip(prog));
+    }
+
+    @Test
+    public void roundTripsLeftDeepBinops() throws IOException {
+        Exp exp = new IntExp(0);
+        for (int index = 1; index <= DEPTH; index++) {
+            exp = new BinopExp(exp, new PlusOp(), new IntExp(index));
+        }
+        final Program prog = program(new ReturnExpStmt(exp));
+        assertEquals(prog, roundTrip(prog));
+    }
+
+    @Test
+    public void roundTripsRightDeepBinops() throws IOException {
+        Exp exp = new IntExp(0);
+        for (int index = 1; index <= DEPTH; index++) {
+            exp = new BinopExp(new IntExp(index), new MinusOp(), exp);
+        }
+        final Program prog = program(new ReturnExpStmt(exp));
+        assertEquals(prog, roundTrip(prog));
+    }
+
+    @Test
+    public void roundTripsLeftNestedSequences() throws IOException {
+        Stmt body = assign(new IntExp(0));
+        for (int index = 1; index <= DEPTH; index++) {
+            body = new SequenceStmt(body, assign(new IntExp(index)));
+        }
+        final Program prog = program(body);
+        assertEquals(prog, roundTrip(prog));
+    }
+
+    // alternates left and right nesting, so every chain holds a sequence
+    @Test
+    public void roundTripsMixedSequences() throws IOException {
+        Stmt body = assign(new IntExp(0));
+        for (int index = 1; index <= DEPTH; index++) {
+            body = (index % 2 == 0)
+                ? new SequenceStmt(body, assign(new IntExp(index)))
+                : new SequenceStmt(assign(new IntExp(index)), body);
+        }
+        final Program prog = program(body);
+        assertEquals(prog, roundTrip(prog));
+    }
+
+    @Test
+    public void rejectsTruncatedInput() {
+        final byte[] bytes = AstWriter.toBytes(everyNode());
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                AstReader.read(Arrays.copyOf(bytes, length));
+                fail("Read a program truncated to " + length + " bytes");
+            } catch (final IOException e) {
+                // expected
+            }
+        }
+    }
+} // AstReaderTest
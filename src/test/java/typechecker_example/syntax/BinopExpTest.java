@@ -0,0 +1,57 @@
+package typechecker_example.syntax;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// compares, hashes, and prints million-deep chains on the default thread stack
+public class BinopExpTest {
+    public static final int DEPTH = 1000000;
+
+    // ((... (first + 1) + ...) + 1)
+    private static Exp leftDeepChain(final Exp first) {
+        Exp retval = first;
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new BinopExp(retval, new PlusOp(), new IntExp(1));
+        }
+        return retval;
+    }
+
+    // (1 + (1 + ... (1 + last)))
+    private static Exp rightDeepChain(final Exp last) {
+        Exp retval = last;
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new BinopExp(new IntExp(1), new PlusOp(), retval);
+        }
+        return retval;
+    }
+
+    @Test
+    public void equalDeepChainsAreEqual() {
+        final Exp left = leftDeepChain(new IntExp(0));
+        final Exp right = leftDeepChain(new IntExp(0));
+        assertEquals(left, right);
+        assertEquals(left.hashCode(), right.hashCode());
+        assertEquals(rightDeepChain(new IntExp(0)), rightDeepChain(new IntExp(0)));
+    }
+
+    @Test
+    public void deepestDifferenceIsFound() {
+        assertNotEquals(leftDeepChain(new IntExp(0)), leftDeepChain(new IntExp(2)));
+        assertNotEquals(rightDeepChain(new IntExp(0)), rightDeepChain(new IntExp(2)));
+        assertNotEquals(leftDeepChain(new IntExp(1)), rightDeepChain(new IntExp(1)));
+    }
+
+    @Test
+    public void printsDeepChains() {
+        final String left = leftDeepChain(new IntExp(0)).toString();
+        assertTrue(left.startsWith("(((("));
+        assertTrue(left.contains("(0 + 1) + 1)"));
+        assertTrue(left.endsWith(" + 1) + 1)"));
+        final String right = rightDeepChain(new IntExp(0)).toString();
+        assertTrue(right.startsWith("(1 + (1 + "));
+        assertTrue(right.contains("(1 + 0))"));
+        assertTrue(right.endsWith("))))"));
+        assertEquals(left.length(), right.length());
+    }
+} // BinopExpTest
@@ -0,0 +1,61 @@
+package typechecker_example.syntax;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// compares, hashes, and prints million-deep sequences on the default
+// thread stack
+public class SequenceStmtTest {
+    public static final int DEPTH = 1000000;
+
+    private static final Variable X = new Variable("x");
+
+    private static Stmt assign(final int value) {
+        return new AssignmentStmt(new VariableLhs(X), new IntExp(value));
+    }
+
+    // x = first; x = 1; ...; x = 1, nested to the left
+    private static Stmt leftNested(final int first) {
+        Stmt retval = assign(first);
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new SequenceStmt(retval, assign(1));
+        }
+        return retval;
+    }
+
+    // x = 1; ...; x = 1; x = last, nested to the right
+    private static Stmt rightNested(final int last) {
+        Stmt retval = assign(last);
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new SequenceStmt(assign(1), retval);
+        }
+        return retval;
+    }
+
+    @Test
+    public void equalDeepSequencesAreEqual() {
+        final Stmt left = leftNested(0);
+        final Stmt right = leftNested(0);
+        assertEquals(left, right);
+        assertEquals(left.hashCode(), right.hashCode());
+        assertEquals(rightNested(0), rightNested(0));
+    }
+
+    @Test
+    public void deepestDifferenceIsFound() {
+        assertNotEquals(leftNested(0), leftNested(2));
+        assertNotEquals(rightNested(0), rightNested(2));
+        // the same statements, nested differently
+        assertNotEquals(leftNested(1), rightNested(1));
+    }
+
+    @Test
+    public void printsDeepSequences() {
+        final String left = leftNested(0).toString();
+        assertTrue(left.startsWith("x = 0; x = 1; "));
+        final String right = rightNested(0).toString();
+        assertTrue(right.endsWith("x = 1; x = 0"));
+        assertEquals(left.length(), right.length());
+    }
+} // SequenceStmtTest
@@ -0,0 +1,122 @@
+package typechecker_example.syntax;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StructuralHashTest {
+    private static Stmt assign(final String variable, final int value) {
+        return new AssignmentStmt(new VariableLhs(new Variable(variable)), new IntExp(value));
+    }
+
+    private static Exp var(final String name) {
+        return new VariableExp(new Variable(name));
+    }
+
+    // struct P { int x; char y; }
+    // int f(int a, P* p) { if (a < 3) { return g(a, (*p).x); } else { return 0; } }
+    private static Program program(final String variable) {
+        final StructureDeclaration dec =
+            new StructureDeclaration(new StructureName("P"), new VariableDeclaration[] {
+                    new VariableDeclaration(new IntType(), new Variable("x")),
+                    new VariableDeclaration(new CharType(), new Variable("y"))
+                });
+        final Stmt body =
+            new IfStmt(new BinopExp(var(variable), new LessThanOp(), new IntExp(3)),
+                       new ReturnExpStmt(new FunctionCallExp(new FunctionName("g"), new Exp[] {
+                                   var(variable),
+                                   new FieldAccessExp(new DereferenceExp(var("p")), new FieldName("x"))
+                               })),
+                       new ReturnExpStmt(new IntExp(0)));
+        final FunctionDefinition f =
+            new FunctionDefinition(new IntType(),
+                                   new FunctionName("f"),
+                                   new VariableDeclaration[] {
+                                       new VariableDeclaration(new IntType(), new Variable(variable)),
+                                       new VariableDeclaration(new PointerType(new StructureType(new StructureName("P"))),
+                                                               new Variable("p"))
+                                   },
+                                   body);
+        return new Program(new StructureDeclaration[] { dec }, new FunctionDefinition[] { f });
+    }
+
+    @Test
+    public void equalTreesHashTheSame() {
+        final Program first = program("a");
+        final Program second = program("a");
+        assertNotSame(first, second);
+        assertEquals(first.structuralHash(), second.structuralHash());
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first, second);
+        assertNotEquals(first.structuralHash(), program("b").structuralHash());
+    }
+
+    @Test
+    public void sequenceOrderMatters() {
+        final Stmt a = assign("x", 1);
+        final Stmt b = assign("y", 2);
+        assertNotEquals(new SequenceStmt(a, b).structuralHash(), new SequenceStmt(b, a).structuralHash());
+        assertEquals(new SequenceStmt(a, b).structuralHash(),
+                     new SequenceStmt(assign("x", 1), assign("y", 2)).structuralHash());
+        // the same statements, nested differently
+        final Stmt c = assign("z", 3);
+        assertNotEquals(new SequenceStmt(new SequenceStmt(a, b), c).structuralHash(),
+                        new SequenceStmt(a, new SequenceStmt(b, c)).structuralHash());
+    }
+
+    @Test
+    public void operandAndParameterOrderMatter() {
+        assertNotEquals(new BinopExp(var("x"), new MinusOp(), var("y")).structuralHash(),
+                        new BinopExp(var("y"), new MinusOp(), var("x")).structuralHash());
+        final FunctionName g = new FunctionName("g");
+        assertNotEquals(new FunctionCallExp(g, new Exp[] { var("x"), var("y") }).structuralHash(),
+                        new FunctionCallExp(g, new Exp[] { var("y"), var("x") }).structuralHash());
+        final Variable x = new Variable("x");
+        final Variable y = new Variable("y");
+        assertNotEquals(new StructureDeclaration(new StructureName("P"), new VariableDeclaration[] {
+                    new VariableDeclaration(new IntType(), x), new VariableDeclaration(new CharType(), y)
+                }).structuralHash(),
+            new StructureDeclaration(new StructureName("P"), new VariableDeclaration[] {
+                    new VariableDeclaration(new CharType(), y), new VariableDeclaration(new IntType(), x)
+                }).structuralHash());
+    }
+
+    @Test
+    public void kindsHashApart() {
+        assertNotEquals(new MallocExp(var("x")).structuralHash(), new FreeExp(var("x")).structuralHash());
+        assertNotEquals(new BreakStmt().structuralHash(), new ContinueStmt().structuralHash());
+        assertNotEquals(new IntExp(1).structuralHash(), new CharExp((char)1).structuralHash());
+        assertNotEquals(new Variable("n").structuralHash(), new FunctionName("n").structuralHash());
+        assertNotEquals(new PlusOp().structuralHash(), new MultOp().structuralHash());
+    }
+
+    // Names are hashed by their strings, not their ids, so a program
+    // rebuilt after its names' ids were released and handed out again
+    // hashes as it did.  Like SymbolTableTest, this relies on System.gc to
+    // release the first ids.
+    @Test
+    public void hashesDontDependOnIds() {
+        final String name = "structural_hash_renamed";
+        final int firstId = new Variable(name).id;
+        final long firstHash = program(name).structuralHash();
+
+        // holds onto whichever names take the released ids
+        final List<Variable> fillers = new ArrayList<Variable>();
+        int secondId = firstId;
+        Program second = null;
+        for (int round = 0; round < 20 && secondId == firstId; round++) {
+            second = null;
+            System.gc();
+            for (int index = 0; index < 100; index++) {
+                fillers.add(new Variable("structural_hash_filler_" + round + "_" + index));
+            }
+            second = program(name);
+            secondId = new Variable(name).id;
+        }
+        assertNotEquals(firstId, secondId);
+        assertEquals(firstHash, second.structuralHash());
+        assertEquals(program(name), second);
+    }
+} // StructuralHashTest
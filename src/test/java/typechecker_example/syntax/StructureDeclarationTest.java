@@ -0,0 +1,70 @@
+package typechecker_example.syntax;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StructureDeclarationTest {
+    private static final StructureName S = new StructureName("S");
+
+    private static VariableDeclaration field(final Type type, final String name) {
+        return new VariableDeclaration(type, new Variable(name));
+    }
+
+    // struct S { int a; bool b; char a; int* c; }
+    private static StructureDeclaration repeatsA() {
+        return new StructureDeclaration(S, new VariableDeclaration[] {
+                field(new IntType(), "a"),
+                field(new BoolType(), "b"),
+                field(new CharType(), "a"),
+                field(new PointerType(new IntType()), "c")
+            });
+    }
+
+    @Test
+    public void firstOfRepeatedNameWins() {
+        final StructureDeclaration dec = repeatsA();
+        assertEquals(0, dec.fieldSlot(new FieldName("a")));
+        assertEquals(new IntType(), dec.fieldType(new FieldName("a")));
+        assertEquals(1, dec.fieldSlot(new FieldName("b")));
+        assertEquals(3, dec.fieldSlot(new FieldName("c")));
+    }
+
+    @Test
+    public void missingFieldsAreNotFound() {
+        assertEquals(-1, repeatsA().fieldSlot(new FieldName("d")));
+        assertNull(repeatsA().fieldType(new FieldName("d")));
+        final StructureDeclaration empty = new StructureDeclaration(S, new VariableDeclaration[0]);
+        assertEquals(-1, empty.fieldSlot(new FieldName("a")));
+    }
+
+    @Test
+    public void findsEveryFieldOfLargeStructure() {
+        final int count = 500;
+        final VariableDeclaration[] fields = new VariableDeclaration[count];
+        for (int index = 0; index < count; index++) {
+            fields[index] = field(new IntType(), "f" + index);
+        }
+        final StructureDeclaration dec = new StructureDeclaration(S, fields);
+        for (int index = 0; index < count; index++) {
+            assertEquals(index, dec.fieldSlot(new FieldName("f" + index)));
+        }
+        assertEquals(-1, dec.fieldSlot(new FieldName("f" + count)));
+    }
+
+    @Test
+    public void fieldTypesAreInternedPerTable() {
+        final StructureDeclaration dec = repeatsA();
+        final TypeTable first = new TypeTable();
+        final TypeTable second = new TypeTable();
+        final Type pointer = dec.fieldType(3, first);
+        assertSame(first.intern(new PointerType(new IntType())), pointer);
+        assertSame(pointer, dec.fieldType(3, first));
+        assertSame(TypeTable.CHAR_TYPE, dec.fieldType(2, first));
+
+        final Type otherPointer = dec.fieldType(3, second);
+        assertSame(second.intern(new PointerType(new IntType())), otherPointer);
+        assertNotSame(pointer, otherPointer);
+        assertSame(pointer, dec.fieldType(3, first));
+    }
+} // StructureDeclarationTest
@@ -0,0 +1,44 @@
+package typechecker_example.syntax;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+    public static final int ROUNDS = 50;
+    public static final int NAMES_PER_ROUND = 10000;
+
+    @Test
+    public void liveNamesShareIds() {
+        final Variable first = new Variable("shared");
+        System.gc();
+        final Variable second = new Variable("shared");
+        assertEquals(first.id, second.id);
+        assertEquals(first, second);
+        assertEquals("shared", SymbolTable.VARIABLES.string(first.id));
+    }
+
+    @Test
+    public void kindsAreSeparate() {
+        assertNotEquals(new Variable("kind"), new FunctionName("kind"));
+    }
+
+    // names dropped by every round are released, so ids don't grow with the
+    // number of distinct strings ever seen
+    @Test
+    public void releasesUnusedNames() {
+        final Variable kept = new Variable("kept");
+        for (int round = 0; round < ROUNDS; round++) {
+            final Variable[] names = new Variable[NAMES_PER_ROUND];
+            for (int index = 0; index < names.length; index++) {
+                names[index] = new Variable("released_" + round + "_" + index);
+            }
+            assertEquals("released_" + round + "_0", SymbolTable.VARIABLES.string(names[0].id));
+            System.gc();
+        }
+        assertTrue(SymbolTable.VARIABLES.size() < ROUNDS * NAMES_PER_ROUND / 2);
+        assertTrue(SymbolTable.VARIABLES.liveCount() < ROUNDS * NAMES_PER_ROUND / 2);
+        assertEquals(kept.id, new Variable("kept").id);
+        assertEquals("kept", SymbolTable.VARIABLES.string(kept.id));
+    }
+} // SymbolTableTest
@@ -0,0 +1,102 @@
+package typechecker_example.syntax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TypeTableTest {
+    public static final int THREADS = 8;
+    public static final int STRUCTURES = 200;
+
+    private static Type pointers(final Type pointsTo, final int depth) {
+        Type retval = pointsTo;
+        for (int index = 0; index < depth; index++) {
+            retval = new PointerType(retval);
+        }
+        return retval;
+    }
+
+    @Test
+    public void internsPrimitivesToConstants() {
+        final TypeTable types = new TypeTable();
+        assertSame(TypeTable.INT_TYPE, types.intern(new IntType()));
+        assertSame(TypeTable.CHAR_TYPE, types.intern(new CharType()));
+        assertSame(TypeTable.BOOL_TYPE, types.intern(new BoolType()));
+        assertSame(TypeTable.VOID_TYPE, types.intern(new VoidType()));
+        assertSame(types.voidPointerType, types.intern(new PointerType(new VoidType())));
+    }
+
+    @Test
+    public void internsEqualStructuresToOneInstance() {
+        final TypeTable types = new TypeTable();
+        final StructureType first = new StructureType(new StructureName("S"));
+        assertSame(first, types.intern(first));
+        assertSame(first, types.intern(new StructureType(new StructureName("S"))));
+        assertSame(first, types.structureType(new StructureName("S")));
+        assertNotSame(first, types.intern(new StructureType(new StructureName("T"))));
+    }
+
+    @Test
+    public void internsNestedPointersToOneInstance() {
+        final TypeTable types = new TypeTable();
+        final Type first = types.intern(pointers(new StructureType(new StructureName("S")), 3));
+        final Type second = types.intern(pointers(new StructureType(new StructureName("S")), 3));
+        assertSame(first, second);
+        // each level is canonical too
+        assertSame(((PointerType)first).pointsTo,
+                   types.intern(pointers(new StructureType(new StructureName("S")), 2)));
+        assertSame(first, types.pointerTo(types.intern(pointers(new StructureType(new StructureName("S")), 2))));
+        assertNotSame(first, types.intern(pointers(new StructureType(new StructureName("S")), 4)));
+        assertNotSame(first, types.intern(pointers(new IntType(), 3)));
+    }
+
+    // tables are separate
+    @Test
+    public void tablesDontShareInstances() {
+        final Type type = pointers(new IntType(), 2);
+        assertNotSame(new TypeTable().intern(type), new TypeTable().intern(pointers(new IntType(), 2)));
+    }
+
+    // threads racing to intern the same fresh types all get the same
+    // instances
+    @Test
+    public void isSafeToShareBetweenThreads() throws Exception {
+        final TypeTable types = new TypeTable();
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<Type[]>> results = new ArrayList<Future<Type[]>>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                results.add(pool.submit(new Callable<Type[]>() {
+                        public Type[] call() throws InterruptedException {
+                            start.await();
+                            final Type[] retval = new Type[STRUCTURES];
+                            for (int index = 0; index < STRUCTURES; index++) {
+                                retval[index] =
+                                    types.intern(pointers(new StructureType(new StructureName("S" + index)),
+                                                          1 + index % 4));
+                            }
+                            return retval;
+                        }
+                    }));
+            }
+            start.countDown();
+            final Type[] expected = results.get(0).get();
+            for (final Future<Type[]> result : results) {
+                final Type[] actual = result.get();
+                for (int index = 0; index < STRUCTURES; index++) {
+                    assertSame(expected[index], actual[index]);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+} // TypeTableTest
@@ -0,0 +1,97 @@
+package typechecker_example.typechecker;
+
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class ConstantFolderTest {
+    public static final int DEPTH = 1000000;
+
+    private static final Variable X = new Variable("x");
+
+    private static Program program(final Stmt body) {
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new IntType(),
+                                                      new FunctionName("main"),
+                                                      new VariableDeclaration[0],
+                                                      body)
+                           });
+    }
+
+    private static Stmt assign(final Exp exp) {
+        return new AssignmentStmt(new VariableLhs(X), exp);
+    }
+
+    private static Exp sum(final int left, final int right) {
+        return new BinopExp(new IntExp(left), new PlusOp(), new IntExp(right));
+    }
+
+    // int x = 0; x = exps[0]; ...; return x;, with the sequences nested
+    // to the left
+    private static Stmt leftNested(final Exp[] exps) {
+        Stmt retval =
+            new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), X),
+                                                      new IntExp(0));
+        for (final Exp exp : exps) {
+            retval = new SequenceStmt(retval, assign(exp));
+        }
+        return new SequenceStmt(retval, new ReturnExpStmt(new VariableExp(X)));
+    }
+
+    @Test
+    public void foldsLeftNestedSequences() throws TypeErrorException {
+        final Exp[] exps = new Exp[DEPTH];
+        final Exp[] expected = new Exp[DEPTH];
+        for (int index = 0; index < DEPTH; index++) {
+            exps[index] = sum(index, 1);
+            expected[index] = new IntExp(index + 1);
+        }
+        assertEquals(program(leftNested(expected)),
+                     ConstantFolder.foldConstants(program(leftNested(exps))));
+    }
+
+    @Test
+    public void keepsUnchangedSequences() throws TypeErrorException {
+        final Exp[] exps = new Exp[DEPTH];
+        for (int index = 0; index < DEPTH; index++) {
+            exps[index] = new IntExp(index);
+        }
+        final Program prog = program(leftNested(exps));
+        final Program folded = ConstantFolder.foldConstants(prog);
+        assertSame(prog.functionDefs[0].body, folded.functionDefs[0].body);
+    }
+
+    // only the first statement changes, so only the sequences above it
+    // are rebuilt
+    @Test
+    public void sharesUnchangedStatements() throws TypeErrorException {
+        final Exp[] exps = new Exp[DEPTH];
+        exps[0] = sum(1, 2);
+        for (int index = 1; index < DEPTH; index++) {
+            exps[index] = new IntExp(index);
+        }
+        final SequenceStmt body = (SequenceStmt)leftNested(exps);
+        final SequenceStmt folded =
+            (SequenceStmt)ConstantFolder.foldConstants(program(body)).functionDefs[0].body;
+        assertNotSame(body, folded);
+        assertNotSame(body.first, folded.first);
+        assertSame(((SequenceStmt)body.first).second, ((SequenceStmt)folded.first).second);
+    }
+
+    @Test
+    public void rejectsDivisionByZeroAtDepth() {
+        final Exp[] exps = new Exp[DEPTH];
+        for (int index = 0; index < DEPTH; index++) {
+            exps[index] = new IntExp(index);
+        }
+        exps[0] = new BinopExp(new IntExp(1), new DivOp(), new IntExp(0));
+        try {
+            ConstantFolder.foldConstants(program(leftNested(exps)));
+            fail("Expected division by zero to be rejected");
+        } catch (final TypeErrorException e) {
+            // expected
+        }
+    }
+} // ConstantFolderTest
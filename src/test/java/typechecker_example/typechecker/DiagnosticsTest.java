@@ -0,0 +1,114 @@
+package typechecker_example.typechecker;
+
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class DiagnosticsTest {
+    private static final FunctionName F = new FunctionName("f");
+    private static final FunctionName G = new FunctionName("g");
+
+    private static Exp var(final String name) {
+        return new VariableExp(new Variable(name));
+    }
+
+    private static Stmt returning(final String name) {
+        return new ReturnExpStmt(var(name));
+    }
+
+    private static FunctionDefinition function(final FunctionName name, final Stmt body) {
+        return new FunctionDefinition(new IntType(), name, new VariableDeclaration[0], body);
+    }
+
+    private static Program program(final FunctionDefinition... defs) {
+        return new Program(new StructureDeclaration[0], defs);
+    }
+
+    private static void assertDiagnostic(final FunctionName function,
+                                         final String message,
+                                         final Diagnostic diagnostic) {
+        assertEquals(function, diagnostic.function);
+        assertEquals(message, diagnostic.message);
+    }
+
+    @Test
+    public void dropsPastMaximum() {
+        final Diagnostics diagnostics = new Diagnostics(2);
+        diagnostics.add(F, "a", "first");
+        assertFalse(diagnostics.isFull());
+        diagnostics.add(F, "b", "second");
+        assertTrue(diagnostics.isFull());
+        diagnostics.add(F, "c", "third");
+        assertEquals(2, diagnostics.size());
+        assertEquals("second", diagnostics.list().get(1).message);
+    }
+
+    @Test
+    public void addAllStopsAtMaximum() {
+        final Diagnostics first = new Diagnostics(5);
+        first.add(F, "a", "first");
+        final Diagnostics second = new Diagnostics(5);
+        second.add(G, "b", "second");
+        second.add(G, "c", "third");
+        final Diagnostics merged = new Diagnostics(2);
+        merged.addAll(first);
+        merged.addAll(second);
+        assertEquals(2, merged.size());
+        assertDiagnostic(F, "first", merged.list().get(0));
+        assertDiagnostic(G, "second", merged.list().get(1));
+    }
+
+    // the function being checked when the maximum is reached is finished
+    // with its later errors dropped, and later functions are skipped
+    @Test
+    public void programCheckingStopsAtMaximum() {
+        final Program prog =
+            program(function(F, new SequenceStmt(new AssignmentStmt(new VariableLhs(new Variable("x")), new IntExp(1)),
+                                                 new SequenceStmt(new AssignmentStmt(new VariableLhs(new Variable("y")), new IntExp(2)),
+                                                                  returning("z")))),
+                    function(G, returning("w")));
+        final Diagnostics diagnostics = Typechecker.typecheckCollectingErrors(prog, 2);
+        assertEquals(2, diagnostics.size());
+        assertDiagnostic(F, "variable not defined: x", diagnostics.list().get(0));
+        assertDiagnostic(F, "variable not defined: y", diagnostics.list().get(1));
+
+        final Diagnostics all = Typechecker.typecheckCollectingErrors(prog, 10);
+        assertEquals(4, all.size());
+        assertDiagnostic(G, "variable not defined: w", all.list().get(3));
+    }
+
+    // an undefined variable is reported once, not again for each
+    // expression or statement using it
+    @Test
+    public void errorTypeDoesntCascade() {
+        final Exp sum = new BinopExp(new BinopExp(var("x"), new PlusOp(), new IntExp(1)),
+                                     new LessThanOp(),
+                                     new IntExp(2));
+        final Stmt body =
+            new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new BoolType(), new Variable("b")),
+                                                                       sum),
+                             new SequenceStmt(new IfStmt(new BinopExp(new DereferenceExp(var("p")), new EqualsOp(), new IntExp(0)),
+                                                         returning("y"),
+                                                         new ReturnExpStmt(new FieldAccessExp(var("q"), new FieldName("f")))),
+                                              new ReturnExpStmt(new IntExp(0))));
+        final Diagnostics diagnostics = Typechecker.typecheckCollectingErrors(program(function(F, body)), 10);
+        assertEquals(4, diagnostics.size());
+        assertDiagnostic(F, "variable not defined: x", diagnostics.list().get(0));
+        assertDiagnostic(F, "variable not defined: p", diagnostics.list().get(1));
+        assertDiagnostic(F, "variable not defined: y", diagnostics.list().get(2));
+        assertDiagnostic(F, "variable not defined: q", diagnostics.list().get(3));
+    }
+
+    // a declaration with a bad initializer still declares its variable
+    @Test
+    public void badDeclarationStillDeclares() {
+        final Stmt body =
+            new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), new Variable("i")),
+                                                                       new BoolExp(true)),
+                             returning("i"));
+        final Diagnostics diagnostics = Typechecker.typecheckCollectingErrors(program(function(F, body)), 10);
+        assertEquals(1, diagnostics.size());
+        assertDiagnostic(F, "expected: int got: bool", diagnostics.list().get(0));
+    }
+} // DiagnosticsTest
@@ -0,0 +1,197 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class ExpTypesTest {
+    private static final StructureName S = new StructureName("S");
+    private static final FunctionName F = new FunctionName("f");
+    private static final FunctionName G = new FunctionName("g");
+    private static final Variable N = new Variable("n");
+    private static final Variable P = new Variable("p");
+    private static final Variable X = new Variable("x");
+
+    private static Exp var(final Variable variable) {
+        return new VariableExp(variable);
+    }
+
+    private static Stmt seq(final Stmt... stmts) {
+        Stmt retval = stmts[stmts.length - 1];
+        for (int index = stmts.length - 2; index >= 0; index--) {
+            retval = new SequenceStmt(stmts[index], retval);
+        }
+        return retval;
+    }
+
+    private static Stmt declare(final Type type, final Variable variable, final Exp exp) {
+        return new VariableDeclarationInitializationStmt(new VariableDeclaration(type, variable), exp);
+    }
+
+    // checks a program of struct S { int i; }, bool g(int a), and f, with
+    // body and parameters S* p and int n
+    private static ExpTypes typesIn(final Type returnType, final Stmt body) throws TypeErrorException {
+        final StructureDeclaration dec =
+            new StructureDeclaration(S, new VariableDeclaration[] {
+                    new VariableDeclaration(new IntType(), new Variable("i"))
+                });
+        final FunctionDefinition g =
+            new FunctionDefinition(new BoolType(), G,
+                                   new VariableDeclaration[] { new VariableDeclaration(new IntType(), new Variable("a")) },
+                                   new ReturnExpStmt(new BoolExp(true)));
+        final FunctionDefinition f =
+            new FunctionDefinition(returnType, F,
+                                   new VariableDeclaration[] {
+                                       new VariableDeclaration(new PointerType(new StructureType(S)), P),
+                                       new VariableDeclaration(new IntType(), N)
+                                   },
+                                   body);
+        final Program prog = new Program(new StructureDeclaration[] { dec }, new FunctionDefinition[] { g, f });
+        final ExpTypes retval = new ExpTypes();
+        Typechecker.forProgram(prog).typecheck(prog, retval);
+        return retval;
+    }
+
+    private static void assertRecorded(final ExpTypes expTypes, final Type expected, final Exp e) {
+        assertEquals(expected, expTypes.get(e));
+    }
+
+    @Test
+    public void recordsEveryKindOfExpression() throws TypeErrorException {
+        final Exp n = var(N);
+        final Exp one = new IntExp(1);
+        final Exp sum = new BinopExp(n, new PlusOp(), one);
+        final Exp call = new FunctionCallExp(G, new Exp[] { sum });
+        final Exp character = new CharExp('c');
+        final Exp cast = new CastExp(new IntType(), character);
+        final Exp four = new IntExp(4);
+        final Exp malloc = new MallocExp(four);
+        final Exp pointerCast = new CastExp(new PointerType(new IntType()), malloc);
+        final Exp p = var(P);
+        final Exp deref = new DereferenceExp(p);
+        final Exp field = new FieldAccessExp(deref, new FieldName("i"));
+        final Exp size = new SizeofExp(new StructureType(S));
+        final Exp made = new MakeStructureExp(S, new Exp[] { size });
+        final Exp address = new AddressOfExp(new VariableLhs(X));
+        final Exp freed = new FreeExp(new CastExp(new PointerType(new VoidType()), address));
+        final Exp yes = new BoolExp(true);
+        final Stmt body =
+            seq(declare(new BoolType(), new Variable("b"), call),
+                declare(new IntType(), new Variable("c"), cast),
+                declare(new PointerType(new IntType()), X, pointerCast),
+                declare(new StructureType(S), new Variable("s"), made),
+                new VariableDeclarationInitializationStmt(new VariableDeclaration(new VoidType(), new Variable("v")), freed),
+                new WhileStmt(yes, new BreakStmt()),
+                new ReturnExpStmt(field));
+        final ExpTypes expTypes = typesIn(new IntType(), body);
+
+        assertRecorded(expTypes, new IntType(), n);
+        assertRecorded(expTypes, new IntType(), one);
+        assertRecorded(expTypes, new IntType(), sum);
+        assertRecorded(expTypes, new BoolType(), call);
+        assertRecorded(expTypes, new CharType(), character);
+        assertRecorded(expTypes, new IntType(), cast);
+        assertRecorded(expTypes, new IntType(), four);
+        assertRecorded(expTypes, new PointerType(new VoidType()), malloc);
+        assertRecorded(expTypes, new PointerType(new IntType()), pointerCast);
+        assertRecorded(expTypes, new PointerType(new StructureType(S)), p);
+        assertRecorded(expTypes, new StructureType(S), deref);
+        assertRecorded(expTypes, new IntType(), field);
+        assertRecorded(expTypes, new IntType(), size);
+        assertRecorded(expTypes, new StructureType(S), made);
+        assertRecorded(expTypes, new PointerType(new PointerType(new IntType())), address);
+        assertRecorded(expTypes, new VoidType(), freed);
+        assertRecorded(expTypes, new BoolType(), yes);
+        // the above, g's return value, and the cast inside of free
+        assertEquals(19, expTypes.size());
+    }
+
+    // recorded types are the canonical instances, so compare by identity
+    @Test
+    public void recordsCanonicalTypes() throws TypeErrorException {
+        final Exp first = new MallocExp(new IntExp(1));
+        final Exp second = new MallocExp(new IntExp(2));
+        final ExpTypes expTypes =
+            typesIn(new VoidType(),
+                    seq(declare(new PointerType(new VoidType()), X, first),
+                        declare(new PointerType(new VoidType()), new Variable("y"), second),
+                        new ReturnVoidStmt()));
+        assertSame(expTypes.get(first), expTypes.get(second));
+        assertSame(TypeTable.INT_TYPE, expTypes.get(((MallocExp)first).amount));
+    }
+
+    // every binop in a chain is recorded, not just the outermost, though
+    // the inner ones are checked from the work stack rather than by typeof
+    @Test
+    public void recordsIntermediateBinops() throws TypeErrorException {
+        final int length = 1000;
+        final List<Exp> chain = new ArrayList<Exp>();
+        Exp current = var(N);
+        chain.add(current);
+        for (int index = 0; index < length; index++) {
+            current = new BinopExp(current, new PlusOp(), new IntExp(index));
+            chain.add(current);
+        }
+        final Exp comparison = new BinopExp(new IntExp(0), new LessThanOp(), current);
+        final ExpTypes expTypes =
+            typesIn(new BoolType(), new ReturnExpStmt(comparison));
+        for (final Exp e : chain) {
+            assertSame(TypeTable.INT_TYPE, expTypes.get(e));
+            if (e instanceof BinopExp) {
+                assertSame(TypeTable.INT_TYPE, expTypes.get(((BinopExp)e).right));
+            }
+        }
+        assertSame(TypeTable.BOOL_TYPE, expTypes.get(comparison));
+        // the chain, its right operands, 0, the comparison, and g's return
+        // value
+        assertEquals(2 * length + 4, expTypes.size());
+    }
+
+    // e0 = n, and e(k + 1) = ek + ek, as ProgramGenerator.binopDag but
+    // over a variable
+    @Test
+    public void recordsSharedInstancesOnce() throws TypeErrorException {
+        final int depth = 12;
+        final List<Exp> nodes = new ArrayList<Exp>();
+        Exp current = var(N);
+        nodes.add(current);
+        for (int index = 0; index < depth; index++) {
+            current = new BinopExp(current, new PlusOp(), current);
+            nodes.add(current);
+        }
+        final ExpTypes expTypes = typesIn(new IntType(), new ReturnExpStmt(current));
+        for (final Exp e : nodes) {
+            assertSame(TypeTable.INT_TYPE, expTypes.get(e));
+        }
+        // the nodes and g's return value
+        assertEquals(depth + 2, expTypes.size());
+    }
+
+    // an instance used where its variable has different types holds the
+    // type from the last place it was checked
+    @Test
+    public void sharedInstanceHoldsLastType() throws TypeErrorException {
+        final Exp x = var(X);
+        final Variable y = new Variable("y");
+        final Variable z = new Variable("z");
+        final ExpTypes expTypes =
+            typesIn(new IntType(),
+                    seq(declare(new IntType(), X, new IntExp(1)),
+                        declare(new IntType(), y, x),
+                        declare(new CharType(), X, new CharExp('a')),
+                        declare(new CharType(), z, x),
+                        new ReturnExpStmt(var(y))));
+        assertSame(TypeTable.CHAR_TYPE, expTypes.get(x));
+    }
+
+    @Test
+    public void uncheckedExpressionsAreAbsent() throws TypeErrorException {
+        final ExpTypes expTypes = typesIn(new IntType(), new ReturnExpStmt(new IntExp(0)));
+        assertNull(expTypes.get(new IntExp(0)));
+        // the returned 0 and g's return value
+        assertEquals(2, expTypes.size());
+    }
+} // ExpTypesTest
@@ -0,0 +1,89 @@
+package typechecker_example.typechecker;
+
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class FlatTypecheckerTest {
+    public static final int DEPTH = 100000;
+
+    private static final Variable X = new Variable("x");
+
+    private static Program program(final Stmt body) {
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new IntType(),
+                                                      new FunctionName("main"),
+                                                      new VariableDeclaration[0],
+                                                      body)
+                           });
+    }
+
+    // (...((0 + 1) + 2) + ...) + DEPTH, with the given last operand
+    private static Exp leftDeepChain(final Exp last) {
+        Exp retval = new IntExp(0);
+        for (int index = 1; index < DEPTH; index++) {
+            retval = new BinopExp(retval, new PlusOp(), new IntExp(index));
+        }
+        return new BinopExp(retval, new PlusOp(), last);
+    }
+
+    // int x = 0; x = x + 1; ... return x;, with the sequences nested to
+    // the left
+    private static Stmt leftNestedBody() {
+        Stmt retval =
+            new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), X),
+                                                      new IntExp(0));
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new SequenceStmt(retval,
+                                      new AssignmentStmt(new VariableLhs(X),
+                                                         new BinopExp(new VariableExp(X),
+                                                                      new PlusOp(),
+                                                                      new IntExp(1))));
+        }
+        return new SequenceStmt(retval, new ReturnExpStmt(new VariableExp(X)));
+    }
+
+    private static void assertChecksAndRoundTrips(final Program prog) throws TypeErrorException {
+        final FlatProgram flat = FlatBuilder.build(prog);
+        new FlatTypechecker(flat).typecheck();
+        assertEquals(prog, flat.toProgram());
+    }
+
+    private static void assertSameError(final Program prog) {
+        String expected = null;
+        try {
+            Typechecker.forProgram(prog).typecheck(prog);
+            fail("Expected Typechecker to reject the program");
+        } catch (final TypeErrorException e) {
+            expected = e.getMessage();
+        }
+        try {
+            new FlatTypechecker(FlatBuilder.build(prog)).typecheck();
+            fail("Expected FlatTypechecker to reject the program");
+        } catch (final TypeErrorException e) {
+            assertEquals(expected, e.getMessage());
+        }
+    }
+
+    @Test
+    public void checksLeftDeepBinops() throws TypeErrorException {
+        assertChecksAndRoundTrips(program(new ReturnExpStmt(leftDeepChain(new IntExp(DEPTH)))));
+    }
+
+    @Test
+    public void checksLeftNestedSequences() throws TypeErrorException {
+        assertChecksAndRoundTrips(program(leftNestedBody()));
+    }
+
+    @Test
+    public void rejectsDeepBinopLikeTypechecker() {
+        assertSameError(program(new ReturnExpStmt(leftDeepChain(new BoolExp(true)))));
+    }
+
+    @Test
+    public void rejectsDeepSequenceLikeTypechecker() {
+        assertSameError(program(new SequenceStmt(leftNestedBody(), new BreakStmt())));
+    }
+} // FlatTypecheckerTest
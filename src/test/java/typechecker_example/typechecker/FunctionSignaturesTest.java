@@ -0,0 +1,49 @@
+package typechecker_example.typechecker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class FunctionSignaturesTest {
+    private static FunctionDefinition definition(final FunctionName name, final Type returnType) {
+        return new FunctionDefinition(returnType, name, new VariableDeclaration[0], new ReturnVoidStmt());
+    }
+
+    // random puts and removes, including of names whose probe runs cross,
+    // agree with a HashMap
+    @Test
+    public void agreesWithHashMap() {
+        final Random random = new Random(42);
+        final FunctionName[] names = new FunctionName[200];
+        for (int index = 0; index < names.length; index++) {
+            names[index] = new FunctionName("f" + index);
+        }
+        final Type[] types = new Type[] { new IntType(), new BoolType(), new CharType() };
+        final FunctionSignatures signatures = new FunctionSignatures(new TypeTable());
+        final Map<FunctionName, Type> expected = new HashMap<FunctionName, Type>();
+        for (int step = 0; step < 100000; step++) {
+            final FunctionName name = names[random.nextInt(names.length)];
+            if (random.nextInt(3) == 0) {
+                signatures.remove(name);
+                expected.remove(name);
+            } else {
+                final Type type = types[random.nextInt(types.length)];
+                final FunctionSignature previous = signatures.put(definition(name, type));
+                final Type expectedPrevious = expected.put(name, type);
+                assertEquals(expectedPrevious, (previous == null) ? null : previous.returnType);
+            }
+            assertEquals(expected.size(), signatures.size());
+        }
+        for (final FunctionName name : names) {
+            final FunctionSignature signature = signatures.get(name);
+            assertEquals(expected.get(name), (signature == null) ? null : signature.returnType);
+        }
+        signatures.clear();
+        assertEquals(0, signatures.size());
+        assertNull(signatures.get(names[0]));
+    }
+} // FunctionSignaturesTest
@@ -0,0 +1,163 @@
+package typechecker_example.typechecker;
+
+import java.util.Set;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class IncrementalTypecheckerTest {
+    public static final int DEPTH = 100000;
+
+    private static final FunctionName F = new FunctionName("f");
+    private static final FunctionName G = new FunctionName("g");
+    private static final Variable X = new Variable("x");
+
+    // int g() { return 1; }
+    private static FunctionDefinition g(final Type returnType) {
+        return new FunctionDefinition(returnType,
+                                      G,
+                                      new VariableDeclaration[0],
+                                      new ReturnExpStmt(new IntExp(1)));
+    }
+
+    private static Program program(final FunctionDefinition... defs) {
+        return new Program(new StructureDeclaration[0], defs);
+    }
+
+    // int x = 0; x = x + g(); ... x = x + g(); return x;, with the
+    // sequences nested to the left
+    private static Stmt leftNestedBody() {
+        Stmt retval =
+            new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), X),
+                                                      new IntExp(0));
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new SequenceStmt(retval,
+                                      new AssignmentStmt(new VariableLhs(X),
+                                                         new BinopExp(new VariableExp(X),
+                                                                      new PlusOp(),
+                                                                      new FunctionCallExp(G, new Exp[0]))));
+        }
+        return new SequenceStmt(retval, new ReturnExpStmt(new VariableExp(X)));
+    }
+
+    // return g() + 1 + ... + 1;, nested to the left
+    private static Stmt leftDeepBinopBody() {
+        Exp retval = new FunctionCallExp(G, new Exp[0]);
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new BinopExp(retval, new PlusOp(), new IntExp(1));
+        }
+        return new ReturnExpStmt(retval);
+    }
+
+    private static FunctionDefinition f(final Stmt body) {
+        return new FunctionDefinition(new IntType(), F, new VariableDeclaration[0], body);
+    }
+
+    private static void assertRecheckedWhenCalleeChanges(final Stmt body) throws TypeErrorException {
+        final IncrementalTypechecker checker = new IncrementalTypechecker();
+        final FunctionDefinition f = f(body);
+        final Set<FunctionName> first = checker.update(program(f, g(new IntType())));
+        assertTrue(first.contains(F));
+        assertTrue(first.contains(G));
+
+        try {
+            checker.update(program(f, g(new BoolType())));
+            fail("Expected a type error once g returns bool");
+        } catch (final TypeErrorException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void updatesLeftNestedSequence() throws TypeErrorException {
+        assertRecheckedWhenCalleeChanges(leftNestedBody());
+    }
+
+    @Test
+    public void updatesLeftDeepBinops() throws TypeErrorException {
+        assertRecheckedWhenCalleeChanges(leftDeepBinopBody());
+    }
+
+    @Test
+    public void unchangedDefinitionIsNotRechecked() throws TypeErrorException {
+        final IncrementalTypechecker checker = new IncrementalTypechecker();
+        final FunctionDefinition f = f(leftNestedBody());
+        checker.update(program(f, g(new IntType())));
+        final Set<FunctionName> second = checker.update(program(f, g(new IntType())));
+        assertFalse(second.contains(F));
+    }
+
+    // int h() { y = 1; return z; }
+    private static FunctionDefinition twoErrors(final String name) {
+        return new FunctionDefinition(new IntType(),
+                                      new FunctionName(name),
+                                      new VariableDeclaration[0],
+                                      new SequenceStmt(new AssignmentStmt(new VariableLhs(new Variable("y")),
+                                                                          new IntExp(1)),
+                                                       new ReturnExpStmt(new VariableExp(new Variable("z")))));
+    }
+
+    private static void assertSameDiagnostics(final Diagnostics expected, final Diagnostics actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++) {
+            assertEquals(expected.list().get(index).function, actual.list().get(index).function);
+            assertEquals(expected.list().get(index).message, actual.list().get(index).message);
+        }
+    }
+
+    // errors in functions which aren't rechecked are still reported
+    @Test
+    public void collectsErrorsOfUncheckedFunctions() {
+        final IncrementalTypechecker checker = new IncrementalTypechecker();
+        final FunctionDefinition h1 = twoErrors("h1");
+        final FunctionDefinition h2 = twoErrors("h2");
+        final Program first = program(h2, g(new IntType()), h1);
+        final Diagnostics firstDiagnostics = new Diagnostics(10);
+        checker.update(first, firstDiagnostics);
+        assertEquals(4, firstDiagnostics.size());
+        assertSameDiagnostics(Typechecker.typecheckCollectingErrors(first, 10), firstDiagnostics);
+
+        final Program second = program(h2, g(new BoolType()), h1);
+        final Diagnostics secondDiagnostics = new Diagnostics(3);
+        final Set<FunctionName> rechecked = checker.update(second, secondDiagnostics);
+        assertEquals(1, rechecked.size());
+        assertTrue(rechecked.contains(G));
+        assertSameDiagnostics(Typechecker.typecheckCollectingErrors(second, 3), secondDiagnostics);
+    }
+
+    @Test
+    public void collectsErrorsOfDuplicateNames() {
+        final IncrementalTypechecker checker = new IncrementalTypechecker();
+        final Program prog = program(g(new IntType()), twoErrors("h"), g(new IntType()));
+        final Diagnostics diagnostics = new Diagnostics(10);
+        checker.update(prog, diagnostics);
+        assertEquals("Duplicate function name: g", diagnostics.list().get(0).message);
+        assertSameDiagnostics(Typechecker.typecheckCollectingErrors(prog, 10), diagnostics);
+    }
+
+    // struct A { B b; } is kept between versions; struct B { A a; } is
+    // only added in the second
+    @Test
+    public void rejectsCycleThroughChangedStructure() throws TypeErrorException {
+        final StructureName a = new StructureName("A");
+        final StructureName b = new StructureName("B");
+        final StructureDeclaration decA =
+            new StructureDeclaration(a, new VariableDeclaration[] {
+                    new VariableDeclaration(new StructureType(b), new Variable("b"))
+                });
+        final StructureDeclaration decB =
+            new StructureDeclaration(b, new VariableDeclaration[] {
+                    new VariableDeclaration(new StructureType(a), new Variable("a"))
+                });
+        final FunctionDefinition g = g(new IntType());
+        final IncrementalTypechecker checker = new IncrementalTypechecker();
+        checker.update(new Program(new StructureDeclaration[] { decA }, new FunctionDefinition[] { g }));
+        try {
+            checker.update(new Program(new StructureDeclaration[] { decA, decB }, new FunctionDefinition[] { g }));
+            fail("Expected a type error for the cycle");
+        } catch (final TypeErrorException e) {
+            assertTrue(e.getMessage().startsWith("Structure contains itself by value: "));
+        }
+    }
+} // IncrementalTypecheckerTest
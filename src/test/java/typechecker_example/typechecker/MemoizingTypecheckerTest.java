@@ -0,0 +1,109 @@
+package typechecker_example.typechecker;
+
+import java.util.HashMap;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class MemoizingTypecheckerTest {
+    // 2^20 - 1 binops if unshared; too many to check without memoizing
+    private static final int DEPTH = 20;
+    // small enough to check each path through without memoizing
+    private static final int SHALLOW_DEPTH = 10;
+
+    // e0 = 0, and e(k + 1) = ek + ek, as ProgramGenerator.binopDag
+    private static Exp binopDag(final int depth) {
+        Exp retval = new IntExp(0);
+        for (int index = 0; index < depth; index++) {
+            retval = new BinopExp(retval, new PlusOp(), retval);
+        }
+        return retval;
+    }
+
+    private static Typechecker checker(final boolean memoizing, final TypecheckRecorder recorder) {
+        return new Typechecker(new HashMap<FunctionName, FunctionDefinition>(),
+                               new HashMap<StructureName, StructureDeclaration>(),
+                               new TypeTable(),
+                               memoizing,
+                               recorder);
+    }
+
+    @Test
+    public void checksSharedNodesOnce() throws TypeErrorException {
+        final TypecheckRecorder recorder = new TypecheckRecorder();
+        final Type result = checker(true, recorder).typeofExp(TypeEnvironment.empty(), binopDag(DEPTH));
+        assertSame(TypeTable.INT_TYPE, result);
+        final TypecheckStats stats = recorder.snapshot();
+        assertEquals(DEPTH, stats.expressionVisits(TypecheckStats.BINOP_EXP));
+        assertEquals(1, stats.expressionVisits(TypecheckStats.INT_EXP));
+        assertEquals(DEPTH + 1, stats.expressionVisits());
+    }
+
+    @Test
+    public void withoutMemoizingChecksEveryPath() throws TypeErrorException {
+        final TypecheckRecorder recorder = new TypecheckRecorder();
+        final Type result = checker(false, recorder).typeofExp(TypeEnvironment.empty(), binopDag(SHALLOW_DEPTH));
+        assertSame(TypeTable.INT_TYPE, result);
+        final TypecheckStats stats = recorder.snapshot();
+        assertEquals((1 << SHALLOW_DEPTH) - 1, stats.expressionVisits(TypecheckStats.BINOP_EXP));
+        assertEquals(1 << SHALLOW_DEPTH, stats.expressionVisits(TypecheckStats.INT_EXP));
+    }
+
+    // the memo lasts for one function, so each function checks the DAG
+    // once even though they share it
+    @Test
+    public void memoIsPerFunction() throws TypeErrorException {
+        final Exp dag = binopDag(DEPTH);
+        final FunctionDefinition[] defs = new FunctionDefinition[3];
+        for (int index = 0; index < defs.length; index++) {
+            defs[index] = new FunctionDefinition(new IntType(),
+                                                 new FunctionName("f" + index),
+                                                 new VariableDeclaration[0],
+                                                 new ReturnExpStmt(dag));
+        }
+        final Program prog = new Program(new StructureDeclaration[0], defs);
+        final TypecheckRecorder recorder = new TypecheckRecorder();
+        final Typechecker checker = new Typechecker(Typechecker.makeFunctionMap(prog),
+                                                    Typechecker.makeStructureMap(prog),
+                                                    new TypeTable(),
+                                                    true,
+                                                    recorder);
+        final ExpTypes expTypes = new ExpTypes();
+        checker.typecheck(prog, expTypes);
+        final TypecheckStats stats = recorder.snapshot();
+        assertEquals(defs.length * DEPTH, stats.expressionVisits(TypecheckStats.BINOP_EXP));
+        assertEquals(defs.length, stats.expressionVisits(TypecheckStats.INT_EXP));
+        // memoized nodes are still recorded
+        assertEquals(DEPTH + 1, expTypes.size());
+        assertSame(TypeTable.INT_TYPE, expTypes.get(dag));
+    }
+
+    // a memoized type is only reused in the same environment
+    @Test
+    public void memoIsPerEnvironment() throws TypeErrorException {
+        final Variable x = new Variable("x");
+        final Exp shared = new BinopExp(new VariableExp(x), new PlusOp(), new IntExp(1));
+        final Stmt body =
+            new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), x),
+                                                                       new IntExp(0)),
+                             new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), new Variable("y")),
+                                                                                        shared),
+                                              new SequenceStmt(new VariableDeclarationInitializationStmt(new VariableDeclaration(new BoolType(), x),
+                                                                                                         new BoolExp(true)),
+                                                               new ReturnExpStmt(shared))));
+        final FunctionDefinition f = new FunctionDefinition(new IntType(),
+                                                            new FunctionName("f"),
+                                                            new VariableDeclaration[0],
+                                                            body);
+        final Program prog = new Program(new StructureDeclaration[0], new FunctionDefinition[] { f });
+        try {
+            new Typechecker(Typechecker.makeFunctionMap(prog),
+                            Typechecker.makeStructureMap(prog),
+                            true).typecheck(prog);
+            fail("Expected a type error");
+        } catch (final TypeErrorException e) {
+            assertEquals("expected: int got: bool", e.getMessage());
+        }
+    }
+} // MemoizingTypecheckerTest
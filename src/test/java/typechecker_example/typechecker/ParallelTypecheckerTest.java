@@ -0,0 +1,104 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class ParallelTypecheckerTest {
+    // enough functions that the work is split across several tasks
+    private static final int NUM_FUNCTIONS = 100;
+
+    // functions f0 .. f99 each returning int, where every seventh assigns
+    // and then returns undefined variables named after the function
+    private static Program someFailing() {
+        final FunctionDefinition[] defs = new FunctionDefinition[NUM_FUNCTIONS];
+        for (int index = 0; index < NUM_FUNCTIONS; index++) {
+            final Stmt body = (index % 7 == 3)
+                ? new SequenceStmt(new AssignmentStmt(new VariableLhs(new Variable("assigned" + index)),
+                                                      new IntExp(index)),
+                                   new ReturnExpStmt(new VariableExp(new Variable("missing" + index))))
+                : new ReturnExpStmt(new IntExp(index));
+            defs[index] = new FunctionDefinition(new IntType(),
+                                                 new FunctionName("f" + index),
+                                                 new VariableDeclaration[0],
+                                                 body);
+        }
+        return new Program(new StructureDeclaration[0], defs);
+    }
+
+    // messages from checking each function in turn on this thread
+    private static List<String> sequentialMessages(final Program prog) throws TypeErrorException {
+        final Typechecker checker = Typechecker.forProgram(prog);
+        final List<String> retval = new ArrayList<String>();
+        for (final FunctionDefinition def : prog.functionDefs) {
+            try {
+                checker.typecheckFunction(def);
+            } catch (final TypeErrorException e) {
+                retval.add(e.getMessage());
+            }
+        }
+        return retval;
+    }
+
+    @Test
+    public void acceptsWellTypedProgram() throws TypeErrorException {
+        final FunctionDefinition[] defs = new FunctionDefinition[NUM_FUNCTIONS];
+        for (int index = 0; index < NUM_FUNCTIONS; index++) {
+            defs[index] = new FunctionDefinition(new IntType(),
+                                                 new FunctionName("f" + index),
+                                                 new VariableDeclaration[0],
+                                                 new ReturnExpStmt(new IntExp(index)));
+        }
+        try (final ParallelTypechecker checker = new ParallelTypechecker(4)) {
+            checker.typecheck(new Program(new StructureDeclaration[0], defs));
+        }
+    }
+
+    @Test
+    public void errorsMatchSequential() throws TypeErrorException {
+        final Program prog = someFailing();
+        final List<String> expected = sequentialMessages(prog);
+        assertEquals(NUM_FUNCTIONS / 7, expected.size());
+
+        try {
+            Typechecker.forProgram(prog).typecheck(prog);
+            fail("Expected a type error");
+        } catch (final TypeErrorException e) {
+            assertEquals(expected.get(0), e.getMessage());
+        }
+
+        try (final ParallelTypechecker checker = new ParallelTypechecker(4)) {
+            checker.typecheck(prog);
+            fail("Expected a type error");
+        } catch (final TypeErrorException e) {
+            final List<String> actual = new ArrayList<String>();
+            actual.add(e.getMessage());
+            for (final Throwable suppressed : e.getSuppressed()) {
+                actual.add(suppressed.getMessage());
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    // including where the maximum falls partway through a function
+    @Test
+    public void collectedErrorsMatchSequential() {
+        final Program prog = someFailing();
+        try (final ParallelTypechecker checker = new ParallelTypechecker(4)) {
+            for (final int maxErrors : new int[] { 1, 5, 6, 28, 100 }) {
+                final Diagnostics expected = Typechecker.typecheckCollectingErrors(prog, maxErrors);
+                final Diagnostics actual = checker.typecheckCollectingErrors(prog, maxErrors);
+                assertEquals(Math.min(maxErrors, 2 * (NUM_FUNCTIONS / 7)), expected.size());
+                assertEquals(expected.size(), actual.size());
+                for (int index = 0; index < expected.size(); index++) {
+                    assertEquals(expected.list().get(index).function, actual.list().get(index).function);
+                    assertEquals(expected.list().get(index).message, actual.list().get(index).message);
+                    assertSame(expected.list().get(index).node, actual.list().get(index).node);
+                }
+            }
+        }
+    }
+} // ParallelTypecheckerTest
@@ -0,0 +1,59 @@
+package typechecker_example.typechecker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class ReachableTypecheckerTest {
+    private static final FunctionName MAIN = new FunctionName("main");
+    private static final FunctionName A = new FunctionName("a");
+    private static final FunctionName B = new FunctionName("b");
+    private static final FunctionName C = new FunctionName("c");
+
+    private static FunctionDefinition function(final FunctionName name, final Stmt body) {
+        return new FunctionDefinition(new IntType(), name, new VariableDeclaration[0], body);
+    }
+
+    private static Exp call(final FunctionName name) {
+        return new FunctionCallExp(name, new Exp[0]);
+    }
+
+    // int main() { return c() + b() + a(); }, where a, b, and c each
+    // return a bool
+    private static Program callsInReverse() {
+        final Stmt wrong = new ReturnExpStmt(new BoolExp(true));
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               function(A, wrong),
+                               function(B, wrong),
+                               function(C, wrong),
+                               function(MAIN,
+                                        new ReturnExpStmt(new BinopExp(new BinopExp(call(C), new PlusOp(), call(B)),
+                                                                       new PlusOp(),
+                                                                       call(A))))
+                           });
+    }
+
+    // callees are checked in the order they're called, and those left
+    // when diagnostics fill up aren't counted as reached
+    @Test
+    public void stopsInCallOrderWhenFull() {
+        final Program prog = callsInReverse();
+        final ReachableTypechecker checker = new ReachableTypechecker(prog, new Diagnostics(10));
+        final Diagnostics diagnostics = new Diagnostics(2);
+        checker.typecheckFrom(Collections.singletonList(MAIN), diagnostics);
+        assertEquals(2, diagnostics.size());
+        assertEquals(C, diagnostics.list().get(0).function);
+        assertEquals(B, diagnostics.list().get(1).function);
+        assertFalse(checker.isReached(A));
+        assertEquals(Arrays.asList(A), checker.skipped());
+
+        final Diagnostics more = new Diagnostics(10);
+        checker.typecheckFrom(Collections.singletonList(A), more);
+        assertEquals(1, more.size());
+        assertEquals(A, more.list().get(0).function);
+    }
+} // ReachableTypecheckerTest
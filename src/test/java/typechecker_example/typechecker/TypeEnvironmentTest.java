@@ -0,0 +1,97 @@
+package typechecker_example.typechecker;
+
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class TypeEnvironmentTest {
+    public static final int MANY = 3000;
+
+    private static final PointerType INT_POINTER = new PointerType(TypeTable.INT_TYPE);
+
+    // variables whose ids agree in the given number of low bits, but differ
+    // above them
+    private static Variable[] sharingLowBits(final String prefix, final int bits) {
+        final Variable[] byLowBits = new Variable[1 << bits];
+        for (int index = 0; ; index++) {
+            final Variable variable = new Variable(prefix + index);
+            final int low = variable.id & ((1 << bits) - 1);
+            if (byLowBits[low] != null && byLowBits[low].id != variable.id) {
+                return new Variable[] { byLowBits[low], variable };
+            }
+            byLowBits[low] = variable;
+        }
+    }
+
+    @Test
+    public void extendsWithoutChangingTheOriginal() {
+        final Variable x = new Variable("x");
+        final TypeEnvironment empty = TypeEnvironment.empty();
+        final TypeEnvironment env = empty.extend(x, TypeTable.INT_TYPE);
+        assertSame(TypeTable.INT_TYPE, env.lookup(x));
+        assertEquals(1, env.size);
+        assertNull(empty.lookup(x));
+        assertEquals(0, empty.size);
+    }
+
+    @Test
+    public void laterBindingsShadow() {
+        final Variable x = new Variable("x");
+        final TypeEnvironment outer = TypeEnvironment.empty().extend(x, TypeTable.INT_TYPE);
+        final TypeEnvironment inner = outer.extend(x, TypeTable.BOOL_TYPE);
+        assertSame(TypeTable.BOOL_TYPE, inner.lookup(x));
+        assertEquals(1, inner.size);
+        assertSame(TypeTable.INT_TYPE, outer.lookup(x));
+    }
+
+    @Test
+    public void missingKeysAreNull() {
+        final Variable x = new Variable("x");
+        final Variable y = new Variable("y");
+        assertNull(TypeEnvironment.empty().lookup(x));
+        assertNull(TypeEnvironment.empty().extend(y, TypeTable.INT_TYPE).lookup(x));
+    }
+
+    // keys which land in the same slot at the first level, and at the
+    // first two, split into subtries
+    @Test
+    public void keysSharingLowBitsAreKeptApart() {
+        for (final int bits : new int[] { 5, 10 }) {
+            final Variable[] pair = sharingLowBits("low" + bits + "_", bits);
+            final Variable missing = sharingLowBits("missing" + bits + "_", bits)[0];
+            final TypeEnvironment one = TypeEnvironment.empty().extend(pair[0], TypeTable.INT_TYPE);
+            final TypeEnvironment two = one.extend(pair[1], INT_POINTER);
+            assertEquals(2, two.size);
+            assertSame(TypeTable.INT_TYPE, two.lookup(pair[0]));
+            assertSame(INT_POINTER, two.lookup(pair[1]));
+            assertNull(one.lookup(pair[1]));
+            assertNull(two.lookup(missing));
+
+            final TypeEnvironment shadowed = two.extend(pair[0], TypeTable.CHAR_TYPE);
+            assertEquals(2, shadowed.size);
+            assertSame(TypeTable.CHAR_TYPE, shadowed.lookup(pair[0]));
+            assertSame(INT_POINTER, shadowed.lookup(pair[1]));
+            assertSame(TypeTable.INT_TYPE, two.lookup(pair[0]));
+        }
+    }
+
+    @Test
+    public void holdsManyKeys() {
+        final Variable[] variables = new Variable[MANY];
+        TypeEnvironment env = TypeEnvironment.empty();
+        for (int index = 0; index < MANY; index++) {
+            variables[index] = new Variable("many" + index);
+            env = env.extend(variables[index], (index % 2 == 0) ? TypeTable.INT_TYPE : TypeTable.BOOL_TYPE);
+        }
+        assertEquals(MANY, env.size);
+        for (int index = 0; index < MANY; index++) {
+            assertSame((index % 2 == 0) ? TypeTable.INT_TYPE : TypeTable.BOOL_TYPE, env.lookup(variables[index]));
+        }
+        for (int index = 0; index < MANY; index++) {
+            env = env.extend(variables[index], TypeTable.CHAR_TYPE);
+        }
+        assertEquals(MANY, env.size);
+        assertSame(TypeTable.CHAR_TYPE, env.lookup(variables[MANY - 1]));
+    }
+} // TypeEnvironmentTest
@@ -0,0 +1,172 @@
+package typechecker_example.typechecker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class TypeLayoutTest {
+    private static final StructureName A = new StructureName("A");
+    private static final StructureName B = new StructureName("B");
+    private static final StructureName C = new StructureName("C");
+    private static final StructureName D = new StructureName("D");
+
+    private static VariableDeclaration field(final Type type, final String name) {
+        return new VariableDeclaration(type, new Variable(name));
+    }
+
+    private static Map<StructureName, StructureDeclaration> structures(final StructureDeclaration... decs) {
+        final Map<StructureName, StructureDeclaration> retval =
+            new HashMap<StructureName, StructureDeclaration>();
+        for (final StructureDeclaration dec : decs) {
+            retval.put(dec.name, dec);
+        }
+        return retval;
+    }
+
+    private static StructureDeclaration structure(final StructureName name, final VariableDeclaration... fields) {
+        return new StructureDeclaration(name, fields);
+    }
+
+    @Test
+    public void primitivesAlignToTheirSize() {
+        final TypeLayout layout = new TypeLayout(structures());
+        assertEquals(4, layout.sizeof(new IntType()));
+        assertEquals(1, layout.sizeof(new CharType()));
+        assertEquals(1, layout.alignof(new BoolType()));
+        assertEquals(8, layout.sizeof(new PointerType(new VoidType())));
+        assertEquals(TypeLayout.UNSIZED, layout.sizeof(new VoidType()));
+        assertEquals(TypeLayout.UNSIZED, layout.sizeof(new StructureType(A)));
+    }
+
+    // struct A { char c; int i; bool b; int* p; char d; }
+    //   c at 0, i at 4, b at 8, p at 16, d at 24; size 32
+    @Test
+    public void padsFieldsAndStructures() {
+        final TypeLayout layout =
+            new TypeLayout(structures(structure(A,
+                                                field(new CharType(), "c"),
+                                                field(new IntType(), "i"),
+                                                field(new BoolType(), "b"),
+                                                field(new PointerType(new IntType()), "p"),
+                                                field(new CharType(), "d"))));
+        assertArrayEquals(new int[] { 0, 4, 8, 16, 24 }, layout.fieldOffsets(A));
+        assertEquals(32, layout.sizeof(new StructureType(A)));
+        assertEquals(8, layout.alignof(new StructureType(A)));
+    }
+
+    // struct B { char c; A a; char d; }, struct A { int i; char c; }
+    //   A has size 8 and alignment 4, so B lays out c at 0, a at 4, d at 12
+    @Test
+    public void nestedStructuresAlignToStrictestField() {
+        final TypeLayout layout =
+            new TypeLayout(structures(structure(B,
+                                                field(new CharType(), "c"),
+                                                field(new StructureType(A), "a"),
+                                                field(new CharType(), "d")),
+                                      structure(A,
+                                                field(new IntType(), "i"),
+                                                field(new CharType(), "c"))));
+        assertEquals(8, layout.sizeof(new StructureType(A)));
+        assertEquals(4, layout.alignof(new StructureType(A)));
+        assertArrayEquals(new int[] { 0, 4, 12 }, layout.fieldOffsets(B));
+        assertEquals(16, layout.sizeof(new StructureType(B)));
+    }
+
+    @Test
+    public void charsOnlyNeedNoPadding() {
+        final TypeLayout layout =
+            new TypeLayout(structures(structure(A,
+                                                field(new CharType(), "c"),
+                                                field(new BoolType(), "b"),
+                                                field(new CharType(), "d"))));
+        assertEquals(3, layout.sizeof(new StructureType(A)));
+        assertEquals(1, layout.alignof(new StructureType(A)));
+    }
+
+    // struct A { int x; char y; int x; }
+    @Test
+    public void fieldOffsetIsOfFirstRepeatedField() {
+        final TypeLayout layout =
+            new TypeLayout(structures(structure(A,
+                                                field(new IntType(), "x"),
+                                                field(new CharType(), "y"),
+                                                field(new IntType(), "x"))));
+        assertEquals(0, layout.fieldOffset(A, new FieldName("x")));
+        assertEquals(4, layout.fieldOffset(A, new FieldName("y")));
+        assertEquals(TypeLayout.UNSIZED, layout.fieldOffset(A, new FieldName("z")));
+        assertEquals(TypeLayout.UNSIZED, layout.fieldOffset(B, new FieldName("x")));
+    }
+
+    // struct A { B b; }, struct B { C c; }, struct C { A a; }, and struct
+    // D { A a; }, which isn't recursive itself but has no size
+    @Test
+    public void findsCyclesThroughOtherStructures() {
+        final TypeLayout layout =
+            new TypeLayout(structures(structure(A, field(new StructureType(B), "b")),
+                                      structure(B, field(new StructureType(C), "c")),
+                                      structure(C, field(new StructureType(A), "a")),
+                                      structure(D, field(new StructureType(A), "a"))));
+        assertTrue(layout.isRecursive(A));
+        assertTrue(layout.isRecursive(B));
+        assertTrue(layout.isRecursive(C));
+        assertFalse(layout.isRecursive(D));
+        assertEquals(TypeLayout.UNSIZED, layout.sizeof(new StructureType(D)));
+        assertNull(layout.fieldOffsets(D));
+        assertEquals(3, layout.recursiveStructures().size());
+    }
+
+    // struct A { A* next; int i; } only points to itself
+    @Test
+    public void pointersDontMakeCycles() {
+        final TypeLayout layout =
+            new TypeLayout(structures(structure(A,
+                                                field(new PointerType(new StructureType(A)), "next"),
+                                                field(new IntType(), "i")),
+                                      structure(B, field(new StructureType(B), "b"))));
+        assertFalse(layout.isRecursive(A));
+        assertEquals(16, layout.sizeof(new StructureType(A)));
+        assertTrue(layout.isRecursive(B));
+        assertEquals(Arrays.asList(B), layout.recursiveStructures());
+    }
+
+    // a chain far longer than the default thread stack could recurse over
+    @Test
+    public void laysOutLongChains() {
+        final int length = 20000;
+        final StructureDeclaration[] decs = new StructureDeclaration[length];
+        for (int index = 0; index < length; index++) {
+            final Type last = (index == length - 1)
+                ? new IntType()
+                : new StructureType(new StructureName("S" + (index + 1)));
+            decs[index] = structure(new StructureName("S" + index), field(new CharType(), "c"), field(last, "next"));
+        }
+        final Map<StructureName, StructureDeclaration> structures = structures(decs);
+        final TypeLayout layout = new TypeLayout(structures);
+        assertTrue(layout.recursiveStructures().isEmpty());
+        assertEquals(4 * (length + 1), layout.sizeof(new StructureType(new StructureName("S0"))));
+
+        final StructureName s0 = new StructureName("S0");
+        assertNull(TypeLayout.recursiveStructureFrom(structures, Collections.singletonList(s0)));
+        structures.put(decs[length - 1].name,
+                       structure(decs[length - 1].name, field(new StructureType(s0), "loop")));
+        assertNotNull(TypeLayout.recursiveStructureFrom(structures, Collections.singletonList(s0)));
+    }
+
+    @Test
+    public void recursiveStructureFromOnlyFollowsRoots() {
+        final Map<StructureName, StructureDeclaration> structures =
+            structures(structure(A, field(new StructureType(A), "a")),
+                       structure(B, field(new StructureType(C), "c")),
+                       structure(C, field(new IntType(), "i")),
+                       structure(D, field(new StructureType(B), "b"), field(new StructureType(A), "a")));
+        assertNull(TypeLayout.recursiveStructureFrom(structures, Arrays.asList(B, C)));
+        assertEquals(A, TypeLayout.recursiveStructureFrom(structures, Arrays.asList(C, A)));
+        assertEquals(A, TypeLayout.recursiveStructureFrom(structures, Arrays.asList(D)));
+        assertNull(TypeLayout.recursiveStructureFrom(structures, Arrays.asList(new StructureName("E"))));
+    }
+} // TypeLayoutTest
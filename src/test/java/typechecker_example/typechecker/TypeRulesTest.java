@@ -0,0 +1,462 @@
+package typechecker_example.typechecker;
+
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+// one accepted and one rejected case for each statement, expression, and
+// left-hand side rule, checked against:
+//
+//   struct S { int i; bool b; }
+//   int g(int a, bool c) { return a; }
+//   bool big(int a) { return a < 10; }
+//
+// in an environment of n: int, flag: bool, s: S, sp: S*, ip: int*, and
+// vp: void*
+public class TypeRulesTest {
+    private static final StructureName S = new StructureName("S");
+    private static final FieldName I = new FieldName("i");
+    private static final FieldName B = new FieldName("b");
+    private static final FunctionName G = new FunctionName("g");
+    private static final FunctionName BIG = new FunctionName("big");
+    private static final FunctionName MAIN = new FunctionName("main");
+
+    // begin instance variables
+    private TypeTable types;
+    private Typechecker checker;
+    private TypeEnvironment env;
+
+    private static Variable v(final String name) {
+        return new Variable(name);
+    }
+
+    private static Exp var(final String name) {
+        return new VariableExp(v(name));
+    }
+
+    private static Lhs lhs(final String name) {
+        return new VariableLhs(v(name));
+    }
+
+    private static Exp num(final int value) {
+        return new IntExp(value);
+    }
+
+    private static Exp yes() {
+        return new BoolExp(true);
+    }
+
+    private static Exp binop(final Exp left, final Op op, final Exp right) {
+        return new BinopExp(left, op, right);
+    }
+
+    private static Exp call(final FunctionName name, final Exp... parameters) {
+        return new FunctionCallExp(name, parameters);
+    }
+
+    private static Exp make(final StructureName name, final Exp... parameters) {
+        return new MakeStructureExp(name, parameters);
+    }
+
+    private static Stmt seq(final Stmt first, final Stmt second) {
+        return new SequenceStmt(first, second);
+    }
+
+    private static Stmt declare(final Type type, final String name, final Exp exp) {
+        return new VariableDeclarationInitializationStmt(new VariableDeclaration(type, v(name)), exp);
+    }
+
+    private static VariableDeclaration param(final Type type, final String name) {
+        return new VariableDeclaration(type, v(name));
+    }
+
+    private static StructureDeclaration structureS() {
+        return new StructureDeclaration(S, new VariableDeclaration[] {
+                new VariableDeclaration(new IntType(), v("i")),
+                new VariableDeclaration(new BoolType(), v("b"))
+            });
+    }
+
+    private static FunctionDefinition functionG() {
+        return new FunctionDefinition(new IntType(),
+                                      G,
+                                      new VariableDeclaration[] {
+                                          param(new IntType(), "a"),
+                                          param(new BoolType(), "c")
+                                      },
+                                      new ReturnExpStmt(var("a")));
+    }
+
+    private static FunctionDefinition functionBig() {
+        return new FunctionDefinition(new BoolType(),
+                                      BIG,
+                                      new VariableDeclaration[] { param(new IntType(), "a") },
+                                      new ReturnExpStmt(binop(var("a"), new LessThanOp(), num(10))));
+    }
+
+    private static Program program(final StructureDeclaration[] decs, final FunctionDefinition... defs) {
+        return new Program(decs, defs);
+    }
+
+    private static String errorIn(final Program prog) {
+        try {
+            Typechecker.forProgram(prog).typecheck(prog);
+        } catch (final TypeErrorException e) {
+            return e.getMessage();
+        }
+        fail("Expected a type error");
+        return null;
+    }
+
+    @Before
+    public void setUp() throws TypeErrorException {
+        final Program prog =
+            program(new StructureDeclaration[] { structureS() }, functionG(), functionBig());
+        final Map<FunctionName, FunctionDefinition> functions = Typechecker.makeFunctionMap(prog);
+        final Map<StructureName, StructureDeclaration> structures = Typechecker.makeStructureMap(prog);
+        types = new TypeTable();
+        checker = new Typechecker(functions, structures, types, false);
+        env = TypeEnvironment.empty()
+            .extend(v("n"), TypeTable.INT_TYPE)
+            .extend(v("flag"), TypeTable.BOOL_TYPE)
+            .extend(v("s"), types.structureType(S))
+            .extend(v("sp"), types.pointerTo(types.structureType(S)))
+            .extend(v("ip"), types.pointerTo(TypeTable.INT_TYPE))
+            .extend(v("vp"), types.voidPointerType);
+    }
+
+    private void assertType(final Type expected, final Exp e) throws TypeErrorException {
+        assertSame(types.intern(expected), checker.typeofExp(env, e));
+    }
+
+    private void assertLhsType(final Type expected, final Lhs lhs) throws TypeErrorException {
+        assertSame(types.intern(expected), checker.typeofLhs(env, lhs));
+    }
+
+    private void assertRejects(final String message, final Exp e) {
+        try {
+            checker.typeofExp(env, e);
+            fail("Expected a type error in: " + e);
+        } catch (final TypeErrorException error) {
+            assertEquals(message, error.getMessage());
+        }
+    }
+
+    private void assertLhsRejects(final String message, final Lhs lhs) {
+        try {
+            checker.typeofLhs(env, lhs);
+            fail("Expected a type error in: " + lhs);
+        } catch (final TypeErrorException error) {
+            assertEquals(message, error.getMessage());
+        }
+    }
+
+    // checks s outside of any loop, in a function returning int
+    private TypeEnvironment check(final Stmt s) throws TypeErrorException {
+        return checker.typecheckStatement(env, s, false, TypeTable.INT_TYPE);
+    }
+
+    private void assertRejects(final String message, final Stmt s, final boolean inLoop, final Type returnType) {
+        try {
+            checker.typecheckStatement(env, s, inLoop, types.intern(returnType));
+            fail("Expected a type error in: " + s);
+        } catch (final TypeErrorException error) {
+            assertEquals(message, error.getMessage());
+        }
+    }
+
+    private void assertRejects(final String message, final Stmt s) {
+        assertRejects(message, s, false, new IntType());
+    }
+
+    // statements
+
+    @Test
+    public void ifNeedsBoolGuard() throws TypeErrorException {
+        check(new IfStmt(var("flag"), new ReturnExpStmt(num(1)), new ReturnExpStmt(num(0))));
+        assertRejects("expected: bool got: int",
+                      new IfStmt(var("n"), new ReturnExpStmt(num(1)), new ReturnExpStmt(num(0))));
+    }
+
+    @Test
+    public void ifBranchesAreScoped() throws TypeErrorException {
+        final TypeEnvironment after =
+            check(new IfStmt(var("flag"), declare(new IntType(), "x", num(1)), new ReturnExpStmt(num(0))));
+        assertNull(after.lookup(v("x")));
+        assertRejects("variable not defined: x",
+                      seq(new IfStmt(var("flag"), declare(new IntType(), "x", num(1)), new ReturnExpStmt(num(0))),
+                          new ReturnExpStmt(var("x"))));
+    }
+
+    @Test
+    public void whileNeedsBoolGuard() throws TypeErrorException {
+        check(new WhileStmt(var("flag"), new AssignmentStmt(lhs("n"), num(1))));
+        assertRejects("expected: bool got: int",
+                      new WhileStmt(var("n"), new AssignmentStmt(lhs("n"), num(1))));
+    }
+
+    @Test
+    public void breakOnlyInLoop() throws TypeErrorException {
+        check(new WhileStmt(var("flag"), new BreakStmt()));
+        assertRejects("Break outside of loop", new BreakStmt());
+    }
+
+    @Test
+    public void continueOnlyInLoop() throws TypeErrorException {
+        check(new WhileStmt(var("flag"), new ContinueStmt()));
+        assertRejects("Continue outside of loop", new ContinueStmt());
+    }
+
+    @Test
+    public void declarationMatchesInitializer() throws TypeErrorException {
+        final TypeEnvironment after = check(declare(new IntType(), "x", num(1)));
+        assertSame(TypeTable.INT_TYPE, after.lookup(v("x")));
+        assertRejects("expected: int got: bool", declare(new IntType(), "x", yes()));
+    }
+
+    @Test
+    public void declarationCantSeeItself() {
+        assertRejects("variable not defined: x", declare(new IntType(), "x", var("x")));
+    }
+
+    @Test
+    public void assignmentMatchesTarget() throws TypeErrorException {
+        check(new AssignmentStmt(lhs("n"), num(2)));
+        assertRejects("expected: int got: bool", new AssignmentStmt(lhs("n"), yes()));
+    }
+
+    @Test
+    public void returnVoidOnlyFromVoid() throws TypeErrorException {
+        checker.typecheckStatement(env, new ReturnVoidStmt(), false, TypeTable.VOID_TYPE);
+        assertRejects("expected: int got: void", new ReturnVoidStmt());
+    }
+
+    @Test
+    public void returnMatchesReturnType() throws TypeErrorException {
+        check(new ReturnExpStmt(var("n")));
+        assertRejects("expected: int got: bool", new ReturnExpStmt(var("flag")));
+        assertRejects("expected: void got: int", new ReturnExpStmt(num(1)), false, new VoidType());
+    }
+
+    @Test
+    public void sequenceThreadsDeclarations() throws TypeErrorException {
+        final TypeEnvironment after =
+            check(seq(declare(new IntType(), "x", num(1)),
+                      seq(new AssignmentStmt(lhs("x"), binop(var("x"), new PlusOp(), num(1))),
+                          declare(new BoolType(), "y", yes()))));
+        assertSame(TypeTable.INT_TYPE, after.lookup(v("x")));
+        assertSame(TypeTable.BOOL_TYPE, after.lookup(v("y")));
+        assertRejects("variable not defined: x",
+                      seq(new AssignmentStmt(lhs("x"), num(1)), declare(new IntType(), "x", num(2))));
+    }
+
+    // expressions
+
+    @Test
+    public void literalsHaveTheirTypes() throws TypeErrorException {
+        assertType(new IntType(), num(1));
+        assertType(new CharType(), new CharExp('c'));
+        assertType(new BoolType(), yes());
+    }
+
+    @Test
+    public void variablesMustBeDefined() throws TypeErrorException {
+        assertType(new IntType(), var("n"));
+        assertType(new PointerType(new StructureType(S)), var("sp"));
+        assertRejects("variable not defined: y", var("y"));
+    }
+
+    @Test
+    public void mallocTakesInt() throws TypeErrorException {
+        assertType(new PointerType(new VoidType()), new MallocExp(num(4)));
+        assertRejects("expected: int got: bool", new MallocExp(yes()));
+    }
+
+    @Test
+    public void freeTakesVoidPointer() throws TypeErrorException {
+        assertType(new VoidType(), new FreeExp(var("vp")));
+        assertRejects("expected: void* got: int*", new FreeExp(var("ip")));
+    }
+
+    @Test
+    public void sizeofIsInt() throws TypeErrorException {
+        assertType(new IntType(), new SizeofExp(new StructureType(S)));
+        assertType(new IntType(), new SizeofExp(new PointerType(new BoolType())));
+    }
+
+    @Test
+    public void arithmeticTakesInts() throws TypeErrorException {
+        for (final Op op : new Op[] { new PlusOp(), new MinusOp(), new MultOp(), new DivOp() }) {
+            assertType(new IntType(), binop(var("n"), op, num(1)));
+            assertRejects("expected: int got: bool", binop(num(1), op, yes()));
+            assertRejects("expected: int got: bool", binop(yes(), op, num(1)));
+        }
+    }
+
+    @Test
+    public void equalityTakesSameTypes() throws TypeErrorException {
+        assertType(new BoolType(), binop(var("n"), new EqualsOp(), num(1)));
+        assertType(new BoolType(), binop(var("flag"), new EqualsOp(), yes()));
+        assertType(new BoolType(), binop(var("sp"), new EqualsOp(), var("sp")));
+        assertRejects("expected: int got: bool", binop(var("n"), new EqualsOp(), var("flag")));
+    }
+
+    @Test
+    public void lessThanTakesInts() throws TypeErrorException {
+        assertType(new BoolType(), binop(var("n"), new LessThanOp(), num(1)));
+        assertRejects("expected: int got: bool", binop(var("flag"), new LessThanOp(), var("flag")));
+    }
+
+    @Test
+    public void structureCreationMatchesFields() throws TypeErrorException {
+        assertType(new StructureType(S), make(S, num(1), yes()));
+        assertRejects("No such structure with name: T", make(new StructureName("T"), num(1)));
+        assertRejects("Structure creation has wrong arity: S", make(S, num(1)));
+        assertRejects("expected: int got: bool", make(S, yes(), yes()));
+    }
+
+    @Test
+    public void callsMatchSignatures() throws TypeErrorException {
+        assertType(new IntType(), call(G, num(1), yes()));
+        assertType(new BoolType(), call(BIG, var("n")));
+        assertRejects("Function not defined: h", call(new FunctionName("h")));
+        assertRejects("Function call has wrong arity: g", call(G, num(1)));
+        assertRejects("expected: bool got: int", call(G, num(1), num(2)));
+    }
+
+    @Test
+    public void castsCantTakeVoid() throws TypeErrorException {
+        assertType(new CharType(), new CastExp(new CharType(), var("n")));
+        assertType(new PointerType(new IntType()), new CastExp(new PointerType(new IntType()), var("vp")));
+        assertRejects("Cannot cast void: free(vp)", new CastExp(new IntType(), new FreeExp(var("vp"))));
+    }
+
+    @Test
+    public void addressOfGivesPointer() throws TypeErrorException {
+        assertType(new PointerType(new IntType()), new AddressOfExp(lhs("n")));
+        assertType(new PointerType(new BoolType()), new AddressOfExp(new FieldAccessLhs(lhs("s"), B)));
+        assertType(new PointerType(new PointerType(new IntType())), new AddressOfExp(lhs("ip")));
+        assertRejects("variable not defined: y", new AddressOfExp(lhs("y")));
+    }
+
+    @Test
+    public void dereferenceTakesNonVoidPointer() throws TypeErrorException {
+        assertType(new IntType(), new DereferenceExp(var("ip")));
+        assertType(new StructureType(S), new DereferenceExp(var("sp")));
+        assertRejects("Expected pointer; got: int", new DereferenceExp(var("n")));
+        assertRejects("Cannot dereference void pointer", new DereferenceExp(var("vp")));
+    }
+
+    @Test
+    public void fieldAccessTakesStructureWithField() throws TypeErrorException {
+        assertType(new IntType(), new FieldAccessExp(var("s"), I));
+        assertType(new BoolType(), new FieldAccessExp(new DereferenceExp(var("sp")), B));
+        assertRejects("No such field defined: z", new FieldAccessExp(var("s"), new FieldName("z")));
+        assertRejects("Expected structure; got: int", new FieldAccessExp(var("n"), I));
+    }
+
+    // left-hand sides
+
+    @Test
+    public void variableTargetsMustBeDefined() throws TypeErrorException {
+        assertLhsType(new IntType(), lhs("n"));
+        assertLhsRejects("variable not defined: y", lhs("y"));
+    }
+
+    @Test
+    public void fieldTargetsTakeStructureWithField() throws TypeErrorException {
+        assertLhsType(new BoolType(), new FieldAccessLhs(lhs("s"), B));
+        assertLhsType(new IntType(), new FieldAccessLhs(new DereferenceLhs(lhs("sp")), I));
+        assertLhsRejects("No such field defined: z", new FieldAccessLhs(lhs("s"), new FieldName("z")));
+        assertLhsRejects("Expected structure; got: int", new FieldAccessLhs(lhs("n"), I));
+    }
+
+    // struct R { int a; bool a; R* next; }, assigned through r.a and
+    // (*r.next).a
+    @Test
+    public void repeatedFieldTargetsUseFirst() throws TypeErrorException {
+        final StructureName r = new StructureName("R");
+        final FieldName a = new FieldName("a");
+        final StructureDeclaration dec =
+            new StructureDeclaration(r, new VariableDeclaration[] {
+                    param(new IntType(), "a"),
+                    param(new BoolType(), "a"),
+                    param(new PointerType(new StructureType(r)), "next")
+                });
+        final Map<StructureName, StructureDeclaration> structures =
+            Typechecker.makeStructureMap(program(new StructureDeclaration[] { dec }));
+        final Typechecker checker =
+            new Typechecker(Typechecker.makeFunctionMap(program(new StructureDeclaration[0])), structures, types, false);
+        final TypeEnvironment withR = env.extend(v("r"), types.structureType(r));
+        final Lhs viaNext =
+            new FieldAccessLhs(new DereferenceLhs(new FieldAccessLhs(lhs("r"), new FieldName("next"))), a);
+        assertSame(TypeTable.INT_TYPE, checker.typeofLhs(withR, new FieldAccessLhs(lhs("r"), a)));
+        assertSame(TypeTable.INT_TYPE, checker.typeofLhs(withR, viaNext));
+        checker.typecheckStatement(withR, new AssignmentStmt(viaNext, num(1)), false, TypeTable.INT_TYPE);
+        try {
+            checker.typecheckStatement(withR, new AssignmentStmt(viaNext, yes()), false, TypeTable.INT_TYPE);
+            fail("Expected a type error");
+        } catch (final TypeErrorException e) {
+            assertEquals("expected: int got: bool", e.getMessage());
+        }
+    }
+
+    @Test
+    public void dereferenceTargetsTakeNonVoidPointer() throws TypeErrorException {
+        assertLhsType(new IntType(), new DereferenceLhs(lhs("ip")));
+        assertLhsRejects("Expected pointer; got: int", new DereferenceLhs(lhs("n")));
+        assertLhsRejects("Cannot dereference void pointer", new DereferenceLhs(lhs("vp")));
+    }
+
+    @Test
+    public void assignmentThroughTargets() throws TypeErrorException {
+        check(new AssignmentStmt(new FieldAccessLhs(new DereferenceLhs(lhs("sp")), B), yes()));
+        assertRejects("expected: bool got: int",
+                      new AssignmentStmt(new FieldAccessLhs(lhs("s"), B), num(1)));
+        assertRejects("expected: int got: bool",
+                      new AssignmentStmt(new DereferenceLhs(lhs("ip")), yes()));
+    }
+
+    // programs
+
+    @Test
+    public void eachFunctionHasItsOwnReturnType() throws TypeErrorException {
+        final FunctionDefinition main =
+            new FunctionDefinition(new IntType(), MAIN, new VariableDeclaration[0],
+                                   new ReturnExpStmt(call(G, num(1), call(BIG, num(2)))));
+        final Program prog = program(new StructureDeclaration[] { structureS() }, functionG(), functionBig(), main);
+        Typechecker.forProgram(prog).typecheck(prog);
+
+        final FunctionDefinition wrong =
+            new FunctionDefinition(new IntType(), MAIN, new VariableDeclaration[0],
+                                   new ReturnExpStmt(call(BIG, num(1))));
+        assertEquals("expected: int got: bool",
+                     errorIn(program(new StructureDeclaration[0], functionBig(), wrong)));
+    }
+
+    @Test
+    public void rejectsDuplicateFunctions() {
+        assertEquals("Duplicate function name: g",
+                     errorIn(program(new StructureDeclaration[0], functionG(), functionG())));
+    }
+
+    @Test
+    public void rejectsDuplicateStructures() {
+        assertEquals("Duplicate structure name: S",
+                     errorIn(program(new StructureDeclaration[] { structureS(), structureS() })));
+    }
+
+    @Test
+    public void rejectsStructuresContainingThemselves() {
+        final StructureName r = new StructureName("R");
+        final StructureDeclaration recursive =
+            new StructureDeclaration(r, new VariableDeclaration[] {
+                    new VariableDeclaration(new StructureType(r), v("next"))
+                });
+        assertEquals("Structure contains itself by value: R",
+                     errorIn(program(new StructureDeclaration[] { recursive })));
+    }
+} // TypeRulesTest
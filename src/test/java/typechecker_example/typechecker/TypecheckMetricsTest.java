@@ -0,0 +1,88 @@
+package typechecker_example.typechecker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class TypecheckMetricsTest {
+    @Test
+    public void drainAddsAndResets() throws TypeErrorException {
+        final TypecheckMetrics metrics = new TypecheckMetrics();
+        final TypecheckRecorder recorder =
+            TypecheckStatsTest.checkedWithRecorder(TypecheckStatsTest.assignsThroughEveryTarget(), 1);
+        metrics.drain(recorder);
+        assertEquals(0, recorder.snapshot().functionsChecked);
+        assertEquals(0, recorder.snapshot().lhsVisits());
+        assertEquals(1, metrics.getFunctionsChecked());
+
+        final TypecheckRecorder again =
+            TypecheckStatsTest.checkedWithRecorder(TypecheckStatsTest.assignsThroughEveryTarget(), 2);
+        metrics.drain(again);
+        assertEquals(3, metrics.getFunctionsChecked());
+        assertEquals(9, metrics.getEnvironmentExtensions());
+        assertEquals(12, metrics.getEnvironmentLookups());
+        assertEquals(3, metrics.getFieldLookups());
+        assertEquals(Long.valueOf(9), metrics.getExpressionVisits().get("IntExp"));
+        assertEquals(Long.valueOf(9), metrics.getStatementVisits().get("AssignmentStmt"));
+        assertEquals(Long.valueOf(6), metrics.getLhsVisits().get("DereferenceLhs"));
+        assertEquals(metrics.getFunctionNanos(), metrics.getSlowestFunctionNanos().get("f").longValue());
+
+        metrics.reset();
+        assertEquals(0, metrics.getFunctionsChecked());
+        assertTrue(metrics.getSlowestFunctionNanos().isEmpty());
+    }
+
+    // each thread has a checker and recorder of its own, and drains into
+    // the shared metrics
+    @Test
+    public void addsFromManyThreads() throws InterruptedException {
+        final int threads = 8;
+        final int checksPerThread = 50;
+        final TypecheckMetrics metrics = new TypecheckMetrics();
+        final List<Thread> started = new ArrayList<Thread>();
+        for (int thread = 0; thread < threads; thread++) {
+            final Thread t = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            for (int check = 0; check < checksPerThread; check++) {
+                                metrics.drain(TypecheckStatsTest.checkedWithRecorder(TypecheckStatsTest.assignsThroughEveryTarget(), 1));
+                            }
+                        } catch (final TypeErrorException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+            t.start();
+            started.add(t);
+        }
+        for (final Thread t : started) {
+            t.join();
+        }
+        assertEquals(threads * checksPerThread, metrics.getFunctionsChecked());
+        assertEquals(Long.valueOf(3 * threads * checksPerThread), metrics.getLhsVisits().get("VariableLhs"));
+    }
+
+    @Test
+    public void slowestFunctionsComeFirst() {
+        final TypecheckMetrics metrics = new TypecheckMetrics();
+        final TypecheckRecorder recorder = new TypecheckRecorder();
+        for (int index = 0; index < TypecheckMetrics.SLOWEST_FUNCTIONS + 5; index++) {
+            recorder.functionChecked(new FunctionName("f" + index), index);
+        }
+        metrics.drain(recorder);
+        final Map<String, Long> slowest = metrics.getSlowestFunctionNanos();
+        assertEquals(TypecheckMetrics.SLOWEST_FUNCTIONS, slowest.size());
+        long previous = Long.MAX_VALUE;
+        for (final Long nanos : slowest.values()) {
+            assertTrue(nanos <= previous);
+            previous = nanos;
+        }
+        assertEquals(Long.valueOf(TypecheckMetrics.SLOWEST_FUNCTIONS + 4),
+                     slowest.get("f" + (TypecheckMetrics.SLOWEST_FUNCTIONS + 4)));
+        assertFalse(slowest.containsKey("f0"));
+    }
+} // TypecheckMetricsTest
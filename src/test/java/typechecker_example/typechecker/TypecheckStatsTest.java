@@ -0,0 +1,111 @@
+package typechecker_example.typechecker;
+
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+public class TypecheckStatsTest {
+    private static final FunctionName F = new FunctionName("f");
+    private static final Variable P = new Variable("p");
+    private static final Variable Q = new Variable("q");
+    private static final Variable X = new Variable("x");
+
+    // struct S { int i; }
+    // int f(S* p, int* q, int x) { x = 1; (*p).i = 2; *q = 3; return x; }
+    static Program assignsThroughEveryTarget() {
+        final StructureName s = new StructureName("S");
+        final StructureDeclaration dec =
+            new StructureDeclaration(s, new VariableDeclaration[] {
+                    new VariableDeclaration(new IntType(), new Variable("i"))
+                });
+        final Stmt body =
+            new SequenceStmt(new AssignmentStmt(new VariableLhs(X), new IntExp(1)),
+                             new SequenceStmt(new AssignmentStmt(new FieldAccessLhs(new DereferenceLhs(new VariableLhs(P)),
+                                                                                    new FieldName("i")),
+                                                                 new IntExp(2)),
+                                              new SequenceStmt(new AssignmentStmt(new DereferenceLhs(new VariableLhs(Q)),
+                                                                                  new IntExp(3)),
+                                                               new ReturnExpStmt(new VariableExp(X)))));
+        final FunctionDefinition f =
+            new FunctionDefinition(new IntType(),
+                                   F,
+                                   new VariableDeclaration[] {
+                                       new VariableDeclaration(new PointerType(new StructureType(s)), P),
+                                       new VariableDeclaration(new PointerType(new IntType()), Q),
+                                       new VariableDeclaration(new IntType(), X)
+                                   },
+                                   body);
+        return new Program(new StructureDeclaration[] { dec }, new FunctionDefinition[] { f });
+    }
+
+    static TypecheckRecorder checkedWithRecorder(final Program prog, final int times) throws TypeErrorException {
+        final TypecheckRecorder retval = new TypecheckRecorder();
+        final Typechecker checker = new Typechecker(Typechecker.makeFunctionMap(prog),
+                                                    Typechecker.makeStructureMap(prog),
+                                                    new TypeTable(),
+                                                    false,
+                                                    retval);
+        for (int time = 0; time < times; time++) {
+            checker.typecheck(prog);
+        }
+        return retval;
+    }
+
+    @Test
+    public void countsEveryKindOfNode() throws TypeErrorException {
+        final TypecheckStats stats = checkedWithRecorder(assignsThroughEveryTarget(), 1).snapshot();
+        assertEquals(3, stats.expressionVisits(TypecheckStats.INT_EXP));
+        assertEquals(1, stats.expressionVisits(TypecheckStats.VARIABLE_EXP));
+        assertEquals(4, stats.expressionVisits());
+        assertEquals(3, stats.statementVisits(TypecheckStats.SEQUENCE_STMT));
+        assertEquals(3, stats.statementVisits(TypecheckStats.ASSIGNMENT_STMT));
+        assertEquals(1, stats.statementVisits(TypecheckStats.RETURN_EXP_STMT));
+        assertEquals(7, stats.statementVisits());
+        assertEquals(3, stats.lhsVisits(TypecheckStats.VARIABLE_LHS));
+        assertEquals(1, stats.lhsVisits(TypecheckStats.FIELD_ACCESS_LHS));
+        assertEquals(2, stats.lhsVisits(TypecheckStats.DEREFERENCE_LHS));
+        assertEquals(6, stats.lhsVisits());
+        assertEquals(3, stats.environmentExtensions);
+        assertEquals(4, stats.environmentLookups);
+        assertEquals(1, stats.fieldLookups);
+        assertEquals(0, stats.signatureLookups);
+        assertEquals(1, stats.functionsChecked);
+    }
+
+    @Test
+    public void sumsTimePerFunction() throws TypeErrorException {
+        final TypecheckStats stats = checkedWithRecorder(assignsThroughEveryTarget(), 3).snapshot();
+        assertEquals(3, stats.functionsChecked);
+        assertEquals(1, stats.nanosPerFunction().size());
+        assertEquals(stats.functionNanos, stats.nanosPerFunction().get(F).longValue());
+    }
+
+    @Test
+    public void snapshotIsUnaffectedByLaterCounts() throws TypeErrorException {
+        final TypecheckRecorder recorder = checkedWithRecorder(assignsThroughEveryTarget(), 1);
+        final TypecheckStats before = recorder.snapshot();
+        recorder.reset();
+        assertEquals(0, recorder.snapshot().expressionVisits());
+        assertTrue(recorder.snapshot().nanosPerFunction().isEmpty());
+        assertEquals(4, before.expressionVisits());
+        assertEquals(6, before.lhsVisits());
+        assertTrue(before.nanosPerFunction().containsKey(F));
+    }
+
+    @Test
+    public void plusAddsEveryCount() throws TypeErrorException {
+        final TypecheckStats once = checkedWithRecorder(assignsThroughEveryTarget(), 1).snapshot();
+        final TypecheckStats twice = once.plus(once);
+        assertEquals(8, twice.expressionVisits());
+        assertEquals(14, twice.statementVisits());
+        assertEquals(2, twice.lhsVisits(TypecheckStats.FIELD_ACCESS_LHS));
+        assertEquals(6, twice.environmentExtensions);
+        assertEquals(8, twice.environmentLookups);
+        assertEquals(2, twice.fieldLookups);
+        assertEquals(2, twice.functionsChecked);
+        assertEquals(2 * once.functionNanos, twice.functionNanos);
+        assertEquals(2 * once.nanosPerFunction().get(F), twice.nanosPerFunction().get(F).longValue());
+        assertEquals(once.expressionVisits(), once.plus(TypecheckStats.empty()).expressionVisits());
+    }
+} // TypecheckStatsTest
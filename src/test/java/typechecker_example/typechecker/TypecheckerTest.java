@@ -0,0 +1,133 @@
+package typechecker_example.typechecker;
+
+import org.junit.Test;
+import typechecker_example.syntax.*;
+
+import static org.junit.Assert.*;
+
+// checks million-deep programs on the default thread stack
+public class TypecheckerTest {
+    public static final int DEPTH = 1000000;
+
+    private static final Variable X = new Variable("x");
+
+    private static Program program(final Stmt body) {
+        return new Program(new StructureDeclaration[0],
+                           new FunctionDefinition[] {
+                               new FunctionDefinition(new IntType(),
+                                                      new FunctionName("main"),
+                                                      new VariableDeclaration[0],
+                                                      body)
+                           });
+    }
+
+    private static void typecheck(final Program prog) throws TypeErrorException {
+        Typechecker.forProgram(prog).typecheck(prog);
+    }
+
+    private static String errorIn(final Program prog) {
+        try {
+            typecheck(prog);
+        } catch (final TypeErrorException e) {
+            return e.getMessage();
+        }
+        fail("Expected a type error");
+        return null;
+    }
+
+    // ((... (first + 1) + ...) + 1)
+    private static Exp leftDeepChain(final Exp first) {
+        Exp retval = first;
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new BinopExp(retval, new PlusOp(), new IntExp(1));
+        }
+        return retval;
+    }
+
+    // (1 + (1 + ... (1 + last)))
+    private static Exp rightDeepChain(final Exp last) {
+        Exp retval = last;
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new BinopExp(new IntExp(1), new PlusOp(), retval);
+        }
+        return retval;
+    }
+
+    private static Stmt declareX() {
+        return new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(), X),
+                                                         new IntExp(0));
+    }
+
+    private static Stmt incrementX() {
+        return new AssignmentStmt(new VariableLhs(X),
+                                  new BinopExp(new VariableExp(X), new PlusOp(), new IntExp(1)));
+    }
+
+    // int x = 0; x = x + 1; ...; last, nested to the left
+    private static Stmt leftNested(final Stmt last) {
+        Stmt retval = declareX();
+        for (int index = 0; index < DEPTH; index++) {
+            retval = new SequenceStmt(retval, incrementX());
+        }
+        return new SequenceStmt(retval, last);
+    }
+
+    // int x0 = 0; int x1 = x0; ...; last, nested to the right, each
+    // declaration in scope of those before it
+    private static Stmt declarationSpine(final Exp last) {
+        final Variable[] variables = new Variable[DEPTH];
+        for (int index = 0; index < DEPTH; index++) {
+            variables[index] = new Variable("x" + index);
+        }
+        Stmt retval = new ReturnExpStmt(last);
+        for (int index = DEPTH - 1; index >= 0; index--) {
+            final Exp initializer =
+                (index == 0) ? new IntExp(0) : new VariableExp(variables[index - 1]);
+            retval = new SequenceStmt(
+                new VariableDeclarationInitializationStmt(new VariableDeclaration(new IntType(),
+                                                                                  variables[index]),
+                                                          initializer),
+                retval);
+        }
+        return retval;
+    }
+
+    @Test
+    public void checksLeftDeepBinops() throws TypeErrorException {
+        typecheck(program(new ReturnExpStmt(leftDeepChain(new IntExp(0)))));
+    }
+
+    @Test
+    public void checksRightDeepBinops() throws TypeErrorException {
+        typecheck(program(new ReturnExpStmt(rightDeepChain(new IntExp(0)))));
+    }
+
+    @Test
+    public void checksLeftNestedSequences() throws TypeErrorException {
+        typecheck(program(leftNested(new ReturnExpStmt(new VariableExp(X)))));
+    }
+
+    @Test
+    public void checksDeclarationSpine() throws TypeErrorException {
+        typecheck(program(declarationSpine(new VariableExp(new Variable("x" + (DEPTH - 1))))));
+    }
+
+    @Test
+    public void rejectsDeepestOperand() {
+        final String message =
+            errorIn(program(new ReturnExpStmt(leftDeepChain(new BoolExp(true)))));
+        assertTrue(message, message.contains("bool"));
+    }
+
+    @Test
+    public void rejectsLastStatement() {
+        final String message = errorIn(program(leftNested(new BreakStmt())));
+        assertTrue(message, message.contains("Break"));
+    }
+
+    @Test
+    public void rejectsVariableOutOfScopeAtEndOfSpine() {
+        final String message = errorIn(program(declarationSpine(new VariableExp(new Variable("y")))));
+        assertTrue(message, message.contains("y"));
+    }
+} // TypecheckerTest